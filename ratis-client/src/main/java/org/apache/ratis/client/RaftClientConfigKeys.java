@@ -90,6 +90,25 @@ public interface RaftClientConfigKeys {
     }
   }
 
+  interface Read {
+    String PREFIX = RaftClientConfigKeys.PREFIX + ".read";
+
+    /**
+     * When enabled, the unordered readonly requests without a target server are sent to the followers
+     * with the least outstanding reads, instead of the leader.
+     * It should be used with the linearizable read option enabled in the servers.
+     */
+    String FOLLOWER_ROUTING_ENABLED_KEY = PREFIX + ".follower-routing.enabled";
+    boolean FOLLOWER_ROUTING_ENABLED_DEFAULT = false;
+    static boolean followerRoutingEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, FOLLOWER_ROUTING_ENABLED_KEY,
+          FOLLOWER_ROUTING_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setFollowerRoutingEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, FOLLOWER_ROUTING_ENABLED_KEY, enabled);
+    }
+  }
+
   interface DataStream {
     String PREFIX = RaftClientConfigKeys.PREFIX + ".data-stream";
 
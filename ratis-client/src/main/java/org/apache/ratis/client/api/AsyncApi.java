@@ -91,7 +91,8 @@ public interface AsyncApi {
    * Note that the reply futures can be completed in any order.
    *
    * @param message The request message.
-   * @param server The target server.  When server == null, send the message to the leader.
+   * @param server The target server.  When server == null, send the message to the leader,
+   *               or, when follower routing is enabled, to the follower with the least outstanding reads.
    * @return a future of the reply.
    */
   CompletableFuture<RaftClientReply> sendReadOnlyUnordered(Message message, RaftPeerId server);
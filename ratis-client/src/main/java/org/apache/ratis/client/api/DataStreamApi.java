@@ -35,6 +35,8 @@ import java.nio.ByteBuffer;
  * this API is more efficient for network-topology-aware clusters
  * than the other APIs that require clients to send data/messages to the leader.
  *
+ * Clients may also read large data, such as the data previously streamed, from a server with a {@link DataStreamInput}.
+ *
  * Note that this API is different from {@link MessageStreamApi} in the sense that
  * this API streams data to all the servers in the {@link org.apache.ratis.protocol.RaftGroup}
  * but {@link MessageStreamApi} streams messages only to the leader.
@@ -50,4 +52,9 @@ public interface DataStreamApi extends Closeable {
 
   /** Create a stream by providing a customized header message and route table. */
   DataStreamOutput stream(ByteBuffer headerMessage, RoutingTable routingTable);
+
+  /** Create a stream to read the data specified by the given header message. */
+  default DataStreamInput read(ByteBuffer headerMessage) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support " + DataStreamInput.class);
+  }
 }
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client.api;
+
+import org.apache.ratis.io.CloseAsync;
+import org.apache.ratis.protocol.DataStreamReply;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
+/** An asynchronous input stream for reading state machine data from a server. */
+public interface DataStreamInput extends CloseAsync<DataStreamReply> {
+  /**
+   * Read the data asynchronously.
+   *
+   * @param position the starting position of the data.
+   * @param length the max number of bytes to be read.
+   * @return a future of the data read, which may have fewer than length bytes.
+   *         The data is empty when the position is at or beyond the end.
+   */
+  CompletableFuture<ByteBuffer> readAsync(long position, int length);
+
+  /**
+   * @return a {@link ReadableByteChannel} view of this {@link DataStreamInput},
+   *         which reads the data sequentially from the beginning.
+   */
+  ReadableByteChannel getReadableByteChannel();
+}
@@ -63,6 +63,9 @@ class AsyncImpl implements AsyncRpcApi {
 
   @Override
   public CompletableFuture<RaftClientReply> sendReadOnlyUnordered(Message message, RaftPeerId server) {
+    if (server == null && client.getFollowerReadRouter() != null) {
+      return UnorderedAsync.sendReadOnlyToFollowers(message, client);
+    }
     return UnorderedAsync.send(RaftClientRequest.readRequestType(), message, server, client);
   }
 
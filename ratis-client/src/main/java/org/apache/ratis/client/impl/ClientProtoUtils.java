@@ -170,7 +170,7 @@ public interface ClientProtoUtils {
       builder.addSuccessors(from, to);
     }
 
-    return builder.build();
+    return builder.setParityShards(p.getRoutingTable().getParityShards()).build();
   }
 
   static RaftClientRequest toRaftClientRequest(RaftClientRequestProto p) {
@@ -196,6 +196,7 @@ public interface ClientProtoUtils {
         .setRepliedCallIds(request.getRepliedCallIdsList())
         .setRoutingTable(getRoutingTable(request))
         .setTimeoutMs(request.getTimeoutMs())
+        .setCommitInfoVersion(p.getCommitInfoVersion())
         .build();
   }
 
@@ -242,7 +243,7 @@ public interface ClientProtoUtils {
             + " in request " + request);
     }
 
-    return b.build();
+    return b.setCommitInfoVersion(request.getCommitInfoVersion()).build();
   }
 
   static StateMachineExceptionProto.Builder toStateMachineExceptionProtoBuilder(StateMachineException e) {
@@ -272,6 +273,7 @@ public interface ClientProtoUtils {
         b.setMessage(toClientMessageEntryProtoBuilder(reply.getMessage()));
       }
       b.addAllCommitInfos(reply.getCommitInfos());
+      b.setCommitInfoVersion(reply.getCommitInfoVersion());
 
       final NotLeaderException nle = reply.getNotLeaderException();
       if (nle != null) {
@@ -434,6 +436,7 @@ public interface ClientProtoUtils {
         .setException(e)
         .setLogIndex(replyProto.getLogIndex())
         .setCommitInfos(replyProto.getCommitInfosList())
+        .setCommitInfoVersion(replyProto.getCommitInfoVersion())
         .build();
   }
 
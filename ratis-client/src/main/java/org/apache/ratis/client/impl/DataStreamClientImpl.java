@@ -23,13 +23,16 @@ import org.apache.ratis.client.DataStreamClient;
 import org.apache.ratis.client.DataStreamClientRpc;
 import org.apache.ratis.client.DataStreamOutputRpc;
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.api.DataStreamInput;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.datastream.impl.DataStreamPacketByteBuffer;
 import org.apache.ratis.datastream.impl.DataStreamReplyByteBuffer;
+import org.apache.ratis.datastream.impl.DataStreamRequestByteBuffer;
 import org.apache.ratis.io.FilePositionCount;
 import org.apache.ratis.io.StandardWriteOption;
 import org.apache.ratis.io.WriteOption;
 import org.apache.ratis.proto.RaftProtos.DataStreamPacketHeaderProto.Type;
+import org.apache.ratis.proto.RaftProtos.DataStreamReadRequestProto;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.ClientInvocationId;
 import org.apache.ratis.protocol.DataStreamReply;
@@ -53,12 +56,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Streaming client implementation
@@ -237,6 +242,113 @@ public class DataStreamClientImpl implements DataStreamClient {
     }
   }
 
+  public final class DataStreamInputImpl implements DataStreamInput {
+    private final RaftClientRequest header;
+    private final MemoizedSupplier<ReadableByteChannel> readableByteChannelSupplier
+        = JavaUtils.memoize(() -> new ReadableByteChannel() {
+      private long position = 0;
+
+      @Override
+      public int read(ByteBuffer dst) throws IOException {
+        final int length = dst.remaining();
+        final ByteBuffer data = IOUtils.getFromFuture(readAsync(position, length),
+            () -> "read(" + length + " bytes at " + position + " for " + ClientInvocationId.valueOf(header) + ")");
+        if (length > 0 && !data.hasRemaining()) {
+          return -1;
+        }
+        final int n = data.remaining();
+        dst.put(data);
+        position += n;
+        return n;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return !isClosed();
+      }
+
+      @Override
+      public void close() throws IOException {
+        IOUtils.getFromFuture(closeAsync(), () -> "close(" + ClientInvocationId.valueOf(header) + ")");
+      }
+    });
+
+    /** The sequence number of the packets, which is used as the stream offset. */
+    private long sequence = 0;
+    /** Has the header been sent?  It is sent with the first packet. */
+    private boolean headerSent = false;
+    private CompletableFuture<DataStreamReply> closeFuture;
+
+    private DataStreamInputImpl(RaftClientRequest header) {
+      this.header = header;
+    }
+
+    private DataStreamReadRequestProto.Builder newReadRequest() {
+      final DataStreamReadRequestProto.Builder b = DataStreamReadRequestProto.newBuilder();
+      if (!headerSent) {
+        b.setRequest(ClientProtoUtils.toRaftClientRequestProto(header));
+        headerSent = true;
+      }
+      return b;
+    }
+
+    private CompletableFuture<DataStreamReply> send(DataStreamReadRequestProto proto, WriteOption... options) {
+      final ByteBuffer buffer = proto.toByteString().asReadOnlyByteBuffer();
+      final DataStreamRequestHeader h = new DataStreamRequestHeader(
+          clientId, Type.STREAM_READ, header.getCallId(), sequence++, buffer.remaining(), options);
+      return dataStreamClientRpc.streamAsync(new DataStreamRequestByteBuffer(h, buffer));
+    }
+
+    private ByteBuffer getData(DataStreamReply reply) {
+      if (!reply.isSuccess()) {
+        final RaftClientReply clientReply = ClientProtoUtils.getRaftClientReply(reply);
+        throw new CompletionException(Optional.<Exception>ofNullable(clientReply.getException())
+            .orElseGet(() -> new IOException("Failed to read: " + reply)));
+      }
+      return ((DataStreamReplyByteBuffer) reply).slice();
+    }
+
+    @Override
+    public synchronized CompletableFuture<ByteBuffer> readAsync(long position, int length) {
+      Preconditions.assertTrue(position >= 0, () -> "position = " + position + " < 0");
+      Preconditions.assertTrue(length >= 0, () -> "length = " + length + " < 0");
+      if (isClosed()) {
+        return JavaUtils.completeExceptionally(new AlreadyClosedException(
+            clientId + ": stream already closed, request=" + header));
+      }
+      final DataStreamReadRequestProto proto = newReadRequest().setPosition(position).setLength(length).build();
+      return send(proto, StandardWriteOption.FLUSH).thenApply(this::getData);
+    }
+
+    synchronized boolean isClosed() {
+      return closeFuture != null;
+    }
+
+    @Override
+    public synchronized CompletableFuture<DataStreamReply> closeAsync() {
+      if (closeFuture == null) {
+        // the server does not have the stream if the header has not been sent
+        closeFuture = headerSent? send(newReadRequest().build(), StandardWriteOption.FLUSH, StandardWriteOption.CLOSE)
+            : CompletableFuture.completedFuture(DataStreamReplyByteBuffer.newBuilder()
+                .setClientId(clientId)
+                .setType(Type.STREAM_READ)
+                .setStreamId(header.getCallId())
+                .setSuccess(true)
+                .build());
+      }
+      return closeFuture;
+    }
+
+    public RaftClientRequest getHeader() {
+      return header;
+    }
+
+    @Override
+    public ReadableByteChannel getReadableByteChannel() {
+      return readableByteChannelSupplier.get();
+    }
+  }
+
   @Override
   public DataStreamClientRpc getClientRpc() {
     return dataStreamClientRpc;
@@ -274,6 +386,21 @@ public class DataStreamClientImpl implements DataStreamClient {
     return new DataStreamOutputImpl(request);
   }
 
+  @Override
+  public DataStreamInputImpl read(ByteBuffer headerMessage) {
+    final Message message =
+        Optional.ofNullable(headerMessage).map(ByteString::copyFrom).map(Message::valueOf).orElse(null);
+    final RaftClientRequest request = RaftClientRequest.newBuilder()
+        .setClientId(clientId)
+        .setServerId(dataStreamServer.getId())
+        .setGroupId(groupId)
+        .setCallId(CallId.getAndIncrement())
+        .setMessage(message)
+        .setType(RaftClientRequest.readRequestType())
+        .build();
+    return new DataStreamInputImpl(request);
+  }
+
   @Override
   public void close() throws IOException {
     dataStreamClientRpc.close();
@@ -203,10 +203,10 @@ public final class OrderedAsync {
       pending.setFirstRequest();
     }
     LOG.debug("{}: send* {}", client.getId(), request);
-    client.getClientRpc().sendRequestAsync(request).thenAccept(reply -> {
-      LOG.debug("{}: receive* {}", client.getId(), reply);
-      Objects.requireNonNull(reply, "reply == null");
-      client.handleReply(request, reply);
+    client.getClientRpc().sendRequestAsync(request).thenAccept(r -> {
+      LOG.debug("{}: receive* {}", client.getId(), r);
+      Objects.requireNonNull(r, "reply == null");
+      final RaftClientReply reply = client.handleReply(request, r);
       getSlidingWindow(request).receiveReply(
           request.getSlidingWindowEntry().getSeqNum(), reply, this::sendRequestWithRetry);
     }).exceptionally(e -> {
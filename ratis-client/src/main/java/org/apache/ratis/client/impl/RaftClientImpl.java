@@ -19,6 +19,7 @@ package org.apache.ratis.client.impl;
 
 import org.apache.ratis.client.DataStreamClient;
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.RaftClientConfigKeys;
 import org.apache.ratis.client.RaftClientRpc;
 import org.apache.ratis.client.api.DataStreamApi;
 import org.apache.ratis.client.api.LeaderElectionManagementApi;
@@ -26,6 +27,7 @@ import org.apache.ratis.client.api.SnapshotManagementApi;
 import org.apache.ratis.client.retry.ClientRetryEvent;
 import org.apache.ratis.conf.Parameters;
 import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
 import org.apache.ratis.proto.RaftProtos.SlidingWindowEntry;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.Message;
@@ -57,6 +59,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -125,6 +128,46 @@ public final class RaftClientImpl implements RaftClient {
     }
   }
 
+  /** Route the readonly requests to the followers with the least outstanding reads. */
+  static class FollowerReadRouter {
+    private final ConcurrentMap<RaftPeerId, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+
+    /**
+     * Select a follower other than the given excluded peer and count an outstanding read for it.
+     *
+     * @return the selected follower, or null if there are no eligible followers.
+     */
+    RaftPeerId acquire(Iterable<RaftPeer> peers, RaftPeerId leader, RaftPeerId excluded) {
+      RaftPeerId selected = null;
+      int min = Integer.MAX_VALUE;
+      for (RaftPeer peer : peers) {
+        final RaftPeerId id = peer.getId();
+        if (id.equals(leader) || id.equals(excluded)) {
+          continue;
+        }
+        final int load = getOutstanding(id).get();
+        if (load < min) {
+          min = load;
+          selected = id;
+        }
+      }
+      if (selected != null) {
+        getOutstanding(selected).incrementAndGet();
+      }
+      return selected;
+    }
+
+    void release(RaftPeerId id) {
+      if (id != null) {
+        getOutstanding(id).decrementAndGet();
+      }
+    }
+
+    private AtomicInteger getOutstanding(RaftPeerId id) {
+      return outstanding.computeIfAbsent(id, key -> new AtomicInteger());
+    }
+  }
+
   static class RepliedCallIds {
     private final Object name;
     /** The replied callIds. */
@@ -166,6 +209,71 @@ public final class RaftClientImpl implements RaftClient {
     }
   }
 
+  /**
+   * The versioned commit infos received from the servers.
+   * When a server omits the commit infos of a reply since the client already has the same version,
+   * the commit infos are filled in from this cache.
+   *
+   * @see RaftClientReply#getCommitInfoVersion()
+   */
+  static class CommitInfoVersions {
+    /** The number of versions to keep for each server; older versions may still be in use by outstanding requests. */
+    static final int MAX_VERSIONS = 8;
+
+    /** Map: server -> (version -> commit infos), in insertion order. */
+    private final Map<RaftPeerId, Map<Long, Collection<CommitInfoProto>>> versions = new ConcurrentHashMap<>();
+
+    private Map<Long, Collection<CommitInfoProto>> get(RaftPeerId server) {
+      return versions.computeIfAbsent(server, key -> new LinkedHashMap<Long, Collection<CommitInfoProto>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Collection<CommitInfoProto>> eldest) {
+          return size() > MAX_VERSIONS;
+        }
+      });
+    }
+
+    /** @return the latest commit info version received from the given server, or 0 if there is none. */
+    long getVersion(RaftPeerId server) {
+      if (server == null) {
+        return 0;
+      }
+      final Map<Long, Collection<CommitInfoProto>> map = get(server);
+      synchronized (map) {
+        long latest = 0;
+        for (Long v : map.keySet()) {
+          latest = v;
+        }
+        return latest;
+      }
+    }
+
+    /**
+     * Cache the commit infos of the given reply, or fill them in if they are omitted.
+     *
+     * @return the reply with the commit infos.
+     */
+    RaftClientReply update(RaftClientReply reply) {
+      final long version = reply.getCommitInfoVersion();
+      if (version == 0) {
+        return reply;
+      }
+      final Map<Long, Collection<CommitInfoProto>> map = get(reply.getServerId());
+      synchronized (map) {
+        if (!reply.getCommitInfos().isEmpty()) {
+          map.remove(version); // re-insert as the latest
+          map.put(version, reply.getCommitInfos());
+          return reply;
+        }
+        final Collection<CommitInfoProto> cached = map.get(version);
+        if (cached == null) {
+          LOG.warn("Commit info version {} not found for {}", version, reply);
+          return reply;
+        }
+        return RaftClientReply.newBuilder(reply).setCommitInfos(cached).build();
+      }
+    }
+  }
+
   private final ClientId clientId;
   private final RaftClientRpc clientRpc;
   private final RaftPeerList peers = new RaftPeerList();
@@ -176,6 +284,10 @@ public final class RaftClientImpl implements RaftClient {
   private volatile RaftPeerId leaderId;
   /** The callIds of the replied requests. */
   private final RepliedCallIds repliedCallIds;
+  /** Non-null if the readonly requests are routed to the followers. */
+  private final FollowerReadRouter followerReadRouter;
+  /** The commit infos received from the servers. */
+  private final CommitInfoVersions commitInfoVersions = new CommitInfoVersions();
 
   private final TimeoutExecutor scheduler = TimeoutExecutor.getInstance();
 
@@ -203,6 +315,8 @@ public final class RaftClientImpl implements RaftClient {
     this.leaderId = Objects.requireNonNull(computeLeaderId(leaderId, group),
         () -> "this.leaderId is set to null, leaderId=" + leaderId + ", group=" + group);
     this.repliedCallIds = new RepliedCallIds(clientId);
+    this.followerReadRouter = RaftClientConfigKeys.Read.followerRoutingEnabled(properties)?
+        new FollowerReadRouter(): null;
     this.retryPolicy = Objects.requireNonNull(retryPolicy, "retry policy can't be null");
 
     clientRpc.addRaftPeers(group.getPeers());
@@ -271,6 +385,22 @@ public final class RaftClientImpl implements RaftClient {
         TimeDuration.ZERO : sleepDefault;
   }
 
+  FollowerReadRouter getFollowerReadRouter() {
+    return followerReadRouter;
+  }
+
+  /**
+   * Select a follower for serving a readonly request.
+   * The selection is counted as an outstanding read until it is released.
+   *
+   * @param previous the follower selected by the previous attempt, or null for the first attempt.
+   * @return the selected follower, or null if the request should be sent to the leader.
+   */
+  RaftPeerId acquireReadServer(RaftPeerId previous) {
+    followerReadRouter.release(previous);
+    return followerReadRouter.acquire(peers, getLeaderId(), previous);
+  }
+
   TimeoutExecutor getScheduler() {
     return scheduler;
   }
@@ -283,13 +413,15 @@ public final class RaftClientImpl implements RaftClient {
       RaftPeerId server, long callId, Message message, RaftClientRequest.Type type,
       SlidingWindowEntry slidingWindowEntry) {
     final RaftClientRequest.Builder b = RaftClientRequest.newBuilder();
+    final RaftPeerId target = server != null? server: getLeaderId();
     if (server != null) {
       b.setServerId(server);
     } else {
-      b.setLeaderId(getLeaderId())
+      b.setLeaderId(target)
        .setRepliedCallIds(repliedCallIds.get(callId));
     }
     return b.setClientId(clientId)
+        .setCommitInfoVersion(commitInfoVersions.getVersion(target))
         .setGroupId(groupId)
         .setCallId(callId)
         .setMessage(message)
@@ -352,8 +484,12 @@ public final class RaftClientImpl implements RaftClient {
     return new RaftRetryFailureException(event.getRequest(), attemptCount, retryPolicy, throwable);
   }
 
-  RaftClientReply handleReply(RaftClientRequest request, RaftClientReply reply) {
-    if (request.isToLeader() && reply != null) {
+  RaftClientReply handleReply(RaftClientRequest request, RaftClientReply received) {
+    if (received == null) {
+      return null;
+    }
+    final RaftClientReply reply = commitInfoVersions.update(received);
+    if (request.isToLeader()) {
       if (!request.getType().isReadOnly()) {
         repliedCallIds.add(reply.getCallId());
       }
@@ -38,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /** Send unordered asynchronous requests to a raft service. */
@@ -67,6 +68,24 @@ public interface UnorderedAsync {
         .thenApply(reply -> RaftClientImpl.handleRaftException(reply, CompletionException::new));
   }
 
+  /**
+   * Send a readonly request to the followers selected by {@link RaftClientImpl#acquireReadServer(RaftPeerId)}.
+   * A retry selects another follower.
+   */
+  static CompletableFuture<RaftClientReply> sendReadOnlyToFollowers(Message message, RaftClientImpl client) {
+    final long callId = CallId.getAndIncrement();
+    final AtomicReference<RaftPeerId> selected = new AtomicReference<>();
+    final PendingClientRequest pending = new PendingUnorderedRequest(() -> {
+      final RaftPeerId server = client.acquireReadServer(selected.get());
+      selected.set(server);
+      return client.newRaftClientRequest(server, callId, message, RaftClientRequest.readRequestType(), null);
+    });
+    sendRequestWithRetry(pending, client);
+    return pending.getReplyFuture()
+        .whenComplete((reply, e) -> client.getFollowerReadRouter().release(selected.get()))
+        .thenApply(reply -> RaftClientImpl.handleRaftException(reply, CompletionException::new));
+  }
+
   static void sendRequestWithRetry(PendingClientRequest pending, RaftClientImpl client) {
     final CompletableFuture<RaftClientReply> f = pending.getReplyFuture();
     if (f.isDone()) {
@@ -84,8 +103,7 @@ public interface UnorderedAsync {
         final RaftException replyException = reply != null? reply.getException(): null;
         reply = client.handleLeaderException(request, reply);
         if (reply != null) {
-          client.handleReply(request, reply);
-          f.complete(reply);
+          f.complete(client.handleReply(request, reply));
           return;
         }
 
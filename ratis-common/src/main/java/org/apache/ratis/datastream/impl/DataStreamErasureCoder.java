@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.datastream.impl;
+
+import org.apache.ratis.protocol.RoutingTable;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ReedSolomon;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Erasure code the DataStream packets using {@link ReedSolomon}.
+ * <p>
+ * A non-empty packet of n bytes is encoded to a record for each shard.
+ * A record is a 4-byte header, which is n, followed by a cell of ceil(n / dataShards) bytes.
+ * All the records of a packet have the same size.
+ * An empty packet is encoded to empty records.
+ * <p>
+ * The shard stream of a peer is the concatenation of its records.
+ * The original data can be decoded from the shard streams of any dataShards peers.
+ *
+ * @see RoutingTable#getShardPeers()
+ */
+public final class DataStreamErasureCoder {
+  public static final int RECORD_HEADER_SIZE = 4;
+
+  static int getCellSize(int packetLength, int dataShards) {
+    return (packetLength + dataShards - 1) / dataShards;
+  }
+
+  /** @return a new coder for the given routing table, or null if the table is not erasure coded. */
+  public static DataStreamErasureCoder valueOf(RoutingTable routingTable) {
+    if (routingTable == null || !routingTable.isErasureCoded()) {
+      return null;
+    }
+    final int parityShards = routingTable.getParityShards();
+    return new DataStreamErasureCoder(routingTable.getShardPeers().size() - parityShards, parityShards);
+  }
+
+  private final ReedSolomon codec;
+
+  public DataStreamErasureCoder(int dataShards, int parityShards) {
+    this.codec = new ReedSolomon(dataShards, parityShards);
+  }
+
+  public int getDataShards() {
+    return codec.getDataShards();
+  }
+
+  public int getParityShards() {
+    return codec.getParityShards();
+  }
+
+  public int getNumShards() {
+    return codec.getNumShards();
+  }
+
+  /**
+   * Encode the remaining bytes of the given packet.
+   * The position of the packet is unchanged.
+   *
+   * @return the records, one for each shard.
+   */
+  public ByteBuffer[] encode(ByteBuffer packet) {
+    final ByteBuffer[] records = new ByteBuffer[getNumShards()];
+    final int length = packet.remaining();
+    if (length == 0) {
+      for (int i = 0; i < records.length; i++) {
+        records[i] = ByteBuffer.allocate(0);
+      }
+      return records;
+    }
+
+    final int cellSize = getCellSize(length, getDataShards());
+    final byte[][] shards = new byte[records.length][RECORD_HEADER_SIZE + cellSize];
+    final ByteBuffer data = packet.duplicate();
+    for (int i = 0; i < records.length; i++) {
+      records[i] = ByteBuffer.wrap(shards[i]);
+      records[i].putInt(length);
+      if (i < getDataShards()) {
+        final ByteBuffer cell = data.slice();
+        cell.limit(Math.min(cellSize, cell.remaining()));
+        data.position(data.position() + cell.remaining());
+        records[i].put(cell);
+      }
+      records[i].clear();
+    }
+    codec.encode(shards, RECORD_HEADER_SIZE, cellSize);
+    return records;
+  }
+
+  /**
+   * Decode the original data from the given shard streams.
+   *
+   * @param streams the shard streams indexed by the shard indices; a null element indicates a missing shard.
+   * @return the decoded data.
+   */
+  public ByteBuffer decode(ByteBuffer[] streams) {
+    Preconditions.assertTrue(streams.length == getNumShards(),
+        () -> "streams.length = " + streams.length + " != " + getNumShards());
+    final ByteBuffer[] inputs = new ByteBuffer[streams.length];
+    final boolean[] present = new boolean[streams.length];
+    ByteBuffer first = null;
+    for (int i = 0; i < streams.length; i++) {
+      if (streams[i] != null) {
+        inputs[i] = streams[i].duplicate();
+        present[i] = true;
+        first = first != null ? first : inputs[i];
+      }
+    }
+    Preconditions.assertNotNull(first, () -> "All the shard streams are missing");
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    while (first.hasRemaining()) {
+      final int length = first.getInt(first.position());
+      final int cellSize = getCellSize(length, getDataShards());
+      final byte[][] shards = new byte[streams.length][cellSize];
+      for (int i = 0; i < inputs.length; i++) {
+        if (present[i]) {
+          final int n = inputs[i].getInt();
+          Preconditions.assertTrue(n == length,
+              () -> "Corrupted shard stream: packet length mismatched, " + n + " != " + length);
+          inputs[i].get(shards[i]);
+        }
+      }
+      codec.decode(shards, present, 0, cellSize);
+
+      for (int i = 0, remaining = length; remaining > 0; i++) {
+        final int n = Math.min(cellSize, remaining);
+        out.write(shards[i], 0, n);
+        remaining -= n;
+      }
+    }
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.datastream.impl;
+
+import org.apache.ratis.io.FilePositionCount;
+import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
+import org.apache.ratis.protocol.DataStreamPacket;
+import org.apache.ratis.protocol.DataStreamReply;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Implements a successful {@link DataStreamReply} with {@link FilePositionCount}
+ * so that the data can be transferred with zero-copy.
+ * <p>
+ * This class is immutable.
+ */
+public class DataStreamReplyFilePositionCount extends DataStreamPacketImpl implements DataStreamReply {
+  private final FilePositionCount file;
+
+  public DataStreamReplyFilePositionCount(DataStreamPacket packet, FilePositionCount file) {
+    super(packet.getClientId(), packet.getType(), packet.getStreamId(), packet.getStreamOffset());
+    this.file = file;
+  }
+
+  @Override
+  public long getDataLength() {
+    return file.getCount();
+  }
+
+  /** @return the file with the starting position and the byte count. */
+  public FilePositionCount getFile() {
+    return file;
+  }
+
+  @Override
+  public boolean isSuccess() {
+    return true;
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return file.getCount();
+  }
+
+  @Override
+  public Collection<CommitInfoProto> getCommitInfos() {
+    return Collections.emptyList();
+  }
+}
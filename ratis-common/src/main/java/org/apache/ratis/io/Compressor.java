@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A codec compressing and decompressing byte streams.
+ * <p>
+ * The {@link StandardCompressor}s are always available.
+ * Other implementations can be plugged in through {@link java.util.ServiceLoader}.
+ */
+public interface Compressor {
+  /** @return the name of this compressor, which is used to identify the codec of the compressed data. */
+  String getName();
+
+  /** @return a stream compressing the data and then writing it to the given stream. */
+  OutputStream compress(OutputStream out) throws IOException;
+
+  /** @return a stream reading the data from the given stream and then decompressing it. */
+  InputStream decompress(InputStream in) throws IOException;
+
+  /**
+   * @return the compressor with the given name (case-insensitive).
+   * @throws IllegalArgumentException if the compressor is not found.
+   */
+  static Compressor valueOf(String name) {
+    return CompressorLoader.get(name);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+/** Load the {@link Compressor}s, including the {@link StandardCompressor}s and the ones from {@link ServiceLoader}. */
+final class CompressorLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(CompressorLoader.class);
+
+  private static final Map<String, Compressor> COMPRESSORS = load();
+
+  private CompressorLoader() {
+  }
+
+  private static Map<String, Compressor> load() {
+    final Map<String, Compressor> map = new TreeMap<>();
+    for (StandardCompressor c : StandardCompressor.values()) {
+      map.put(c.getName().toUpperCase(Locale.ROOT), c);
+    }
+    for (Compressor c : ServiceLoader.load(Compressor.class, Compressor.class.getClassLoader())) {
+      final Compressor previous = map.putIfAbsent(c.getName().toUpperCase(Locale.ROOT), c);
+      if (previous != null) {
+        LOG.warn("Found multiple Compressors named {}: {} and {}. Using {}",
+            c.getName(), previous.getClass(), c.getClass(), previous.getClass());
+      } else {
+        LOG.debug("Loaded {}", c.getClass());
+      }
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  static Compressor get(String name) {
+    final Compressor c = COMPRESSORS.get(name.toUpperCase(Locale.ROOT));
+    if (c == null) {
+      throw new IllegalArgumentException("Compressor " + name + " not found in " + COMPRESSORS.keySet());
+    }
+    return c;
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.ratis.io;
 
 import java.io.File;
+import java.nio.channels.FileChannel;
 
 /**
  * Encapsulate a {@link File} with a starting position and a byte count.
@@ -26,15 +27,25 @@ import java.io.File;
  */
 public final class FilePositionCount {
   public static FilePositionCount valueOf(File file, long position, long count) {
-    return new FilePositionCount(file, position, count);
+    return new FilePositionCount(file, null, position, count);
+  }
+
+  /**
+   * @param channel an opened channel of the given file,
+   *                which is used for the transfer and is not closed after the transfer.
+   */
+  public static FilePositionCount valueOf(File file, FileChannel channel, long position, long count) {
+    return new FilePositionCount(file, channel, position, count);
   }
 
   private final File file;
+  private final FileChannel channel;
   private final long position;
   private final long count;
 
-  private FilePositionCount(File file, long position, long count) {
+  private FilePositionCount(File file, FileChannel channel, long position, long count) {
     this.file = file;
+    this.channel = channel;
     this.position = position;
     this.count = count;
   }
@@ -44,6 +55,11 @@ public final class FilePositionCount {
     return file;
   }
 
+  /** @return the opened channel of the file, or null if the file has to be opened for the transfer. */
+  public FileChannel getChannel() {
+    return channel;
+  }
+
   /** @return the starting position. */
   public long getPosition() {
     return position;
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** The pure-Java {@link Compressor}s provided by the JDK. */
+public enum StandardCompressor implements Compressor {
+  /** The raw deflate format with the fastest compression level. */
+  DEFLATE {
+    @Override
+    public OutputStream compress(OutputStream out) {
+      final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+      return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            deflater.end();
+          }
+        }
+      };
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+      final Inflater inflater = new Inflater(true);
+      return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            inflater.end();
+          }
+        }
+      };
+    }
+  },
+  /** The gzip format. */
+  GZIP {
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+      return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+      return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+  };
+
+  private static final int BUFFER_SIZE = 8 << 10;
+
+  @Override
+  public String getName() {
+    return name();
+  }
+}
@@ -56,10 +56,11 @@ public class RaftClientReply extends RaftClientMessage {
 
     private long logIndex;
     private Collection<CommitInfoProto> commitInfos;
+    private long commitInfoVersion;
 
     public RaftClientReply build() {
       return new RaftClientReply(clientId, serverId, groupId, callId,
-          success, message, exception, logIndex, commitInfos);
+          success, message, exception, logIndex, commitInfos, commitInfoVersion);
     }
 
     public Builder setClientId(ClientId clientId) {
@@ -111,6 +112,11 @@ public class RaftClientReply extends RaftClientMessage {
       return this;
     }
 
+    public Builder setCommitInfoVersion(long commitInfoVersion) {
+      this.commitInfoVersion = commitInfoVersion;
+      return this;
+    }
+
     public Builder setServerId(RaftGroupMemberId serverId) {
       return setServerId(serverId.getPeerId())
           .setGroupId(serverId.getGroupId());
@@ -133,6 +139,21 @@ public class RaftClientReply extends RaftClientMessage {
     return new Builder();
   }
 
+  /** @return a builder initialized with the fields of the given reply. */
+  public static Builder newBuilder(RaftClientReply reply) {
+    return newBuilder()
+        .setClientId(reply.getClientId())
+        .setServerId(reply.getServerId())
+        .setGroupId(reply.getRaftGroupId())
+        .setCallId(reply.getCallId())
+        .setSuccess(reply.isSuccess())
+        .setMessage(reply.getMessage())
+        .setException(reply.getException())
+        .setLogIndex(reply.getLogIndex())
+        .setCommitInfos(reply.getCommitInfos())
+        .setCommitInfoVersion(reply.getCommitInfoVersion());
+  }
+
   private final boolean success;
 
   /**
@@ -152,12 +173,22 @@ public class RaftClientReply extends RaftClientMessage {
   private final long logIndex;
   /** The commit information when the reply is created. */
   private final Collection<CommitInfoProto> commitInfos;
+  /** The version of the commit information; 0 means unversioned. */
+  private final long commitInfoVersion;
 
   @SuppressWarnings("parameternumber")
   RaftClientReply(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId,
       long callId, boolean success, Message message, RaftException exception,
       long logIndex, Collection<CommitInfoProto> commitInfos) {
+    this(clientId, serverId, groupId, callId, success, message, exception, logIndex, commitInfos, 0);
+  }
+
+  @SuppressWarnings("parameternumber")
+  private RaftClientReply(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId,
+      long callId, boolean success, Message message, RaftException exception,
+      long logIndex, Collection<CommitInfoProto> commitInfos, long commitInfoVersion) {
     super(clientId, serverId, groupId, callId);
+    this.commitInfoVersion = commitInfoVersion;
     this.success = success;
     this.message = message;
     this.exception = exception;
@@ -187,6 +218,16 @@ public class RaftClientReply extends RaftClientMessage {
     return commitInfos;
   }
 
+  /**
+   * The commit infos of a reply having a non-zero version may be omitted
+   * if the client already has the same version.
+   *
+   * @return the version of the commit infos, or 0 if the commit infos are unversioned.
+   */
+  public long getCommitInfoVersion() {
+    return commitInfoVersion;
+  }
+
   @Override
   public final boolean isRequest() {
     return false;
@@ -305,6 +305,7 @@ public class RaftClientRequest extends RaftClientMessage {
     private SlidingWindowEntry slidingWindowEntry;
     private RoutingTable routingTable;
     private long timeoutMs;
+    private long commitInfoVersion;
 
     public RaftClientRequest build() {
       return new RaftClientRequest(this);
@@ -366,6 +367,11 @@ public class RaftClientRequest extends RaftClientMessage {
       this.timeoutMs = timeoutMs;
       return this;
     }
+
+    public Builder setCommitInfoVersion(long commitInfoVersion) {
+      this.commitInfoVersion = commitInfoVersion;
+      return this;
+    }
   }
 
   public static Builder newBuilder() {
@@ -397,6 +403,9 @@ public class RaftClientRequest extends RaftClientMessage {
 
   private final boolean toLeader;
 
+  /** The version of the commit infos the client has from the server; 0 means none. */
+  private final long commitInfoVersion;
+
   /** Construct a request for sending to the given server. */
   protected RaftClientRequest(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId, long callId, Type type) {
     this(newBuilder()
@@ -429,6 +438,7 @@ public class RaftClientRequest extends RaftClientMessage {
     this.slidingWindowEntry = b.slidingWindowEntry;
     this.routingTable = b.routingTable;
     this.timeoutMs = b.timeoutMs;
+    this.commitInfoVersion = b.commitInfoVersion;
   }
 
   @Override
@@ -468,6 +478,10 @@ public class RaftClientRequest extends RaftClientMessage {
     return routingTable;
   }
 
+  public long getCommitInfoVersion() {
+    return commitInfoVersion;
+  }
+
   public long getTimeoutMs() {
     return timeoutMs;
   }
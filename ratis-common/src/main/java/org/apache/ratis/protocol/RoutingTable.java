@@ -25,19 +25,28 @@ import org.apache.ratis.util.ProtoUtils;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A routing table is a directed acyclic graph containing exactly one primary peer such that
  * (1) the primary peer is the only starting peer, and
  * (2) all the other peers can be reached from the primary peer by exactly one path.
+ * <p>
+ * By default, the data is replicated to all the peers.
+ * When the number of parity shards is positive, the data is erasure coded:
+ * the routing table must be a star topology
+ * and the primary peer sends a different shard of the data to each peer; see {@link #getShardPeers()}.
  */
 public interface RoutingTable {
   /** @return the successor peers of the given peer. */
@@ -46,6 +55,30 @@ public interface RoutingTable {
   /** @return the primary peer. */
   RaftPeerId getPrimary();
 
+  /** @return the number of parity shards if the data is erasure coded; otherwise, return 0. */
+  default int getParityShards() {
+    return 0;
+  }
+
+  /** @return is the data erasure coded? */
+  default boolean isErasureCoded() {
+    return getParityShards() > 0;
+  }
+
+  /**
+   * @return the peers in the order of the shard indices,
+   *         i.e. the primary peer followed by its successors sorted by id.
+   *         The default implementation returns an empty list since the data is not erasure coded by default.
+   */
+  default List<RaftPeerId> getShardPeers() {
+    return Collections.emptyList();
+  }
+
+  /** @return the shard index of the given peer, or -1 if the peer is not in this table. */
+  default int getShardIndex(RaftPeerId peerId) {
+    return getShardPeers().indexOf(peerId);
+  }
+
   /** @return the proto of this {@link RoutingTable}. */
   RoutingTableProto toProto();
 
@@ -57,6 +90,7 @@ public interface RoutingTable {
   /** To build a {@link RoutingTable}. */
   final class Builder {
     private final AtomicReference<Map<RaftPeerId, Set<RaftPeerId>>> ref = new AtomicReference<>(new HashMap<>());
+    private int parityShards = 0;
 
     private Builder() {}
 
@@ -80,18 +114,36 @@ public interface RoutingTable {
       return addSuccessors(peerId, Arrays.asList(successors));
     }
 
+    /** Erasure code the data with the given number of parity shards; set it to 0 to disable erasure coding. */
+    public Builder setParityShards(int parityShards) {
+      Preconditions.assertTrue(parityShards >= 0, () -> "parityShards = " + parityShards + " < 0");
+      this.parityShards = parityShards;
+      return this;
+    }
+
     public RoutingTable build() {
       final Map<RaftPeerId, Set<RaftPeerId>> map = ref.getAndSet(null);
       if (map == null) {
         throw new IllegalStateException("RoutingTable is already built.");
       }
-      return RoutingTable.newRoutingTable(map);
+      return RoutingTable.newRoutingTable(map, parityShards);
     }
 
     static RaftPeerId validate(Map<RaftPeerId, Set<RaftPeerId>> map) {
       return new Builder.Validation(map).run();
     }
 
+    static void validateErasureCoding(Map<RaftPeerId, Set<RaftPeerId>> map, RaftPeerId primary, int parityShards) {
+      for (Map.Entry<RaftPeerId, Set<RaftPeerId>> entry : map.entrySet()) {
+        Preconditions.assertTrue(entry.getKey().equals(primary) || entry.getValue().isEmpty(),
+            () -> "Invalid routing table: erasure coding requires a star topology but the peer " + entry.getKey()
+                + " has successor(s) " + entry.getValue() + ", map=" + map);
+      }
+      final int numSuccessors = map.get(primary).size();
+      Preconditions.assertTrue(numSuccessors >= parityShards,
+          "Invalid routing table: #successors = %d < parityShards = %d, map=%s", numSuccessors, parityShards, map);
+    }
+
     /** Validate if a map represents a valid routing table. */
     private static final class Validation {
       private final Map<RaftPeerId, Set<RaftPeerId>> map;
@@ -163,13 +215,27 @@ public interface RoutingTable {
 
   /** @return a new {@link RoutingTable} represented by the given map. */
   static RoutingTable newRoutingTable(Map<RaftPeerId, Set<RaftPeerId>> map){
+    return newRoutingTable(map, 0);
+  }
+
+  /** @return a new {@link RoutingTable} represented by the given map with the given number of parity shards. */
+  static RoutingTable newRoutingTable(Map<RaftPeerId, Set<RaftPeerId>> map, int parityShards) {
     if (map == null || map.isEmpty()) {
       return null;
     }
     final RaftPeerId primary = Builder.validate(map);
+    if (parityShards > 0) {
+      Builder.validateErasureCoding(map, primary, parityShards);
+    }
 
-    final Supplier<RoutingTableProto> proto = JavaUtils.memoize(
-        () -> RoutingTableProto.newBuilder().addAllRoutes(ProtoUtils.toRouteProtos(map)).build());
+    final Supplier<RoutingTableProto> proto = JavaUtils.memoize(() -> RoutingTableProto.newBuilder()
+        .addAllRoutes(ProtoUtils.toRouteProtos(map))
+        .setParityShards(parityShards)
+        .build());
+    final Supplier<List<RaftPeerId>> shardPeers = JavaUtils.memoize(() -> Collections.unmodifiableList(
+        Stream.concat(Stream.of(primary), map.getOrDefault(primary, Collections.emptySet()).stream()
+            .sorted(Comparator.comparing(RaftPeerId::toString)))
+        .collect(Collectors.toList())));
     return new RoutingTable() {
       @Override
       public Set<RaftPeerId> getSuccessors(RaftPeerId peerId) {
@@ -181,6 +247,16 @@ public interface RoutingTable {
         return primary;
       }
 
+      @Override
+      public int getParityShards() {
+        return parityShards;
+      }
+
+      @Override
+      public List<RaftPeerId> getShardPeers() {
+        return shardPeers.get();
+      }
+
       @Override
       public RoutingTableProto toProto() {
         return proto.get();
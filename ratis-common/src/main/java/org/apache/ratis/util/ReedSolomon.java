@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import java.util.Arrays;
+
+/**
+ * A systematic Reed-Solomon code over GF(2^8).
+ * <p>
+ * The data is split into dataShards shards and then parityShards parity shards are computed from them.
+ * The data can be reconstructed from any dataShards shards out of the (dataShards + parityShards) shards.
+ * <p>
+ * The encoding matrix is a Vandermonde matrix multiplied by the inverse of its top square,
+ * so that the top dataShards rows form the identity matrix.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class ReedSolomon {
+  private static final int FIELD_SIZE = 256;
+  /** The generator polynomial x^8 + x^4 + x^3 + x^2 + 1. */
+  private static final int POLYNOMIAL = 0x11d;
+
+  private static final int[] LOG = new int[FIELD_SIZE];
+  private static final byte[] EXP = new byte[2 * FIELD_SIZE];
+  /** Table: a -> b -> a * b */
+  private static final byte[][] MULTIPLICATION = new byte[FIELD_SIZE][FIELD_SIZE];
+
+  static {
+    int x = 1;
+    for (int i = 0; i < FIELD_SIZE - 1; i++) {
+      EXP[i] = (byte) x;
+      LOG[x] = i;
+      x <<= 1;
+      if (x >= FIELD_SIZE) {
+        x ^= POLYNOMIAL;
+      }
+    }
+    for (int i = FIELD_SIZE - 1; i < EXP.length; i++) {
+      EXP[i] = EXP[i - (FIELD_SIZE - 1)];
+    }
+    for (int a = 1; a < FIELD_SIZE; a++) {
+      for (int b = 1; b < FIELD_SIZE; b++) {
+        MULTIPLICATION[a][b] = EXP[LOG[a] + LOG[b]];
+      }
+    }
+  }
+
+  static byte multiply(byte a, byte b) {
+    return MULTIPLICATION[a & 0xff][b & 0xff];
+  }
+
+  static byte divide(byte a, byte b) {
+    Preconditions.assertTrue(b != 0, "Division by zero");
+    return a == 0 ? 0 : EXP[LOG[a & 0xff] - LOG[b & 0xff] + FIELD_SIZE - 1];
+  }
+
+  static byte power(int a, int n) {
+    if (n == 0) {
+      return 1;
+    }
+    return a == 0 ? 0 : EXP[(LOG[a] * n) % (FIELD_SIZE - 1)];
+  }
+
+  private static byte[][] multiply(byte[][] left, byte[][] right) {
+    final byte[][] product = new byte[left.length][right[0].length];
+    for (int r = 0; r < product.length; r++) {
+      for (int c = 0; c < product[r].length; c++) {
+        byte sum = 0;
+        for (int i = 0; i < right.length; i++) {
+          sum ^= multiply(left[r][i], right[i][c]);
+        }
+        product[r][c] = sum;
+      }
+    }
+    return product;
+  }
+
+  /** Invert the given square matrix by Gauss-Jordan elimination. */
+  static byte[][] invert(byte[][] matrix) {
+    final int n = matrix.length;
+    final byte[][] work = new byte[n][];
+    final byte[][] inverse = new byte[n][n];
+    for (int r = 0; r < n; r++) {
+      work[r] = matrix[r].clone();
+      inverse[r][r] = 1;
+    }
+
+    for (int c = 0; c < n; c++) {
+      // find a pivot
+      int pivot = c;
+      while (pivot < n && work[pivot][c] == 0) {
+        pivot++;
+      }
+      if (pivot == n) {
+        throw new IllegalArgumentException("The matrix is singular: " + Arrays.deepToString(matrix));
+      }
+      swap(work, c, pivot);
+      swap(inverse, c, pivot);
+
+      // scale the pivot row to make the pivot 1
+      final byte p = work[c][c];
+      if (p != 1) {
+        for (int i = 0; i < n; i++) {
+          work[c][i] = divide(work[c][i], p);
+          inverse[c][i] = divide(inverse[c][i], p);
+        }
+      }
+
+      // eliminate the column from the other rows
+      for (int r = 0; r < n; r++) {
+        final byte factor = work[r][c];
+        if (r != c && factor != 0) {
+          for (int i = 0; i < n; i++) {
+            work[r][i] ^= multiply(factor, work[c][i]);
+            inverse[r][i] ^= multiply(factor, inverse[c][i]);
+          }
+        }
+      }
+    }
+    return inverse;
+  }
+
+  private static void swap(byte[][] rows, int i, int j) {
+    if (i != j) {
+      final byte[] tmp = rows[i];
+      rows[i] = rows[j];
+      rows[j] = tmp;
+    }
+  }
+
+  /**
+   * For each output, compute output = sum_i row[i] * input[i] over the given range.
+   *
+   * @param rows the coefficients, one row for each output.
+   */
+  private static void code(byte[][] rows, byte[][] inputs, byte[][] outputs, int offset, int length) {
+    final int end = offset + length;
+    for (int o = 0; o < outputs.length; o++) {
+      final byte[] output = outputs[o];
+      Arrays.fill(output, offset, end, (byte) 0);
+      for (int i = 0; i < inputs.length; i++) {
+        final byte[] table = MULTIPLICATION[rows[o][i] & 0xff];
+        final byte[] input = inputs[i];
+        for (int j = offset; j < end; j++) {
+          output[j] ^= table[input[j] & 0xff];
+        }
+      }
+    }
+  }
+
+  private final int dataShards;
+  private final int parityShards;
+  /** The (dataShards + parityShards) x dataShards encoding matrix. */
+  private final byte[][] matrix;
+
+  public ReedSolomon(int dataShards, int parityShards) {
+    Preconditions.assertTrue(dataShards > 0, () -> "dataShards = " + dataShards + " <= 0");
+    Preconditions.assertTrue(parityShards >= 0, () -> "parityShards = " + parityShards + " < 0");
+    Preconditions.assertTrue(dataShards + parityShards <= FIELD_SIZE,
+        () -> "dataShards + parityShards = " + (dataShards + parityShards) + " > " + FIELD_SIZE);
+    this.dataShards = dataShards;
+    this.parityShards = parityShards;
+
+    final byte[][] vandermonde = new byte[getNumShards()][dataShards];
+    for (int r = 0; r < vandermonde.length; r++) {
+      for (int c = 0; c < dataShards; c++) {
+        vandermonde[r][c] = power(r, c);
+      }
+    }
+    this.matrix = multiply(vandermonde, invert(Arrays.copyOf(vandermonde, dataShards)));
+  }
+
+  public int getDataShards() {
+    return dataShards;
+  }
+
+  public int getParityShards() {
+    return parityShards;
+  }
+
+  public int getNumShards() {
+    return dataShards + parityShards;
+  }
+
+  private void assertShards(byte[][] shards, int offset, int length) {
+    Preconditions.assertTrue(shards.length == getNumShards(),
+        () -> "shards.length = " + shards.length + " != " + getNumShards());
+    for (byte[] shard : shards) {
+      Preconditions.assertTrue(shard.length >= offset + length,
+          () -> "shard.length = " + shard.length + " < offset + length = " + (offset + length));
+    }
+  }
+
+  /**
+   * Compute the parity shards from the data shards over the given range.
+   *
+   * @param shards the data shards followed by the parity shards, which will be overwritten.
+   */
+  public void encode(byte[][] shards, int offset, int length) {
+    assertShards(shards, offset, length);
+    code(Arrays.copyOfRange(matrix, dataShards, getNumShards()),
+        Arrays.copyOf(shards, dataShards), Arrays.copyOfRange(shards, dataShards, getNumShards()),
+        offset, length);
+  }
+
+  /**
+   * Reconstruct the missing shards over the given range.
+   *
+   * @param shards the data shards followed by the parity shards;
+   *               the missing shards must be allocated and will be overwritten.
+   * @param present indicate which shards are present.
+   * @throws IllegalArgumentException if less than dataShards shards are present.
+   */
+  public void decode(byte[][] shards, boolean[] present, int offset, int length) {
+    assertShards(shards, offset, length);
+    final int[] indices = new int[dataShards];
+    int numPresent = 0;
+    for (int i = 0; i < present.length && numPresent < dataShards; i++) {
+      if (present[i]) {
+        indices[numPresent++] = i;
+      }
+    }
+    if (numPresent < dataShards) {
+      throw new IllegalArgumentException("Not enough shards: only " + numPresent
+          + " shard(s) are present but dataShards = " + dataShards);
+    }
+
+    // reconstruct the missing data shards
+    final byte[][] sub = new byte[dataShards][];
+    final byte[][] inputs = new byte[dataShards][];
+    for (int i = 0; i < dataShards; i++) {
+      sub[i] = matrix[indices[i]];
+      inputs[i] = shards[indices[i]];
+    }
+    final byte[][] decoding = invert(sub);
+    for (int i = 0; i < dataShards; i++) {
+      if (!present[i]) {
+        code(new byte[][]{decoding[i]}, inputs, new byte[][]{shards[i]}, offset, length);
+      }
+    }
+
+    // recompute the missing parity shards
+    final byte[][] data = Arrays.copyOf(shards, dataShards);
+    for (int i = dataShards; i < getNumShards(); i++) {
+      if (!present[i]) {
+        code(new byte[][]{matrix[i]}, data, new byte[][]{shards[i]}, offset, length);
+      }
+    }
+  }
+}
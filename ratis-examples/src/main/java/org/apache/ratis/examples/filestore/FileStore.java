@@ -21,6 +21,7 @@ import org.apache.ratis.conf.ConfUtils;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.examples.filestore.FileInfo.ReadOnly;
 import org.apache.ratis.examples.filestore.FileInfo.UnderConstruction;
+import org.apache.ratis.io.FilePositionCount;
 import org.apache.ratis.proto.ExamplesProtos.ReadReplyProto;
 import org.apache.ratis.proto.ExamplesProtos.StreamWriteReplyProto;
 import org.apache.ratis.proto.ExamplesProtos.WriteReplyProto;
@@ -43,8 +44,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -319,7 +323,56 @@ public class FileStore implements Closeable {
     }, writer);
   }
 
-  static class FileStoreDataChannel implements StateMachine.DataChannel {
+  public CompletableFuture<StateMachine.ReadStream> createReadStream(String p) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        final Path full = resolve(normalize(p));
+        return new FileStoreReadStream(full);
+      } catch (IOException e) {
+        throw new CompletionException("Failed to open " + p, e);
+      }
+    }, reader);
+  }
+
+  static class FileStoreReadStream implements StateMachine.ReadStream {
+    private final Path path;
+    private final File file;
+    private final FileChannel channel;
+
+    FileStoreReadStream(Path path) throws IOException {
+      this.path = path;
+      this.file = path.toFile();
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size() throws IOException {
+      return channel.size();
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+      return channel.read(dst, position);
+    }
+
+    @Override
+    public FilePositionCount getFilePositionCount(long position, long count) {
+      // transfer with the opened channel instead of opening the file again
+      return FilePositionCount.valueOf(file, channel, position, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+
+    @Override
+    public String toString() {
+      return JavaUtils.getClassSimpleName(getClass()) + ":" + path;
+    }
+  }
+
+  static class FileStoreDataChannel implements StateMachine.DataChannel, GatheringByteChannel {
     private final Path path;
     private final RandomAccessFile randomAccessFile;
 
@@ -339,6 +392,16 @@ public class FileStore implements Closeable {
       return randomAccessFile.getChannel().write(src);
     }
 
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      return randomAccessFile.getChannel().write(srcs, offset, length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+      return randomAccessFile.getChannel().write(srcs);
+    }
+
     @Override
     public boolean isOpen() {
       return randomAccessFile.getChannel().isOpen();
@@ -18,6 +18,7 @@
 package org.apache.ratis.examples.filestore;
 
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.api.DataStreamInput;
 import org.apache.ratis.client.api.DataStreamOutput;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.ExamplesProtos.DeleteReplyProto;
@@ -186,6 +187,13 @@ public class FileStoreClient implements Closeable {
     return client.getDataStreamApi().stream(request.toByteString().asReadOnlyByteBuffer(), routingTable);
   }
 
+  public DataStreamInput getStreamInput(String path) {
+    final ReadRequestProto header = ReadRequestProto.newBuilder()
+        .setPath(ProtoUtils.toByteString(path))
+        .build();
+    return client.getDataStreamApi().read(header.toByteString().asReadOnlyByteBuffer());
+  }
+
   public CompletableFuture<Long> writeAsync(String path, long offset, boolean close, ByteBuffer buffer, boolean sync) {
     return writeImpl(this::sendAsync, path, offset, close, buffer, sync
     ).thenApply(reply -> JavaUtils.supplyAndWrapAsCompletionException(
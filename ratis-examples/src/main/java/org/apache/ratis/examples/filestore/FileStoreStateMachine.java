@@ -206,6 +206,17 @@ public class FileStoreStateMachine extends BaseStateMachine {
         .thenApply(LocalStream::new);
   }
 
+  @Override
+  public CompletableFuture<ReadStream> readStream(RaftClientRequest request) {
+    final ReadRequestProto proto;
+    try {
+      proto = ReadRequestProto.parseFrom(request.getMessage().getContent());
+    } catch (InvalidProtocolBufferException e) {
+      return FileStoreCommon.completeExceptionally("Failed to parse read stream header", e);
+    }
+    return files.createReadStream(proto.getPath().toStringUtf8());
+  }
+
   @Override
   public CompletableFuture<?> link(DataStream stream, LogEntryProto entry) {
     LOG.info("linking {}", stream);
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.examples.arithmetic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.impl.MiniRaftCluster;
+import org.apache.ratis.server.raftlog.segmented.LogSegmentPath;
+import org.apache.ratis.server.simulation.MiniRaftClusterWithSimulatedRpc;
+import org.apache.ratis.statemachine.StateMachine;
+import org.apache.ratis.statemachine.impl.SimpleStateMachine4Testing;
+import org.apache.ratis.tools.RaftLogAnalyzer;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestArithmeticLogAnalyzer extends BaseTest {
+  public static final int NUM_SERVERS = 1;
+  public static final int NUM_MESSAGES = 100;
+
+  private final MiniRaftClusterWithSimulatedRpc cluster = MiniRaftClusterWithSimulatedRpc
+      .FACTORY.newCluster(NUM_SERVERS, newProperties());
+
+  static RaftProperties newProperties() {
+    final RaftProperties properties = new RaftProperties();
+    properties.setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY,
+        SimpleStateMachine4Testing.class, StateMachine.class);
+    // use small segments so that the log has many segments
+    RaftServerConfigKeys.Log.setSegmentSizeMax(properties, SizeInBytes.valueOf("4KB"));
+    RaftServerConfigKeys.Log.setPreallocatedSize(properties, SizeInBytes.valueOf("4KB"));
+    return properties;
+  }
+
+  private File storageDir;
+  private List<LogSegmentPath> segments;
+  private long lastIndex;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    cluster.start();
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    final char[] padding = new char[200];
+    Arrays.fill(padding, 'x');
+    try (RaftClient client = cluster.createClient(leader.getId())) {
+      for (int i = 0; i < NUM_MESSAGES; i++) {
+        Assertions.assertTrue(client.io().send(new RaftTestUtil.SimpleMessage("m" + i + new String(padding)))
+            .isSuccess());
+      }
+    }
+    lastIndex = leader.getRaftLog().getLastEntryTermIndex().getIndex();
+    storageDir = leader.getRaftStorage().getStorageDir().getRoot();
+    segments = LogSegmentPath.getLogSegmentPaths(leader.getRaftStorage());
+    cluster.shutdown();
+    Assertions.assertTrue(segments.size() > 4, () -> "Too few segments: " + segments);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  /** Run the analyzer and return its output. */
+  private String analyze(int numThreads, long fromIndex, long toIndex, int expectedNumProblems)
+      throws IOException, InterruptedException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final int numProblems;
+    try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8.name())) {
+      numProblems = new RaftLogAnalyzer.Builder()
+          .setStorageDir(storageDir)
+          .setNumThreads(numThreads)
+          .setIndexRange(fromIndex, toIndex)
+          .setOutput(out)
+          .build()
+          .analyze();
+    }
+    final String output = bytes.toString(StandardCharsets.UTF_8.name());
+    LOG.info("analyze with {} thread(s) for [{}, {}]:\n{}", numThreads, fromIndex, toIndex, output);
+    Assertions.assertEquals(expectedNumProblems, numProblems);
+    return output;
+  }
+
+  /** @return the names of the segments in the order printed. */
+  static List<String> getPrintedSegments(String output) {
+    return Arrays.stream(output.split("\n"))
+        .filter(line -> line.startsWith("log_"))
+        .map(line -> line.substring(0, line.indexOf(':')))
+        .collect(Collectors.toList());
+  }
+
+  private List<String> getSegmentNames(List<LogSegmentPath> paths) {
+    return paths.stream()
+        .map(p -> p.getPath().getFileName().toString())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testAnalyze() throws Exception {
+    final List<String> expected = getSegmentNames(segments);
+    // fewer threads than segments so that the window slides
+    for (int numThreads : new int[]{1, 2, segments.size() + 1}) {
+      final String output = analyze(numThreads, 0, Long.MAX_VALUE, 0);
+      Assertions.assertEquals(expected, getPrintedSegments(output));
+      Assertions.assertTrue(output.contains("Num Segments: " + segments.size()), output);
+      Assertions.assertTrue(output.contains("Num Total Entries: " + (lastIndex + 1) + " "), output);
+    }
+  }
+
+  @Test
+  public void testAnalyzeIndexRange() throws Exception {
+    final long from = segments.get(1).getStartEnd().getStartIndex();
+    final long to = segments.get(2).getStartEnd().getEndIndex();
+    final String output = analyze(2, from, to, 0);
+    Assertions.assertEquals(getSegmentNames(segments.subList(1, 3)), getPrintedSegments(output));
+    Assertions.assertTrue(output.contains("Num Total Entries: " + (to - from + 1) + " "), output);
+  }
+
+  @Test
+  public void testAnalyzeGap() throws Exception {
+    final LogSegmentPath removed = segments.get(2);
+    FileUtils.delete(removed.getPath());
+    final String output = analyze(2, 0, Long.MAX_VALUE, 1);
+    Assertions.assertTrue(output.contains("gap with the previous segment ending at index "
+        + segments.get(1).getStartEnd().getEndIndex()), output);
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.ratis.datastream.DataStreamTestUtils;
 import org.apache.ratis.protocol.RaftGroup;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RoutingTable;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.impl.MiniRaftCluster;
 import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.util.LogUtils;
@@ -56,6 +57,7 @@ public abstract class FileStoreStreamingBaseTest <CLUSTER extends MiniRaftCluste
         FileStoreStateMachine.class, StateMachine.class);
     ConfUtils.setFile(p::setFile, FileStoreCommon.STATEMACHINE_DIR_KEY,
         new File(getClassTestDir(), "filestore"));
+    RaftServerConfigKeys.DataStream.setWriteBatchMaxPackets(p, 8);
     DataStreamTestUtils.enableResourceLeakDetector();
   }
 
@@ -114,7 +116,7 @@ public abstract class FileStoreStreamingBaseTest <CLUSTER extends MiniRaftCluste
         .setFileSize(fileLength)
         .setBufferSize(bufferSize)
         .setFileStoreClientSupplier(newClient)
-        .build().streamWriteAndVerify(routingTable).close();
+        .build().streamWriteAndVerify(routingTable).streamReadAndVerify().close();
   }
 
   private void testMultipleFiles(String pathBase, int numFile, SizeInBytes fileLength,
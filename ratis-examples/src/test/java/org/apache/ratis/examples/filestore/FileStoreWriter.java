@@ -17,6 +17,7 @@
  */
 package org.apache.ratis.examples.filestore;
 
+import org.apache.ratis.client.api.DataStreamInput;
 import org.apache.ratis.client.api.DataStreamOutput;
 import org.apache.ratis.datastream.DataStreamTestUtils;
 import org.apache.ratis.io.StandardWriteOption;
@@ -170,6 +171,23 @@ final class FileStoreWriter implements Closeable {
     return this;
   }
 
+  public FileStoreWriter streamReadAndVerify() throws Exception {
+    final int size = fileSize.getSizeInt();
+    try (DataStreamInput in = client.getStreamInput(fileName)) {
+      // the data was written by streamWriteAndVerify with bufferSize chunks
+      for(int offset = 0; offset < size; ) {
+        final int length = Math.min(size - offset, bufferSize);
+        final ByteBuffer read = in.readAsync(offset, length).join();
+        Assertions.assertEquals(length, read.remaining());
+        assertBuffers(offset, length, DataStreamTestUtils.initBuffer(0, length), read);
+        offset += length;
+      }
+      // reading at the end returns empty data
+      Assertions.assertEquals(0, in.readAsync(size, bufferSize).join().remaining());
+    }
+    return this;
+  }
+
   CompletableFuture<FileStoreWriter> writeAsync(boolean sync) {
     Objects.requireNonNull(asyncExecutor, "asyncExecutor == null");
     final Random r = new Random(seed);
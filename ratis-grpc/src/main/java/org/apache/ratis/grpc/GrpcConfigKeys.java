@@ -285,6 +285,43 @@ public interface GrpcConfigKeys {
           LOG_MESSAGE_BATCH_DURATION_KEY, logMessageBatchDuration);
     }
 
+    /**
+     * The {@link org.apache.ratis.io.Compressor} name for compressing
+     * the appendEntries batches and the installSnapshot chunks sent to the followers.
+     * A leader compresses only if the follower has announced that it supports the same compressor.
+     * Null means compression is disabled.
+     */
+    String COMPRESSION_KEY = PREFIX + ".compression";
+    String COMPRESSION_DEFAULT = null;
+    static String compression(RaftProperties properties) {
+      return get(properties::get, COMPRESSION_KEY, COMPRESSION_DEFAULT, getDefaultLog());
+    }
+    static void setCompression(RaftProperties properties, String compression) {
+      set(properties::set, COMPRESSION_KEY, compression);
+    }
+
+    /** The data smaller than this size is sent uncompressed. */
+    String COMPRESSION_SIZE_MIN_KEY = PREFIX + ".compression.size.min";
+    SizeInBytes COMPRESSION_SIZE_MIN_DEFAULT = SizeInBytes.valueOf("1KB");
+    static SizeInBytes compressionSizeMin(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes,
+          COMPRESSION_SIZE_MIN_KEY, COMPRESSION_SIZE_MIN_DEFAULT, getDefaultLog());
+    }
+    static void setCompressionSizeMin(RaftProperties properties, SizeInBytes minSize) {
+      setSizeInBytes(properties::set, COMPRESSION_SIZE_MIN_KEY, minSize);
+    }
+
+    /** The number of compressed appendEntries batches cached for reusing among the followers. */
+    String COMPRESSION_CACHE_SIZE_KEY = PREFIX + ".compression.cache.size";
+    int COMPRESSION_CACHE_SIZE_DEFAULT = 16;
+    static int compressionCacheSize(RaftProperties properties) {
+      return getInt(properties::getInt, COMPRESSION_CACHE_SIZE_KEY,
+          COMPRESSION_CACHE_SIZE_DEFAULT, getDefaultLog(), requireMin(0));
+    }
+    static void setCompressionCacheSize(RaftProperties properties, int cacheSize) {
+      setInt(properties::setInt, COMPRESSION_CACHE_SIZE_KEY, cacheSize);
+    }
+
     String SERVICES_CUSTOMIZER_PARAMETER = PREFIX + ".services.customizer";
     Class<GrpcServices.Customizer> SERVICES_CUSTOMIZER_CLASS = GrpcServices.Customizer.class;
     static GrpcServices.Customizer servicesCustomizer(Parameters parameters) {
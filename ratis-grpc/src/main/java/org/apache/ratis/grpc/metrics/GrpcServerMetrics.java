@@ -23,6 +23,7 @@ import org.apache.ratis.metrics.RatisMetricRegistry;
 import org.apache.ratis.metrics.RatisMetrics;
 
 import org.apache.ratis.metrics.Timekeeper;
+import org.apache.ratis.util.UncheckedAutoCloseable;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -51,9 +52,19 @@ public class GrpcServerMetrics extends RatisMetrics {
   public static final String RATIS_GRPC_METRICS_REQUESTS_COUNT = "num_requests";
   public static final String RATIS_GRPC_INSTALL_SNAPSHOT_COUNT = "num_install_snapshot";
 
+  public static final String RATIS_GRPC_COMPRESSION_INPUT_BYTES = "compression_input_bytes";
+  public static final String RATIS_GRPC_COMPRESSION_OUTPUT_BYTES = "compression_output_bytes";
+  public static final String RATIS_GRPC_COMPRESSION_LATENCY = "compression_latency";
+  public static final String RATIS_GRPC_COMPRESSION_CACHE_HIT_COUNT = "compression_cache_hit_count";
+
   private final LongCounter requestRetry = getRegistry().counter(RATIS_GRPC_METRICS_REQUEST_RETRY_COUNT);
   private final LongCounter requestInstallSnapshot = getRegistry().counter(RATIS_GRPC_INSTALL_SNAPSHOT_COUNT);
 
+  private final LongCounter compressionInputBytes = getRegistry().counter(RATIS_GRPC_COMPRESSION_INPUT_BYTES);
+  private final LongCounter compressionOutputBytes = getRegistry().counter(RATIS_GRPC_COMPRESSION_OUTPUT_BYTES);
+  private final Timekeeper compressionTimer = getRegistry().timer(RATIS_GRPC_COMPRESSION_LATENCY);
+  private final LongCounter compressionCacheHit = getRegistry().counter(RATIS_GRPC_COMPRESSION_CACHE_HIT_COUNT);
+
   private final Function<Boolean, LongCounter> requestCreate = newHeartbeatCounter(RATIS_GRPC_METRICS_REQUESTS_COUNT);
 
   private final Map<String, Function<Boolean, LongCounter>> requestSuccess = new ConcurrentHashMap<>();
@@ -132,4 +143,17 @@ public class GrpcServerMetrics extends RatisMetrics {
   public void onInstallSnapshot() {
     requestInstallSnapshot.inc();
   }
+
+  public UncheckedAutoCloseable startCompressionTimer() {
+    return Timekeeper.start(compressionTimer);
+  }
+
+  public void onCompression(long inputBytes, long outputBytes) {
+    compressionInputBytes.inc(inputBytes);
+    compressionOutputBytes.inc(outputBytes);
+  }
+
+  public void onCompressionCacheHit() {
+    compressionCacheHit.inc();
+  }
 }
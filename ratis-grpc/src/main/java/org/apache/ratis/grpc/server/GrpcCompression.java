@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.server;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.grpc.metrics.GrpcServerMetrics;
+import org.apache.ratis.io.Compressor;
+import org.apache.ratis.proto.RaftProtos.AppendEntriesReplyProto;
+import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
+import org.apache.ratis.proto.RaftProtos.CompressedEntriesProto;
+import org.apache.ratis.proto.RaftProtos.FileChunkProto;
+import org.apache.ratis.proto.RaftProtos.InstallSnapshotRequestProto;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.thirdparty.com.google.common.cache.Cache;
+import org.apache.ratis.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.UncheckedAutoCloseable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Compress the appendEntries batches and the installSnapshot chunks sent by the leader
+ * and decompress them in the follower.
+ * <p>
+ * A follower announces the supported compressor in its appendEntries replies.
+ * A leader compresses the data only after the follower has announced the same compressor.
+ * <p>
+ * Since an entry is identified by its {@link TermIndex},
+ * a batch is identified by its group, the first entry and the last entry.
+ * The compressed batches are cached so that the same batch sent to the other followers
+ * is compressed only once.
+ */
+class GrpcCompression {
+  static final class BatchKey {
+    private final RaftGroupId groupId;
+    private final TermIndex first;
+    private final TermIndex last;
+
+    BatchKey(RaftGroupId groupId, List<LogEntryProto> entries) {
+      this.groupId = groupId;
+      this.first = TermIndex.valueOf(entries.get(0));
+      this.last = TermIndex.valueOf(entries.get(entries.size() - 1));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof BatchKey)) {
+        return false;
+      }
+      final BatchKey that = (BatchKey) obj;
+      return groupId.equals(that.groupId) && first.equals(that.first) && last.equals(that.last);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(groupId, first, last);
+    }
+  }
+
+  /** The compressor of this server; null if compression is disabled. */
+  private final Compressor compressor;
+  private final List<String> supported;
+  private final long minSize;
+  /** Map: batch -> compressed entries; null if the cache is disabled. */
+  private final Cache<BatchKey, CompressedEntriesProto> cache;
+
+  GrpcCompression(RaftProperties properties) {
+    final String name = GrpcConfigKeys.Server.compression(properties);
+    this.compressor = name == null || name.isEmpty()? null: Compressor.valueOf(name);
+    this.supported = compressor == null? Collections.emptyList()
+        : Collections.singletonList(compressor.getName());
+    this.minSize = GrpcConfigKeys.Server.compressionSizeMin(properties).getSize();
+    final int cacheSize = GrpcConfigKeys.Server.compressionCacheSize(properties);
+    this.cache = compressor == null || cacheSize == 0? null
+        : CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  boolean isEnabled() {
+    return compressor != null;
+  }
+
+  /** Announce the supported compressor in the given reply. */
+  AppendEntriesReplyProto announce(AppendEntriesReplyProto reply) {
+    return compressor == null? reply: reply.toBuilder().addAllCompressions(supported).build();
+  }
+
+  /** @return the compressor of this server if the follower sending the given reply supports it; otherwise, null. */
+  Compressor getCompressor(AppendEntriesReplyProto reply) {
+    return compressor != null && reply.getCompressionsList().contains(compressor.getName())? compressor: null;
+  }
+
+  AppendEntriesRequestProto compress(RaftGroupId groupId, AppendEntriesRequestProto request,
+      GrpcServerMetrics metrics) throws IOException {
+    final List<LogEntryProto> entries = request.getEntriesList();
+    if (compressor == null || entries.isEmpty()) {
+      return request;
+    }
+    long size = 0;
+    for (LogEntryProto e : entries) {
+      size += e.getSerializedSize();
+    }
+    if (size < minSize) {
+      return request;
+    }
+
+    final CompressedEntriesProto compressed;
+    if (cache == null) {
+      compressed = compress(entries, size, metrics);
+    } else {
+      final long uncompressedSize = size;
+      final boolean[] computed = {false};
+      try {
+        compressed = cache.get(new BatchKey(groupId, entries), () -> {
+          computed[0] = true;
+          return compress(entries, uncompressedSize, metrics);
+        });
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException? (IOException) e.getCause()
+            : new IOException("Failed to compress " + entries.size() + " entries", e.getCause());
+      }
+      if (!computed[0]) {
+        metrics.onCompressionCacheHit();
+      }
+    }
+    return request.toBuilder().clearEntries().setCompressedEntries(compressed).build();
+  }
+
+  private CompressedEntriesProto compress(List<LogEntryProto> entries, long size, GrpcServerMetrics metrics)
+      throws IOException {
+    final ByteString.Output bytes = ByteString.newOutput(initialCapacity(size));
+    try (UncheckedAutoCloseable ignored = metrics.startCompressionTimer();
+         OutputStream out = compressor.compress(bytes)) {
+      for (LogEntryProto e : entries) {
+        e.writeDelimitedTo(out);
+      }
+    }
+    final ByteString data = bytes.toByteString();
+    metrics.onCompression(size, data.size());
+    return CompressedEntriesProto.newBuilder()
+        .setCompression(compressor.getName())
+        .setUncompressedSize(size)
+        .setData(data)
+        .build();
+  }
+
+  /** Assume the compressed size is about a half of the original size. */
+  private static int initialCapacity(long size) {
+    return Math.toIntExact(Math.min(Math.max(size / 2, 256), Integer.MAX_VALUE - 8));
+  }
+
+  static AppendEntriesRequestProto decompress(AppendEntriesRequestProto request) throws IOException {
+    if (!request.hasCompressedEntries()) {
+      return request;
+    }
+    final CompressedEntriesProto compressed = request.getCompressedEntries();
+    final Compressor c = Compressor.valueOf(compressed.getCompression());
+    final List<LogEntryProto> entries = new ArrayList<>();
+    try (InputStream in = c.decompress(compressed.getData().newInput())) {
+      for (LogEntryProto e; (e = LogEntryProto.parseDelimitedFrom(in)) != null; ) {
+        entries.add(e);
+      }
+    }
+    return request.toBuilder().clearCompressedEntries().addAllEntries(entries).build();
+  }
+
+  InstallSnapshotRequestProto compress(InstallSnapshotRequestProto request, GrpcServerMetrics metrics) {
+    if (compressor == null || !request.hasSnapshotChunk()) {
+      return request;
+    }
+    final InstallSnapshotRequestProto.Builder b = request.toBuilder();
+    for (FileChunkProto.Builder chunk : b.getSnapshotChunkBuilder().getFileChunksBuilderList()) {
+      final ByteString data = chunk.getData();
+      if (data.size() >= minSize) {
+        final ByteString compressed = compress(data, metrics);
+        chunk.setData(compressed).setCompression(compressor.getName());
+      }
+    }
+    return b.build();
+  }
+
+  private ByteString compress(ByteString data, GrpcServerMetrics metrics) {
+    final ByteString.Output bytes = ByteString.newOutput(initialCapacity(data.size()));
+    try (UncheckedAutoCloseable ignored = metrics.startCompressionTimer();
+         OutputStream out = compressor.compress(bytes)) {
+      data.writeTo(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to compress " + data.size() + " bytes", e);
+    }
+    final ByteString compressed = bytes.toByteString();
+    metrics.onCompression(data.size(), compressed.size());
+    return compressed;
+  }
+
+  static InstallSnapshotRequestProto decompress(InstallSnapshotRequestProto request) throws IOException {
+    if (!request.hasSnapshotChunk()) {
+      return request;
+    }
+    InstallSnapshotRequestProto.Builder b = null;
+    final List<FileChunkProto> chunks = request.getSnapshotChunk().getFileChunksList();
+    for (int i = 0; i < chunks.size(); i++) {
+      final FileChunkProto chunk = chunks.get(i);
+      if (chunk.getCompression().isEmpty()) {
+        continue;
+      }
+      if (b == null) {
+        b = request.toBuilder();
+      }
+      final Compressor c = Compressor.valueOf(chunk.getCompression());
+      final ByteString data;
+      try (InputStream in = c.decompress(chunk.getData().newInput())) {
+        data = ByteString.readFrom(in);
+      }
+      b.getSnapshotChunkBuilder().getFileChunksBuilder(i).setData(data).clearCompression();
+    }
+    return b == null? request: b.build();
+  }
+}
@@ -21,6 +21,7 @@ import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.grpc.GrpcConfigKeys;
 import org.apache.ratis.grpc.GrpcUtil;
 import org.apache.ratis.grpc.metrics.GrpcServerMetrics;
+import org.apache.ratis.io.Compressor;
 import org.apache.ratis.metrics.Timekeeper;
 import org.apache.ratis.proto.RaftProtos.InstallSnapshotResult;
 import org.apache.ratis.protocol.RaftPeerId;
@@ -173,6 +174,8 @@ public class GrpcLogAppender extends LogAppenderBase {
   private final StackTraceElement caller;
   private final RetryPolicy errorRetryWaitPolicy;
   private final ReplyState replyState = new ReplyState();
+  /** The compressor supported by the follower; null if the data is sent uncompressed. */
+  private volatile Compressor followerCompressor;
 
   public GrpcLogAppender(RaftServer.Division server, LeaderState leaderState, FollowerInfo f) {
     super(server, leaderState, f);
@@ -214,6 +217,8 @@ public class GrpcLogAppender extends LogAppenderBase {
         appendLogRequestObserver.stop();
         appendLogRequestObserver = null;
       }
+      // the follower may be restarted with a different configuration
+      followerCompressor = null;
       final int errorCount = replyState.process(event);
       // clear the pending requests queue and reset the next index of follower
       pendingRequests.clear();
@@ -352,7 +357,7 @@ public class GrpcLogAppender extends LogAppenderBase {
     void onNext(AppendEntriesRequestProto proto)
         throws InterruptedIOException {
       CallStreamObserver<AppendEntriesRequestProto> stream;
-      boolean isHeartBeat = heartbeat != null && proto.getEntriesCount() == 0;
+      boolean isHeartBeat = heartbeat != null && GrpcServerProtocolService.isHeartbeat(proto);
       if (isHeartBeat) {
         stream = heartbeat;
       } else {
@@ -409,7 +414,7 @@ public class GrpcLogAppender extends LogAppenderBase {
       sleep(remaining, heartbeat);
     }
     if (isRunning()) {
-      sendRequest(request, pending);
+      sendRequest(request, compress(pending));
     }
   }
 
@@ -424,6 +429,11 @@ public class GrpcLogAppender extends LogAppenderBase {
     }
   }
 
+  private AppendEntriesRequestProto compress(AppendEntriesRequestProto proto) throws IOException {
+    return followerCompressor == null? proto
+        : getServerRpc().getCompression().compress(getServer().getMemberId().getGroupId(), proto, grpcServerMetrics);
+  }
+
   private void sendRequest(AppendEntriesRequest request,
       AppendEntriesRequestProto proto) throws InterruptedIOException {
     CodeInjectionForTesting.execute(GrpcServicesImpl.GRPC_SEND_SERVER_REQUEST,
@@ -487,6 +497,7 @@ public class GrpcLogAppender extends LogAppenderBase {
         getFollower().updateLastRespondedAppendEntriesSendTime(request.getSendTime());
       }
       getFollower().updateLastRpcResponseTime();
+      followerCompressor = getServerRpc().getCompression().getCompressor(reply);
 
       if (LOG.isDebugEnabled()) {
         LOG.debug("{}: received {} reply {}, request={}",
@@ -767,7 +778,8 @@ public class GrpcLogAppender extends LogAppenderBase {
           installSnapshotStreamTimeout, maxOutstandingInstallSnapshots, responseHandler);
       for (InstallSnapshotRequestProto request : newInstallSnapshotRequests(requestId, snapshot)) {
         if (isRunning()) {
-          snapshotRequestObserver.onNext(request);
+          snapshotRequestObserver.onNext(followerCompressor == null? request
+              : getServerRpc().getCompression().compress(request, grpcServerMetrics));
           getFollower().updateLastRpcSendTime(false);
           responseHandler.addPending(request);
         } else {
@@ -117,6 +117,11 @@ public class GrpcServerProtocolClient implements Closeable {
     return r;
   }
 
+  void requestVote(RequestVoteRequestProto request, StreamObserver<RequestVoteReplyProto> s) {
+    asyncStub.withDeadlineAfter(requestTimeoutDuration.getDuration(), requestTimeoutDuration.getUnit())
+        .requestVote(request, s);
+  }
+
   public StartLeaderElectionReplyProto startLeaderElection(StartLeaderElectionRequestProto request) {
     StartLeaderElectionReplyProto r =
         blockingStub.withDeadlineAfter(requestTimeoutDuration.getDuration(), requestTimeoutDuration.getUnit())
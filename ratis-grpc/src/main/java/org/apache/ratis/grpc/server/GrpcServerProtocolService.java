@@ -191,16 +191,22 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
 
   private final Supplier<RaftPeerId> idSupplier;
   private final RaftServer server;
+  private final GrpcCompression compression;
 
-  GrpcServerProtocolService(Supplier<RaftPeerId> idSupplier, RaftServer server) {
+  GrpcServerProtocolService(Supplier<RaftPeerId> idSupplier, RaftServer server, GrpcCompression compression) {
     this.idSupplier = idSupplier;
     this.server = server;
+    this.compression = compression;
   }
 
   RaftPeerId getId() {
     return idSupplier.get();
   }
 
+  static boolean isHeartbeat(AppendEntriesRequestProto request) {
+    return request.getEntriesCount() == 0 && !request.hasCompressedEntries();
+  }
+
   @Override
   public void requestVote(RequestVoteRequestProto request,
       StreamObserver<RequestVoteReplyProto> responseObserver) {
@@ -242,7 +248,9 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
         RaftServerProtocol.Op.APPEND_ENTRIES, responseObserver) {
       @Override
       CompletableFuture<AppendEntriesReplyProto> process(AppendEntriesRequestProto request) throws IOException {
-        return server.appendEntriesAsync(request);
+        final CompletableFuture<AppendEntriesReplyProto> f
+            = server.appendEntriesAsync(GrpcCompression.decompress(request));
+        return compression.isEnabled()? f.thenApply(compression::announce): f;
       }
 
       @Override
@@ -262,12 +270,12 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
 
       @Override
       boolean replyInOrder(AppendEntriesRequestProto request) {
-        return request.getEntriesCount() != 0;
+        return !isHeartbeat(request);
       }
 
       @Override
       StatusRuntimeException wrapException(Throwable e, AppendEntriesRequestProto request) {
-        return GrpcUtil.wrapException(e, getCallId(request), request.getEntriesCount() == 0);
+        return GrpcUtil.wrapException(e, getCallId(request), isHeartbeat(request));
       }
     };
   }
@@ -279,7 +287,7 @@ class GrpcServerProtocolService extends RaftServerProtocolServiceImplBase {
         RaftServerProtocol.Op.INSTALL_SNAPSHOT, responseObserver) {
       @Override
       CompletableFuture<InstallSnapshotReplyProto> process(InstallSnapshotRequestProto request) throws IOException {
-        return CompletableFuture.completedFuture(server.installSnapshot(request));
+        return CompletableFuture.completedFuture(server.installSnapshot(GrpcCompression.decompress(request)));
       }
 
       @Override
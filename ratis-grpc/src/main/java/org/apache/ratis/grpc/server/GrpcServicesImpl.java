@@ -98,6 +98,38 @@ public final class GrpcServicesImpl
       getProxies().getProxy(target).readIndex(request, s);
       return f;
     }
+
+    @Override
+    public boolean supportsRequestVoteAsync() {
+      return true;
+    }
+
+    @Override
+    public CompletableFuture<RequestVoteReplyProto> requestVoteAsync(RequestVoteRequestProto request)
+        throws IOException {
+      CodeInjectionForTesting.execute(GRPC_SEND_SERVER_REQUEST, getId(), null, request);
+
+      final CompletableFuture<RequestVoteReplyProto> f = new CompletableFuture<>();
+      final StreamObserver<RequestVoteReplyProto> s = new StreamObserver<RequestVoteReplyProto>() {
+        @Override
+        public void onNext(RequestVoteReplyProto reply) {
+          f.complete(reply);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          f.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+      };
+
+      final RaftPeerId target = RaftPeerId.valueOf(request.getServerRequest().getReplyId());
+      getProxies().getProxy(target).requestVote(request, s);
+      return f;
+    }
   }
 
   public static final class Builder {
@@ -118,6 +150,7 @@ public final class GrpcServicesImpl
     private SizeInBytes flowControlWindow;
     private TimeDuration requestTimeoutDuration;
     private boolean separateHeartbeatChannel;
+    private GrpcCompression compression;
 
     private Builder() {}
 
@@ -135,6 +168,7 @@ public final class GrpcServicesImpl
       this.flowControlWindow = GrpcConfigKeys.flowControlWindow(properties, LOG::info);
       this.requestTimeoutDuration = RaftServerConfigKeys.Rpc.requestTimeout(properties);
       this.separateHeartbeatChannel = GrpcConfigKeys.Server.heartbeatChannel(properties);
+      this.compression = new GrpcCompression(properties);
 
       final SizeInBytes appenderBufferSize = RaftServerConfigKeys.Log.Appender.bufferByteLimit(properties);
       final SizeInBytes gap = SizeInBytes.ONE_MB;
@@ -173,7 +207,7 @@ public final class GrpcServicesImpl
     }
 
     private GrpcServerProtocolService newGrpcServerProtocolService() {
-      return new GrpcServerProtocolService(server::getId, server);
+      return new GrpcServerProtocolService(server::getId, server, compression);
     }
 
     private MetricServerInterceptor newMetricServerInterceptor() {
@@ -282,9 +316,11 @@ public final class GrpcServicesImpl
   private final GrpcClientProtocolService clientProtocolService;
 
   private final MetricServerInterceptor serverInterceptor;
+  private final GrpcCompression compression;
 
   private GrpcServicesImpl(Builder b) {
     super(b.server::getId, id -> new PeerProxyMap<>(id.toString(), b::newGrpcServerProtocolClient));
+    this.compression = b.compression;
 
     this.executor = b.newExecutor();
     this.clientProtocolService = b.newGrpcClientProtocolService(executor);
@@ -330,6 +366,10 @@ public final class GrpcServicesImpl
     builder.addService(ServerInterceptors.intercept(service, interceptor));
   }
 
+  GrpcCompression getCompression() {
+    return compression;
+  }
+
   @Override
   public SupportedRpcType getRpcType() {
     return SupportedRpcType.GRPC;
@@ -18,6 +18,7 @@
 package org.apache.ratis.netty;
 
 import org.apache.ratis.datastream.impl.DataStreamReplyByteBuffer;
+import org.apache.ratis.datastream.impl.DataStreamReplyFilePositionCount;
 import org.apache.ratis.datastream.impl.DataStreamRequestByteBuffer;
 import org.apache.ratis.datastream.impl.DataStreamRequestFilePositionCount;
 import org.apache.ratis.io.FilePositionCount;
@@ -29,6 +30,7 @@ import org.apache.ratis.proto.RaftProtos.DataStreamRequestHeaderProto;
 import org.apache.ratis.proto.RaftProtos.DataStreamPacketHeaderProto;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.DataStreamPacketHeader;
+import org.apache.ratis.protocol.DataStreamReply;
 import org.apache.ratis.protocol.DataStreamReplyHeader;
 import org.apache.ratis.protocol.DataStreamRequest;
 import org.apache.ratis.protocol.DataStreamRequestHeader;
@@ -80,7 +82,7 @@ public interface NettyDataStreamUtils {
         .asReadOnlyByteBuffer();
   }
 
-  static ByteBuffer getDataStreamReplyHeaderProtoByteBuf(DataStreamReplyByteBuffer reply) {
+  static ByteBuffer getDataStreamReplyHeaderProtoByteBuf(DataStreamReply reply) {
     DataStreamPacketHeaderProto.Builder b = DataStreamPacketHeaderProto
         .newBuilder()
         .setClientId(reply.getClientId().toByteString())
@@ -145,20 +147,42 @@ public interface NettyDataStreamUtils {
   static void encodeDataStreamRequestFilePositionCount(
       DataStreamRequestFilePositionCount request, Consumer<Object> out, ByteBufAllocator allocator) {
     encodeDataStreamRequestHeader(request, out, allocator);
-    final FilePositionCount f = request.getFile();
-    out.accept(new DefaultFileRegion(f.getFile(), f.getPosition(), f.getCount()));
+    out.accept(newFileRegion(request.getFile()));
   }
 
-  static void encodeDataStreamReplyByteBuffer(DataStreamReplyByteBuffer reply, Consumer<ByteBuf> out,
+  static DefaultFileRegion newFileRegion(FilePositionCount f) {
+    if (f.getChannel() == null) {
+      return new DefaultFileRegion(f.getFile(), f.getPosition(), f.getCount());
+    }
+    return new DefaultFileRegion(f.getChannel(), f.getPosition(), f.getCount()) {
+      @Override
+      protected void deallocate() {
+        // the channel is owned by the caller
+      }
+    };
+  }
+
+  static void encodeDataStreamReplyHeader(DataStreamReply reply, Consumer<? super ByteBuf> out,
       ByteBufAllocator allocator) {
     ByteBuffer headerBuf = getDataStreamReplyHeaderProtoByteBuf(reply);
     final ByteBuf headerLenBuf = allocator.ioBuffer(DataStreamPacketHeader.getSizeOfHeaderLen());
     headerLenBuf.writeInt(headerBuf.remaining());
     out.accept(headerLenBuf);
     out.accept(Unpooled.wrappedBuffer(headerBuf));
+  }
+
+  static void encodeDataStreamReplyByteBuffer(DataStreamReplyByteBuffer reply, Consumer<ByteBuf> out,
+      ByteBufAllocator allocator) {
+    encodeDataStreamReplyHeader(reply, out, allocator);
     out.accept(Unpooled.wrappedBuffer(reply.slice()));
   }
 
+  static void encodeDataStreamReplyFilePositionCount(DataStreamReplyFilePositionCount reply, Consumer<Object> out,
+      ByteBufAllocator allocator) {
+    encodeDataStreamReplyHeader(reply, out, allocator);
+    out.accept(newFileRegion(reply.getFile()));
+  }
+
   static DataStreamRequestByteBuf decodeDataStreamRequestByteBuf(ByteBuf buf) {
     return Optional.ofNullable(decodeDataStreamRequestHeader(buf))
         .map(header -> checkHeader(header, buf))
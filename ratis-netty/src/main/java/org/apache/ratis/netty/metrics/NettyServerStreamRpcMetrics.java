@@ -39,7 +39,11 @@ public class NettyServerStreamRpcMetrics extends RatisMetrics {
   private static final String METRICS_NUM_REQUESTS = "num_requests_%s";
 
   public enum RequestType {
-    CHANNEL_READ, HEADER, LOCAL_WRITE, REMOTE_WRITE, STATE_MACHINE_STREAM, START_TRANSACTION;
+    CHANNEL_READ, HEADER, LOCAL_WRITE, REMOTE_WRITE, STATE_MACHINE_STREAM, START_TRANSACTION,
+    /** From receiving a data packet to sending its reply in this server. */
+    HOP,
+    /** Reading the data of a {@link org.apache.ratis.statemachine.StateMachine.ReadStream}. */
+    LOCAL_READ;
 
     private final String numRequestsString;
     private final String successCountString;
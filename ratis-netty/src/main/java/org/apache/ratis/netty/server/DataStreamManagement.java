@@ -22,8 +22,11 @@ import org.apache.ratis.client.RaftClientConfigKeys;
 import org.apache.ratis.client.impl.ClientProtoUtils;
 import org.apache.ratis.client.impl.DataStreamClientImpl.DataStreamOutputImpl;
 import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.datastream.impl.DataStreamErasureCoder;
 import org.apache.ratis.datastream.impl.DataStreamReplyByteBuffer;
+import org.apache.ratis.datastream.impl.DataStreamReplyFilePositionCount;
 import org.apache.ratis.datastream.impl.DataStreamRequestByteBuf;
+import org.apache.ratis.io.FilePositionCount;
 import org.apache.ratis.io.StandardWriteOption;
 import org.apache.ratis.io.WriteOption;
 import org.apache.ratis.metrics.Timekeeper;
@@ -32,6 +35,7 @@ import org.apache.ratis.netty.metrics.NettyServerStreamRpcMetrics.RequestMetrics
 import org.apache.ratis.netty.metrics.NettyServerStreamRpcMetrics.RequestType;
 import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
 import org.apache.ratis.proto.RaftProtos.DataStreamPacketHeaderProto.Type;
+import org.apache.ratis.proto.RaftProtos.DataStreamReadRequestProto;
 import org.apache.ratis.proto.RaftProtos.RaftClientRequestProto;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.ClientInvocationId;
@@ -51,7 +55,9 @@ import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.statemachine.StateMachine.DataStream;
 import org.apache.ratis.statemachine.StateMachine.DataChannel;
+import org.apache.ratis.statemachine.StateMachine.ReadStream;
 import org.apache.ratis.thirdparty.io.netty.buffer.ByteBuf;
+import org.apache.ratis.thirdparty.io.netty.buffer.Unpooled;
 import org.apache.ratis.thirdparty.io.netty.channel.ChannelHandlerContext;
 import org.apache.ratis.thirdparty.io.netty.channel.ChannelId;
 import org.apache.ratis.util.ConcurrentUtils;
@@ -68,13 +74,19 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
@@ -85,23 +97,66 @@ import java.util.stream.Stream;
 public class DataStreamManagement {
   public static final Logger LOG = LoggerFactory.getLogger(DataStreamManagement.class);
 
+  /** A packet pending to be written in a batch. */
+  static class PendingWrite {
+    private final ByteBuf buf;
+    private final Iterable<WriteOption> options;
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    PendingWrite(ByteBuf buf, Iterable<WriteOption> options) {
+      this.buf = buf;
+      this.options = options;
+    }
+
+    ByteBuf getBuf() {
+      return buf;
+    }
+
+    CompletableFuture<Long> getFuture() {
+      return future;
+    }
+
+    /** Should a batch end at this packet? */
+    boolean isBatchEnd() {
+      return WriteOption.containsOption(options, StandardWriteOption.SYNC)
+          || WriteOption.containsOption(options, StandardWriteOption.CLOSE);
+    }
+  }
+
   static class LocalStream {
     private final CompletableFuture<DataStream> streamFuture;
     private final AtomicReference<CompletableFuture<Long>> writeFuture;
     private final RequestMetrics metrics;
+    private final int batchMaxPackets;
+    private final Queue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
 
-    LocalStream(CompletableFuture<DataStream> streamFuture, RequestMetrics metrics) {
+    LocalStream(CompletableFuture<DataStream> streamFuture, RequestMetrics metrics, int batchMaxPackets) {
       this.streamFuture = streamFuture;
       this.writeFuture = new AtomicReference<>(streamFuture.thenApply(s -> 0L));
       this.metrics = metrics;
+      this.batchMaxPackets = batchMaxPackets;
     }
 
     CompletableFuture<Long> write(ByteBuf buf, Iterable<WriteOption> options,
                                   Executor executor) {
       final Timekeeper.Context context = metrics.start();
-      return composeAsync(writeFuture, executor,
-          n -> streamFuture.thenCompose(stream -> writeToAsync(buf, options, stream, executor)
-              .whenComplete((l, e) -> metrics.stop(context, e == null))));
+      if (batchMaxPackets <= 1) {
+        return composeAsync(writeFuture, executor,
+            n -> streamFuture.thenCompose(stream -> writeToAsync(buf, options, stream, executor)
+                .whenComplete((l, e) -> metrics.stop(context, e == null))));
+      }
+
+      // Each packet schedules a batch task; a task is a noop if its packet has been written by a previous task.
+      final PendingWrite w = new PendingWrite(buf, options);
+      pending.add(w);
+      composeAsync(writeFuture, executor,
+          n -> streamFuture.thenCompose(stream -> writeBatchAsync(pending, batchMaxPackets, stream, executor)))
+          .whenComplete((n, e) -> {
+            if (e != null) {
+              w.future.completeExceptionally(e);
+            }
+          });
+      return w.future.whenComplete((l, e) -> metrics.stop(context, e == null));
     }
 
     void cleanUp() {
@@ -113,11 +168,21 @@ public class DataStreamManagement {
     private final DataStreamOutputImpl out;
     private final AtomicReference<CompletableFuture<DataStreamReply>> sendFuture
         = new AtomicReference<>(CompletableFuture.completedFuture(null));
+    /** For cut-through: the previous packet has been handed to {@link #out}, not necessarily acknowledged. */
+    private final AtomicReference<CompletableFuture<Void>> submitFuture
+        = new AtomicReference<>(CompletableFuture.completedFuture(null));
     private final RequestMetrics metrics;
+    /** The shard index of the remote peer for erasure coding; otherwise, -1. */
+    private final int shardIndex;
 
-    RemoteStream(DataStreamOutputImpl out, RequestMetrics metrics) {
+    RemoteStream(DataStreamOutputImpl out, RequestMetrics metrics, int shardIndex) {
       this.metrics = metrics;
       this.out = out;
+      this.shardIndex = shardIndex;
+    }
+
+    int getShardIndex() {
+      return shardIndex;
     }
 
     static Iterable<WriteOption> addFlush(List<WriteOption> original) {
@@ -128,12 +193,39 @@ public class DataStreamManagement {
           .collect(Collectors.toList());
     }
 
-    CompletableFuture<DataStreamReply> write(DataStreamRequestByteBuf request, Executor executor) {
+    /**
+     * Forward the given data of the packet.
+     *
+     * @param buf the data, which is a retained slice of the request or a shard for erasure coding;
+     *            it will be released by {@link #out}.
+     */
+    CompletableFuture<DataStreamReply> write(DataStreamRequestByteBuf request, ByteBuf buf, Executor executor) {
       final Timekeeper.Context context = metrics.start();
       return composeAsync(sendFuture, executor,
-          n -> out.writeAsync(request.slice().retain(), addFlush(request.getWriteOptionList()))
+          n -> out.writeAsync(buf, addFlush(request.getWriteOptionList()))
               .whenComplete((l, e) -> metrics.stop(context, e == null)));
     }
+
+    /**
+     * Forward the packet without waiting for the previous packets to be acknowledged.
+     * The packets are still handed to {@link #out} in order.
+     */
+    CompletableFuture<DataStreamReply> writeCutThrough(DataStreamRequestByteBuf request, ByteBuf buf,
+        Executor executor) {
+      final Timekeeper.Context context = metrics.start();
+      final Iterable<WriteOption> options = addFlush(request.getWriteOptionList());
+      final CompletableFuture<DataStreamReply> reply = new CompletableFuture<>();
+      submitFuture.updateAndGet(previous -> previous.handleAsync((v, e) -> {
+        try {
+          out.writeAsync(buf, options).whenComplete(JavaUtils.asBiConsumer(reply));
+        } catch (Throwable t) {
+          buf.release();
+          reply.completeExceptionally(t);
+        }
+        return null;
+      }, executor));
+      return reply.whenComplete((l, e) -> metrics.stop(context, e == null));
+    }
   }
 
   static class StreamInfo {
@@ -141,23 +233,40 @@ public class DataStreamManagement {
     private final boolean primary;
     private final LocalStream local;
     private final Set<RemoteStream> remotes;
+    /** Non-null if this is the primary of an erasure coded stream. */
+    private final DataStreamErasureCoder erasureCoder;
     private final Division division;
     private final AtomicReference<CompletableFuture<Void>> previous
         = new AtomicReference<>(CompletableFuture.completedFuture(null));
 
     StreamInfo(RaftClientRequest request, boolean primary, CompletableFuture<DataStream> stream, Division division,
         CheckedBiFunction<RaftClientRequest, Set<RaftPeer>, Set<DataStreamOutputImpl>, IOException> getStreams,
-        Function<RequestType, RequestMetrics> metricsConstructor)
+        Function<RequestType, RequestMetrics> metricsConstructor, int batchMaxPackets)
         throws IOException {
       this.request = request;
       this.primary = primary;
-      this.local = new LocalStream(stream, metricsConstructor.apply(RequestType.LOCAL_WRITE));
+      this.local = new LocalStream(stream, metricsConstructor.apply(RequestType.LOCAL_WRITE), batchMaxPackets);
       this.division = division;
-      final Set<RaftPeer> successors = getSuccessors(division.getId());
-      final Set<DataStreamOutputImpl> outs = getStreams.apply(request, successors);
-      this.remotes = outs.stream()
-          .map(o -> new RemoteStream(o, metricsConstructor.apply(RequestType.REMOTE_WRITE)))
-          .collect(Collectors.toSet());
+      this.erasureCoder = primary ? DataStreamErasureCoder.valueOf(request.getRoutingTable()) : null;
+      if (erasureCoder == null) {
+        final Set<RaftPeer> successors = getSuccessors(division.getId());
+        final Set<DataStreamOutputImpl> outs = getStreams.apply(request, successors);
+        this.remotes = outs.stream()
+            .map(o -> new RemoteStream(o, metricsConstructor.apply(RequestType.REMOTE_WRITE), -1))
+            .collect(Collectors.toSet());
+      } else {
+        // the primary is shard 0; each successor gets the shard of its index
+        final RaftConfiguration conf = division.getRaftConf();
+        final List<RaftPeerId> shardPeers = request.getRoutingTable().getShardPeers();
+        this.remotes = new HashSet<>();
+        for (int i = 1; i < shardPeers.size(); i++) {
+          final RaftPeerId id = shardPeers.get(i);
+          final RaftPeer peer = Objects.requireNonNull(conf.getPeer(id), () -> "Peer " + id + " not found in " + conf);
+          for (DataStreamOutputImpl o : getStreams.apply(request, Collections.singleton(peer))) {
+            remotes.add(new RemoteStream(o, metricsConstructor.apply(RequestType.REMOTE_WRITE), i));
+          }
+        }
+      }
     }
 
     AtomicReference<CompletableFuture<Void>> getPrevious() {
@@ -184,6 +293,23 @@ public class DataStreamManagement {
       return local;
     }
 
+    boolean isErasureCoded() {
+      return erasureCoder != null;
+    }
+
+    /** @return the shards of the given packet if this stream is erasure coded; otherwise, return null. */
+    ByteBuf[] encode(DataStreamRequestByteBuf request) {
+      if (erasureCoder == null) {
+        return null;
+      }
+      final ByteBuffer[] records = erasureCoder.encode(request.slice().nioBuffer());
+      final ByteBuf[] shards = new ByteBuf[records.length];
+      for (int i = 0; i < shards.length; i++) {
+        shards[i] = Unpooled.wrappedBuffer(records[i]);
+      }
+      return shards;
+    }
+
     <T> List<T> applyToRemotes(Function<RemoteStream, T> function) {
       return remotes.isEmpty()?Collections.emptyList(): remotes.stream().map(function).collect(Collectors.toList());
     }
@@ -219,14 +345,57 @@ public class DataStreamManagement {
     }
   }
 
+  static class ReadStreamInfo {
+    private final RaftClientRequest request;
+    private final CompletableFuture<ReadStream> stream;
+    private final AtomicReference<CompletableFuture<Void>> previous
+        = new AtomicReference<>(CompletableFuture.completedFuture(null));
+
+    ReadStreamInfo(RaftClientRequest request, CompletableFuture<ReadStream> stream) {
+      this.request = request;
+      this.stream = stream;
+    }
+
+    AtomicReference<CompletableFuture<Void>> getPrevious() {
+      return previous;
+    }
+
+    RaftClientRequest getRequest() {
+      return request;
+    }
+
+    CompletableFuture<ReadStream> getStream() {
+      return stream;
+    }
+
+    void close() {
+      stream.thenAccept(s -> {
+        try {
+          s.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close {}", this, e);
+        }
+      });
+    }
+
+    @Override
+    public String toString() {
+      return JavaUtils.getClassSimpleName(getClass()) + ":" + request;
+    }
+  }
+
   private final RaftServer server;
   private final String name;
 
   private final StreamMap<StreamInfo> streams = new StreamMap<>();
+  private final StreamMap<ReadStreamInfo> readStreams = new StreamMap<>();
   private final ChannelMap channels;
   private final ExecutorService requestExecutor;
   private final ExecutorService writeExecutor;
   private final TimeDuration requestTimeout;
+  private final boolean cutThrough;
+  private final int writeBatchMaxPackets;
+  private final int readChunkSizeMax;
 
   private final NettyServerStreamRpcMetrics nettyServerStreamRpcMetrics;
 
@@ -244,6 +413,9 @@ public class DataStreamManagement {
           RaftServerConfigKeys.DataStream.asyncWriteThreadPoolSize(properties),
           name + "-write-");
     this.requestTimeout = RaftClientConfigKeys.DataStream.requestTimeout(server.getProperties());
+    this.cutThrough = RaftServerConfigKeys.DataStream.cutThroughEnabled(properties);
+    this.writeBatchMaxPackets = RaftServerConfigKeys.DataStream.writeBatchMaxPackets(properties);
+    this.readChunkSizeMax = RaftServerConfigKeys.DataStream.readChunkSizeMax(properties).getSizeInt();
 
     this.nettyServerStreamRpcMetrics = metrics;
   }
@@ -283,7 +455,7 @@ public class DataStreamManagement {
       final boolean isPrimary = server.getId().equals(request.getServerId());
       final Division division = server.getDivision(request.getRaftGroupId());
       return new StreamInfo(request, isPrimary, computeDataStreamIfAbsent(request), division, getStreams,
-          getMetrics()::newRequestMetrics);
+          getMetrics()::newRequestMetrics, writeBatchMaxPackets);
     } catch (Throwable e) {
       throw new CompletionException(e);
     }
@@ -305,6 +477,14 @@ public class DataStreamManagement {
   static long writeTo(ByteBuf buf, Iterable<WriteOption> options,
                       DataStream stream) {
     final DataChannel channel = stream.getDataChannel();
+    final long byteWritten = channel instanceof GatheringByteChannel?
+        writeFully((GatheringByteChannel) channel, buf.nioBuffers())
+        : writeTo(buf, channel);
+    applyOptions(options, stream);
+    return byteWritten;
+  }
+
+  static long writeTo(ByteBuf buf, DataChannel channel) {
     long byteWritten = 0;
     for (ByteBuffer buffer : buf.nioBuffers()) {
       if (buffer.remaining() == 0) {
@@ -318,7 +498,86 @@ public class DataStreamManagement {
         throw new CompletionException(t);
       }
     }
+    return byteWritten;
+  }
 
+  /** Write all the given buffers to the given channel with gathering writes. */
+  static long writeFully(GatheringByteChannel channel, ByteBuffer[] buffers) {
+    long remaining = 0;
+    for (ByteBuffer b : buffers) {
+      remaining += b.remaining();
+    }
+    long byteWritten = 0;
+    try {
+      while (byteWritten < remaining) {
+        final long n = channel.write(buffers);
+        if (n < 0) {
+          throw new IOException("Failed to write: " + channel + " returns " + n);
+        }
+        byteWritten += n;
+      }
+    } catch (IOException e) {
+      throw new CompletionException("Failed to write " + remaining + " bytes to " + channel, e);
+    }
+    return byteWritten;
+  }
+
+  static CompletableFuture<Long> writeBatchAsync(Queue<PendingWrite> pending, int maxPackets, DataStream stream,
+      Executor defaultExecutor) {
+    final Executor e = Optional.ofNullable(stream.getExecutor()).orElse(defaultExecutor);
+    return CompletableFuture.supplyAsync(() -> writeBatch(pending, maxPackets, stream), e);
+  }
+
+  /**
+   * Write the pending packets, at most maxPackets, in a batch.
+   * A batch ends at a packet with the SYNC or the CLOSE option.
+   *
+   * @return the number of bytes written.
+   */
+  static long writeBatch(Queue<PendingWrite> pending, int maxPackets, DataStream stream) {
+    final List<PendingWrite> batch = new ArrayList<>();
+    for (PendingWrite w; batch.size() < maxPackets && (w = pending.poll()) != null; ) {
+      batch.add(w);
+      if (w.isBatchEnd()) {
+        break;
+      }
+    }
+    if (batch.isEmpty()) {
+      return 0; // already written by the previous batches
+    }
+
+    final DataChannel channel = stream.getDataChannel();
+    try {
+      final long[] sizes = new long[batch.size()];
+      if (channel instanceof GatheringByteChannel) {
+        final ByteBuffer[] buffers = batch.stream()
+            .flatMap(w -> Stream.of(w.buf.nioBuffers()))
+            .toArray(ByteBuffer[]::new);
+        writeFully((GatheringByteChannel) channel, buffers);
+        for (int i = 0; i < sizes.length; i++) {
+          sizes[i] = batch.get(i).buf.readableBytes();
+        }
+      } else {
+        for (int i = 0; i < sizes.length; i++) {
+          sizes[i] = writeTo(batch.get(i).buf, channel);
+        }
+      }
+      applyOptions(batch.get(batch.size() - 1).options, stream);
+
+      long byteWritten = 0;
+      for (int i = 0; i < sizes.length; i++) {
+        batch.get(i).future.complete(sizes[i]);
+        byteWritten += sizes[i];
+      }
+      return byteWritten;
+    } catch (Throwable t) {
+      batch.forEach(w -> w.future.completeExceptionally(t));
+      throw t;
+    }
+  }
+
+  static void applyOptions(Iterable<WriteOption> options, DataStream stream) {
+    final DataChannel channel = stream.getDataChannel();
     if (WriteOption.containsOption(options, StandardWriteOption.SYNC)) {
       try {
         channel.force(false);
@@ -330,7 +589,6 @@ public class DataStreamManagement {
     if (WriteOption.containsOption(options, StandardWriteOption.CLOSE)) {
       close(stream);
     }
-    return byteWritten;
   }
 
   static void close(DataStream stream) {
@@ -351,16 +609,22 @@ public class DataStreamManagement {
         .build();
   }
 
+  /**
+   * @param bytesWritten the number of bytes written locally,
+   *                     which is the size of the shard for erasure coding.
+   */
   private void sendReply(List<CompletableFuture<DataStreamReply>> remoteWrites,
-      DataStreamRequestByteBuf request, long bytesWritten, Collection<CommitInfoProto> commitInfos,
-      ChannelHandlerContext ctx) {
-    final boolean success = checkSuccessRemoteWrite(remoteWrites, bytesWritten, request);
+      DataStreamRequestByteBuf request, long bytesWritten, boolean erasureCoded,
+      Collection<CommitInfoProto> commitInfos, ChannelHandlerContext ctx) {
+    final boolean success = checkSuccessRemoteWrite(remoteWrites, bytesWritten, erasureCoded, request);
     final DataStreamReplyByteBuffer.Builder builder = DataStreamReplyByteBuffer.newBuilder()
         .setDataStreamPacket(request)
         .setSuccess(success)
         .setCommitInfos(commitInfos);
     if (success) {
-      builder.setBytesWritten(bytesWritten);
+      // for erasure coding, reply the packet length to the client
+      builder.setBytesWritten(erasureCoded && request.getType() == Type.STREAM_DATA ? request.getDataLength()
+          : bytesWritten);
     }
     ctx.writeAndFlush(builder.build());
   }
@@ -399,6 +663,7 @@ public class DataStreamManagement {
   void cleanUp(Set<ClientInvocationId> ids) {
     for (ClientInvocationId clientInvocationId : ids) {
       removeDataStream(clientInvocationId);
+      removeReadStream(clientInvocationId);
     }
   }
 
@@ -415,10 +680,127 @@ public class DataStreamManagement {
       CheckedBiFunction<RaftClientRequest, Set<RaftPeer>, Set<DataStreamOutputImpl>, IOException> getStreams) {
     LOG.debug("{}: read {}", this, request);
     try {
-      readImpl(request, ctx, getStreams);
+      if (request.getType() == Type.STREAM_READ) {
+        readStreamImpl(request, ctx);
+      } else {
+        readImpl(request, ctx, getStreams);
+      }
     } catch (Throwable t) {
       replyDataStreamException(t, request, ctx);
-      removeDataStream(ClientInvocationId.valueOf(request.getClientId(), request.getStreamId()));
+      final ClientInvocationId key = ClientInvocationId.valueOf(request.getClientId(), request.getStreamId());
+      removeDataStream(key);
+      removeReadStream(key);
+    }
+  }
+
+  private void removeReadStream(ClientInvocationId invocationId) {
+    final ReadStreamInfo removed = readStreams.remove(invocationId);
+    if (removed != null) {
+      removed.close();
+    }
+  }
+
+  private ReadStreamInfo newReadStreamInfo(RaftClientRequestProto proto) {
+    try {
+      final RaftClientRequest request = ClientProtoUtils.toRaftClientRequest(proto);
+      final StateMachine stateMachine = server.getDivision(request.getRaftGroupId()).getStateMachine();
+      return new ReadStreamInfo(request, stateMachine.data().readStream(request));
+    } catch (Throwable e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private void readStreamImpl(DataStreamRequestByteBuf request, ChannelHandlerContext ctx) throws IOException {
+    final DataStreamReadRequestProto proto = DataStreamReadRequestProto.parseFrom(request.slice().nioBuffer());
+    final boolean close = request.getWriteOptionList().contains(StandardWriteOption.CLOSE);
+    final ClientInvocationId key = ClientInvocationId.valueOf(request.getClientId(), request.getStreamId());
+    final ChannelId channelId = ctx.channel().id();
+
+    final ReadStreamInfo info;
+    if (proto.hasRequest()) {
+      final MemoizedSupplier<ReadStreamInfo> supplier = JavaUtils.memoize(
+          () -> newReadStreamInfo(proto.getRequest()));
+      info = readStreams.computeIfAbsent(key, id -> supplier.get());
+      if (!supplier.isInitialized()) {
+        throw new AlreadyExistsException("A ReadStream already exists for " + key);
+      }
+      channels.add(channelId, key);
+    } else if (close) {
+      info = Optional.ofNullable(readStreams.remove(key)).orElseThrow(
+          () -> new IllegalStateException("Failed to remove ReadStreamInfo for " + request));
+    } else {
+      info = Optional.ofNullable(readStreams.get(key)).orElseThrow(
+          () -> new IllegalStateException("Failed to get ReadStreamInfo for " + request));
+    }
+
+    final RequestMetrics metrics = getMetrics().newRequestMetrics(RequestType.LOCAL_READ);
+    composeAsync(info.getPrevious(), writeExecutor, n -> info.getStream().thenCompose(stream -> {
+      final Timekeeper.Context context = metrics.start();
+      boolean success = false;
+      try {
+        final DataStreamReply reply = readFrom(stream, request, proto, readChunkSizeMax);
+        final CompletableFuture<Void> sent = new CompletableFuture<>();
+        ctx.writeAndFlush(reply).addListener(future -> {
+          if (future.isSuccess()) {
+            sent.complete(null);
+          } else {
+            sent.completeExceptionally(future.cause());
+          }
+        });
+        success = true;
+        // a file region is transferred with the stream's channel, which must not be closed until the transfer is done
+        return reply instanceof DataStreamReplyFilePositionCount ? sent : CompletableFuture.completedFuture(null);
+      } finally {
+        metrics.stop(context, success);
+      }
+    })).whenComplete((v, exception) -> {
+      if (exception != null) {
+        replyDataStreamException(server, exception, info.getRequest(), request, ctx);
+        readStreams.remove(key);
+        info.close();
+        channels.remove(channelId, key);
+        return;
+      }
+      if (close) {
+        info.close();
+        channels.remove(channelId, key);
+      }
+      request.release();
+    });
+  }
+
+  /**
+   * Read the data specified in the given proto from the given stream.
+   * When the stream is backed by a file, the reply refers to the file region for zero-copy transfer.
+   * Otherwise, the data is copied to a buffer of at most chunkSizeMax bytes
+   * and the client reads the remaining data with the subsequent requests.
+   */
+  static DataStreamReply readFrom(ReadStream stream, DataStreamRequestByteBuf request,
+      DataStreamReadRequestProto proto, int chunkSizeMax) {
+    final long position = proto.getPosition();
+    try {
+      final int count = Math.toIntExact(Math.max(0, Math.min(proto.getLength(), stream.size() - position)));
+      if (count > 0) {
+        final FilePositionCount file = stream.getFilePositionCount(position, count);
+        if (file != null) {
+          return new DataStreamReplyFilePositionCount(request, file);
+        }
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocate(Math.min(count, chunkSizeMax));
+      while (buffer.hasRemaining() && stream.read(buffer, position + buffer.position()) > 0) {
+        LOG.trace("read {} bytes from {}", buffer.position(), stream);
+      }
+      buffer.flip();
+      return DataStreamReplyByteBuffer.newBuilder()
+          .setDataStreamPacket(request)
+          .setBuffer(buffer)
+          .setSuccess(true)
+          .setBytesWritten(buffer.remaining())
+          .build();
+    } catch (IOException e) {
+      throw new CompletionException("Failed to read " + proto.getLength() + " bytes at position " + position
+          + " for " + request, e);
     }
   }
 
@@ -459,12 +841,28 @@ public class DataStreamManagement {
 
     final CompletableFuture<Long> localWrite;
     final List<CompletableFuture<DataStreamReply>> remoteWrites;
+    final Timekeeper.Context hopContext;
+    final RequestMetrics hopMetrics;
     if (request.getType() == Type.STREAM_HEADER) {
       localWrite = CompletableFuture.completedFuture(0L);
       remoteWrites = Collections.emptyList();
+      hopMetrics = null;
+      hopContext = null;
     } else if (request.getType() == Type.STREAM_DATA) {
-      localWrite = info.getLocal().write(request.slice(), request.getWriteOptionList(), writeExecutor);
-      remoteWrites = info.applyToRemotes(out -> out.write(request, requestExecutor));
+      hopMetrics = getMetrics().newRequestMetrics(RequestType.HOP);
+      hopContext = hopMetrics.start();
+      final ByteBuf[] shards = info.encode(request);
+      final ByteBuf localBuf = shards != null ? shards[0] : request.slice();
+      if (cutThrough) {
+        // forward first so that the downstream servers can start writing as early as possible
+        remoteWrites = info.applyToRemotes(out -> out.writeCutThrough(request,
+            shards != null ? shards[out.getShardIndex()] : request.slice().retain(), requestExecutor));
+        localWrite = info.getLocal().write(localBuf, request.getWriteOptionList(), writeExecutor);
+      } else {
+        localWrite = info.getLocal().write(localBuf, request.getWriteOptionList(), writeExecutor);
+        remoteWrites = info.applyToRemotes(out -> out.write(request,
+            shards != null ? shards[out.getShardIndex()] : request.slice().retain(), requestExecutor));
+      }
     } else {
       throw new IllegalStateException(this + ": Unexpected type " + request.getType() + ", request=" + request);
     }
@@ -474,13 +872,16 @@ public class DataStreamManagement {
           if (request.getType() == Type.STREAM_HEADER
               || request.getType() == Type.STREAM_DATA
               || close) {
-            sendReply(remoteWrites, request, bytesWritten, info.getCommitInfos(), ctx);
+            sendReply(remoteWrites, request, bytesWritten, info.isErasureCoded(), info.getCommitInfos(), ctx);
           } else {
             throw new IllegalStateException(this + ": Unexpected type " + request.getType() + ", request=" + request);
           }
           return null;
         }, requestExecutor)).whenComplete((v, exception) -> {
       try {
+        if (hopMetrics != null) {
+          hopMetrics.stop(hopContext, exception == null);
+        }
         if (exception != null) {
           replyDataStreamException(server, exception, info.getRequest(), request, ctx);
           final StreamInfo removed = removeDataStream(key);
@@ -499,16 +900,20 @@ public class DataStreamManagement {
     });
   }
 
+  /**
+   * @param erasureCoded For erasure coding, the stream offsets of the shards are different from the request,
+   *                     so that the offsets are not checked.
+   */
   static void assertReplyCorrespondingToRequest(
-      final DataStreamRequestByteBuf request, final DataStreamReply reply) {
+      final DataStreamRequestByteBuf request, final DataStreamReply reply, boolean erasureCoded) {
     Preconditions.assertTrue(request.getClientId().equals(reply.getClientId()));
     Preconditions.assertTrue(request.getType() == reply.getType());
     Preconditions.assertTrue(request.getStreamId() == reply.getStreamId());
-    Preconditions.assertTrue(request.getStreamOffset() == reply.getStreamOffset());
+    Preconditions.assertTrue(erasureCoded || request.getStreamOffset() == reply.getStreamOffset());
   }
 
   private boolean checkSuccessRemoteWrite(List<CompletableFuture<DataStreamReply>> replyFutures, long bytesWritten,
-      final DataStreamRequestByteBuf request) {
+      boolean erasureCoded, final DataStreamRequestByteBuf request) {
     for (CompletableFuture<DataStreamReply> replyFuture : replyFutures) {
       final DataStreamReply reply;
       try {
@@ -516,7 +921,7 @@ public class DataStreamManagement {
       } catch (Exception e) {
         throw new CompletionException("Failed to get reply for bytesWritten=" + bytesWritten + ", " + request, e);
       }
-      assertReplyCorrespondingToRequest(request, reply);
+      assertReplyCorrespondingToRequest(request, reply, erasureCoded);
       if (!reply.isSuccess()) {
         LOG.warn("reply is not success, request: {}", request);
         return false;
@@ -24,6 +24,7 @@ import org.apache.ratis.client.impl.DataStreamClientImpl.DataStreamOutputImpl;
 import org.apache.ratis.conf.Parameters;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.datastream.impl.DataStreamReplyByteBuffer;
+import org.apache.ratis.datastream.impl.DataStreamReplyFilePositionCount;
 import org.apache.ratis.datastream.impl.DataStreamRequestByteBuf;
 import org.apache.ratis.netty.NettyConfigKeys;
 import org.apache.ratis.netty.NettyDataStreamUtils;
@@ -262,6 +263,7 @@ public class NettyServerStreamRpc implements DataStreamServerRpc {
         }
         p.addLast(newDecoder());
         p.addLast(ENCODER);
+        p.addLast(ENCODER_FILE_POSITION_COUNT);
         p.addLast(newChannelInboundHandlerAdapter());
       }
     };
@@ -290,6 +292,17 @@ public class NettyServerStreamRpc implements DataStreamServerRpc {
     }
   }
 
+  static final MessageToMessageEncoder<DataStreamReplyFilePositionCount> ENCODER_FILE_POSITION_COUNT
+      = new EncoderFilePositionCount();
+
+  @ChannelHandler.Sharable
+  static class EncoderFilePositionCount extends MessageToMessageEncoder<DataStreamReplyFilePositionCount> {
+    @Override
+    protected void encode(ChannelHandlerContext context, DataStreamReplyFilePositionCount reply, List<Object> out) {
+      NettyDataStreamUtils.encodeDataStreamReplyFilePositionCount(reply, out::add, context.alloc());
+    }
+  }
+
   @Override
   public void start() {
     channelFuture.syncUninterruptibly();
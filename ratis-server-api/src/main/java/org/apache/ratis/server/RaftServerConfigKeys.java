@@ -61,6 +61,33 @@ public interface RaftServerConfigKeys {
     setSizeInBytes(properties::set, STORAGE_FREE_SPACE_MIN_KEY, storageFreeSpaceMin);
   }
 
+  /**
+   * When enabled, the term and votedFor metadata of all the groups in a storage volume
+   * are appended to a shared journal file with group-committed fsyncs,
+   * instead of rewriting a metadata file in each group directory for every change.
+   * Once enabled, it must not be disabled since the metadata files in the group directories become stale.
+   */
+  String STORAGE_METADATA_JOURNAL_ENABLED_KEY = PREFIX + ".storage.metadata.journal.enabled";
+  boolean STORAGE_METADATA_JOURNAL_ENABLED_DEFAULT = false;
+  static boolean storageMetadataJournalEnabled(RaftProperties properties) {
+    return getBoolean(properties::getBoolean, STORAGE_METADATA_JOURNAL_ENABLED_KEY,
+        STORAGE_METADATA_JOURNAL_ENABLED_DEFAULT, getDefaultLog());
+  }
+  static void setStorageMetadataJournalEnabled(RaftProperties properties, boolean enabled) {
+    setBoolean(properties::setBoolean, STORAGE_METADATA_JOURNAL_ENABLED_KEY, enabled);
+  }
+
+  /** The journal is compacted when the number of records exceeds this threshold. */
+  String STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_KEY = PREFIX + ".storage.metadata.journal.compaction.threshold";
+  int STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_DEFAULT = 4096;
+  static int storageMetadataJournalCompactionThreshold(RaftProperties properties) {
+    return getInt(properties::getInt, STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_KEY,
+        STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_DEFAULT, getDefaultLog(), requireMin(1));
+  }
+  static void setStorageMetadataJournalCompactionThreshold(RaftProperties properties, int threshold) {
+    setInt(properties::setInt, STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_KEY, threshold);
+  }
+
   String REMOVED_GROUPS_DIR_KEY = PREFIX + ".removed.groups.dir";
   File REMOVED_GROUPS_DIR_DEFAULT = new File("/tmp/raft-server/removed-groups/");
   static File removedGroupsDir(RaftProperties properties) {
@@ -211,14 +238,21 @@ public interface RaftServerConfigKeys {
       DEFAULT,
 
       /** Use ReadIndex (see Raft Paper section 6.4). Maintains linearizability */
-      LINEARIZABLE
+      LINEARIZABLE,
+
+      /**
+       * Same as {@link #LINEARIZABLE} except that a follower may serve reads locally
+       * using a read lease granted by the leader; see {@link FollowerLease}.
+       * The reads served with a lease are bounded-staleness but not linearizable.
+       */
+      BOUNDED_STALENESS
     }
 
     String OPTION_KEY = PREFIX + ".option";
     Option OPTION_DEFAULT = Option.DEFAULT;
     static Option option(RaftProperties properties) {
       Option option =  get(properties::getEnum, OPTION_KEY, OPTION_DEFAULT, getDefaultLog());
-      if (option != Option.DEFAULT && option != Option.LINEARIZABLE) {
+      if (option != Option.DEFAULT && option != Option.LINEARIZABLE && option != Option.BOUNDED_STALENESS) {
         throw new IllegalArgumentException("Unexpected read option: " + option);
       }
       return option;
@@ -249,6 +283,59 @@ public interface RaftServerConfigKeys {
       setDouble(properties::setDouble, LEADER_LEASE_TIMEOUT_RATIO_KEY, ratio);
     }
 
+    /**
+     * Configurations for the {@link Option#BOUNDED_STALENESS} reads,
+     * which followers serve locally using a read lease granted by the leader.
+     * The reads served by a lease may miss the writes committed
+     * within {@link #MAX_STALENESS_KEY} before the read.
+     * A lease is granted only when {@link #LEADER_LEASE_ENABLED_KEY} is also enabled in the leader.
+     */
+    interface FollowerLease {
+      String PREFIX = Read.PREFIX + ".follower.lease";
+
+      /** The maximum age of a lease for a follower to serve reads locally. */
+      String MAX_STALENESS_KEY = PREFIX + ".max-staleness";
+      TimeDuration MAX_STALENESS_DEFAULT = TimeDuration.valueOf(100, TimeUnit.MILLISECONDS);
+      static TimeDuration maxStaleness(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(MAX_STALENESS_DEFAULT.getUnit()),
+            MAX_STALENESS_KEY, MAX_STALENESS_DEFAULT, getDefaultLog(), requireNonNegativeTimeDuration());
+      }
+      static void setMaxStaleness(RaftProperties properties, TimeDuration maxStaleness) {
+        setTimeDuration(properties::setTimeDuration, MAX_STALENESS_KEY, maxStaleness);
+      }
+
+      /**
+       * The maximum clock drift between the leader and a follower.
+       * A lease starts at the time the leader sends it minus this drift.
+       */
+      String CLOCK_DRIFT_MAX_KEY = PREFIX + ".clock-drift.max";
+      TimeDuration CLOCK_DRIFT_MAX_DEFAULT = TimeDuration.valueOf(10, TimeUnit.MILLISECONDS);
+      static TimeDuration clockDriftMax(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(CLOCK_DRIFT_MAX_DEFAULT.getUnit()),
+            CLOCK_DRIFT_MAX_KEY, CLOCK_DRIFT_MAX_DEFAULT, getDefaultLog(), requireNonNegativeTimeDuration());
+      }
+      static void setClockDriftMax(RaftProperties properties, TimeDuration clockDriftMax) {
+        setTimeDuration(properties::setTimeDuration, CLOCK_DRIFT_MAX_KEY, clockDriftMax);
+      }
+    }
+
+    interface ReadIndex {
+      String PREFIX = Read.PREFIX + ".read-index";
+
+      /**
+       * When enabled, the concurrent linearizable reads on a follower share one in-flight
+       * read index request to the leader.
+       */
+      String BATCH_ENABLED_KEY = PREFIX + ".batch.enabled";
+      boolean BATCH_ENABLED_DEFAULT = false;
+      static boolean batchEnabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean, BATCH_ENABLED_KEY, BATCH_ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setBatchEnabled(RaftProperties properties, boolean enabled) {
+        setBoolean(properties::setBoolean, BATCH_ENABLED_KEY, enabled);
+      }
+    }
+
     interface ReadAfterWriteConsistent {
       String PREFIX = Read.PREFIX + ".read-after-write-consistent";
 
@@ -301,6 +388,61 @@ public interface RaftServerConfigKeys {
     static void setFollowerGapRatioMax(RaftProperties properties, float ratio) {
       setDouble(properties::setDouble, FOLLOWER_GAP_RATIO_MAX_KEY, ratio, requireMax(1d));
     }
+
+    /** Configurations related to the pending message streams in the leader. */
+    interface MessageStream {
+      String PREFIX = Write.PREFIX + ".message-stream";
+
+      /**
+       * When the bytes of a pending message stream exceed this threshold,
+       * the stream spills its bytes to a temporary file under the storage directory.
+       * The stream bytes are never spilled when it is zero.
+       */
+      String SPILL_THRESHOLD_KEY = PREFIX + ".spill.threshold";
+      SizeInBytes SPILL_THRESHOLD_DEFAULT = SizeInBytes.ZERO;
+      static SizeInBytes spillThreshold(RaftProperties properties) {
+        return getSizeInBytes(properties::getSizeInBytes, SPILL_THRESHOLD_KEY, SPILL_THRESHOLD_DEFAULT,
+            getDefaultLog(), requireMinSizeInByte(SizeInBytes.ZERO));
+      }
+      static void setSpillThreshold(RaftProperties properties, SizeInBytes threshold) {
+        setSizeInBytes(properties::set, SPILL_THRESHOLD_KEY, threshold);
+      }
+
+      /**
+       * The max in-memory bytes of the message streams of all the divisions in a server,
+       * including the bytes of the ended streams until their write requests complete.
+       * When it is exceeded, a stream spills its bytes if the spill threshold is positive;
+       * otherwise, the stream fails.  Zero means no limit.
+       */
+      String MEMORY_MAX_KEY = PREFIX + ".memory.max";
+      SizeInBytes MEMORY_MAX_DEFAULT = SizeInBytes.ZERO;
+      static SizeInBytes memoryMax(RaftProperties properties) {
+        return getSizeInBytes(properties::getSizeInBytes, MEMORY_MAX_KEY, MEMORY_MAX_DEFAULT,
+            getDefaultLog(), requireMinSizeInByte(SizeInBytes.ZERO));
+      }
+      static void setMemoryMax(RaftProperties properties, SizeInBytes memoryMax) {
+        setSizeInBytes(properties::set, MEMORY_MAX_KEY, memoryMax);
+      }
+    }
+  }
+
+  /** The memory budget shared by all the divisions of a server. */
+  interface Memory {
+    String PREFIX = RaftServerConfigKeys.PREFIX + ".memory";
+
+    /**
+     * The total size of the pending write requests, the log caches and the log worker queues
+     * of all the divisions.  Zero means the budget is disabled.
+     */
+    String BUDGET_KEY = PREFIX + ".budget";
+    SizeInBytes BUDGET_DEFAULT = SizeInBytes.ZERO;
+    static SizeInBytes budget(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes,
+          BUDGET_KEY, BUDGET_DEFAULT, getDefaultLog(), requireMinSizeInByte(SizeInBytes.ZERO));
+    }
+    static void setBudget(RaftProperties properties, SizeInBytes budget) {
+      setSizeInBytes(properties::set, BUDGET_KEY, budget);
+    }
   }
 
   interface Watch {
@@ -349,6 +491,19 @@ public interface RaftServerConfigKeys {
       setBoolean(properties::setBoolean, USE_MEMORY_KEY, useMemory);
     }
 
+    /**
+     * The name of a RaftLogFactory, either built-in or loaded by the ServiceLoader, to create the logs.
+     * When it is unset, use the segmented log, or the memory log if {@link #USE_MEMORY_KEY} is set.
+     */
+    String TYPE_KEY = PREFIX + ".type";
+    String TYPE_DEFAULT = null;
+    static String type(RaftProperties properties) {
+      return get(properties::get, TYPE_KEY, TYPE_DEFAULT, getDefaultLog());
+    }
+    static void setType(RaftProperties properties, String type) {
+      set(properties::set, TYPE_KEY, type);
+    }
+
     String QUEUE_ELEMENT_LIMIT_KEY = PREFIX + ".queue.element-limit";
     int QUEUE_ELEMENT_LIMIT_DEFAULT = 4096;
     static int queueElementLimit(RaftProperties properties) {
@@ -405,6 +560,31 @@ public interface RaftServerConfigKeys {
       setLong(properties::setLong, PURGE_PRESERVATION_LOG_NUM_KEY, purgePreserveLogNum);
     }
 
+    /**
+     * When it is enabled, the purged segment files are deleted by a background service shared by the server,
+     * instead of the log worker thread which also serves the appends.
+     */
+    String PURGE_BACKGROUND_ENABLED_KEY = PREFIX + ".purge.background.enabled";
+    boolean PURGE_BACKGROUND_ENABLED_DEFAULT = false;
+    static boolean purgeBackgroundEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, PURGE_BACKGROUND_ENABLED_KEY,
+          PURGE_BACKGROUND_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setPurgeBackgroundEnabled(RaftProperties properties, boolean purgeBackgroundEnabled) {
+      setBoolean(properties::setBoolean, PURGE_BACKGROUND_ENABLED_KEY, purgeBackgroundEnabled);
+    }
+
+    /** The max number of bytes per second to delete in the background for each storage volume; 0 means unlimited. */
+    String PURGE_BACKGROUND_BANDWIDTH_KEY = PREFIX + ".purge.background.bandwidth";
+    SizeInBytes PURGE_BACKGROUND_BANDWIDTH_DEFAULT = SizeInBytes.valueOf("256MB");
+    static SizeInBytes purgeBackgroundBandwidth(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes,
+          PURGE_BACKGROUND_BANDWIDTH_KEY, PURGE_BACKGROUND_BANDWIDTH_DEFAULT, getDefaultLog());
+    }
+    static void setPurgeBackgroundBandwidth(RaftProperties properties, SizeInBytes bandwidth) {
+      setSizeInBytes(properties::set, PURGE_BACKGROUND_BANDWIDTH_KEY, bandwidth);
+    }
+
     String SEGMENT_SIZE_MAX_KEY = PREFIX + ".segment.size.max";
     SizeInBytes SEGMENT_SIZE_MAX_DEFAULT = SizeInBytes.valueOf("32MB");
     static SizeInBytes segmentSizeMax(RaftProperties properties) {
@@ -428,6 +608,20 @@ public interface RaftServerConfigKeys {
       setInt(properties::setInt, SEGMENT_CACHE_NUM_MAX_KEY, maxCachedSegmentNum);
     }
 
+    /**
+     * The max number of threads loading the segments of a log in parallel during startup.
+     * The segments are loaded sequentially when the value is 1.
+     */
+    String SEGMENT_LOAD_PARALLELISM_KEY = PREFIX + ".segment.load.parallelism";
+    int SEGMENT_LOAD_PARALLELISM_DEFAULT = 1;
+    static int segmentLoadParallelism(RaftProperties properties) {
+      return getInt(properties::getInt, SEGMENT_LOAD_PARALLELISM_KEY,
+          SEGMENT_LOAD_PARALLELISM_DEFAULT, getDefaultLog(), requireMin(1));
+    }
+    static void setSegmentLoadParallelism(RaftProperties properties, int parallelism) {
+      setInt(properties::setInt, SEGMENT_LOAD_PARALLELISM_KEY, parallelism, requireMin(1));
+    }
+
     String SEGMENT_CACHE_SIZE_MAX_KEY = PREFIX + ".segment.cache.size.max";
     SizeInBytes SEGMENT_CACHE_SIZE_MAX_DEFAULT = SizeInBytes.valueOf("200MB");
     static SizeInBytes segmentCacheSizeMax(RaftProperties properties) {
@@ -438,6 +632,68 @@ public interface RaftServerConfigKeys {
       setSizeInBytes(properties::set, SEGMENT_CACHE_SIZE_MAX_KEY, maxCachedSegmentSize);
     }
 
+    /**
+     * Should the segment caches keep the log entries in the serialized form?
+     * A serialized entry takes much less heap than a {@link org.apache.ratis.proto.RaftProtos.LogEntryProto}
+     * object graph but it has to be parsed when it is read from the cache.
+     * The recently appended or parsed entries of each segment are memoized,
+     * so that the repeated reads of the same entries share a single parsed entry.
+     */
+    String SEGMENT_CACHE_SERIALIZED_KEY = PREFIX + ".segment.cache.serialized";
+    boolean SEGMENT_CACHE_SERIALIZED_DEFAULT = false;
+    static boolean segmentCacheSerialized(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, SEGMENT_CACHE_SERIALIZED_KEY,
+          SEGMENT_CACHE_SERIALIZED_DEFAULT, getDefaultLog());
+    }
+    static void setSegmentCacheSerialized(RaftProperties properties, boolean serialized) {
+      setBoolean(properties::setBoolean, SEGMENT_CACHE_SERIALIZED_KEY, serialized);
+    }
+
+    /**
+     * The max total size of the serialized log entries cached in direct memory,
+     * shared by all the divisions of a server.
+     * The entries evicted from the segment caches are kept there.
+     * The off-heap cache is disabled when the size is zero.
+     */
+    String SEGMENT_CACHE_OFF_HEAP_SIZE_MAX_KEY = PREFIX + ".segment.cache.off-heap.size.max";
+    SizeInBytes SEGMENT_CACHE_OFF_HEAP_SIZE_MAX_DEFAULT = SizeInBytes.ZERO;
+    static SizeInBytes segmentCacheOffHeapSizeMax(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes, SEGMENT_CACHE_OFF_HEAP_SIZE_MAX_KEY,
+          SEGMENT_CACHE_OFF_HEAP_SIZE_MAX_DEFAULT, getDefaultLog(), requireMinSizeInByte(SizeInBytes.ZERO));
+    }
+    static void setSegmentCacheOffHeapSizeMax(RaftProperties properties, SizeInBytes maxSize) {
+      setSizeInBytes(properties::set, SEGMENT_CACHE_OFF_HEAP_SIZE_MAX_KEY, maxSize);
+    }
+
+    /**
+     * The compressor, such as DEFLATE, for writing new segments in the block-compressed format,
+     * where the entries are grouped into blocks and each block is compressed and checksummed as a whole.
+     * Null means the new segments are written uncompressed.
+     * The existing segments are readable regardless of this setting.
+     */
+    String SEGMENT_COMPRESSION_KEY = PREFIX + ".segment.compression";
+    String SEGMENT_COMPRESSION_DEFAULT = null;
+    static String segmentCompression(RaftProperties properties) {
+      return get(properties::get, SEGMENT_COMPRESSION_KEY, SEGMENT_COMPRESSION_DEFAULT, getDefaultLog());
+    }
+    static void setSegmentCompression(RaftProperties properties, String compression) {
+      set(properties::set, SEGMENT_COMPRESSION_KEY, compression);
+    }
+
+    /**
+     * The uncompressed size of a block in the block-compressed format.
+     * A block may be smaller since it is also written when the log is flushed.
+     */
+    String SEGMENT_COMPRESSION_BLOCK_SIZE_KEY = PREFIX + ".segment.compression.block.size";
+    SizeInBytes SEGMENT_COMPRESSION_BLOCK_SIZE_DEFAULT = SizeInBytes.valueOf("64KB");
+    static SizeInBytes segmentCompressionBlockSize(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes, SEGMENT_COMPRESSION_BLOCK_SIZE_KEY,
+          SEGMENT_COMPRESSION_BLOCK_SIZE_DEFAULT, getDefaultLog(), requireMinSizeInByte(SizeInBytes.ONE_KB));
+    }
+    static void setSegmentCompressionBlockSize(RaftProperties properties, SizeInBytes blockSize) {
+      setSizeInBytes(properties::set, SEGMENT_COMPRESSION_BLOCK_SIZE_KEY, blockSize);
+    }
+
     String PREALLOCATED_SIZE_KEY = PREFIX + ".preallocated.size";
     SizeInBytes PREALLOCATED_SIZE_DEFAULT = SizeInBytes.valueOf("4MB");
     static SizeInBytes preallocatedSize(RaftProperties properties) {
@@ -584,6 +840,20 @@ public interface RaftServerConfigKeys {
       static void setReadTimeout(RaftProperties properties, TimeDuration readTimeout) {
         setTimeDuration(properties::setTimeDuration, READ_TIMEOUT_KEY, readTimeout);
       }
+
+      /**
+       * The max byte size of the leader-side cache sharing the state machine data read among the log appenders.
+       * Zero means the cache is disabled.
+       */
+      String READ_CACHE_SIZE_MAX_KEY = PREFIX + ".read.cache.size.max";
+      SizeInBytes READ_CACHE_SIZE_MAX_DEFAULT = SizeInBytes.ZERO;
+      static SizeInBytes readCacheSizeMax(RaftProperties properties) {
+        return getSizeInBytes(properties::getSizeInBytes, READ_CACHE_SIZE_MAX_KEY,
+            READ_CACHE_SIZE_MAX_DEFAULT, getDefaultLog(), requireMinSizeInByte(SizeInBytes.ZERO));
+      }
+      static void setReadCacheSizeMax(RaftProperties properties, SizeInBytes maxSize) {
+        setSizeInBytes(properties::set, READ_CACHE_SIZE_MAX_KEY, maxSize);
+      }
     }
 
     interface Appender {
@@ -630,6 +900,22 @@ public interface RaftServerConfigKeys {
         setBoolean(properties::setBoolean, INSTALL_SNAPSHOT_ENABLED_KEY, shouldInstallSnapshot);
       }
 
+      /**
+       * When enabled, the leader sends a heartbeat carrying the new commit index
+       * to the followers which have no more entries to receive as soon as the commit index advances,
+       * and the followers update their commit index from the heartbeats without waiting for the log.
+       * Otherwise, the new commit index is only propagated by the next appendEntries or heartbeat.
+       */
+      String IMMEDIATE_COMMIT_ENABLED_KEY = PREFIX + ".immediate-commit.enabled";
+      boolean IMMEDIATE_COMMIT_ENABLED_DEFAULT = false;
+      static boolean immediateCommitEnabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean,
+            IMMEDIATE_COMMIT_ENABLED_KEY, IMMEDIATE_COMMIT_ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setImmediateCommitEnabled(RaftProperties properties, boolean immediateCommitEnabled) {
+        setBoolean(properties::setBoolean, IMMEDIATE_COMMIT_ENABLED_KEY, immediateCommitEnabled);
+      }
+
       String WAIT_TIME_MIN_KEY = PREFIX + ".wait-time.min";
       TimeDuration WAIT_TIME_MIN_DEFAULT = TimeDuration.ONE_MILLISECOND;
       static TimeDuration waitTimeMin(RaftProperties properties) {
@@ -782,6 +1068,48 @@ public interface RaftServerConfigKeys {
     static void setClientPoolSize(RaftProperties properties, int num) {
       setInt(properties::setInt, CLIENT_POOL_SIZE_KEY, num);
     }
+
+    /**
+     * Should the data packets be forwarded to the downstream servers as soon as they are received?
+     * When it is disabled, a packet is forwarded only after the previous packet has been acknowledged.
+     */
+    String CUT_THROUGH_ENABLED_KEY = PREFIX + ".cut-through.enabled";
+    boolean CUT_THROUGH_ENABLED_DEFAULT = false;
+    static boolean cutThroughEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, CUT_THROUGH_ENABLED_KEY, CUT_THROUGH_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setCutThroughEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, CUT_THROUGH_ENABLED_KEY, enabled);
+    }
+
+    /**
+     * The max number of data packets of a stream to be written to the local data channel in a batch.
+     * A batch is written with a single gathering write
+     * when the channel is a {@link java.nio.channels.GatheringByteChannel}.
+     */
+    String WRITE_BATCH_MAX_PACKETS_KEY = PREFIX + ".write.batch.max-packets";
+    int WRITE_BATCH_MAX_PACKETS_DEFAULT = 1;
+    static int writeBatchMaxPackets(RaftProperties properties) {
+      return getInt(properties::getInt, WRITE_BATCH_MAX_PACKETS_KEY, WRITE_BATCH_MAX_PACKETS_DEFAULT,
+          getDefaultLog(), requireMin(1));
+    }
+    static void setWriteBatchMaxPackets(RaftProperties properties, int maxPackets) {
+      setInt(properties::setInt, WRITE_BATCH_MAX_PACKETS_KEY, maxPackets);
+    }
+
+    /**
+     * The max size of the data in a read reply, which is copied to a buffer.
+     * A larger read request is replied with the data up to this size.
+     */
+    String READ_CHUNK_SIZE_MAX_KEY = PREFIX + ".read.chunk.size.max";
+    SizeInBytes READ_CHUNK_SIZE_MAX_DEFAULT = SizeInBytes.valueOf("4MB");
+    static SizeInBytes readChunkSizeMax(RaftProperties properties) {
+      return getSizeInBytes(properties::getSizeInBytes, READ_CHUNK_SIZE_MAX_KEY,
+          READ_CHUNK_SIZE_MAX_DEFAULT, getDefaultLog(), requireMinSizeInByte(SizeInBytes.ONE_KB));
+    }
+    static void setReadChunkSizeMax(RaftProperties properties, SizeInBytes size) {
+      setSizeInBytes(properties::set, READ_CHUNK_SIZE_MAX_KEY, size);
+    }
   }
 
   /** server rpc timeout related */
@@ -868,6 +1196,22 @@ public interface RaftServerConfigKeys {
     static void setSlownessTimeout(RaftProperties properties, TimeDuration expiryTime) {
       setTimeDuration(properties::setTimeDuration, SLOWNESS_TIMEOUT_KEY, expiryTime);
     }
+
+    /**
+     * Should the commit infos be sent only when they are changed?
+     * When it is enabled, a client reply omits the commit infos if the client already has the same version,
+     * and an appendEntries request has only the commit infos changed since the previous request to the follower.
+     * The full commit infos are still sent in the heartbeats and once every {@link #TIMEOUT_MIN_KEY}.
+     */
+    String COMMIT_INFO_DELTA_ENABLED_KEY = PREFIX + ".commit-info.delta.enabled";
+    boolean COMMIT_INFO_DELTA_ENABLED_DEFAULT = false;
+    static boolean commitInfoDeltaEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean,
+          COMMIT_INFO_DELTA_ENABLED_KEY, COMMIT_INFO_DELTA_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setCommitInfoDeltaEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, COMMIT_INFO_DELTA_ENABLED_KEY, enabled);
+    }
   }
 
   /** server retry cache related */
@@ -894,6 +1238,46 @@ public interface RaftServerConfigKeys {
     static void setStatisticsExpiryTime(RaftProperties properties, TimeDuration expiryTime) {
       setTimeDuration(properties::setTimeDuration, STATISTICS_EXPIRY_TIME_KEY, expiryTime);
     }
+
+    /**
+     * The compact retry cache tracks only the call ids and the log indices of the applied requests
+     * and persists them when a snapshot is taken.
+     * An applied request is deduplicated even after its retry cache entry has expired,
+     * or after a restart.
+     */
+    interface Compact {
+      String PREFIX = RetryCache.PREFIX + ".compact";
+
+      String ENABLED_KEY = PREFIX + ".enabled";
+      boolean ENABLED_DEFAULT = false;
+      static boolean enabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean, ENABLED_KEY, ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setEnabled(RaftProperties properties, boolean enabled) {
+        setBoolean(properties::setBoolean, ENABLED_KEY, enabled);
+      }
+
+      /** The max number of the applied requests tracked for each client. */
+      String WINDOW_SIZE_KEY = PREFIX + ".window.size";
+      int WINDOW_SIZE_DEFAULT = 256;
+      static int windowSize(RaftProperties properties) {
+        return getInt(properties::getInt, WINDOW_SIZE_KEY, WINDOW_SIZE_DEFAULT, getDefaultLog(), requireMin(1));
+      }
+      static void setWindowSize(RaftProperties properties, int windowSize) {
+        setInt(properties::setInt, WINDOW_SIZE_KEY, windowSize);
+      }
+
+      /** A client is no longer tracked if it has no applied requests within this time. */
+      String CLIENT_EXPIRY_TIME_KEY = PREFIX + ".client.expirytime";
+      TimeDuration CLIENT_EXPIRY_TIME_DEFAULT = TimeDuration.valueOf(10, TimeUnit.MINUTES);
+      static TimeDuration clientExpiryTime(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(CLIENT_EXPIRY_TIME_DEFAULT.getUnit()),
+            CLIENT_EXPIRY_TIME_KEY, CLIENT_EXPIRY_TIME_DEFAULT, getDefaultLog());
+      }
+      static void setClientExpiryTime(RaftProperties properties, TimeDuration expiryTime) {
+        setTimeDuration(properties::setTimeDuration, CLIENT_EXPIRY_TIME_KEY, expiryTime);
+      }
+    }
   }
 
   interface Notification {
@@ -953,6 +1337,94 @@ public interface RaftServerConfigKeys {
     static void setMemberMajorityAdd(RaftProperties properties, boolean enableMemberMajorityAdd) {
       setBoolean(properties::setBoolean, MEMBER_MAJORITY_ADD_KEY, enableMemberMajorityAdd);
     }
+
+    /**
+     * Should the vote requests be sent asynchronously?
+     * When it is enabled and the rpc supports {@link org.apache.ratis.server.protocol.RaftServerAsynchronousProtocol#requestVoteAsync},
+     * an election does not create a thread pool for sending the vote requests.
+     * Otherwise, each phase of an election sends the blocking vote requests using a new thread pool.
+     */
+    String ASYNC_ENABLED_KEY = PREFIX + ".async.enabled";
+    boolean ASYNC_ENABLED_DEFAULT = true;
+    static boolean asyncEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, ASYNC_ENABLED_KEY, ASYNC_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setAsyncEnabled(RaftProperties properties, boolean asyncEnabled) {
+      setBoolean(properties::setBoolean, ASYNC_ENABLED_KEY, asyncEnabled);
+    }
+
+    /**
+     * The interval to stagger the elections of the divisions in a server.
+     * When the election timeouts of many divisions expire at about the same time
+     * (e.g. after another server has failed),
+     * the divisions start their elections one interval apart.
+     * Moreover, the election is further delayed by one interval for each division currently leading,
+     * so that the servers leading fewer groups are more likely to win the elections.
+     * <p>
+     * The elections are not staggered when the interval is zero.
+     */
+    String STAGGER_INTERVAL_KEY = PREFIX + ".stagger.interval";
+    TimeDuration STAGGER_INTERVAL_DEFAULT = TimeDuration.valueOf(0, TimeUnit.MILLISECONDS);
+    static TimeDuration staggerInterval(RaftProperties properties) {
+      return getTimeDuration(properties.getTimeDuration(STAGGER_INTERVAL_DEFAULT.getUnit()),
+          STAGGER_INTERVAL_KEY, STAGGER_INTERVAL_DEFAULT, getDefaultLog(), requireNonNegativeTimeDuration());
+    }
+    static void setStaggerInterval(RaftProperties properties, TimeDuration staggerInterval) {
+      setTimeDuration(properties::setTimeDuration, STAGGER_INTERVAL_KEY, staggerInterval);
+    }
+
+    /**
+     * The maximum delay of a staggered election,
+     * as a ratio of the minimum election timeout {@link Rpc#TIMEOUT_MIN_KEY}.
+     */
+    String STAGGER_DELAY_MAX_RATIO_KEY = PREFIX + ".stagger.delay.max.ratio";
+    double STAGGER_DELAY_MAX_RATIO_DEFAULT = 0.5;
+    static double staggerDelayMaxRatio(RaftProperties properties) {
+      return getDouble(properties::getDouble, STAGGER_DELAY_MAX_RATIO_KEY,
+          STAGGER_DELAY_MAX_RATIO_DEFAULT, getDefaultLog(), requireMin(0.0), requireMax(1.0));
+    }
+    static void setStaggerDelayMaxRatio(RaftProperties properties, double ratio) {
+      setDouble(properties::setDouble, STAGGER_DELAY_MAX_RATIO_KEY, ratio);
+    }
+
+    /** Automatically balance the leaders among the servers. */
+    interface Balancer {
+      String PREFIX = LeaderElection.PREFIX + ".balancer";
+
+      /** The interval between two balancing rounds; the balancer is disabled when it is zero. */
+      String INTERVAL_KEY = PREFIX + ".interval";
+      TimeDuration INTERVAL_DEFAULT = TimeDuration.valueOf(0, TimeUnit.SECONDS);
+      static TimeDuration interval(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(INTERVAL_DEFAULT.getUnit()),
+            INTERVAL_KEY, INTERVAL_DEFAULT, getDefaultLog(), requireNonNegativeTimeDuration());
+      }
+      static void setInterval(RaftProperties properties, TimeDuration interval) {
+        setTimeDuration(properties::setTimeDuration, INTERVAL_KEY, interval);
+      }
+
+      /**
+       * A leadership is transferred only if this server is leading
+       * more than the threshold groups more than the new leader.
+       */
+      String THRESHOLD_KEY = PREFIX + ".threshold";
+      int THRESHOLD_DEFAULT = 1;
+      static int threshold(RaftProperties properties) {
+        return getInt(properties::getInt, THRESHOLD_KEY, THRESHOLD_DEFAULT, getDefaultLog(), requireMin(1));
+      }
+      static void setThreshold(RaftProperties properties, int threshold) {
+        setInt(properties::setInt, THRESHOLD_KEY, threshold);
+      }
+
+      /** The max number of leadership transfers in a balancing round. */
+      String MAX_TRANSFERS_KEY = PREFIX + ".max-transfers";
+      int MAX_TRANSFERS_DEFAULT = 1;
+      static int maxTransfers(RaftProperties properties) {
+        return getInt(properties::getInt, MAX_TRANSFERS_KEY, MAX_TRANSFERS_DEFAULT, getDefaultLog(), requireMin(1));
+      }
+      static void setMaxTransfers(RaftProperties properties, int maxTransfers) {
+        setInt(properties::setInt, MAX_TRANSFERS_KEY, maxTransfers);
+      }
+    }
   }
 
   static void main(String[] args) {
@@ -22,6 +22,8 @@ import org.apache.ratis.proto.RaftProtos.ReadIndexRequestProto;
 import org.apache.ratis.proto.RaftProtos.ReadIndexReplyProto;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesReplyProto;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
+import org.apache.ratis.proto.RaftProtos.RequestVoteReplyProto;
+import org.apache.ratis.proto.RaftProtos.RequestVoteRequestProto;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
@@ -33,4 +35,14 @@ public interface RaftServerAsynchronousProtocol {
 
   CompletableFuture<ReadIndexReplyProto> readIndexAsync(ReadIndexRequestProto request)
       throws IOException;
+
+  /** @return true iff {@link #requestVoteAsync(RequestVoteRequestProto)} is supported. */
+  default boolean supportsRequestVoteAsync() {
+    return false;
+  }
+
+  default CompletableFuture<RequestVoteReplyProto> requestVoteAsync(RequestVoteRequestProto request)
+      throws IOException {
+    throw new UnsupportedOperationException(getClass().getName() + " does not support requestVoteAsync");
+  }
 }
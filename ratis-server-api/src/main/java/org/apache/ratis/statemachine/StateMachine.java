@@ -17,6 +17,7 @@
  */
 package org.apache.ratis.statemachine;
 
+import org.apache.ratis.io.FilePositionCount;
 import org.apache.ratis.proto.RaftProtos.*;
 import org.apache.ratis.protocol.ClientInvocationId;
 import org.apache.ratis.protocol.Message;
@@ -109,6 +110,13 @@ public interface StateMachine extends Closeable {
     /**
      * Create asynchronously a {@link DataStream} to stream state machine data.
      * The state machine may use the first message (i.e. request.getMessage()) as the header to create the stream.
+     * <p>
+     * When the routing table of the request is erasure coded,
+     * the data written to the stream is the shard of this server
+     * (see {@link org.apache.ratis.protocol.RoutingTable#getShardIndex(org.apache.ratis.protocol.RaftPeerId)}
+     * and {@link org.apache.ratis.datastream.impl.DataStreamErasureCoder}).
+     * The state machine may keep the shard metadata in the stream so that it is available in
+     * {@link #link(DataStream, LogEntryProto)}.
      *
      * @return a future of the stream.
      */
@@ -130,6 +138,17 @@ public interface StateMachine extends Closeable {
       return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Create asynchronously a {@link ReadStream} to read state machine data as a stream.
+     * The state machine may use the message (i.e. request.getMessage()) to identify the data to be read.
+     *
+     * @return a future of the stream.
+     */
+    default CompletableFuture<ReadStream> readStream(RaftClientRequest request) {
+      return JavaUtils.completeExceptionally(new UnsupportedOperationException(
+          "readStream is NOT supported by " + JavaUtils.getClassSimpleName(getClass())));
+    }
+
     /**
      * Flush the state machine data till the given log index.
      *
@@ -298,6 +317,11 @@ public interface StateMachine extends Closeable {
 
   /**
    * For write state machine data.
+   * <p>
+   * A file-backed implementation may also implement {@link java.nio.channels.GatheringByteChannel}.
+   * Then, the data of one or more packets is written with a single gathering write,
+   * directly from the network buffers to the file.
+   * The buffers passed to a gathering write must not be accessed after the write returns.
    */
   interface DataChannel extends WritableByteChannel {
     /**
@@ -372,6 +396,33 @@ public interface StateMachine extends Closeable {
     }
   }
 
+  /**
+   * For reading state machine data as a stream.
+   */
+  interface ReadStream extends Closeable {
+    /** @return the size of the data. */
+    long size() throws IOException;
+
+    /**
+     * Similar to {@link java.nio.channels.FileChannel#read(ByteBuffer, long)},
+     * read the data starting at the given position to the given buffer.
+     *
+     * @return the number of bytes read, or -1 if the given position is greater than or equal to the size.
+     */
+    int read(ByteBuffer dst, long position) throws IOException;
+
+    /**
+     * When the data is backed by a file,
+     * the implementation may override this method in order to transfer the data with zero-copy.
+     *
+     * @return the file region of the data at the given position with the given count,
+     *         or null if the data is not backed by a file.
+     */
+    default FilePositionCount getFilePositionCount(long position, long count) {
+      return null;
+    }
+  }
+
   /**
    * Get the {@link DataApi} object.
    *
@@ -23,15 +23,25 @@ import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.ProtoUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /** Caching the commit information. */
 class CommitInfoCache {
   private final ConcurrentMap<RaftPeerId, Long> map = new ConcurrentHashMap<>();
 
+  /** The last versioned commit infos. */
+  private List<CommitInfoProto> versionedInfos = Collections.emptyList();
+  /** The version starts from a random value so that it is unlikely to collide after a restart. */
+  private long version = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE >> 1);
+
   Optional<Long> get(RaftPeerId id) {
     return Optional.ofNullable(map.get(id));
   }
@@ -61,6 +71,38 @@ class CommitInfoCache {
     update(id, newInfo.getCommitIndex());
   }
 
+  /**
+   * Get the version of the given commit infos.
+   * The version is incremented whenever the commit infos are different from the previous call.
+   *
+   * @return a positive version number.
+   */
+  synchronized long getVersion(Collection<CommitInfoProto> infos) {
+    final List<CommitInfoProto> list = new ArrayList<>(infos);
+    if (!list.equals(versionedInfos)) {
+      versionedInfos = list;
+      version++;
+    }
+    return version;
+  }
+
+  /**
+   * Update this cache with the given commit infos.
+   *
+   * @return the commit infos having a commit index different from this cache.
+   */
+  List<CommitInfoProto> updateAndGetChanged(Collection<CommitInfoProto> infos) {
+    final List<CommitInfoProto> changed = new ArrayList<>();
+    for (CommitInfoProto info : infos) {
+      final RaftPeerId id = RaftPeerId.valueOf(info.getServer().getId());
+      final Long previous = map.put(id, info.getCommitIndex());
+      if (previous == null || previous != info.getCommitIndex()) {
+        changed.add(info);
+      }
+    }
+    return changed;
+  }
+
   @Override
   public String toString() {
     return JavaUtils.getClassSimpleName(getClass()) + ":" + map;
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.ClientInvocationId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.AtomicFileOutputStream;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A compact retry cache tracking only the call ids and the log indices of the applied requests.
+ * <p>
+ * For each client, the last windowSize applied requests are stored in primitive arrays sorted by the call ids.
+ * When a window is full, the request with the smallest call id is evicted.
+ * A client is removed if it has no applied requests within the client expiry time.
+ * <p>
+ * The cache is updated when the log entries are applied
+ * so that it can be persisted together with the state machine snapshot.
+ */
+class CompactRetryCache {
+  static final Logger LOG = LoggerFactory.getLogger(CompactRetryCache.class);
+
+  static final String FILE_NAME = "retry-cache";
+  private static final int VERSION = 1;
+  private static final int INITIAL_CAPACITY = 8;
+
+  /** The applied requests of a client. */
+  static final class Window {
+    private final int maxSize;
+    private long[] callIds = new long[INITIAL_CAPACITY];
+    private long[] logIndices = new long[INITIAL_CAPACITY];
+    private int size = 0;
+    private volatile Timestamp lastApplied = Timestamp.currentTime();
+
+    Window(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    /** @return the log index of the given call id, or -1 if it is not found. */
+    synchronized long getLogIndex(long callId) {
+      final int i = Arrays.binarySearch(callIds, 0, size, callId);
+      return i >= 0 ? logIndices[i] : -1;
+    }
+
+    synchronized void add(long callId, long logIndex) {
+      lastApplied = Timestamp.currentTime();
+      int i = Arrays.binarySearch(callIds, 0, size, callId);
+      if (i >= 0) {
+        logIndices[i] = logIndex;
+        return;
+      }
+
+      i = -i - 1; // the insertion point
+      if (size == maxSize) {
+        if (i == 0) {
+          return; // older than all the tracked requests
+        }
+        // evict the smallest call id
+        i--;
+        System.arraycopy(callIds, 1, callIds, 0, i);
+        System.arraycopy(logIndices, 1, logIndices, 0, i);
+      } else {
+        if (size == callIds.length) {
+          final int capacity = Math.min(2 * size, maxSize);
+          callIds = Arrays.copyOf(callIds, capacity);
+          logIndices = Arrays.copyOf(logIndices, capacity);
+        }
+        System.arraycopy(callIds, i, callIds, i + 1, size - i);
+        System.arraycopy(logIndices, i, logIndices, i + 1, size - i);
+        size++;
+      }
+      callIds[i] = callId;
+      logIndices[i] = logIndex;
+    }
+
+    boolean isExpired(TimeDuration expiryTime) {
+      return lastApplied.elapsedTime().compareTo(expiryTime) > 0;
+    }
+
+    synchronized void writeTo(DataOutputStream out) throws IOException {
+      out.writeInt(size);
+      for (int i = 0; i < size; i++) {
+        out.writeLong(callIds[i]);
+        out.writeLong(logIndices[i]);
+      }
+    }
+  }
+
+  private final int windowSize;
+  private final TimeDuration clientExpiryTime;
+  private final Map<ClientId, Window> windows = new ConcurrentHashMap<>();
+  private final AtomicReference<Timestamp> lastExpiryCheck = new AtomicReference<>(Timestamp.currentTime());
+
+  CompactRetryCache(RaftProperties properties) {
+    this(RaftServerConfigKeys.RetryCache.Compact.windowSize(properties),
+        RaftServerConfigKeys.RetryCache.Compact.clientExpiryTime(properties));
+  }
+
+  CompactRetryCache(int windowSize, TimeDuration clientExpiryTime) {
+    this.windowSize = windowSize;
+    this.clientExpiryTime = clientExpiryTime;
+  }
+
+  int getNumClients() {
+    return windows.size();
+  }
+
+  /** @return the log index of the given applied request, or -1 if it is not found. */
+  long getAppliedIndex(ClientInvocationId key) {
+    final Window w = windows.get(key.getClientId());
+    return w == null ? -1 : w.getLogIndex(key.getLongId());
+  }
+
+  void onApplied(ClientInvocationId key, long logIndex) {
+    windows.computeIfAbsent(key.getClientId(), k -> new Window(windowSize)).add(key.getLongId(), logIndex);
+
+    final Timestamp last = lastExpiryCheck.get();
+    if (last.elapsedTime().compareTo(clientExpiryTime) > 0
+        && lastExpiryCheck.compareAndSet(last, Timestamp.currentTime())) {
+      removeExpired();
+    }
+  }
+
+  private void removeExpired() {
+    windows.values().removeIf(w -> w.isExpired(clientExpiryTime));
+  }
+
+  /** Write this cache to the given file atomically. */
+  void persist(File file) throws IOException {
+    removeExpired();
+    final List<Map.Entry<ClientId, Window>> entries = new ArrayList<>(windows.entrySet());
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new AtomicFileOutputStream(file)))) {
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<ClientId, Window> e : entries) {
+        final UUID uuid = e.getKey().getUuid();
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        e.getValue().writeTo(out);
+      }
+    }
+  }
+
+  /** Load this cache from the given file, if it exists. */
+  void load(File file) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(FileUtils.newInputStream(file)))) {
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unexpected version " + version + " in " + file);
+      }
+      final int numClients = in.readInt();
+      for (int c = 0; c < numClients; c++) {
+        final ClientId clientId = ClientId.valueOf(new UUID(in.readLong(), in.readLong()));
+        final Window w = windows.computeIfAbsent(clientId, k -> new Window(windowSize));
+        for (int n = in.readInt(); n > 0; n--) {
+          w.add(in.readLong(), in.readLong());
+        }
+      }
+    }
+    LOG.info("Loaded {} client(s) from {}", windows.size(), file);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.Timestamp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Coordinate the elections of the divisions in a server.
+ * <p>
+ * When the election timeouts of many divisions expire at about the same time,
+ * the elections are staggered so that they start one interval apart.
+ * In addition, an election is delayed by one interval for each division currently leading in this server,
+ * so that the servers leading fewer groups are more likely to win the elections.
+ * The delay is bounded by a maximum so that the elections are not postponed indefinitely.
+ * <p>
+ * This class is thread-safe.
+ */
+class ElectionCoordinator {
+  private final long intervalNanos;
+  private final long maxDelayNanos;
+  private final IntSupplier getNumLeaders;
+
+  /** The earliest time for the next election to start. */
+  private long nextStartNanos = Timestamp.currentTimeNanos();
+
+  ElectionCoordinator(TimeDuration interval, TimeDuration maxDelay, IntSupplier getNumLeaders) {
+    this.intervalNanos = interval.toLong(TimeUnit.NANOSECONDS);
+    this.maxDelayNanos = maxDelay.toLong(TimeUnit.NANOSECONDS);
+    this.getNumLeaders = getNumLeaders;
+  }
+
+  boolean isEnabled() {
+    return intervalNanos > 0;
+  }
+
+  /**
+   * Reserve a start time for an election.
+   *
+   * @return the delay, which is at most the max delay, before the election should start.
+   */
+  TimeDuration reserve() {
+    if (!isEnabled()) {
+      return TimeDuration.ZERO;
+    }
+    final long now = Timestamp.currentTimeNanos();
+    final long staggerNanos;
+    synchronized (this) {
+      final long start = nextStartNanos - now > 0 ? nextStartNanos : now;
+      staggerNanos = Math.min(start - now, maxDelayNanos);
+      nextStartNanos = now + staggerNanos + intervalNanos;
+    }
+    final long loadNanos = intervalNanos * getNumLeaders.getAsInt();
+    return TimeDuration.valueOf(Math.min(staggerNanos + loadNanos, maxDelayNanos), TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.ReadLeaseProto;
+import org.apache.ratis.server.RaftServerConfigKeys;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The read lease granted by the leader to a follower.
+ * <p>
+ * The lease starts at the time the leader sends the grant, minus the max clock drift,
+ * and expires at the time the leader lease expires.
+ * Moreover, a lease older than the max staleness is not used for serving reads.
+ */
+class FollowerReadLease {
+  private static final class Grant {
+    private final long term;
+    private final long readIndex;
+    private final long durationMs;
+    /** The wall-clock start time of the lease. */
+    private final long startTimeMs;
+
+    private Grant(long term, ReadLeaseProto proto, long clockDriftMaxMs) {
+      this.term = term;
+      this.readIndex = proto.getReadIndex();
+      this.durationMs = proto.getDurationMs();
+      this.startTimeMs = proto.getSentTimeMs() - clockDriftMaxMs;
+    }
+  }
+
+  private final long maxStalenessMs;
+  private final long clockDriftMaxMs;
+  private final AtomicReference<Grant> grant = new AtomicReference<>();
+
+  FollowerReadLease(RaftProperties properties) {
+    this.maxStalenessMs = RaftServerConfigKeys.Read.FollowerLease.maxStaleness(properties)
+        .toLong(TimeUnit.MILLISECONDS);
+    this.clockDriftMaxMs = RaftServerConfigKeys.Read.FollowerLease.clockDriftMax(properties)
+        .toLong(TimeUnit.MILLISECONDS);
+  }
+
+  void update(long term, ReadLeaseProto proto) {
+    final Grant g = new Grant(term, proto, clockDriftMaxMs);
+    // the grants may arrive out of order
+    grant.accumulateAndGet(g, (previous, latest) -> previous == null || previous.term != latest.term
+        || previous.startTimeMs <= latest.startTimeMs ? latest : previous);
+  }
+
+  /**
+   * @return the read index of the lease if it is still valid in the given term;
+   *         otherwise, return null.
+   */
+  Long getReadIndex(long currentTerm) {
+    final Grant g = grant.get();
+    if (g == null || g.term != currentTerm) {
+      return null;
+    }
+    final long elapsed = System.currentTimeMillis() - g.startTimeMs;
+    return elapsed < g.durationMs && elapsed <= maxStalenessMs ? g.readIndex : null;
+  }
+}
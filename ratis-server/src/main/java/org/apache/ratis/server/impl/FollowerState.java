@@ -141,6 +141,15 @@ class FollowerState extends Daemon {
             && server.isRunning();
   }
 
+  /** Wait for the delay given by the {@link ElectionCoordinator}, if there is any. */
+  private void staggerElection() throws InterruptedException {
+    final TimeDuration delay = server.getRaftServer().getElectionCoordinator().reserve();
+    if (delay.isPositive()) {
+      LOG.info("{}: stagger the election by {}", this, delay.to(TimeUnit.MILLISECONDS));
+      delay.sleep();
+    }
+  }
+
   private void runImpl() {
     final TimeDuration sleepDeviationThreshold = server.getSleepDeviationThreshold();
     while (shouldRun()) {
@@ -156,6 +165,9 @@ class FollowerState extends Daemon {
         if (!shouldRun()) {
           break;
         }
+        if (roleChangeChecking(electionTimeout)) {
+          staggerElection();
+        }
         synchronized (server) {
           if (roleChangeChecking(electionTimeout)) {
             LOG.info("{}: change to CANDIDATE, lastRpcElapsedTime:{}, electionTimeout:{}",
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.TransferLeadershipRequest;
+import org.apache.ratis.rpc.CallId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically balance the leaders among the servers.
+ * <p>
+ * In each round, the balancer counts the leaders of each server
+ * from the groups that this server is a member of.
+ * When this server is leading more than the threshold groups more than another server,
+ * it transfers the leadership of its busiest groups, measured by the commit rate, to the least loaded servers.
+ * The number of transfers in a round is limited.
+ */
+class LeaderBalancer {
+  static final Logger LOG = LoggerFactory.getLogger(LeaderBalancer.class);
+
+  /** The state of a group in a balancing round. */
+  static final class GroupInfo {
+    private final RaftGroupId groupId;
+    private final RaftPeerId leaderId;
+    /** The peers which can become the leader. */
+    private final Collection<RaftPeerId> candidates;
+    /** The number of entries committed since the previous round. */
+    private final long numCommitted;
+
+    GroupInfo(RaftGroupId groupId, RaftPeerId leaderId, Collection<RaftPeerId> candidates, long numCommitted) {
+      this.groupId = groupId;
+      this.leaderId = leaderId;
+      this.candidates = candidates;
+      this.numCommitted = numCommitted;
+    }
+  }
+
+  /** A leadership transfer. */
+  static final class Transfer {
+    private final RaftGroupId groupId;
+    private final RaftPeerId newLeader;
+
+    Transfer(RaftGroupId groupId, RaftPeerId newLeader) {
+      this.groupId = groupId;
+      this.newLeader = newLeader;
+    }
+
+    RaftGroupId getGroupId() {
+      return groupId;
+    }
+
+    RaftPeerId getNewLeader() {
+      return newLeader;
+    }
+
+    @Override
+    public String toString() {
+      return groupId + "->" + newLeader;
+    }
+  }
+
+  /**
+   * Plan the leadership transfers of a balancing round.
+   *
+   * @param self the id of this server.
+   * @param groups the groups of this server.
+   * @return the transfers, at most maxTransfers, of the groups led by this server.
+   */
+  static List<Transfer> plan(RaftPeerId self, Collection<GroupInfo> groups, int threshold, int maxTransfers) {
+    final Map<RaftPeerId, Integer> numLeaders = new HashMap<>();
+    for (GroupInfo g : groups) {
+      g.candidates.forEach(c -> numLeaders.putIfAbsent(c, 0));
+      if (g.leaderId != null) {
+        numLeaders.merge(g.leaderId, 1, Integer::sum);
+      }
+    }
+
+    final List<GroupInfo> leading = groups.stream()
+        .filter(g -> self.equals(g.leaderId))
+        .sorted(Comparator.comparingLong((GroupInfo g) -> g.numCommitted).reversed())
+        .collect(Collectors.toList());
+
+    final List<Transfer> transfers = new ArrayList<>();
+    for (GroupInfo g : leading) {
+      if (transfers.size() >= maxTransfers) {
+        break;
+      }
+      final int selfCount = numLeaders.getOrDefault(self, 0);
+      final RaftPeerId target = g.candidates.stream()
+          .filter(c -> !c.equals(self))
+          .min(Comparator.comparingInt(numLeaders::get))
+          .orElse(null);
+      if (target != null && selfCount - numLeaders.get(target) > threshold) {
+        transfers.add(new Transfer(g.groupId, target));
+        numLeaders.put(self, selfCount - 1);
+        numLeaders.merge(target, 1, Integer::sum);
+      }
+    }
+    return transfers;
+  }
+
+  private final RaftServerProxy proxy;
+  private final TimeDuration interval;
+  private final int threshold;
+  private final int maxTransfers;
+  private final ClientId clientId = ClientId.randomId();
+  private final Daemon daemon;
+  private volatile boolean running = true;
+
+  /** Map: groupId -> the commit index in the previous round */
+  private final Map<RaftGroupId, Long> previousCommitIndices = new ConcurrentHashMap<>();
+
+  private LeaderBalancer(RaftServerProxy proxy, TimeDuration interval, RaftProperties properties) {
+    this.proxy = proxy;
+    this.interval = interval;
+    this.threshold = RaftServerConfigKeys.LeaderElection.Balancer.threshold(properties);
+    this.maxTransfers = RaftServerConfigKeys.LeaderElection.Balancer.maxTransfers(properties);
+    this.daemon = Daemon.newBuilder()
+        .setName(proxy.getId() + "-" + getClass().getSimpleName())
+        .setRunnable(this::run)
+        .setThreadGroup(proxy.getThreadGroup())
+        .build();
+  }
+
+  /** @return a new balancer, or null if it is disabled. */
+  static LeaderBalancer newInstance(RaftServerProxy proxy, RaftProperties properties) {
+    final TimeDuration interval = RaftServerConfigKeys.LeaderElection.Balancer.interval(properties);
+    return interval.isPositive() ? new LeaderBalancer(proxy, interval, properties) : null;
+  }
+
+  void start() {
+    daemon.start();
+  }
+
+  void stop() {
+    running = false;
+    daemon.interrupt();
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        interval.sleep();
+        balance();
+      } catch (InterruptedException e) {
+        LOG.info("{} is interrupted", daemon.getName());
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        LOG.warn("{}: Failed to balance the leaders", daemon.getName(), e);
+      }
+    }
+  }
+
+  private GroupInfo getGroupInfo(RaftServerImpl impl) {
+    final RaftGroupId groupId = impl.getMemberId().getGroupId();
+    final long commitIndex = impl.getRaftLog().getLastCommittedIndex();
+    final Long previous = previousCommitIndices.put(groupId, commitIndex);
+    final long numCommitted = previous == null ? 0 : commitIndex - previous;
+
+    final RaftConfigurationImpl conf = impl.getRaftConf();
+    final List<RaftPeerId> candidates = conf.isStable() ? conf.getCurrentPeers().stream()
+        .map(RaftPeer::getId)
+        .filter(conf::isHighestPriority)
+        .collect(Collectors.toList()) : new ArrayList<>();
+    return new GroupInfo(groupId, impl.getInfo().getLeaderId(), candidates, numCommitted);
+  }
+
+  void balance() {
+    final Map<RaftGroupId, RaftServerImpl> impls = proxy.getRunningImpls().stream()
+        .collect(Collectors.toMap(i -> i.getMemberId().getGroupId(), i -> i));
+    previousCommitIndices.keySet().retainAll(impls.keySet());
+
+    final List<GroupInfo> groups = impls.values().stream()
+        .map(this::getGroupInfo)
+        .collect(Collectors.toList());
+    for (Transfer t : plan(proxy.getId(), groups, threshold, maxTransfers)) {
+      final RaftServerImpl impl = Objects.requireNonNull(impls.get(t.getGroupId()));
+      LOG.info("{}: transfer leadership {}", daemon.getName(), t);
+      final TransferLeadershipRequest request = new TransferLeadershipRequest(clientId, proxy.getId(),
+          t.getGroupId(), CallId.getAndIncrement(), t.getNewLeader(), 0);
+      try {
+        impl.transferLeadershipAsync(request).whenComplete((reply, e) -> {
+          if (e != null || !reply.isSuccess()) {
+            LOG.warn("{}: Failed to transfer leadership {}: {}", daemon.getName(), t,
+                e != null ? e : reply.getException());
+          }
+        });
+      } catch (Exception e) {
+        LOG.warn("{}: Failed to transfer leadership {}", daemon.getName(), t, e);
+      }
+    }
+  }
+}
@@ -26,16 +26,22 @@ import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerRpc;
+import org.apache.ratis.server.protocol.RaftServerAsynchronousProtocol;
 import org.apache.ratis.server.protocol.TermIndex;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.server.util.ServerStringUtils;
 import org.apache.ratis.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.LifeCycle;
 import org.apache.ratis.util.LogUtils;
+import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.Timestamp;
+import org.apache.ratis.util.UncheckedAutoCloseable;
+import org.apache.ratis.util.function.CheckedSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,13 +52,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -97,6 +104,13 @@ class LeaderElection implements Runnable {
     ConfAndTerm initElection(Phase phase) throws IOException;
     RequestVoteReplyProto requestVote(RequestVoteRequestProto r) throws IOException;
 
+    /** @return true iff the vote requests should be sent by {@link #requestVoteAsync}. */
+    default boolean isAsyncEnabled() {
+      return false;
+    }
+
+    CompletableFuture<RequestVoteReplyProto> requestVoteAsync(RequestVoteRequestProto r) throws IOException;
+
     void changeToLeader();
     void rejected(long term, ResultAndTerm result) throws IOException;
     void shutdown();
@@ -104,11 +118,35 @@ class LeaderElection implements Runnable {
     Timekeeper getLeaderElectionTimer();
     void onNewLeaderElectionCompletion();
 
+    /** @return the timer measuring the time from the start of an election to becoming the leader. */
+    default Timekeeper getTimeToLeaderTimer() {
+      return null;
+    }
+
+    /** Track the elections in flight; the election ends when the returned object is closed. */
+    default UncheckedAutoCloseable startElection() {
+      return Timekeeper.NOOP;
+    }
+
     TimeDuration getRandomElectionTimeout();
     ThreadGroup getThreadGroup();
 
+    static boolean supportsAsync(RaftServerRpc rpc) {
+      final RaftServerAsynchronousProtocol async;
+      try {
+        async = rpc.async();
+      } catch (UnsupportedOperationException e) {
+        return false;
+      }
+      return async != null && async.supportsRequestVoteAsync();
+    }
+
     static ServerInterface get(RaftServerImpl server) {
       final boolean preVote = RaftServerConfigKeys.LeaderElection.preVote(server.getRaftServer().getProperties());
+      final boolean asyncEnabled = RaftServerConfigKeys.LeaderElection.asyncEnabled(
+          server.getRaftServer().getProperties());
+      final MemoizedSupplier<Boolean> async = JavaUtils.memoize(
+          () -> asyncEnabled && supportsAsync(server.getServerRpc()));
 
       return new ServerInterface() {
         @Override
@@ -156,6 +194,17 @@ class LeaderElection implements Runnable {
           return server.getServerRpc().requestVote(r);
         }
 
+        @Override
+        public boolean isAsyncEnabled() {
+          return async.get();
+        }
+
+        @Override
+        public CompletableFuture<RequestVoteReplyProto> requestVoteAsync(RequestVoteRequestProto r)
+            throws IOException {
+          return server.getServerRpc().async().requestVoteAsync(r);
+        }
+
         @Override
         public void changeToLeader() {
           server.changeToLeader();
@@ -182,6 +231,16 @@ class LeaderElection implements Runnable {
           server.getLeaderElectionMetrics().onNewLeaderElectionCompletion();
         }
 
+        @Override
+        public Timekeeper getTimeToLeaderTimer() {
+          return server.getLeaderElectionMetrics().getTimeToLeaderTimer();
+        }
+
+        @Override
+        public UncheckedAutoCloseable startElection() {
+          return server.getRaftServer().startElection();
+        }
+
         @Override
         public TimeDuration getRandomElectionTimeout() {
           return server.getRandomElectionTimeout();
@@ -246,7 +305,17 @@ class LeaderElection implements Runnable {
     }
   }
 
-  static class Executor {
+  /** Send the vote requests and then collect the replies. */
+  interface VoteExecutor {
+    void submit(CheckedSupplier<CompletableFuture<RequestVoteReplyProto>, IOException> request);
+
+    Future<RequestVoteReplyProto> poll(TimeDuration waitTime) throws InterruptedException;
+
+    void shutdown();
+  }
+
+  /** Send each vote request using a thread from a new thread pool. */
+  static class Executor implements VoteExecutor {
     private final ExecutorCompletionService<RequestVoteReplyProto> service;
     private final ExecutorService executor;
 
@@ -259,19 +328,51 @@ class LeaderElection implements Runnable {
       service = new ExecutorCompletionService<>(executor);
     }
 
-    void shutdown() {
+    @Override
+    public void shutdown() {
       executor.shutdownNow();
     }
 
-    void submit(Callable<RequestVoteReplyProto> task) {
-      service.submit(task);
+    @Override
+    public void submit(CheckedSupplier<CompletableFuture<RequestVoteReplyProto>, IOException> request) {
+      service.submit(() -> request.get().join());
     }
 
-    Future<RequestVoteReplyProto> poll(TimeDuration waitTime) throws InterruptedException {
+    @Override
+    public Future<RequestVoteReplyProto> poll(TimeDuration waitTime) throws InterruptedException {
       return service.poll(waitTime.getDuration(), waitTime.getUnit());
     }
   }
 
+  /** Send the vote requests asynchronously without creating any threads. */
+  static class AsyncExecutor implements VoteExecutor {
+    private final List<CompletableFuture<RequestVoteReplyProto>> submitted = new ArrayList<>();
+    private final BlockingQueue<Future<RequestVoteReplyProto>> completed = new LinkedBlockingQueue<>();
+
+    @Override
+    public void submit(CheckedSupplier<CompletableFuture<RequestVoteReplyProto>, IOException> request) {
+      CompletableFuture<RequestVoteReplyProto> future;
+      try {
+        future = request.get();
+      } catch (Exception e) {
+        future = JavaUtils.completeExceptionally(e);
+      }
+      final CompletableFuture<RequestVoteReplyProto> f = future;
+      submitted.add(f);
+      f.whenComplete((reply, e) -> completed.offer(f));
+    }
+
+    @Override
+    public Future<RequestVoteReplyProto> poll(TimeDuration waitTime) throws InterruptedException {
+      return completed.poll(waitTime.getDuration(), waitTime.getUnit());
+    }
+
+    @Override
+    public void shutdown() {
+      submitted.forEach(f -> f.cancel(true));
+    }
+  }
+
   static class ConfAndTerm {
     private final RaftConfigurationImpl conf;
     private final long term;
@@ -369,10 +470,13 @@ class LeaderElection implements Runnable {
       return;
     }
 
-    try (AutoCloseable ignored = Timekeeper.start(server.getLeaderElectionTimer())) {
+    final UncheckedAutoCloseable timeToLeader = Timekeeper.start(server.getTimeToLeaderTimer());
+    try (AutoCloseable ignored = Timekeeper.start(server.getLeaderElectionTimer());
+         UncheckedAutoCloseable inFlight = server.startElection()) {
       for (int round = 0; shouldRun(); round++) {
         if (skipPreVote || askForVotes(Phase.PRE_VOTE, round)) {
           if (askForVotes(Phase.ELECTION, round)) {
+            timeToLeader.close();
             server.changeToLeader();
           }
         }
@@ -418,7 +522,8 @@ class LeaderElection implements Runnable {
       r = new ResultAndTerm(Result.PASSED, electionTerm);
     } else {
       final TermIndex lastEntry = server.getLastEntry();
-      final Executor voteExecutor = new Executor(this, others.size());
+      final VoteExecutor voteExecutor = server.isAsyncEnabled() ? new AsyncExecutor()
+          : new Executor(this, others.size());
       try {
         final int submitted = submitRequests(phase, electionTerm, lastEntry, others, voteExecutor);
         r = waitForResults(phase, electionTerm, submitted, conf, voteExecutor);
@@ -475,12 +580,16 @@ class LeaderElection implements Runnable {
   }
 
   private int submitRequests(Phase phase, long electionTerm, TermIndex lastEntry,
-      Collection<RaftPeer> others, Executor voteExecutor) {
+      Collection<RaftPeer> others, VoteExecutor voteExecutor) {
     int submitted = 0;
     for (final RaftPeer peer : others) {
       final RequestVoteRequestProto r = ServerProtoUtils.toRequestVoteRequestProto(
           server.getMemberId(), peer.getId(), electionTerm, lastEntry, phase == Phase.PRE_VOTE);
-      voteExecutor.submit(() -> server.requestVote(r));
+      if (server.isAsyncEnabled()) {
+        voteExecutor.submit(() -> server.requestVoteAsync(r));
+      } else {
+        voteExecutor.submit(() -> CompletableFuture.completedFuture(server.requestVote(r)));
+      }
       submitted++;
     }
     return submitted;
@@ -496,7 +605,7 @@ class LeaderElection implements Runnable {
   }
 
   private ResultAndTerm waitForResults(Phase phase, long electionTerm, int submitted,
-      RaftConfigurationImpl conf, Executor voteExecutor) throws InterruptedException {
+      RaftConfigurationImpl conf, VoteExecutor voteExecutor) throws InterruptedException {
     final Timestamp timeout = Timestamp.currentTime().addTime(server.getRandomElectionTimeout());
     final Map<RaftPeerId, RequestVoteReplyProto> responses = new HashMap<>();
     final List<Exception> exceptions = new ArrayList<>();
@@ -61,6 +61,11 @@ class LeaderLease {
     return isEnabled() && lease.get().elapsedTimeMs() < leaseTimeoutMs;
   }
 
+  /** @return the remaining time of the lease in milliseconds, or 0 if the lease has expired. */
+  long getRemainingMs() {
+    return Math.max(leaseTimeoutMs - lease.get().elapsedTimeMs(), 0);
+  }
+
   /**
    * try extending the lease based on group heartbeats
    * @param old nullable
@@ -24,6 +24,7 @@ import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto.LogEntryBodyCase;
 import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
+import org.apache.ratis.proto.RaftProtos.ReadLeaseProto;
 import org.apache.ratis.proto.RaftProtos.ReplicationLevel;
 import org.apache.ratis.proto.RaftProtos.RoleInfoProto;
 import org.apache.ratis.protocol.Message;
@@ -354,6 +355,10 @@ class LeaderStateImpl implements LeaderState {
 
   private final ReadIndexHeartbeats readIndexHeartbeats;
   private final LeaderLease lease;
+  private final boolean followerReadLeaseEnabled;
+  private final boolean immediateCommitEnabled;
+  /** Non-null if only the changed commit infos are sent to the followers. */
+  private final Map<RaftPeerId, SentCommitInfos> sentCommitInfos;
 
   LeaderStateImpl(RaftServerImpl server) {
     this.name = ServerStringUtils.generateUnifiedName(server.getMemberId(), getClass());
@@ -371,12 +376,19 @@ class LeaderStateImpl implements LeaderState {
     processor = new EventProcessor(this.name, server);
     raftServerMetrics = server.getRaftServerMetrics();
     logAppenderMetrics = new LogAppenderMetrics(server.getMemberId());
-    this.pendingRequests = new PendingRequests(server.getMemberId(), properties, raftServerMetrics);
+    this.pendingRequests = new PendingRequests(server.getMemberId(), properties, raftServerMetrics,
+        server.getRaftServer().getMemoryBudget());
     this.watchRequests = new WatchRequests(server.getMemberId(), properties, raftServerMetrics);
-    this.messageStreamRequests = new MessageStreamRequests(server.getMemberId());
+    this.messageStreamRequests = new MessageStreamRequests(server.getMemberId(),
+        server.getRaftServer().getMessageStreamMemory(), () -> server.getRaftStorage().getStorageDir().getTmpDir());
     this.pendingStepDown = new PendingStepDown(this);
     this.readIndexHeartbeats = new ReadIndexHeartbeats();
     this.lease = new LeaderLease(properties);
+    this.followerReadLeaseEnabled
+        = RaftServerConfigKeys.Read.option(properties) == RaftServerConfigKeys.Read.Option.BOUNDED_STALENESS;
+    this.immediateCommitEnabled = RaftServerConfigKeys.Log.Appender.immediateCommitEnabled(properties);
+    this.sentCommitInfos = RaftServerConfigKeys.Rpc.commitInfoDeltaEnabled(properties)?
+        new ConcurrentHashMap<>(): null;
     this.logMetadataEnabled = RaftServerConfigKeys.Log.logMetadataEnabled(properties);
     long maxPendingRequests = RaftServerConfigKeys.Write.elementLimit(properties);
     double followerGapRatioMax = RaftServerConfigKeys.Write.followerGapRatioMax(properties);
@@ -615,7 +627,45 @@ class LeaderStateImpl implements LeaderState {
     final RaftPeerId targetId = follower.getId();
     return ServerProtoUtils.toAppendEntriesRequestProto(server.getMemberId(), targetId, getCurrentTerm(), entries,
         ServerImplUtils.effectiveCommitIndex(raftLog.getLastCommittedIndex(), previous, entries.size()),
-        initializing, previous, server.getCommitInfos(), callId);
+        initializing, previous, getCommitInfos(targetId, entries.isEmpty()), newReadLeaseProto(), callId);
+  }
+
+  private Collection<CommitInfoProto> getCommitInfos(RaftPeerId followerId, boolean heartbeat) {
+    final Collection<CommitInfoProto> infos = server.getCommitInfos();
+    if (sentCommitInfos == null) {
+      return infos;
+    }
+    return sentCommitInfos.computeIfAbsent(followerId, key -> new SentCommitInfos())
+        .get(infos, heartbeat, server.properties().minRpcTimeout());
+  }
+
+  /**
+   * The commit infos sent to a follower.
+   * Only the changed commit infos are sent, except that the full commit infos are sent
+   * in the heartbeats and once every min rpc timeout, in case some previous requests were lost.
+   */
+  private static class SentCommitInfos {
+    private final CommitInfoCache sent = new CommitInfoCache();
+    private Timestamp lastFull = Timestamp.currentTime();
+
+    synchronized Collection<CommitInfoProto> get(Collection<CommitInfoProto> infos, boolean heartbeat,
+        TimeDuration fullInterval) {
+      final List<CommitInfoProto> changed = sent.updateAndGetChanged(infos);
+      if (heartbeat || lastFull.elapsedTime().compareTo(fullInterval) >= 0) {
+        lastFull = Timestamp.currentTime();
+        return infos;
+      }
+      return changed;
+    }
+  }
+
+  /** @return a read lease for the followers if the leader has a valid lease; otherwise, return null. */
+  private ReadLeaseProto newReadLeaseProto() {
+    if (!followerReadLeaseEnabled || !hasLease()) {
+      return null;
+    }
+    return ServerProtoUtils.toReadLeaseProto(raftLog.getLastCommittedIndex(), lease.getRemainingMs(),
+        System.currentTimeMillis());
   }
 
   /**
@@ -806,6 +856,9 @@ class LeaderStateImpl implements LeaderState {
   public void onFollowerSuccessAppendEntries(FollowerInfo follower) {
     if (isCaughtUp(follower)) {
       submitUpdateCommitEvent();
+      if (immediateCommitEnabled) {
+        getLogAppender(follower.getId()).ifPresent(s -> propagateCommit(s, raftLog.getLastCommittedIndex()));
+      }
     } else {
       eventQueue.submit(checkStagingEvent);
     }
@@ -979,11 +1032,32 @@ class LeaderStateImpl implements LeaderState {
 
       if (server.getState().updateCommitIndex(majority, currentTerm, true)) {
         updateCommit(entriesToCommit);
+        if (immediateCommitEnabled) {
+          propagateCommit(raftLog.getLastCommittedIndex());
+        }
       }
     }
     watchRequests.update(ReplicationLevel.ALL, min);
   }
 
+  private void propagateCommit(long commitIndex) {
+    for (LogAppender sender : senders) {
+      propagateCommit(sender, commitIndex);
+    }
+  }
+
+  /**
+   * Trigger a heartbeat to the follower if it has acknowledged all the entries but not the given commit index.
+   * Otherwise, the commit index is sent with the outstanding appendEntries
+   * or propagated once the follower has acknowledged them.
+   */
+  private void propagateCommit(LogAppender sender, long commitIndex) {
+    final FollowerInfo follower = sender.getFollower();
+    if (follower.getCommitIndex() < commitIndex && follower.getMatchIndex() + 1 >= raftLog.getNextIndex()) {
+      sender.triggerHeartbeat();
+    }
+  }
+
   private void logMetadata(long commitIndex) {
     if (raftLog.appendMetadata(currentTerm, commitIndex) != RaftLog.INVALID_LOG_INDEX) {
       notifySenders();
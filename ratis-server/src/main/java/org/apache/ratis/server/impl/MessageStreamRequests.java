@@ -17,55 +17,235 @@
  */
 package org.apache.ratis.server.impl;
 
+import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.MessageStreamRequestTypeProto;
 import org.apache.ratis.protocol.ClientInvocationId;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.protocol.exceptions.StreamException;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 class MessageStreamRequests {
   public static final Logger LOG = LoggerFactory.getLogger(MessageStreamRequests.class);
 
+  /** The chunk size for reading the spilled bytes back. */
+  private static final int READ_CHUNK_SIZE = 1 << 20;
+
+  /**
+   * The in-memory bytes of the message streams of all the divisions in a server,
+   * including the bytes of the ended streams until their write requests complete.
+   */
+  static class Memory {
+    /** Spill a stream when its bytes exceed this threshold; zero means never spill. */
+    private final long spillThreshold;
+    /** The max in-memory bytes of all the streams; zero means no limit. */
+    private final long max;
+    private final AtomicLong bytes = new AtomicLong();
+
+    Memory(RaftProperties properties) {
+      this(RaftServerConfigKeys.Write.MessageStream.spillThreshold(properties).getSize(),
+          RaftServerConfigKeys.Write.MessageStream.memoryMax(properties).getSize());
+    }
+
+    Memory(long spillThreshold, long max) {
+      this.spillThreshold = spillThreshold;
+      this.max = max;
+    }
+
+    long getBytes() {
+      return bytes.get();
+    }
+
+    boolean isSpillEnabled() {
+      return spillThreshold > 0;
+    }
+
+    /** @return true if the given number of bytes can be added to a stream with the given size in memory. */
+    boolean tryAcquire(long streamSize, long n) {
+      if (isSpillEnabled() && streamSize + n > spillThreshold) {
+        return false;
+      }
+      return tryAcquire(n);
+    }
+
+    /** @return true if the given number of bytes can be added without exceeding the max. */
+    boolean tryAcquire(long n) {
+      if (bytes.addAndGet(n) > max && max > 0) {
+        bytes.addAndGet(-n);
+        return false;
+      }
+      return true;
+    }
+
+    void release(long n) {
+      bytes.addAndGet(-n);
+    }
+  }
+
   private static class PendingStream {
     private final ClientInvocationId key;
+    private final Memory memory;
+    private final Supplier<File> spillDir;
     private long nextId = -1;
     private ByteString bytes = ByteString.EMPTY;
+    /** The file to which the bytes are spilled; null if the bytes are in memory. */
+    private Path spillFile;
+    private FileChannel spillChannel;
+    private long spilledSize;
+    /** Non-null if the stream has failed; then all the subsequent operations fail. */
+    private StreamException failure;
 
-    PendingStream(ClientInvocationId key) {
+    PendingStream(ClientInvocationId key, Memory memory, Supplier<File> spillDir) {
       this.key = key;
+      this.memory = memory;
+      this.spillDir = spillDir;
     }
 
-    synchronized CompletableFuture<ByteString> append(long messageId, Message message) {
-      if (nextId == -1) {
+    synchronized CompletableFuture<Long> append(long messageId, Message message) {
+      if (failure != null) {
+        return JavaUtils.completeExceptionally(failure);
+      } else if (nextId == -1) {
         nextId = messageId;
       } else if (messageId != nextId) {
         return JavaUtils.completeExceptionally(new StreamException(
             "Unexpected message id in " + key + ": messageId = " + messageId + " != nextId = " + nextId));
       }
       nextId++;
-      bytes = bytes.concat(message.getContent());
-      return CompletableFuture.completedFuture(bytes);
+      final ByteString content = message.getContent();
+      try {
+        if (spillFile == null && memory.tryAcquire(bytes.size(), content.size())) {
+          bytes = bytes.concat(content);
+          return CompletableFuture.completedFuture((long) bytes.size());
+        } else if (!memory.isSpillEnabled()) {
+          return fail(new StreamException("Failed to append " + content.size() + " bytes to " + key
+              + " since the message streams exceed the max in-memory bytes"));
+        }
+        spill(content);
+        return CompletableFuture.completedFuture(spilledSize);
+      } catch (IOException e) {
+        final StreamException se = new StreamException("Failed to spill " + key + " to " + spillFile + ": " + e);
+        se.initCause(e);
+        return fail(se);
+      }
     }
 
+    private <T> CompletableFuture<T> fail(StreamException e) {
+      failure = e;
+      close();
+      return JavaUtils.completeExceptionally(e);
+    }
+
+    private void spill(ByteString content) throws IOException {
+      if (spillFile == null) {
+        final File dir = spillDir.get();
+        FileUtils.createDirectories(dir);
+        spillFile = Files.createTempFile(dir.toPath(), "message-stream-", ".tmp");
+        spillChannel = FileUtils.newFileChannel(spillFile.toFile(),
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        LOG.info("{}: spill {} bytes to {}", key, bytes.size(), spillFile);
+        write(bytes);
+        memory.release(bytes.size());
+        bytes = ByteString.EMPTY;
+      }
+      write(content);
+    }
+
+    private void write(ByteString content) throws IOException {
+      for (ByteBuffer b : content.asReadOnlyByteBufferList()) {
+        while (b.hasRemaining()) {
+          spilledSize += spillChannel.write(b);
+        }
+      }
+    }
+
+    /**
+     * Append the last message and then return all the bytes of this stream.
+     * The returned bytes remain acquired from {@link Memory};
+     * the caller must release them once they are no longer used.
+     */
     synchronized CompletableFuture<ByteString> getBytes(long messageId, Message message) {
-      return append(messageId, message);
+      try {
+        // append completes synchronously, so the bytes are read before close
+        return append(messageId, message).thenCompose(size -> readBytes());
+      } finally {
+        close();
+      }
+    }
+
+    private CompletableFuture<ByteString> readBytes() {
+      if (spillFile == null) {
+        // hand over the acquired bytes to the caller
+        final ByteString b = bytes;
+        bytes = ByteString.EMPTY;
+        return CompletableFuture.completedFuture(b);
+      }
+      if (spilledSize > Integer.MAX_VALUE) {
+        return JavaUtils.completeExceptionally(new StreamException(
+            "The size of " + key + " is " + spilledSize + " > " + Integer.MAX_VALUE));
+      } else if (!memory.tryAcquire(spilledSize)) {
+        return JavaUtils.completeExceptionally(new StreamException("Failed to read " + spilledSize
+            + " bytes of " + key + " from " + spillFile + " since the message streams exceed the max in-memory bytes"));
+      }
+      try {
+        // Read the bytes in chunks, instead of mapping the file,
+        // so that the disk space is released once the file is deleted
+        // and no single large buffer is allocated.
+        final ByteString read = ByteString.readFrom(Channels.newInputStream(spillChannel.position(0)),
+            READ_CHUNK_SIZE);
+        if (read.size() != spilledSize) {
+          throw new EOFException("Unexpected EOF: read " + read.size() + " < " + spilledSize + " bytes");
+        }
+        return CompletableFuture.completedFuture(read);
+      } catch (IOException e) {
+        memory.release(spilledSize);
+        return JavaUtils.completeExceptionally(new StreamException(
+            "Failed to read " + key + " from " + spillFile + ": " + e));
+      }
+    }
+
+    /** Release the memory and delete the spill file, if there is any. */
+    synchronized void close() {
+      memory.release(bytes.size());
+      bytes = ByteString.EMPTY;
+      if (spillFile != null) {
+        try {
+          spillChannel.close();
+        } catch (IOException e) {
+          LOG.warn("{}: Failed to close {}", key, spillFile, e);
+        }
+        FileUtils.deletePathQuietly(spillFile);
+        spillFile = null;
+        spillChannel = null;
+      }
     }
   }
 
-  static class StreamMap {
+  class StreamMap {
     private final ConcurrentMap<ClientInvocationId, PendingStream> map = new ConcurrentHashMap<>();
 
     PendingStream computeIfAbsent(ClientInvocationId key) {
-      return map.computeIfAbsent(key, PendingStream::new);
+      return map.computeIfAbsent(key, k -> new PendingStream(k, memory, spillDir));
     }
 
     PendingStream remove(ClientInvocationId key) {
@@ -73,15 +253,20 @@ class MessageStreamRequests {
     }
 
     void clear() {
+      map.values().forEach(PendingStream::close);
       map.clear();
     }
   }
 
   private final String name;
+  private final Memory memory;
+  private final Supplier<File> spillDir;
   private final StreamMap streams = new StreamMap();
 
-  MessageStreamRequests(Object name) {
+  MessageStreamRequests(Object name, Memory memory, Supplier<File> spillDir) {
     this.name = name + "-" + JavaUtils.getClassSimpleName(getClass());
+    this.memory = memory;
+    this.spillDir = spillDir;
   }
 
   CompletableFuture<?> streamAsync(RaftClientRequest request) {
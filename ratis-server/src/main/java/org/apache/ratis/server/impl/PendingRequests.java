@@ -29,6 +29,7 @@ import org.apache.ratis.protocol.SetConfigurationRequest;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.metrics.RaftServerMetricsImpl;
 import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.util.ServerMemoryBudget;
 import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
@@ -86,6 +87,10 @@ class PendingRequests {
       return acquired == SUCCESS? PendingRequests.Acquired.SUCCESS: PendingRequests.Acquired.values()[acquired];
     }
 
+    void releaseAcquired(int messageSizeMb) {
+      release(1, messageSizeMb);
+    }
+
     void releaseExtraMb(int extraMb) {
       release(0, extraMb);
     }
@@ -106,12 +111,15 @@ class PendingRequests {
     private final RequestLimits resource;
     /** The size (in byte) of all the requests in this map. */
     private final AtomicLong requestSize = new AtomicLong();
+    /** The quota from the server memory budget; null if the budget is disabled. */
+    private final ServerMemoryBudget.Quota quota;
 
-
-    RequestMap(Object name, int elementLimit, int megabyteLimit, RaftServerMetricsImpl raftServerMetrics) {
+    RequestMap(Object name, int elementLimit, int megabyteLimit, RaftServerMetricsImpl raftServerMetrics,
+        ServerMemoryBudget.Quota quota) {
       this.name = name;
       this.resource = new RequestLimits(elementLimit, megabyteLimit);
       this.raftServerMetrics = raftServerMetrics;
+      this.quota = quota;
 
       raftServerMetrics.addNumPendingRequestsGauge(resource::getElementCount);
       raftServerMetrics.addNumPendingRequestsMegaByteSize(resource::getMegaByteSize);
@@ -131,6 +139,13 @@ class PendingRequests {
         raftServerMetrics.onResourceLimitHit();
         return null;
       }
+      if (quota != null && !quota.tryAcquire(messageSize)) {
+        LOG.trace("{}: failed to acquire {} bytes from {}", name, messageSize, quota);
+        resource.releaseAcquired(messageSizeMb);
+        raftServerMetrics.onMemoryBudgetLimitHit();
+        raftServerMetrics.onResourceLimitHit();
+        return null;
+      }
 
       // release extra MB
       final long oldSize = requestSize.getAndAdd(messageSize);
@@ -181,6 +196,9 @@ class PendingRequests {
       final int diffMb = roundUpMb(oldSize) - roundUpMb(newSize);
       resource.release(diffMb);
       LOG.trace("release {} MB", diffMb);
+      if (quota != null) {
+        quota.release(messageSize);
+      }
       return r;
     }
 
@@ -207,6 +225,10 @@ class PendingRequests {
     }
 
     void close() {
+      if (quota != null) {
+        // release the quota held by the requests which were never added or never removed
+        quota.close();
+      }
       if (raftServerMetrics != null) {
         raftServerMetrics.removeNumPendingRequestsGauge();
         raftServerMetrics.removeNumPendingRequestsByteSize();
@@ -218,14 +240,16 @@ class PendingRequests {
   private final String name;
   private final RequestMap pendingRequests;
 
-  PendingRequests(RaftGroupMemberId id, RaftProperties properties, RaftServerMetricsImpl raftServerMetrics) {
+  PendingRequests(RaftGroupMemberId id, RaftProperties properties, RaftServerMetricsImpl raftServerMetrics,
+      ServerMemoryBudget memoryBudget) {
     this.name = id + "-" + JavaUtils.getClassSimpleName(getClass());
     this.pendingRequests = new RequestMap(id,
         RaftServerConfigKeys.Write.elementLimit(properties),
         Math.toIntExact(
             RaftServerConfigKeys.Write.byteLimit(properties).getSize()
                 / SizeInBytes.ONE_MB.getSize()), //round down
-        raftServerMetrics);
+        raftServerMetrics,
+        memoryBudget == null ? null : memoryBudget.newQuota(id.getGroupId()));
   }
 
   Permit tryAcquire(Message message) {
@@ -119,6 +119,7 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -223,6 +224,8 @@ class RaftServerImpl implements RaftServer.Division,
   private final DivisionProperties divisionProperties;
   private final TimeDuration leaderStepDownWaitTime;
   private final boolean memberMajorityAddEnabled;
+  private final boolean commitInfoDeltaEnabled;
+  private final boolean immediateCommitEnabled;
   private final TimeDuration sleepDeviationThreshold;
 
   private final LifeCycle lifeCycle;
@@ -236,6 +239,8 @@ class RaftServerImpl implements RaftServer.Division,
   private final RetryCacheImpl retryCache;
   private final CommitInfoCache commitInfoCache = new CommitInfoCache();
   private final WriteIndexCache writeIndexCache;
+  private final ReadIndexBatcher readIndexBatcher;
+  private final FollowerReadLease followerReadLease;
 
   private final RaftServerJmxAdapter jmxAdapter = new RaftServerJmxAdapter(this);
   private final LeaderElectionMetrics leaderElectionMetrics;
@@ -248,6 +253,8 @@ class RaftServerImpl implements RaftServer.Division,
   // then thread1 execute lifeCycle.transition(RUNNING) in startAsFollower(),
   // So happens IllegalStateException: ILLEGAL TRANSITION: RUNNING -> RUNNING,
   private final AtomicBoolean startComplete;
+  /** Is this division counted in {@link RaftServerProxy#getNumLeaders()}? */
+  private final AtomicBoolean countedAsLeader = new AtomicBoolean();
 
   private final TransferLeadership transferLeadership;
   private final SnapshotManagementRequestHandler snapshotRequestHandler;
@@ -274,6 +281,8 @@ class RaftServerImpl implements RaftServer.Division,
     this.divisionProperties = new DivisionPropertiesImpl(properties);
     this.leaderStepDownWaitTime = RaftServerConfigKeys.LeaderElection.leaderStepDownWaitTime(properties);
     this.memberMajorityAddEnabled = RaftServerConfigKeys.LeaderElection.memberMajorityAdd(properties);
+    this.commitInfoDeltaEnabled = RaftServerConfigKeys.Rpc.commitInfoDeltaEnabled(properties);
+    this.immediateCommitEnabled = RaftServerConfigKeys.Log.Appender.immediateCommitEnabled(properties);
     this.sleepDeviationThreshold = RaftServerConfigKeys.sleepDeviationThreshold(properties);
     this.proxy = proxy;
 
@@ -282,12 +291,18 @@ class RaftServerImpl implements RaftServer.Division,
     this.dataStreamMap = new DataStreamMapImpl(id);
     this.readOption = RaftServerConfigKeys.Read.option(properties);
     this.writeIndexCache = new WriteIndexCache(properties);
+    this.readIndexBatcher = RaftServerConfigKeys.Read.ReadIndex.batchEnabled(properties)?
+        new ReadIndexBatcher(getMemberId(), this::getReadIndexFromLeader): null;
+    this.followerReadLease = readOption == RaftServerConfigKeys.Read.Option.BOUNDED_STALENESS?
+        new FollowerReadLease(properties): null;
     this.transactionManager = new TransactionManager(id);
 
     this.leaderElectionMetrics = LeaderElectionMetrics.getLeaderElectionMetrics(
-        getMemberId(), state::getLastLeaderElapsedTimeMs);
+        getMemberId(), state::getLastLeaderElapsedTimeMs, proxy::getNumElectionsInFlight);
     this.raftServerMetrics = RaftServerMetricsImpl.computeIfAbsentRaftServerMetrics(
         getMemberId(), this::getCommitIndex, retryCache::getStatistics);
+    Optional.ofNullable(proxy.getMemoryBudget()).ifPresent(budget -> raftServerMetrics.addMemoryBudgetUsedByteSize(
+        () -> budget.getUsedBytes(getMemberId().getGroupId())));
 
     this.startComplete = new AtomicBoolean(false);
     this.threadGroup = new ThreadGroup(proxy.getThreadGroup(), getMemberId().toString());
@@ -392,6 +407,13 @@ class RaftServerImpl implements RaftServer.Division,
     LOG.info("{}: changes role from {} to {} at term {} for {}",
         getMemberId(), this.role, newRole, state.getCurrentTerm(), reason);
     this.role.transitionRole(newRole);
+    updateNumLeaders(newRole == RaftPeerRole.LEADER && !lifeCycle.getCurrentState().isClosingOrClosed());
+  }
+
+  private void updateNumLeaders(boolean isLeader) {
+    if (countedAsLeader.compareAndSet(!isLeader, isLeader)) {
+      proxy.updateNumLeaders(isLeader ? 1 : -1);
+    }
   }
 
   boolean start() throws IOException {
@@ -399,6 +421,7 @@ class RaftServerImpl implements RaftServer.Division,
       return false;
     }
     state.initialize(stateMachine);
+    retryCache.load(state.getStorage().getStorageDir());
 
     final RaftConfigurationImpl conf = getRaftConf();
     if (conf != null && conf.containsInBothConfs(getId())) {
@@ -525,6 +548,7 @@ class RaftServerImpl implements RaftServer.Division,
   public void close() {
     lifeCycle.checkStateAndClose(() -> {
       LOG.info("{}: shutdown", getMemberId());
+      updateNumLeaders(false);
       try {
         jmxAdapter.unregister();
       } catch (Exception e) {
@@ -550,6 +574,10 @@ class RaftServerImpl implements RaftServer.Division,
       } catch (Exception e) {
         LOG.warn("{}: Failed to close state", getMemberId(), e);
       }
+      Optional.ofNullable(proxy.getMemoryBudget()).ifPresent(budget -> {
+        budget.removeGroup(getMemberId().getGroupId());
+        raftServerMetrics.removeMemoryBudgetUsedByteSize();
+      });
       try {
         leaderElectionMetrics.unregister();
         raftServerMetrics.unregister();
@@ -927,12 +955,29 @@ class RaftServerImpl implements RaftServer.Division,
     LOG.debug("{}: receive client request({})", getMemberId(), request);
     final Timekeeper timer = raftServerMetrics.getClientRequestTimer(request.getType());
     final Optional<Timekeeper.Context> timerContext = Optional.ofNullable(timer).map(Timekeeper::time);
-    return replyFuture(request).whenComplete((clientReply, exception) -> {
+    final CompletableFuture<RaftClientReply> future = replyFuture(request).whenComplete((clientReply, exception) -> {
       timerContext.ifPresent(Timekeeper.Context::stop);
       if (exception != null || clientReply.getException() != null) {
         raftServerMetrics.incFailedRequestCount(request.getType());
       }
     });
+    return commitInfoDeltaEnabled? future.thenApply(reply -> versionCommitInfos(request, reply)): future;
+  }
+
+  /**
+   * Set the commit info version of the given reply
+   * and omit the commit infos if the client already has the same version.
+   */
+  private RaftClientReply versionCommitInfos(RaftClientRequest request, RaftClientReply reply) {
+    if (reply.getClass() != RaftClientReply.class || !reply.isSuccess() || reply.getCommitInfos().isEmpty()) {
+      return reply;
+    }
+    final long version = commitInfoCache.getVersion(reply.getCommitInfos());
+    final RaftClientReply.Builder b = RaftClientReply.newBuilder(reply).setCommitInfoVersion(version);
+    if (request.getCommitInfoVersion() == version) {
+      b.setCommitInfos(Collections.emptyList());
+    }
+    return b.build();
   }
 
   private CompletableFuture<RaftClientReply> replyFuture(RaftClientRequest request) throws IOException {
@@ -981,6 +1026,12 @@ class RaftServerImpl implements RaftServer.Division,
       // return the cached future.
       return cacheEntry.getReplyFuture();
     }
+    final long appliedIndex = retryCache.getAppliedIndex(cacheEntry.getKey());
+    if (appliedIndex >= 0) {
+      // the request has already been applied but its cache entry has expired.
+      cacheEntry.updateResult(newSuccessReply(request, appliedIndex));
+      return cacheEntry.getReplyFuture();
+    }
     // TODO: this client request will not be added to pending requests until
     // later which means that any failure in between will leave partial state in
     // the state machine. We should call cancelTransaction() for failed requests
@@ -1038,6 +1089,32 @@ class RaftServerImpl implements RaftServer.Division,
     }
   }
 
+  private CompletableFuture<Long> getFollowerReadIndex(RaftClientRequest request) {
+    // read-after-write consistent reads depend on the per client write index in the leader,
+    // so they neither use the follower lease nor are batched
+    if (request.getType().getRead().getReadAfterWriteConsistent()) {
+      return getReadIndexFromLeader(request);
+    }
+    if (followerReadLease != null) {
+      final Long leaseReadIndex = followerReadLease.getReadIndex(state.getCurrentTerm());
+      if (leaseReadIndex != null) {
+        return CompletableFuture.completedFuture(leaseReadIndex);
+      }
+    }
+    return readIndexBatcher != null ? readIndexBatcher.getReadIndex(request) : getReadIndexFromLeader(request);
+  }
+
+  private CompletableFuture<Long> getReadIndexFromLeader(RaftClientRequest request) {
+    return sendReadIndexAsync(request).thenApply(reply -> {
+      if (reply.getServerReply().getSuccess()) {
+        return reply.getReadIndex();
+      } else {
+        throw new CompletionException(new ReadIndexException(getId() +
+            ": Failed to get read index from the leader: " + reply));
+      }
+    });
+  }
+
   private CompletableFuture<Long> getReadIndex(RaftClientRequest request, LeaderStateImpl leader) {
     return writeIndexCache.getWriteIndexFuture(request).thenCompose(leader::getReadIndex);
   }
@@ -1050,9 +1127,11 @@ class RaftServerImpl implements RaftServer.Division,
          return reply;
        }
        return queryStateMachine(request);
-    } else if (readOption == RaftServerConfigKeys.Read.Option.LINEARIZABLE){
+    } else if (readOption == RaftServerConfigKeys.Read.Option.LINEARIZABLE
+        || readOption == RaftServerConfigKeys.Read.Option.BOUNDED_STALENESS) {
       /*
         Linearizable read using ReadIndex. See Raft paper section 6.4.
+        For BOUNDED_STALENESS, a follower may use the read lease instead of obtaining the readIndex.
         1. First obtain readIndex from Leader.
         2. Then waits for statemachine to advance at least as far as readIndex.
         3. Finally, query the statemachine and return the result.
@@ -1063,14 +1142,7 @@ class RaftServerImpl implements RaftServer.Division,
       if (leader != null) {
         replyFuture = getReadIndex(request, leader);
       } else {
-        replyFuture = sendReadIndexAsync(request).thenApply(reply   -> {
-          if (reply.getServerReply().getSuccess()) {
-            return reply.getReadIndex();
-          } else {
-            throw new CompletionException(new ReadIndexException(getId() +
-                ": Failed to get read index from the leader: " + reply));
-          }
-        });
+        replyFuture = getFollowerReadIndex(request);
       }
 
       return replyFuture
@@ -1107,7 +1179,16 @@ class RaftServerImpl implements RaftServer.Division,
         return f.thenApply(r -> null);
       }
       // the message stream has ended and the request become a WRITE request
-      return replyFuture(f.join());
+      final RaftClientRequest write = f.join();
+      // the stream bytes are counted in the message stream memory until the write request completes
+      final long size = write.getMessage().getContent().size();
+      final MessageStreamRequests.Memory memory = proxy.getMessageStreamMemory();
+      try {
+        return replyFuture(write).whenComplete((r, e) -> memory.release(size));
+      } catch (IOException | RuntimeException e) {
+        memory.release(size);
+        throw e;
+      }
     }
 
     return role.getLeaderState()
@@ -1573,6 +1654,9 @@ class RaftServerImpl implements RaftServer.Division,
         return JavaUtils.completeExceptionally(e);
       }
       state.setLeader(leaderId, "appendEntries");
+      if (followerReadLease != null && proto.hasReadLease()) {
+        followerReadLease.update(leaderTerm, proto.getReadLease());
+      }
 
       if (!proto.getInitializing() && lifeCycle.compareAndTransition(State.STARTING, State.RUNNING)) {
         role.startFollowerState(this, Op.APPEND_ENTRIES);
@@ -1615,6 +1699,13 @@ class RaftServerImpl implements RaftServer.Division,
 
     final long commitIndex = effectiveCommitIndex(proto.getLeaderCommit(), previous, entries.size());
     final long matchIndex = isHeartbeat? RaftLog.INVALID_LOG_INDEX: entries.get(entries.size() - 1).getIndex();
+    if (isHeartbeat && immediateCommitEnabled) {
+      // A heartbeat has no entries to wait for: update the commit index and notify the state machine updater
+      // in the current thread instead of going through the server executor.
+      if (state.updateCommitIndex(commitIndex, currentTerm, false)) {
+        updateCommitInfoCache();
+      }
+    }
     return appendLog.whenCompleteAsync((r, t) -> {
       followerState.ifPresent(fs -> fs.updateLastRpcTime(FollowerState.UpdateType.APPEND_COMPLETE));
       timer.stop();
@@ -1857,6 +1948,7 @@ class RaftServerImpl implements RaftServer.Division,
 
         final CompletableFuture<Message> stateMachineFuture = stateMachine.applyTransaction(trx);
         messageFuture = replyPendingRequest(invocationId, TermIndex.valueOf(next), stateMachineFuture);
+        retryCache.onApplied(invocationId, next.getIndex());
       } catch (Exception e) {
         throw new RaftLogIOException(e);
       }
@@ -41,6 +41,11 @@ import org.apache.ratis.server.DataStreamServerRpc;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.ServerFactory;
 import org.apache.ratis.server.storage.RaftStorage.StartupOption;
+import org.apache.ratis.server.raftlog.segmented.OffHeapLogEntryCache;
+import org.apache.ratis.server.raftlog.segmented.SegmentPurgeService;
+import org.apache.ratis.server.raftlog.wal.MultiGroupWals;
+import org.apache.ratis.server.storage.RaftStorageMetadataJournals;
+import org.apache.ratis.server.util.ServerMemoryBudget;
 import org.apache.ratis.util.ConcurrentUtils;
 import org.apache.ratis.util.JvmPauseMonitor;
 import org.apache.ratis.server.RaftServerConfigKeys;
@@ -53,6 +58,7 @@ import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.ProtoUtils;
 import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.UncheckedAutoCloseable;
 
 import java.io.Closeable;
 import java.io.File;
@@ -72,6 +78,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -204,6 +211,25 @@ class RaftServerProxy implements RaftServer {
 
   private final JvmPauseMonitor pauseMonitor;
   private final ThreadGroup threadGroup;
+  /** Shared by the logs of all the divisions; null if it is disabled. */
+  private final OffHeapLogEntryCache offHeapLogEntryCache;
+  /** Delete the purged segments of all the divisions in the background; null if it is disabled. */
+  private final SegmentPurgeService segmentPurgeService;
+  /** The metadata journals of all the divisions, one for each volume; null if it is disabled. */
+  private final RaftStorageMetadataJournals metadataJournals;
+  /** The shared write-ahead logs of all the divisions, one for each volume. */
+  private final MultiGroupWals multiGroupWals = new MultiGroupWals();
+  /** Shared by all the divisions; null if it is disabled. */
+  private final ServerMemoryBudget memoryBudget;
+  /** The number of the elections in flight of all the divisions. */
+  private final AtomicInteger electionsInFlight = new AtomicInteger();
+  /** The number of the divisions currently leading in this server. */
+  private final AtomicInteger numLeaders = new AtomicInteger();
+  private final ElectionCoordinator electionCoordinator;
+  /** Null if it is disabled. */
+  private final LeaderBalancer leaderBalancer;
+  /** The in-memory bytes of the pending message streams of all the divisions. */
+  private final MessageStreamRequests.Memory messageStreamMemory;
 
   RaftServerProxy(RaftPeerId id, StateMachine.Registry stateMachineRegistry,
       RaftProperties properties, Parameters parameters, ThreadGroup threadGroup) {
@@ -235,6 +261,74 @@ class RaftServerProxy implements RaftServer {
         .setHandler(extraSleep -> handleJvmPause(extraSleep, closeThreshold, leaderStepDownWaitTime))
         .build();
     this.threadGroup = threadGroup == null ? new ThreadGroup(this.id.toString()) : threadGroup;
+    this.offHeapLogEntryCache = OffHeapLogEntryCache.newInstance(properties);
+    this.segmentPurgeService = SegmentPurgeService.newInstance(properties);
+    this.metadataJournals = RaftStorageMetadataJournals.newInstance(properties);
+    this.memoryBudget = ServerMemoryBudget.newInstance(properties);
+    this.electionCoordinator = new ElectionCoordinator(
+        RaftServerConfigKeys.LeaderElection.staggerInterval(properties),
+        RaftServerConfigKeys.Rpc.timeoutMin(properties)
+            .multiply(RaftServerConfigKeys.LeaderElection.staggerDelayMaxRatio(properties)),
+        numLeaders::get);
+    this.leaderBalancer = LeaderBalancer.newInstance(this, properties);
+    this.messageStreamMemory = new MessageStreamRequests.Memory(properties);
+  }
+
+  OffHeapLogEntryCache getOffHeapLogEntryCache() {
+    return offHeapLogEntryCache;
+  }
+
+  SegmentPurgeService getSegmentPurgeService() {
+    return segmentPurgeService;
+  }
+
+  RaftStorageMetadataJournals getMetadataJournals() {
+    return metadataJournals;
+  }
+
+  MultiGroupWals getMultiGroupWals() {
+    return multiGroupWals;
+  }
+
+  ServerMemoryBudget getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  MessageStreamRequests.Memory getMessageStreamMemory() {
+    return messageStreamMemory;
+  }
+
+  ElectionCoordinator getElectionCoordinator() {
+    return electionCoordinator;
+  }
+
+  /** @return the divisions which have been initialized and are running, without blocking. */
+  List<RaftServerImpl> getRunningImpls() {
+    return impls.getAll().stream()
+        .filter(f -> f.isDone() && !f.isCompletedExceptionally())
+        .map(CompletableFuture::join)
+        .filter(RaftServerImpl::isRunning)
+        .collect(Collectors.toList());
+  }
+
+  /** @return the number of the divisions currently leading in this server. */
+  int getNumLeaders() {
+    return numLeaders.get();
+  }
+
+  /** Called when a division becomes a leader (delta = 1) or stops being a leader (delta = -1). */
+  void updateNumLeaders(int delta) {
+    numLeaders.addAndGet(delta);
+  }
+
+  int getNumElectionsInFlight() {
+    return electionsInFlight.get();
+  }
+
+  /** Start an election; the election ends when the returned object is closed. */
+  UncheckedAutoCloseable startElection() {
+    electionsInFlight.incrementAndGet();
+    return electionsInFlight::decrementAndGet;
   }
 
   private void handleJvmPause(TimeDuration extraSleep, TimeDuration closeThreshold, TimeDuration stepDownThreshold)
@@ -414,12 +508,14 @@ class RaftServerProxy implements RaftServer {
     getDataStreamServerRpc().start();
 
     pauseMonitor.start();
+    Optional.ofNullable(leaderBalancer).ifPresent(LeaderBalancer::start);
   }
 
   @Override
   public void close() {
     lifeCycle.checkStateAndClose(() -> {
       LOG.info("{}: close", getId());
+      Optional.ofNullable(leaderBalancer).ifPresent(LeaderBalancer::stop);
 
       try {
         ConcurrentUtils.shutdownAndWait(implExecutor.get());
@@ -446,6 +542,9 @@ class RaftServerProxy implements RaftServer {
       } catch (Exception ignored) {
         LOG.warn(getId() + ": Failed to shutdown executor", ignored);
       }
+
+      Optional.ofNullable(offHeapLogEntryCache).ifPresent(OffHeapLogEntryCache::clear);
+      Optional.ofNullable(segmentPurgeService).ifPresent(SegmentPurgeService::close);
     });
     pauseMonitor.stop();
   }
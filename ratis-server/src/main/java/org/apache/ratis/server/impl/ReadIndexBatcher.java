@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Batch the read index requests sent from a follower to the leader.
+ * <p>
+ * At most one batch is in flight at any time.
+ * A read index obtained by the in-flight batch may not reflect the writes committed
+ * after the batch was sent, so the requests arriving in the meantime join the next batch,
+ * which is sent once the in-flight batch has completed.
+ */
+class ReadIndexBatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(ReadIndexBatcher.class);
+
+  private static class Batch {
+    private final RaftClientRequest request;
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+    private final AtomicInteger size = new AtomicInteger(1);
+
+    Batch(RaftClientRequest request) {
+      this.request = request;
+    }
+
+    CompletableFuture<Long> join() {
+      size.incrementAndGet();
+      return future;
+    }
+  }
+
+  private final Object name;
+  private final Function<RaftClientRequest, CompletableFuture<Long>> sender;
+
+  /** The batch sent to the leader and not yet replied. */
+  private Batch inFlight;
+  /** The batch waiting for {@link #inFlight} to complete. */
+  private Batch pending;
+
+  ReadIndexBatcher(Object name, Function<RaftClientRequest, CompletableFuture<Long>> sender) {
+    this.name = name;
+    this.sender = sender;
+  }
+
+  /** @return a future of the read index obtained from a batch sent after this call. */
+  CompletableFuture<Long> getReadIndex(RaftClientRequest request) {
+    final Batch batch;
+    synchronized (this) {
+      if (inFlight != null) {
+        if (pending == null) {
+          pending = new Batch(request);
+          return pending.future;
+        }
+        return pending.join();
+      }
+      batch = new Batch(request);
+      inFlight = batch;
+    }
+    send(batch);
+    return batch.future;
+  }
+
+  private void send(Batch batch) {
+    sender.apply(batch.request).whenComplete((index, e) -> {
+      sendNext();
+      LOG.debug("{}: batch of {} read(s) completed with readIndex={}", name, batch.size, index);
+      if (e != null) {
+        batch.future.completeExceptionally(e);
+      } else {
+        batch.future.complete(index);
+      }
+    });
+  }
+
+  private void sendNext() {
+    final Batch next;
+    synchronized (this) {
+      next = pending;
+      pending = null;
+      inFlight = next;
+    }
+    if (next != null) {
+      send(next);
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.RetryCache;
+import org.apache.ratis.server.storage.RaftStorageDirectory;
 import org.apache.ratis.thirdparty.com.google.common.cache.Cache;
 import org.apache.ratis.thirdparty.com.google.common.cache.CacheBuilder;
 import org.apache.ratis.thirdparty.com.google.common.cache.CacheStats;
@@ -33,6 +34,8 @@ import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.Timestamp;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -167,10 +170,13 @@ class RetryCacheImpl implements RetryCache {
   /** Cache statistics to reduce the number of expensive statistics computations. */
   private final AtomicReference<StatisticsImpl> statistics = new AtomicReference<>();
   private final TimeDuration statisticsExpiryTime;
+  /** The applied requests, which is null if {@link RaftServerConfigKeys.RetryCache.Compact} is disabled. */
+  private final CompactRetryCache compact;
 
   RetryCacheImpl(RaftProperties properties) {
     this(RaftServerConfigKeys.RetryCache.expiryTime(properties),
-         RaftServerConfigKeys.RetryCache.statisticsExpiryTime(properties));
+         RaftServerConfigKeys.RetryCache.statisticsExpiryTime(properties),
+         RaftServerConfigKeys.RetryCache.Compact.enabled(properties)? new CompactRetryCache(properties): null);
   }
 
   /**
@@ -178,11 +184,16 @@ class RetryCacheImpl implements RetryCache {
    * @param statisticsExpiryTime time for a {@link RetryCache.Statistics} object to expire.
    */
   RetryCacheImpl(TimeDuration cacheExpiryTime, TimeDuration statisticsExpiryTime) {
+    this(cacheExpiryTime, statisticsExpiryTime, null);
+  }
+
+  RetryCacheImpl(TimeDuration cacheExpiryTime, TimeDuration statisticsExpiryTime, CompactRetryCache compact) {
     this.cache = CacheBuilder.newBuilder()
         .recordStats()
         .expireAfterWrite(cacheExpiryTime.getDuration(), cacheExpiryTime.getUnit())
         .build();
     this.statisticsExpiryTime = statisticsExpiryTime;
+    this.compact = compact;
   }
 
   CacheEntry getOrCreateEntry(ClientInvocationId key) {
@@ -241,6 +252,37 @@ class RetryCacheImpl implements RetryCache {
     cache.invalidateAll(CollectionUtils.as(callIds, callId -> ClientInvocationId.valueOf(clientId, callId)));
   }
 
+  /** @return the log index of the given request if it has been applied, or -1 if it is not found. */
+  long getAppliedIndex(ClientInvocationId key) {
+    return compact == null? -1: compact.getAppliedIndex(key);
+  }
+
+  void onApplied(ClientInvocationId key, long logIndex) {
+    if (compact != null) {
+      compact.onApplied(key, logIndex);
+    }
+  }
+
+  /** Persist the applied requests to the given storage directory. */
+  void persist(RaftStorageDirectory dir) throws IOException {
+    if (compact != null) {
+      compact.persist(new File(dir.getCurrentDir(), CompactRetryCache.FILE_NAME));
+    }
+  }
+
+  /** Load the applied requests from the given storage directory. */
+  void load(RaftStorageDirectory dir) {
+    if (compact == null) {
+      return;
+    }
+    final File file = new File(dir.getCurrentDir(), CompactRetryCache.FILE_NAME);
+    try {
+      compact.load(file);
+    } catch (IOException e) {
+      LOG.warn("Failed to load {}, ignoring it", file, e);
+    }
+  }
+
   @Override
   public Statistics getStatistics() {
     return statistics.updateAndGet(old -> old == null || old.isExpired()? new StatisticsImpl(cache): old);
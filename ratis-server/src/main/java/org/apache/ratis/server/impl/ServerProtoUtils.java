@@ -155,7 +155,7 @@ final class ServerProtoUtils {
   static AppendEntriesRequestProto toAppendEntriesRequestProto(
       RaftGroupMemberId requestorId, RaftPeerId replyId, long leaderTerm,
       List<LogEntryProto> entries, long leaderCommit, boolean initializing,
-      TermIndex previous, Collection<CommitInfoProto> commitInfos, long callId) {
+      TermIndex previous, Collection<CommitInfoProto> commitInfos, ReadLeaseProto readLease, long callId) {
     final RaftRpcRequestProto.Builder rpcRequest = ClientProtoUtils.toRaftRpcRequestProtoBuilder(requestorId, replyId)
         .setCallId(callId);
     final AppendEntriesRequestProto.Builder b = AppendEntriesRequestProto
@@ -170,9 +170,18 @@ final class ServerProtoUtils {
 
     Optional.ofNullable(previous).map(TermIndex::toProto).ifPresent(b::setPreviousLog);
     Optional.ofNullable(commitInfos).ifPresent(b::addAllCommitInfos);
+    Optional.ofNullable(readLease).ifPresent(b::setReadLease);
     return b.build();
   }
 
+  static ReadLeaseProto toReadLeaseProto(long readIndex, long durationMs, long sentTimeMs) {
+    return ReadLeaseProto.newBuilder()
+        .setReadIndex(readIndex)
+        .setDurationMs(durationMs)
+        .setSentTimeMs(sentTimeMs)
+        .build();
+  }
+
   static ServerRpcProto toServerRpcProto(RaftPeer peer, long delay) {
     if (peer == null) {
       // if no peer information return empty
@@ -22,13 +22,16 @@ import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.protocol.*;
 import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftConfiguration;
+import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.impl.LeaderElection.Phase;
 import org.apache.ratis.server.protocol.TermIndex;
 import org.apache.ratis.server.raftlog.LogProtoUtils;
 import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.server.raftlog.RaftLogFactory;
 import org.apache.ratis.server.raftlog.memory.MemoryRaftLog;
 import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLog;
+import org.apache.ratis.server.raftlog.wal.MultiGroupWals;
 import org.apache.ratis.server.storage.*;
 import org.apache.ratis.proto.RaftProtos.InstallSnapshotRequestProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
@@ -115,7 +118,8 @@ class ServerState {
 
     final String storageDirName = group.getGroupId().getUuid().toString();
     this.raftStorage = MemoizedCheckedSupplier.valueOf(
-        () -> StorageImplUtils.initRaftStorage(storageDirName, option, prop));
+        () -> StorageImplUtils.initRaftStorage(storageDirName, option, prop,
+            server.getRaftServer().getMetadataJournals()));
 
     this.snapshotManager = StorageImplUtils.newSnapshotManager(id, () -> getStorage().getStorageDir(),
         stateMachine.getStateMachineStorage());
@@ -177,7 +181,45 @@ class ServerState {
       Consumer<LogEntryProto> logConsumer, LongSupplier getSnapshotIndexFromStateMachine,
       RaftProperties prop) throws IOException {
     final RaftLog log;
-    if (RaftServerConfigKeys.Log.useMemory(prop)) {
+    final String type = RaftServerConfigKeys.Log.type(prop);
+    if (type != null) {
+      log = RaftLogFactory.valueOf(type).newRaftLog(new RaftLogFactory.Context() {
+        @Override
+        public RaftGroupMemberId getMemberId() {
+          return memberId;
+        }
+
+        @Override
+        public RaftServer.Division getDivision() {
+          return server;
+        }
+
+        @Override
+        public RaftStorage getStorage() {
+          return storage;
+        }
+
+        @Override
+        public LongSupplier getSnapshotIndexSupplier() {
+          return getSnapshotIndexFromStateMachine;
+        }
+
+        @Override
+        public RaftProperties getProperties() {
+          return prop;
+        }
+
+        @Override
+        public Runnable getSubmitUpdateCommitEvent() {
+          return server::submitUpdateCommitEvent;
+        }
+
+        @Override
+        public MultiGroupWals getMultiGroupWals() {
+          return server.getRaftServer().getMultiGroupWals();
+        }
+      });
+    } else if (RaftServerConfigKeys.Log.useMemory(prop)) {
       log = new MemoryRaftLog(memberId, getSnapshotIndexFromStateMachine, prop);
     } else {
       log = SegmentedRaftLog.newBuilder()
@@ -189,6 +231,9 @@ class ServerState {
           .setStorage(storage)
           .setSnapshotIndexSupplier(getSnapshotIndexFromStateMachine)
           .setProperties(prop)
+          .setOffHeapCache(server.getRaftServer().getOffHeapLogEntryCache())
+          .setMemoryBudget(server.getRaftServer().getMemoryBudget())
+          .setPurgeService(server.getRaftServer().getSegmentPurgeService())
           .build();
     }
     log.open(log.getSnapshotIndex(), logConsumer);
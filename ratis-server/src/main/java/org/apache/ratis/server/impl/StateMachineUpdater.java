@@ -306,6 +306,11 @@ class StateMachineUpdater implements Runnable {
     if (i >= 0) {
       LOG.info("{}: Took a snapshot at index {}", name, i);
       snapshotIndex.updateIncreasingly(i, infoIndexChange);
+      try {
+        server.getRetryCache().persist(server.getRaftStorage().getStorageDir());
+      } catch (IOException e) {
+        LOG.warn("{}: Failed to persist the retry cache", name, e);
+      }
 
       final long purgeIndex;
       if (purgeUptoSnapshotIndex) {
@@ -29,27 +29,40 @@ import org.apache.ratis.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 class WatchRequests {
   public static final Logger LOG = LoggerFactory.getLogger(WatchRequests.class);
+  static final String ADD_WATCH = JavaUtils.getClassSimpleName(WatchRequests.class) + ".addWatch";
+
+  /** The number of indices in a bucket. */
+  static final int BUCKET_SIZE = 64;
 
   static class PendingWatch {
     private final WatchRequestTypeProto watch;
     private final Timestamp creationTime;
+    private final long callId;
     private final Supplier<CompletableFuture<Long>> future = JavaUtils.memoize(CompletableFuture::new);
 
-    PendingWatch(WatchRequestTypeProto watch, Timestamp creationTime) {
+    PendingWatch(WatchRequestTypeProto watch, Timestamp creationTime, long callId) {
       this.watch = watch;
       this.creationTime = creationTime;
+      this.callId = callId;
     }
 
     CompletableFuture<Long> getFuture() {
@@ -64,6 +77,10 @@ class WatchRequests {
       return creationTime;
     }
 
+    long getCallId() {
+      return callId;
+    }
+
     @Override
     public String toString() {
       return RaftClientRequest.Type.toString(watch) + "@" + creationTime
@@ -71,102 +88,200 @@ class WatchRequests {
     }
   }
 
+  /**
+   * The pending watches of a replication level.
+   * <p>
+   * The watches are grouped into buckets by index ranges of {@link #BUCKET_SIZE}.
+   * The buckets are kept in a concurrent skip list
+   * so that adding a watch only locks its bucket but not the entire queue.
+   * When the index advances, the buckets below the new index are completed in batches,
+   * and at most one partially satisfied bucket is searched.
+   * The timeouts are handled by one scheduled sweep per bucket, instead of one task per watch.
+   */
   private class WatchQueue {
     private final ReplicationLevel replication;
-    private final SortedMap<PendingWatch, PendingWatch> q = new TreeMap<>(
-        Comparator.comparingLong(PendingWatch::getIndex).thenComparing(PendingWatch::getCreationTime));
+    /** Map: bucket id -> bucket. */
+    private final ConcurrentNavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
     private final ResourceSemaphore resource;
     private final RaftServerMetricsImpl raftServerMetrics;
-    private volatile long index; //Invariant: q.isEmpty() or index < any element q
-
-    WatchQueue(ReplicationLevel replication, int elementLimit, RaftServerMetricsImpl raftServerMetrics) {
-      this.replication = replication;
-      this.resource = new ResourceSemaphore(elementLimit);
-      this.raftServerMetrics = raftServerMetrics;
-
-      raftServerMetrics.addNumPendingWatchRequestsGauge(resource::used, replication);
-    }
-
-    long getIndex() {
-      return index;
-    }
-
-    CompletableFuture<Long> add(RaftClientRequest request) {
-      final long currentTime = Timestamp.currentTimeNanos();
-      final long roundUp = watchTimeoutDenominationNanos.roundUpNanos(currentTime);
-      final PendingWatch pending = new PendingWatch(request.getType().getWatch(), Timestamp.valueOf(roundUp));
+    /** Invariant: any pending watch has an index larger than this index. */
+    private final AtomicLong index = new AtomicLong();
+
+    /** The pending watches with indices in [id * BUCKET_SIZE, (id + 1) * BUCKET_SIZE). */
+    private class Bucket {
+      private final long id;
+      private final SortedMap<PendingWatch, PendingWatch> watches = new TreeMap<>(
+          Comparator.comparingLong(PendingWatch::getIndex).thenComparing(PendingWatch::getCreationTime));
+      /** The watches in the order of creation for the timeout sweeps; it may contain removed watches. */
+      private final Deque<PendingWatch> creationOrder = new ArrayDeque<>();
+      private boolean sweepScheduled = false;
+      /** A closed bucket is removed from the queue; it can no longer accept watches. */
+      private boolean closed = false;
+
+      Bucket(long id) {
+        this.id = id;
+      }
 
-      final PendingWatch computed;
-      synchronized (this) {
+      /** @return the future of the watch, or null if this bucket is closed. */
+      synchronized CompletableFuture<Long> add(PendingWatch pending, RaftClientRequest request) {
+        if (closed) {
+          return null;
+        }
         final long queueIndex = getIndex();
         if (pending.getIndex() <= queueIndex) { // compare again synchronized
           // watch condition already satisfied
           return CompletableFuture.completedFuture(queueIndex);
         }
-        computed = q.compute(pending, (key, old) -> old != null? old: resource.tryAcquire()? pending: null);
+        final PendingWatch existing = watches.get(pending);
+        if (existing != null) {
+          return existing.getFuture();
+        }
+        if (!resource.tryAcquire()) {
+          raftServerMetrics.onWatchRequestQueueLimitHit(replication);
+          return JavaUtils.completeExceptionally(new ResourceUnavailableException(
+              "Failed to acquire a pending watch request in " + name + " for " + request));
+        }
+        watches.put(pending, pending);
+        creationOrder.add(pending);
+        if (!sweepScheduled) {
+          scheduleSweep(pending);
+        }
+        return pending.getFuture();
+      }
+
+      private void scheduleSweep(PendingWatch first) {
+        sweepScheduled = true;
+        final TimeDuration remaining = watchTimeoutNanos.subtract(first.getCreationTime().elapsedTime());
+        scheduler.onTimeout(remaining.isNegative()? TimeDuration.ZERO: remaining, this::sweep,
+            LOG, () -> name + ": Failed to sweep " + replication + " bucket " + id);
       }
 
-      if (computed == null) {
-        // failed to acquire
-        raftServerMetrics.onWatchRequestQueueLimitHit(replication);
-        return JavaUtils.completeExceptionally(new ResourceUnavailableException(
-            "Failed to acquire a pending watch request in " + name + " for " + request));
+      private boolean isExpired(PendingWatch pending) {
+        return pending.getCreationTime().elapsedTime().compareTo(watchTimeoutNanos) >= 0;
       }
-      if (computed != pending) {
-        // already exists in q
-        return computed.getFuture();
+
+      /** Time out the expired watches. */
+      void sweep() {
+        final List<PendingWatch> expired = new ArrayList<>();
+        synchronized (this) {
+          sweepScheduled = false;
+          for (PendingWatch head; (head = creationOrder.peek()) != null; ) {
+            if (watches.get(head) != head) {
+              creationOrder.poll(); // already removed
+            } else if (isExpired(head)) {
+              creationOrder.poll();
+              watches.remove(head);
+              expired.add(head);
+            } else {
+              scheduleSweep(head);
+              break;
+            }
+          }
+          release(expired.size());
+          closeIfEmpty();
+        }
+
+        for (PendingWatch pending : expired) {
+          pending.getFuture().completeExceptionally(
+              new NotReplicatedException(pending.getCallId(), replication, pending.getIndex()));
+          LOG.debug("{}: timeout {}", name, pending);
+          raftServerMetrics.onWatchRequestTimeout(replication);
+        }
       }
 
-      // newly added to q
-      final TimeDuration timeout = watchTimeoutNanos.apply(duration -> duration + roundUp - currentTime);
-      scheduler.onTimeout(timeout, () -> handleTimeout(request, pending),
-          LOG, () -> name + ": Failed to timeout " + request);
-      return pending.getFuture();
+      /** Remove the watches satisfied by the given index and add them to the given list. */
+      synchronized void removeSatisfied(long newIndex, List<PendingWatch> satisfied) {
+        if (toBucketId(newIndex) > id) {
+          // all the watches in this bucket are satisfied
+          satisfied.addAll(watches.values());
+          release(watches.size());
+          watches.clear();
+        } else {
+          final int size = watches.size();
+          for (; !watches.isEmpty(); ) {
+            final PendingWatch first = watches.firstKey();
+            if (first.getIndex() > newIndex) {
+              break;
+            }
+            watches.remove(first);
+            satisfied.add(first);
+          }
+          release(size - watches.size());
+        }
+        closeIfEmpty();
+      }
+
+      synchronized void failAll(Exception e) {
+        for (PendingWatch pending : watches.values()) {
+          pending.getFuture().completeExceptionally(e);
+        }
+        watches.clear();
+        closeIfEmpty();
+      }
+
+      private void closeIfEmpty() {
+        if (watches.isEmpty() && !closed) {
+          closed = true;
+          creationOrder.clear();
+          buckets.remove(id, this);
+        }
+      }
+    }
+
+    WatchQueue(ReplicationLevel replication, int elementLimit, RaftServerMetricsImpl raftServerMetrics) {
+      this.replication = replication;
+      this.resource = new ResourceSemaphore(elementLimit);
+      this.raftServerMetrics = raftServerMetrics;
+
+      raftServerMetrics.addNumPendingWatchRequestsGauge(resource::used, replication);
     }
 
-    void handleTimeout(RaftClientRequest request, PendingWatch pending) {
-      if (removeExisting(pending)) {
-        pending.getFuture().completeExceptionally(
-            new NotReplicatedException(request.getCallId(), replication, pending.getIndex()));
-        LOG.debug("{}: timeout {}, {}", name, pending, request);
-        raftServerMetrics.onWatchRequestTimeout(replication);
+    long getIndex() {
+      return index.get();
+    }
+
+    private void release(int permits) {
+      if (permits > 0) {
+        resource.release(permits);
       }
     }
 
-    synchronized boolean removeExisting(PendingWatch pending) {
-      final PendingWatch removed = q.remove(pending);
-      if (removed == null) {
-        return false;
+    CompletableFuture<Long> add(RaftClientRequest request) {
+      final long currentTime = Timestamp.currentTimeNanos();
+      final long roundUp = watchTimeoutDenominationNanos.roundUpNanos(currentTime);
+      final PendingWatch pending = new PendingWatch(request.getType().getWatch(), Timestamp.valueOf(roundUp),
+          request.getCallId());
+      final long bucketId = toBucketId(pending.getIndex());
+      for (;;) {
+        final Bucket bucket = buckets.computeIfAbsent(bucketId, Bucket::new);
+        CodeInjectionForTesting.execute(ADD_WATCH, name, null, pending);
+        final CompletableFuture<Long> future = bucket.add(pending, request);
+        if (future != null) {
+          return future;
+        }
+        // the bucket was closed concurrently, retry with a new bucket
       }
-      Preconditions.assertTrue(removed == pending);
-      resource.release();
-      return true;
     }
 
-    synchronized void updateIndex(final long newIndex) {
-      if (newIndex <= getIndex()) { // compare again synchronized
+    void updateIndex(final long newIndex) {
+      final long oldIndex = index.getAndAccumulate(newIndex, Math::max);
+      if (newIndex <= oldIndex) {
         return;
       }
-      LOG.debug("{}: update {} index from {} to {}", name, replication, index, newIndex);
-      index = newIndex;
+      LOG.debug("{}: update {} index from {} to {}", name, replication, oldIndex, newIndex);
 
-      for(; !q.isEmpty();) {
-        final PendingWatch first = q.firstKey();
-        if (first.getIndex() > newIndex) {
-          return;
-        }
-        final boolean removed = removeExisting(first);
-        Preconditions.assertTrue(removed);
-        LOG.debug("{}: complete {}", name, first);
-        first.getFuture().complete(newIndex);
+      final List<PendingWatch> satisfied = new ArrayList<>();
+      for (Bucket bucket : buckets.headMap(toBucketId(newIndex), true).values()) {
+        bucket.removeSatisfied(newIndex, satisfied);
+      }
+      for (PendingWatch pending : satisfied) {
+        LOG.debug("{}: complete {}", name, pending);
+        pending.getFuture().complete(newIndex);
       }
     }
 
-    synchronized void failAll(Exception e) {
-      for(PendingWatch pending : q.values()) {
-        pending.getFuture().completeExceptionally(e);
-      }
-      q.clear();
+    void failAll(Exception e) {
+      buckets.values().forEach(b -> b.failAll(e));
       resource.close();
     }
 
@@ -177,6 +292,10 @@ class WatchRequests {
     }
   }
 
+  static long toBucketId(long index) {
+    return index / BUCKET_SIZE;
+  }
+
   private final String name;
   private final Map<ReplicationLevel, WatchQueue> queues = new EnumMap<>(ReplicationLevel.class);
 
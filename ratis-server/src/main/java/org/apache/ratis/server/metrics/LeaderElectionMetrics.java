@@ -27,6 +27,7 @@ import org.apache.ratis.protocol.RaftGroupMemberId;
 import org.apache.ratis.util.Timestamp;
 
 import java.util.Optional;
+import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 
 /**
@@ -42,6 +43,8 @@ public final class LeaderElectionMetrics extends RatisMetrics {
   public static final String LEADER_ELECTION_TIME_TAKEN = "electionTime";
   public static final String LAST_LEADER_ELAPSED_TIME = "lastLeaderElapsedTime";
   public static final String TRANSFER_LEADERSHIP_COUNT_METRIC = "transferLeadershipCount";
+  public static final String TIME_TO_LEADER = "timeToLeader";
+  public static final String NUM_ELECTIONS_IN_FLIGHT = "numElectionsInFlight";
 
   public static final String LAST_LEADER_ELECTION_ELAPSED_TIME = "lastLeaderElectionElapsedTime";
 
@@ -50,13 +53,16 @@ public final class LeaderElectionMetrics extends RatisMetrics {
   private final LongCounter transferLeadershipCount = getRegistry().counter(TRANSFER_LEADERSHIP_COUNT_METRIC);
 
   private final Timekeeper electionTime = getRegistry().timer(LEADER_ELECTION_TIME_TAKEN);
+  private final Timekeeper timeToLeader = getRegistry().timer(TIME_TO_LEADER);
 
   @SuppressWarnings({"squid:S3077"}) // Suppress volatile for generic type
   private volatile Timestamp lastElectionTime;
 
-  private LeaderElectionMetrics(RaftGroupMemberId serverId, LongSupplier getLastLeaderElapsedTimeMs) {
+  private LeaderElectionMetrics(RaftGroupMemberId serverId, LongSupplier getLastLeaderElapsedTimeMs,
+      IntSupplier getNumElectionsInFlight) {
     super(createRegistry(serverId));
 
+    getRegistry().gauge(NUM_ELECTIONS_IN_FLIGHT, () -> getNumElectionsInFlight::getAsInt);
     getRegistry().gauge(LAST_LEADER_ELAPSED_TIME, () -> getLastLeaderElapsedTimeMs::getAsLong);
     getRegistry().gauge(LAST_LEADER_ELECTION_ELAPSED_TIME,
         () -> () -> Optional.ofNullable(lastElectionTime).map(Timestamp::elapsedTimeMs).orElse(-1L));
@@ -70,7 +76,16 @@ public final class LeaderElectionMetrics extends RatisMetrics {
 
   public static LeaderElectionMetrics getLeaderElectionMetrics(
       RaftGroupMemberId serverId, LongSupplier getLastLeaderElapsedTimeMs) {
-    return new LeaderElectionMetrics(serverId, getLastLeaderElapsedTimeMs);
+    return getLeaderElectionMetrics(serverId, getLastLeaderElapsedTimeMs, () -> 0);
+  }
+
+  /**
+   * @param getNumElectionsInFlight to get the number of the elections in flight
+   *                                of all the divisions in the server.
+   */
+  public static LeaderElectionMetrics getLeaderElectionMetrics(RaftGroupMemberId serverId,
+      LongSupplier getLastLeaderElapsedTimeMs, IntSupplier getNumElectionsInFlight) {
+    return new LeaderElectionMetrics(serverId, getLastLeaderElapsedTimeMs, getNumElectionsInFlight);
   }
 
   public void onNewLeaderElectionCompletion() {
@@ -82,6 +97,11 @@ public final class LeaderElectionMetrics extends RatisMetrics {
     return electionTime;
   }
 
+  /** @return the timer measuring the time from the start of an election to becoming the leader. */
+  public Timekeeper getTimeToLeaderTimer() {
+    return timeToLeader;
+  }
+
   public void onLeaderElectionTimeout() {
     timeoutCount.inc();
   }
@@ -57,10 +57,12 @@ public final class RaftServerMetricsImpl extends RatisMetrics implements RaftSer
   public static final String REQUEST_QUEUE_LIMIT_HIT_COUNTER = "numRequestQueueLimitHits";
   public static final String REQUEST_BYTE_SIZE_LIMIT_HIT_COUNTER = "numRequestsByteSizeLimitHits";
   public static final String RESOURCE_LIMIT_HIT_COUNTER = "numResourceLimitHits";
+  public static final String MEMORY_BUDGET_LIMIT_HIT_COUNTER = "numMemoryBudgetLimitHits";
   public static final String WATCH_REQUEST_QUEUE_LIMIT_HIT_COUNTER = "numWatch%sRequestQueueLimitHits";
 
   public static final String REQUEST_QUEUE_SIZE = "numPendingRequestInQueue";
   public static final String REQUEST_MEGA_BYTE_SIZE = "numPendingRequestMegaByteSize";
+  public static final String MEMORY_BUDGET_USED_BYTE_SIZE = "memoryBudgetUsedByteSize";
 
   public static final String WATCH_REQUEST_QUEUE_SIZE = "numWatch%sRequestInQueue";
   public static final String WATCH_REQUEST_TIMEOUT_COUNTER = "numWatch%sRequestTimeout";
@@ -81,6 +83,7 @@ public final class RaftServerMetricsImpl extends RatisMetrics implements RaftSer
   private final LongCounter numRequestQueueLimitHits = getRegistry().counter(REQUEST_QUEUE_LIMIT_HIT_COUNTER);
   private final LongCounter numRequestsByteSizeLimitHits = getRegistry().counter(REQUEST_BYTE_SIZE_LIMIT_HIT_COUNTER);
   private final LongCounter numResourceLimitHits = getRegistry().counter(RESOURCE_LIMIT_HIT_COUNTER);
+  private final LongCounter numMemoryBudgetLimitHits = getRegistry().counter(MEMORY_BUDGET_LIMIT_HIT_COUNTER);
   private final Map<ReplicationLevel, LongCounter> numWatchRequestQueueLimitHits = newCounterMap(ReplicationLevel.class,
       replication -> getRegistry().counter(
           String.format(WATCH_REQUEST_QUEUE_LIMIT_HIT_COUNTER, Type.toString(replication))));
@@ -279,6 +282,18 @@ public final class RaftServerMetricsImpl extends RatisMetrics implements RaftSer
     numResourceLimitHits.inc();
   }
 
+  public void onMemoryBudgetLimitHit() {
+    numMemoryBudgetLimitHits.inc();
+  }
+
+  public void addMemoryBudgetUsedByteSize(Supplier<Long> byteSize) {
+    getRegistry().gauge(MEMORY_BUDGET_USED_BYTE_SIZE, () -> byteSize);
+  }
+
+  public boolean removeMemoryBudgetUsedByteSize() {
+    return getRegistry().remove(MEMORY_BUDGET_USED_BYTE_SIZE);
+  }
+
   void onFailedClientStaleRead() {
     numFailedClientStaleRead.inc();
   }
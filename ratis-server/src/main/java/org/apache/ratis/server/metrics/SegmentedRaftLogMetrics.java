@@ -48,6 +48,18 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
   public static final String RAFT_LOG_CACHE_MISS_COUNT = "cacheMissCount";
   /** Count of RaftLogCache Hits */
   public static final String RAFT_LOG_CACHE_HIT_COUNT = "cacheHitCount";
+  /** Count of OffHeapLogEntryCache Misses */
+  public static final String RAFT_LOG_OFF_HEAP_CACHE_MISS_COUNT = "offHeapCacheMissCount";
+  /** Count of OffHeapLogEntryCache Hits */
+  public static final String RAFT_LOG_OFF_HEAP_CACHE_HIT_COUNT = "offHeapCacheHitCount";
+  /** Size of OffHeapLogEntryCache in bytes, shared by all the divisions of the server */
+  public static final String RAFT_LOG_OFF_HEAP_CACHE_SIZE_IN_BYTES = "offHeapCacheSizeInBytes";
+  /** Count of state machine data reads served by a completed read in the shared read cache */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_READ_CACHE_HIT_COUNT = "stateMachineDataReadCacheHitCount";
+  /** Count of state machine data reads coalesced with an in-flight read in the shared read cache */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_READ_COALESCED_COUNT = "stateMachineDataReadCoalescedCount";
+  /** Count of state machine data reads actually sent to the state machine through the shared read cache */
+  public static final String RAFT_LOG_STATEMACHINE_DATA_READ_CACHE_MISS_COUNT = "stateMachineDataReadCacheMissCount";
   /** Number of SegmentedRaftLogCache::closedSegments */
   public static final String RAFT_LOG_CACHE_CLOSED_SEGMENTS_NUM = "closedSegmentsNum";
   /** Size of SegmentedRaftLogCache::closedSegments in bytes */
@@ -68,6 +80,14 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
   /** Number of entries appended to the raft log */
   public static final String RAFT_LOG_APPEND_ENTRY_COUNT = "appendEntryCount";
   public static final String RAFT_LOG_PURGE_METRIC = "purgeLog";
+  /** Number of segment files deleted by the background purge service */
+  public static final String RAFT_LOG_BACKGROUND_PURGE_COUNT = "backgroundPurgeCount";
+  /** Size of the segment files deleted by the background purge service in bytes */
+  public static final String RAFT_LOG_BACKGROUND_PURGE_BYTES = "backgroundPurgeBytes";
+  /** Size of the segment files waiting for the background purge service in bytes, shared by the server */
+  public static final String RAFT_LOG_BACKGROUND_PURGE_PENDING_BYTES = "backgroundPurgePendingBytes";
+  /** Time elapsed since the oldest pending background deletion was submitted, shared by the server */
+  public static final String RAFT_LOG_BACKGROUND_PURGE_LAG_MS = "backgroundPurgeLagMs";
   /** Number of statemachine dataApi write timeouts */
   public static final String RAFT_LOG_STATEMACHINE_DATA_WRITE_TIMEOUT_COUNT = "numStateMachineDataWriteTimeout";
   /** Number of statemachine dataApi read timeouts */
@@ -80,6 +100,8 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
   public static final String RAFT_LOG_READ_ENTRY_LATENCY = "readEntryLatency";
   /** Time required to load and process raft log segments during restart */
   public static final String RAFT_LOG_LOAD_SEGMENT_LATENCY = "segmentLoadLatency";
+  /** Time required to load all the raft log segments of a division during restart */
+  public static final String RAFT_LOG_LOAD_LATENCY = "logLoadLatency";
 
   private final Timekeeper flushTimer = getRegistry().timer(RAFT_LOG_FLUSH_TIME);
   private final Timekeeper syncTimer = getRegistry().timer(RAFT_LOG_SYNC_TIME);
@@ -89,12 +111,23 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
   private final Timekeeper appendEntryTimer = getRegistry().timer(RAFT_LOG_APPEND_ENTRY_LATENCY);
   private final Timekeeper readEntryTimer = getRegistry().timer(RAFT_LOG_READ_ENTRY_LATENCY);
   private final Timekeeper loadSegmentTimer = getRegistry().timer(RAFT_LOG_LOAD_SEGMENT_LATENCY);
+  private final Timekeeper loadLogTimer = getRegistry().timer(RAFT_LOG_LOAD_LATENCY);
   private final Timekeeper purgeTimer = getRegistry().timer(RAFT_LOG_PURGE_METRIC);
 
   private final LongCounter cacheHitCount = getRegistry().counter(RAFT_LOG_CACHE_HIT_COUNT);
   private final LongCounter cacheMissCount= getRegistry().counter(RAFT_LOG_CACHE_MISS_COUNT);
+  private final LongCounter offHeapCacheHitCount = getRegistry().counter(RAFT_LOG_OFF_HEAP_CACHE_HIT_COUNT);
+  private final LongCounter offHeapCacheMissCount = getRegistry().counter(RAFT_LOG_OFF_HEAP_CACHE_MISS_COUNT);
+  private final LongCounter stateMachineDataReadCacheHitCount
+      = getRegistry().counter(RAFT_LOG_STATEMACHINE_DATA_READ_CACHE_HIT_COUNT);
+  private final LongCounter stateMachineDataReadCoalescedCount
+      = getRegistry().counter(RAFT_LOG_STATEMACHINE_DATA_READ_COALESCED_COUNT);
+  private final LongCounter stateMachineDataReadCacheMissCount
+      = getRegistry().counter(RAFT_LOG_STATEMACHINE_DATA_READ_CACHE_MISS_COUNT);
   private final LongCounter appendEntryCount = getRegistry().counter(RAFT_LOG_APPEND_ENTRY_COUNT);
   private final LongCounter flushCount = getRegistry().counter(RAFT_LOG_FLUSH_COUNT);
+  private final LongCounter backgroundPurgeCount = getRegistry().counter(RAFT_LOG_BACKGROUND_PURGE_COUNT);
+  private final LongCounter backgroundPurgeBytes = getRegistry().counter(RAFT_LOG_BACKGROUND_PURGE_BYTES);
 
   private final LongCounter numStateMachineDataWriteTimeout = getRegistry().counter(
       RAFT_LOG_STATEMACHINE_DATA_WRITE_TIMEOUT_COUNT);
@@ -123,6 +156,15 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
     getRegistry().gauge(RAFT_LOG_CACHE_OPEN_SEGMENT_SIZE_IN_BYTES, () -> openSegmentSizeInBytes);
   }
 
+  public void addOffHeapCacheSizeInBytes(Supplier<Long> offHeapCacheSizeInBytes) {
+    getRegistry().gauge(RAFT_LOG_OFF_HEAP_CACHE_SIZE_IN_BYTES, () -> offHeapCacheSizeInBytes);
+  }
+
+  public void addBackgroundPurgeGauges(Supplier<Long> pendingBytes, Supplier<Long> lagMs) {
+    getRegistry().gauge(RAFT_LOG_BACKGROUND_PURGE_PENDING_BYTES, () -> pendingBytes);
+    getRegistry().gauge(RAFT_LOG_BACKGROUND_PURGE_LAG_MS, () -> lagMs);
+  }
+
   public void addLogWorkerQueueSizeGauge(Supplier<Integer> queueSize) {
     getRegistry().gauge(RAFT_LOG_WORKER_QUEUE_SIZE, () -> queueSize);
   }
@@ -147,6 +189,31 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
     cacheMissCount.inc();
   }
 
+  public void onRaftLogOffHeapCacheHit() {
+    offHeapCacheHitCount.inc();
+  }
+
+  public void onRaftLogOffHeapCacheMiss() {
+    offHeapCacheMissCount.inc();
+  }
+
+  public void onStateMachineDataReadCacheHit() {
+    stateMachineDataReadCacheHitCount.inc();
+  }
+
+  public void onStateMachineDataReadCoalesced() {
+    stateMachineDataReadCoalescedCount.inc();
+  }
+
+  public void onStateMachineDataReadCacheMiss() {
+    stateMachineDataReadCacheMissCount.inc();
+  }
+
+  public void onBackgroundPurge(long bytes) {
+    backgroundPurgeCount.inc();
+    backgroundPurgeBytes.inc(bytes);
+  }
+
   public void onRaftLogFlush() {
     flushCount.inc();
   }
@@ -183,6 +250,10 @@ public class SegmentedRaftLogMetrics extends RaftLogMetricsBase {
     return Timekeeper.start(loadSegmentTimer);
   }
 
+  public UncheckedAutoCloseable startLoadLogTimer() {
+    return Timekeeper.start(loadLogTimer);
+  }
+
   public UncheckedAutoCloseable startPurgeTimer() {
     return Timekeeper.start(purgeTimer);
   }
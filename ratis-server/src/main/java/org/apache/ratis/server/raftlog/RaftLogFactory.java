@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.raftlog.wal.MultiGroupWals;
+import org.apache.ratis.server.storage.RaftStorage;
+
+import java.io.IOException;
+import java.util.ServiceLoader;
+import java.util.function.LongSupplier;
+
+/**
+ * A factory to create {@link RaftLog}s, selected by {@link RaftServerConfigKeys.Log#type(RaftProperties)}.
+ * <p>
+ * The built-in factories are always available.
+ * Other factories can be plugged in through {@link ServiceLoader}.
+ */
+public interface RaftLogFactory {
+  /** The parameters for creating a {@link RaftLog}. */
+  interface Context {
+    RaftGroupMemberId getMemberId();
+
+    /** @return the division owning the log; it can be null in unit tests. */
+    RaftServer.Division getDivision();
+
+    RaftStorage getStorage();
+
+    LongSupplier getSnapshotIndexSupplier();
+
+    RaftProperties getProperties();
+
+    /** @return the callback to update the commit index after the log is flushed. */
+    Runnable getSubmitUpdateCommitEvent();
+
+    /** @return the shared write-ahead logs of the server. */
+    MultiGroupWals getMultiGroupWals();
+  }
+
+  /** @return the {@link RaftLogFactory} with the given name. */
+  static RaftLogFactory valueOf(String name) {
+    return RaftLogFactoryLoader.get(name);
+  }
+
+  /** @return the name of this factory, which is case-insensitive. */
+  String getName();
+
+  /** @return a new {@link RaftLog}, which is not yet opened. */
+  RaftLog newRaftLog(Context context) throws IOException;
+}
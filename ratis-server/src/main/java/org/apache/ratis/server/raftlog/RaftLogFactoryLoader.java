@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog;
+
+import org.apache.ratis.server.raftlog.wal.WalRaftLogFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+/** Load the {@link RaftLogFactory}s, including the built-in ones and the ones from {@link ServiceLoader}. */
+final class RaftLogFactoryLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(RaftLogFactoryLoader.class);
+
+  private static final Map<String, RaftLogFactory> FACTORIES = load();
+
+  private RaftLogFactoryLoader() {
+  }
+
+  private static Map<String, RaftLogFactory> load() {
+    final Map<String, RaftLogFactory> map = new TreeMap<>();
+    final RaftLogFactory wal = new WalRaftLogFactory();
+    map.put(wal.getName().toUpperCase(Locale.ROOT), wal);
+    for (RaftLogFactory f : ServiceLoader.load(RaftLogFactory.class, RaftLogFactory.class.getClassLoader())) {
+      final RaftLogFactory previous = map.putIfAbsent(f.getName().toUpperCase(Locale.ROOT), f);
+      if (previous != null) {
+        LOG.warn("Found multiple RaftLogFactories named {}: {} and {}. Using {}",
+            f.getName(), previous.getClass(), f.getClass(), previous.getClass());
+      } else {
+        LOG.debug("Loaded {}", f.getClass());
+      }
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  static RaftLogFactory get(String name) {
+    final RaftLogFactory f = FACTORIES.get(name.toUpperCase(Locale.ROOT));
+    if (f == null) {
+      throw new IllegalArgumentException("RaftLogFactory " + name + " not found in " + FACTORIES.keySet());
+    }
+    return f;
+  }
+}
@@ -102,6 +102,18 @@ class BufferedWriteChannel implements Closeable {
     Preconditions.assertSame(lim, writeBuffer.limit(), "writeBuffer.limit()");
   }
 
+  /** Write the content of the given buffer, which may be larger than the {@link #writeBuffer}. */
+  void write(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() > writeBuffer.remaining()) {
+      flushBuffer();
+    }
+    if (buffer.remaining() > writeBuffer.capacity()) {
+      writeToChannel(buffer);
+    } else {
+      writeBuffer.put(buffer);
+    }
+  }
+
   /** Write the content of the given buffer to {@link #fileChannel}. */
   void writeToChannel(ByteBuffer buffer) throws IOException {
     Preconditions.assertSame(0, writeBufferPosition(), "writeBuffer.position()");
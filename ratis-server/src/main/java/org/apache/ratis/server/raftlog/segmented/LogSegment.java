@@ -27,7 +27,9 @@ import org.apache.ratis.server.raftlog.RaftLogIOException;
 import org.apache.ratis.server.storage.RaftStorage;
 import org.apache.ratis.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.ratis.thirdparty.com.google.common.cache.CacheLoader;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
 import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.SizeInBytes;
@@ -46,7 +48,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 
 /**
@@ -67,6 +72,9 @@ public final class LogSegment {
     WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE
   }
 
+  /** The size of the memo table of a serialized entry cache; it must be a power of two. */
+  static final int SERIALIZED_CACHE_MEMO_SIZE = 64;
+
   static long getEntrySize(LogEntryProto entry, Op op) {
     LogEntryProto e = entry;
     if (op == Op.CHECK_SEGMENT_FILE_FULL) {
@@ -78,10 +86,118 @@ public final class LogSegment {
       Preconditions.assertTrue(op == Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE || op == Op.REMOVE_CACHE,
           () -> "Unexpected op " + op + ", entry=" + entry);
     }
-    final int serialized = e.getSerializedSize();
+    return getEntrySize(e.getSerializedSize());
+  }
+
+  private static long getEntrySize(int serialized) {
     return serialized + CodedOutputStream.computeUInt32SizeNoTag(serialized) + 4L;
   }
 
+  /**
+   * The cache of the log entries.
+   * The entries are kept either as {@link LogEntryProto} objects
+   * or in the serialized form, which is more compact but has to be parsed for reads.
+   * <p>
+   * In the serialized form, the recently put or parsed entries are also memoized
+   * in a small direct-mapped table indexed by the log index,
+   * so that the appenders and the state machine updater,
+   * which usually read the same recent entries one after another,
+   * share a single parsed entry instead of parsing it for each read.
+   * The table holds at most {@link #SERIALIZED_CACHE_MEMO_SIZE} entries.
+   *
+   * @param <V> the type of the cached values.
+   */
+  private static final class EntryCache<V> {
+    static EntryCache<?> newInstance(boolean serialized) {
+      return serialized ? new EntryCache<>(LogEntryProto::toByteString, EntryCache::parse, ByteString::size,
+              new AtomicReferenceArray<>(SERIALIZED_CACHE_MEMO_SIZE))
+          : new EntryCache<>(Function.identity(), Function.identity(), LogEntryProto::getSerializedSize, null);
+    }
+
+    private static LogEntryProto parse(ByteString bytes) {
+      try {
+        return LogEntryProto.parseFrom(bytes);
+      } catch (InvalidProtocolBufferException e) {
+        throw new IllegalStateException("Failed to parse a cached entry", e);
+      }
+    }
+
+    private static int slot(TermIndex key) {
+      return (int) (key.getIndex() & (SERIALIZED_CACHE_MEMO_SIZE - 1));
+    }
+
+    private static boolean matches(LogEntryProto entry, TermIndex key) {
+      return entry != null && entry.getIndex() == key.getIndex() && entry.getTerm() == key.getTerm();
+    }
+
+    private final Map<TermIndex, V> map = new ConcurrentHashMap<>();
+    private final Function<LogEntryProto, V> encoder;
+    private final Function<V, LogEntryProto> decoder;
+    private final ToIntFunction<V> serializedSize;
+    /** The recently put or parsed entries; null if the entries are not serialized. */
+    private final AtomicReferenceArray<LogEntryProto> memo;
+
+    private EntryCache(Function<LogEntryProto, V> encoder, Function<V, LogEntryProto> decoder,
+        ToIntFunction<V> serializedSize, AtomicReferenceArray<LogEntryProto> memo) {
+      this.encoder = encoder;
+      this.decoder = decoder;
+      this.serializedSize = serializedSize;
+      this.memo = memo;
+    }
+
+    LogEntryProto get(TermIndex key) {
+      final V value = map.get(key);
+      if (value == null) {
+        return null;
+      } else if (memo == null) {
+        return decoder.apply(value);
+      }
+      final int i = slot(key);
+      final LogEntryProto memoized = memo.get(i);
+      if (matches(memoized, key)) {
+        return memoized;
+      }
+      final LogEntryProto parsed = decoder.apply(value);
+      memo.set(i, parsed);
+      return parsed;
+    }
+
+    /** @return true if the key was already in the cache. */
+    boolean put(TermIndex key, LogEntryProto entry) {
+      final boolean hasPrevious = map.put(key, encoder.apply(entry)) != null;
+      if (memo != null) {
+        memo.set(slot(key), entry);
+      }
+      return hasPrevious;
+    }
+
+    /** @return the serialized size of the removed entry, or -1 if the key is not found. */
+    int remove(TermIndex key) {
+      final V removed = map.remove(key);
+      if (memo != null) {
+        memo.updateAndGet(slot(key), e -> matches(e, key) ? null : e);
+      }
+      return removed == null ? -1 : serializedSize.applyAsInt(removed);
+    }
+
+    void forEach(Consumer<LogEntryProto> consumer) {
+      map.values().forEach(v -> consumer.accept(decoder.apply(v)));
+    }
+
+    boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    void clear() {
+      map.clear();
+      if (memo != null) {
+        for (int i = 0; i < SERIALIZED_CACHE_MEMO_SIZE; i++) {
+          memo.set(i, null);
+        }
+      }
+    }
+  }
+
   static class LogRecord {
     /** starting offset in the file */
     private final long offset;
@@ -107,26 +223,48 @@ public final class LogSegment {
 
   static LogSegment newOpenSegment(RaftStorage storage, long start, SizeInBytes maxOpSize,
       SegmentedRaftLogMetrics raftLogMetrics) {
+    return newOpenSegment(storage, start, maxOpSize, false, raftLogMetrics);
+  }
+
+  /** @param serializedCache Should the entries be cached in the serialized form? */
+  static LogSegment newOpenSegment(RaftStorage storage, long start, SizeInBytes maxOpSize,
+      boolean serializedCache, SegmentedRaftLogMetrics raftLogMetrics) {
     Preconditions.assertTrue(start >= 0);
-    return new LogSegment(storage, true, start, start - 1, maxOpSize, raftLogMetrics);
+    return new LogSegment(storage, true, start, start - 1, maxOpSize, serializedCache, raftLogMetrics);
   }
 
   @VisibleForTesting
   static LogSegment newCloseSegment(RaftStorage storage,
       long start, long end, SizeInBytes maxOpSize, SegmentedRaftLogMetrics raftLogMetrics) {
+    return newCloseSegment(storage, start, end, maxOpSize, false, raftLogMetrics);
+  }
+
+  private static LogSegment newCloseSegment(RaftStorage storage, long start, long end, SizeInBytes maxOpSize,
+      boolean serializedCache, SegmentedRaftLogMetrics raftLogMetrics) {
     Preconditions.assertTrue(start >= 0 && end >= start);
-    return new LogSegment(storage, false, start, end, maxOpSize, raftLogMetrics);
+    return new LogSegment(storage, false, start, end, maxOpSize, serializedCache, raftLogMetrics);
   }
 
   static LogSegment newLogSegment(RaftStorage storage, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
-      SegmentedRaftLogMetrics metrics) {
-    return startEnd.isOpen()? newOpenSegment(storage, startEnd.getStartIndex(), maxOpSize, metrics)
-        : newCloseSegment(storage, startEnd.getStartIndex(), startEnd.getEndIndex(), maxOpSize, metrics);
+      boolean serializedCache, SegmentedRaftLogMetrics metrics) {
+    return startEnd.isOpen()? newOpenSegment(storage, startEnd.getStartIndex(), maxOpSize, serializedCache, metrics)
+        : newCloseSegment(storage, startEnd.getStartIndex(), startEnd.getEndIndex(), maxOpSize, serializedCache,
+            metrics);
   }
 
   public static int readSegmentFile(File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
       CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics, Consumer<LogEntryProto> entryConsumer)
       throws IOException {
+    return readSegmentFile(file, startEnd, maxOpSize, corruptionPolicy, raftLogMetrics, entryConsumer, null);
+  }
+
+  /**
+   * @param blockEnd For the block-compressed format, set it to the end position of the last block read.
+   *                 Since the entry offsets are logical, it is the valid length of the file.
+   */
+  private static int readSegmentFile(File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
+      CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics, Consumer<LogEntryProto> entryConsumer,
+      AtomicLong blockEnd) throws IOException {
     int count = 0;
     try(SegmentedRaftLogInputStream in = new SegmentedRaftLogInputStream(file, startEnd, maxOpSize, raftLogMetrics)) {
       for(LogEntryProto prev = null, next; (next = in.nextEntry()) != null; prev = next) {
@@ -138,6 +276,9 @@ public final class LogSegment {
         if (entryConsumer != null) {
           entryConsumer.accept(next);
         }
+        if (blockEnd != null && in.isBlockFormat()) {
+          blockEnd.set(in.getPosition());
+        }
         count++;
       }
     } catch (IOException ioe) {
@@ -159,15 +300,23 @@ public final class LogSegment {
   static LogSegment loadSegment(RaftStorage storage, File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
       boolean keepEntryInCache, Consumer<LogEntryProto> logConsumer, SegmentedRaftLogMetrics raftLogMetrics)
       throws IOException {
-    final LogSegment segment = newLogSegment(storage, startEnd, maxOpSize, raftLogMetrics);
+    return loadSegment(storage, file, startEnd, maxOpSize, false, keepEntryInCache, logConsumer, raftLogMetrics);
+  }
+
+  @SuppressWarnings("parameternumber")
+  static LogSegment loadSegment(RaftStorage storage, File file, LogSegmentStartEnd startEnd, SizeInBytes maxOpSize,
+      boolean serializedCache, boolean keepEntryInCache, Consumer<LogEntryProto> logConsumer,
+      SegmentedRaftLogMetrics raftLogMetrics) throws IOException {
+    final LogSegment segment = newLogSegment(storage, startEnd, maxOpSize, serializedCache, raftLogMetrics);
     final CorruptionPolicy corruptionPolicy = CorruptionPolicy.get(storage, RaftStorage::getLogCorruptionPolicy);
     final boolean isOpen = startEnd.isOpen();
+    final AtomicLong blockEnd = new AtomicLong(-1);
     final int entryCount = readSegmentFile(file, startEnd, maxOpSize, corruptionPolicy, raftLogMetrics, entry -> {
       segment.append(keepEntryInCache || isOpen, entry, Op.LOAD_SEGMENT_FILE);
       if (logConsumer != null) {
         logConsumer.accept(entry);
       }
-    });
+    }, blockEnd);
     LOG.info("Successfully read {} entries from segment file {}", entryCount, file);
 
     final long start = startEnd.getStartIndex();
@@ -184,9 +333,11 @@ public final class LogSegment {
       final Path deleted = FileUtils.deleteFile(file);
       LOG.info("Deleted RaftLog segment since entry count is zero: startEnd={}, path={}", startEnd, deleted);
       return null;
-    } else if (file.length() > segment.getTotalFileSize()) {
+    }
+    final long validLength = blockEnd.get() >= 0? blockEnd.get(): segment.getTotalFileSize();
+    if (file.length() > validLength) {
       // The segment has extra padding, truncate it.
-      FileUtils.truncateFile(file, segment.getTotalFileSize());
+      FileUtils.truncateFile(file, validLength);
     }
 
     try {
@@ -276,15 +427,17 @@ public final class LogSegment {
   /**
    * the entryCache caches the content of log entries.
    */
-  private final Map<TermIndex, LogEntryProto> entryCache = new ConcurrentHashMap<>();
+  private final EntryCache<?> entryCache;
 
+  @SuppressWarnings("parameternumber")
   private LogSegment(RaftStorage storage, boolean isOpen, long start, long end, SizeInBytes maxOpSize,
-      SegmentedRaftLogMetrics raftLogMetrics) {
+      boolean serializedCache, SegmentedRaftLogMetrics raftLogMetrics) {
     this.storage = storage;
     this.isOpen = isOpen;
     this.startIndex = start;
     this.endIndex = end;
     this.maxOpSize = maxOpSize;
+    this.entryCache = EntryCache.newInstance(serializedCache);
     this.cacheLoader = new LogEntryLoader(raftLogMetrics);
   }
 
@@ -388,7 +541,7 @@ public final class LogSegment {
     Preconditions.assertTrue(fromIndex >= startIndex && fromIndex <= endIndex);
     for (long index = endIndex; index >= fromIndex; index--) {
       LogRecord removed = records.remove(Math.toIntExact(index - startIndex));
-      removeEntryCache(removed.getTermIndex(), Op.REMOVE_CACHE);
+      removeEntryCache(removed.getTermIndex());
       totalFileSize = removed.offset;
     }
     isOpen = false;
@@ -436,20 +589,26 @@ public final class LogSegment {
     totalCacheSize.set(0);
   }
 
+  /** Evict the cache and pass the evicted entries to the given consumer. */
+  void evictCache(Consumer<LogEntryProto> evicted) {
+    entryCache.forEach(evicted);
+    evictCache();
+  }
+
   void putEntryCache(TermIndex key, LogEntryProto value, Op op) {
-    final LogEntryProto previous = entryCache.put(key, value);
+    final boolean hasPrevious = entryCache.put(key, value);
     long previousSize = 0;
-    if (previous != null) {
+    if (hasPrevious) {
       // Different threads maybe load LogSegment file into cache at the same time, so duplicate maybe happen
       previousSize = getEntrySize(value, Op.REMOVE_CACHE);
     }
     totalCacheSize.getAndAdd(getEntrySize(value, op) - previousSize);
   }
 
-  void removeEntryCache(TermIndex key, Op op) {
-    LogEntryProto value = entryCache.remove(key);
-    if (value != null) {
-      totalCacheSize.getAndAdd(-getEntrySize(value, op));
+  void removeEntryCache(TermIndex key) {
+    final int removed = entryCache.remove(key);
+    if (removed >= 0) {
+      totalCacheSize.getAndAdd(-getEntrySize(removed));
     }
   }
 
@@ -74,7 +74,12 @@ public final class LogSegmentPath {
     return getLogSegmentPaths(storage.getStorageDir().getCurrentDir().toPath());
   }
 
-  private static List<LogSegmentPath> getLogSegmentPaths(Path dir) throws IOException {
+  /**
+   * Get a list of {@link LogSegmentPath} from the given directory.
+   *
+   * @return a list of log segment paths sorted by the indices.
+   */
+  public static List<LogSegmentPath> getLogSegmentPaths(Path dir) throws IOException {
     final List<LogSegmentPath> list = new ArrayList<>();
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
       for (Path path : stream) {
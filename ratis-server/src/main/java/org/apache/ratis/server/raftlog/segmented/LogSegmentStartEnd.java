@@ -83,15 +83,15 @@ public final class LogSegmentStartEnd implements Comparable<LogSegmentStartEnd>
     }
   }
 
-  long getStartIndex() {
+  public long getStartIndex() {
     return startIndex;
   }
 
-  long getEndIndex() {
+  public long getEndIndex() {
     return Objects.requireNonNull(endIndex, "endIndex");
   }
 
-  boolean isOpen() {
+  public boolean isOpen() {
     return endIndex == null;
   }
 
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.thirdparty.io.netty.buffer.ByteBuf;
+import org.apache.ratis.thirdparty.io.netty.buffer.PooledByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A cache of serialized log entries in direct memory, shared by all the divisions of a server.
+ * <p>
+ * The entries evicted from the {@link LogSegment} caches are kept here
+ * so that a later read can be served without reloading the entire segment file.
+ * The cache is bounded by {@link RaftServerConfigKeys.Log#segmentCacheOffHeapSizeMax(RaftProperties)}
+ * and evicts individual entries in LRU order.
+ * The buffers are allocated from the pooled allocator
+ * and are released when the entries are evicted, replaced or invalidated.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class OffHeapLogEntryCache {
+  public static final Logger LOG = LoggerFactory.getLogger(OffHeapLogEntryCache.class);
+
+  private static final class Key {
+    private final RaftGroupMemberId memberId;
+    private final TermIndex termIndex;
+
+    private Key(RaftGroupMemberId memberId, TermIndex termIndex) {
+      this.memberId = memberId;
+      this.termIndex = termIndex;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return memberId.equals(that.memberId) && termIndex.equals(that.termIndex);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(memberId, termIndex);
+    }
+  }
+
+  /** @return a new cache if it is enabled in the given properties; otherwise, return null. */
+  public static OffHeapLogEntryCache newInstance(RaftProperties properties) {
+    final long maxBytes = RaftServerConfigKeys.Log.segmentCacheOffHeapSizeMax(properties).getSize();
+    return maxBytes > 0 ? new OffHeapLogEntryCache(maxBytes) : null;
+  }
+
+  private final long maxBytes;
+  /** All the entries in access order for LRU eviction. */
+  private final LinkedHashMap<Key, ByteBuf> entries = new LinkedHashMap<>(16, 0.75f, true);
+  /** For each division, map: index -> key, in order to invalidate index ranges. */
+  private final Map<RaftGroupMemberId, NavigableMap<Long, Key>> indices = new HashMap<>();
+  private long bytes;
+
+  OffHeapLogEntryCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /** @return the total size of the cached entries in bytes. */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /** Serialize the given entry to direct memory and put it in the cache. */
+  void put(RaftGroupMemberId memberId, LogEntryProto entry) {
+    final int size = entry.getSerializedSize();
+    if (size > maxBytes) {
+      return;
+    }
+    final ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+    try {
+      final CodedOutputStream out = CodedOutputStream.newInstance(buffer.nioBuffer(0, size));
+      entry.writeTo(out);
+      out.flush();
+      buffer.writerIndex(size);
+    } catch (IOException e) {
+      buffer.release();
+      LOG.warn("{}: Failed to serialize the entry {}", memberId, TermIndex.valueOf(entry), e);
+      return;
+    }
+
+    final Key key = new Key(memberId, TermIndex.valueOf(entry));
+    synchronized (this) {
+      // remove the previous entry with the same index, which may have a different term
+      final Key previousKey = indices.computeIfAbsent(memberId, k -> new TreeMap<>())
+          .put(key.termIndex.getIndex(), key);
+      if (previousKey != null) {
+        remove(previousKey);
+      }
+      entries.put(key, buffer);
+      bytes += size;
+      evict();
+    }
+  }
+
+  private void remove(Key key) {
+    final ByteBuf removed = entries.remove(key);
+    if (removed != null) {
+      bytes -= removed.readableBytes();
+      removed.release();
+    }
+  }
+
+  private void evict() {
+    for (Iterator<Map.Entry<Key, ByteBuf>> i = entries.entrySet().iterator(); bytes > maxBytes && i.hasNext(); ) {
+      final Map.Entry<Key, ByteBuf> eldest = i.next();
+      i.remove();
+      bytes -= eldest.getValue().readableBytes();
+      eldest.getValue().release();
+      removeIndex(eldest.getKey());
+    }
+  }
+
+  private void removeIndex(Key key) {
+    final NavigableMap<Long, Key> map = indices.get(key.memberId);
+    if (map != null) {
+      map.remove(key.termIndex.getIndex(), key);
+      if (map.isEmpty()) {
+        indices.remove(key.memberId);
+      }
+    }
+  }
+
+  /** @return the cached entry, or null if it is not found. */
+  LogEntryProto get(RaftGroupMemberId memberId, TermIndex termIndex) {
+    final ByteBuf buffer;
+    synchronized (this) {
+      buffer = entries.get(new Key(memberId, termIndex));
+      if (buffer == null) {
+        return null;
+      }
+      // retain it since it may be evicted and released concurrently
+      buffer.retain();
+    }
+    try {
+      return LogEntryProto.parseFrom(buffer.nioBuffer());
+    } catch (IOException e) {
+      LOG.warn("{}: Failed to parse the cached entry {}", memberId, termIndex, e);
+      return null;
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /** Remove the entries of the given division with index in the range [from, to]. */
+  synchronized void invalidate(RaftGroupMemberId memberId, long from, long to) {
+    final NavigableMap<Long, Key> map = indices.get(memberId);
+    if (map == null) {
+      return;
+    }
+    final NavigableMap<Long, Key> range = map.subMap(from, true, to, true);
+    for (Key key : range.values()) {
+      remove(key);
+    }
+    range.clear();
+    if (map.isEmpty()) {
+      indices.remove(memberId);
+    }
+  }
+
+  /** Remove all the entries of the given division. */
+  void invalidate(RaftGroupMemberId memberId) {
+    invalidate(memberId, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  public synchronized void clear() {
+    entries.values().forEach(ByteBuf::release);
+    entries.clear();
+    indices.clear();
+    bytes = 0;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.ConcurrentUtils;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Delete the purged segment files in the background, shared by all the divisions of a server.
+ * <p>
+ * The deletions are queued per storage volume, i.e. the parent directory of the division storage directories,
+ * so that the deletions of all the groups on the same volume are batched by a single thread
+ * and rate-limited by {@link RaftServerConfigKeys.Log#purgeBackgroundBandwidth(RaftProperties)}.
+ * Since the log worker no longer waits for the deletions, a large purge does not stall the appends.
+ * <p>
+ * The pending deletions are dropped when the service is closed.
+ * The remaining files are loaded as usual in the next restart and then purged again.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class SegmentPurgeService {
+  public static final Logger LOG = LoggerFactory.getLogger(SegmentPurgeService.class);
+
+  /** @return a new service if it is enabled in the given properties; otherwise, return null. */
+  public static SegmentPurgeService newInstance(RaftProperties properties) {
+    return RaftServerConfigKeys.Log.purgeBackgroundEnabled(properties)
+        ? new SegmentPurgeService(RaftServerConfigKeys.Log.purgeBackgroundBandwidth(properties)) : null;
+  }
+
+  private static final class Deletion {
+    private final String name;
+    private final File file;
+    private final long size;
+    private final Timestamp creationTime = Timestamp.currentTime();
+    /** Called with the number of bytes deleted. */
+    private final LongConsumer onDeleted;
+
+    private Deletion(String name, File file, LongConsumer onDeleted) {
+      this.name = name;
+      this.file = file;
+      this.size = file.length();
+      this.onDeleted = onDeleted;
+    }
+  }
+
+  private final class Volume {
+    private final String name;
+    private final Queue<Deletion> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ExecutorService executor;
+    /** The time, in nanoseconds, before which the next deletion must wait for the rate limit. */
+    private long nextDeletionNanos = System.nanoTime();
+
+    private Volume(File dir) {
+      this.name = dir.getAbsolutePath();
+      this.executor = ConcurrentUtils.newSingleThreadExecutor("SegmentPurge-" + dir.getName());
+    }
+
+    void submit(Deletion deletion) {
+      queue.offer(deletion);
+      pendingBytes.addAndGet(deletion.size);
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.submit(this::drain);
+        } catch (RejectedExecutionException e) {
+          LOG.warn("{}: the service is already closed, skip deleting {}", name, deletion.file);
+        }
+      }
+    }
+
+    /** Delete all the queued files, which may belong to multiple groups, in a single run. */
+    private void drain() {
+      for(;;) {
+        int count = 0;
+        // keep a deletion in the queue until it is done so that it is counted in the lag
+        for (Deletion d; (d = queue.peek()) != null; count++) {
+          if (!delete(d)) {
+            return;
+          }
+          queue.poll();
+        }
+        LOG.debug("{}: deleted {} segment file(s)", name, count);
+
+        scheduled.set(false);
+        // double check to avoid missing a deletion submitted right before the flag is reset
+        if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+          return;
+        }
+      }
+    }
+
+    private boolean delete(Deletion d) {
+      try {
+        throttle(d.size);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.info("{}: interrupted, {} pending deletion(s) are dropped", name, queue.size());
+        return false;
+      }
+      pendingBytes.addAndGet(-d.size);
+      try {
+        FileUtils.deleteIfExists(d.file);
+        LOG.info("{}: Purged RaftLog segment in background: path={}, lag={}",
+            d.name, d.file, d.creationTime.elapsedTime());
+        d.onDeleted.accept(d.size);
+      } catch (IOException e) {
+        LOG.warn(d.name + ": Failed to delete " + d.file, e);
+      }
+      return true;
+    }
+
+    private void throttle(long size) throws InterruptedException {
+      if (bytesPerSecond <= 0) {
+        return;
+      }
+      final long waitNanos = nextDeletionNanos - System.nanoTime();
+      if (waitNanos > 0) {
+        TimeDuration.valueOf(waitNanos, TimeUnit.NANOSECONDS).sleep();
+      }
+      nextDeletionNanos = Math.max(nextDeletionNanos, System.nanoTime())
+          + TimeUnit.SECONDS.toNanos(size) / bytesPerSecond;
+    }
+
+    Timestamp getOldestCreationTime() {
+      final Deletion head = queue.peek();
+      return head == null ? null : head.creationTime;
+    }
+
+    void close() {
+      // do not wait for the pending deletions
+      executor.shutdownNow();
+    }
+  }
+
+  private final long bytesPerSecond;
+  private final Map<File, Volume> volumes = new ConcurrentHashMap<>();
+  private final AtomicLong pendingBytes = new AtomicLong();
+
+  SegmentPurgeService(SizeInBytes bandwidth) {
+    this.bytesPerSecond = bandwidth.getSize();
+  }
+
+  /**
+   * Submit the given file to be deleted in the background.
+   *
+   * @param name the name of the submitter for logging.
+   * @param volume the storage volume containing the file.
+   * @param file the file to be deleted.
+   * @param onDeleted called with the file size after the file is deleted.
+   */
+  void submit(String name, File volume, File file, LongConsumer onDeleted) {
+    volumes.computeIfAbsent(volume.getAbsoluteFile(), Volume::new).submit(new Deletion(name, file, onDeleted));
+  }
+
+  /** @return the total size of the files waiting to be deleted. */
+  public long getPendingBytes() {
+    return pendingBytes.get();
+  }
+
+  /** @return the time elapsed, in milliseconds, since the oldest pending deletion was submitted. */
+  public long getLagMs() {
+    return volumes.values().stream()
+        .map(Volume::getOldestCreationTime)
+        .filter(Objects::nonNull)
+        .mapToLong(Timestamp::elapsedTimeMs)
+        .max().orElse(0L);
+  }
+
+  public void close() {
+    volumes.values().forEach(Volume::close);
+  }
+}
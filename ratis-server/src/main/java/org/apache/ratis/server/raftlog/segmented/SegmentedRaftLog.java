@@ -31,6 +31,7 @@ import org.apache.ratis.server.raftlog.RaftLogBase;
 import org.apache.ratis.server.raftlog.RaftLogIOException;
 import org.apache.ratis.server.storage.RaftStorageMetadata;
 import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.server.util.ServerMemoryBudget;
 import org.apache.ratis.server.raftlog.segmented.LogSegment.LogRecord;
 import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogCache.TruncateIndices;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
@@ -39,21 +40,28 @@ import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.util.AutoCloseableLock;
 import org.apache.ratis.util.AwaitToRun;
+import org.apache.ratis.util.ConcurrentUtils;
+import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import org.apache.ratis.util.UncheckedAutoCloseable;
 
@@ -200,8 +208,16 @@ public final class SegmentedRaftLog extends RaftLogBase {
   private final AwaitToRun cacheEviction;
   private final SegmentedRaftLogWorker fileLogWorker;
   private final long segmentMaxSize;
+  private final int segmentLoadParallelism;
   private final boolean stateMachineCachingEnabled;
   private final SegmentedRaftLogMetrics metrics;
+  private final RaftGroupMemberId memberId;
+  /** Shared by all the divisions of the server; null if it is disabled. */
+  private final OffHeapLogEntryCache offHeapCache;
+  /** Share the state machine data read among the log appenders; null if it is disabled. */
+  private final StateMachineDataReadCache stateMachineDataReadCache;
+  /** The quota of the log cache from the server memory budget; null if the budget is disabled. */
+  private final ServerMemoryBudget.Quota cacheQuota;
 
   @SuppressWarnings({"squid:S2095"}) // Suppress closeable  warning
   private SegmentedRaftLog(Builder b) {
@@ -212,11 +228,25 @@ public final class SegmentedRaftLog extends RaftLogBase {
     this.storage = b.storage;
     this.stateMachine = b.stateMachine;
     this.segmentMaxSize = RaftServerConfigKeys.Log.segmentSizeMax(b.properties).getSize();
+    this.segmentLoadParallelism = RaftServerConfigKeys.Log.segmentLoadParallelism(b.properties);
     this.cache = new SegmentedRaftLogCache(b.memberId, storage, b.properties, getRaftLogMetrics());
     this.cacheEviction = new AwaitToRun(b.memberId + "-cacheEviction", this::checkAndEvictCache).start();
     this.fileLogWorker = new SegmentedRaftLogWorker(b.memberId, stateMachine,
-        b.submitUpdateCommitEvent, b.server, storage, b.properties, getRaftLogMetrics());
+        b.submitUpdateCommitEvent, b.server, storage, b.properties, getRaftLogMetrics(),
+        b.memoryBudget == null ? null : b.memoryBudget.newQuota(b.memberId.getGroupId()), b.purgeService);
     stateMachineCachingEnabled = RaftServerConfigKeys.Log.StateMachineData.cachingEnabled(b.properties);
+    final long readCacheSizeMax = RaftServerConfigKeys.Log.StateMachineData.readCacheSizeMax(b.properties).getSize();
+    this.stateMachineDataReadCache = readCacheSizeMax > 0 ?
+        new StateMachineDataReadCache(readCacheSizeMax, metrics) : null;
+    this.memberId = b.memberId;
+    this.offHeapCache = b.offHeapCache;
+    if (offHeapCache != null) {
+      metrics.addOffHeapCacheSizeInBytes(offHeapCache::getBytes);
+    }
+    if (b.purgeService != null) {
+      metrics.addBackgroundPurgeGauges(b.purgeService::getPendingBytes, b.purgeService::getLagMs);
+    }
+    this.cacheQuota = b.memoryBudget == null ? null : b.memoryBudget.newQuota(b.memberId.getGroupId());
   }
 
   @Override
@@ -240,20 +270,26 @@ public final class SegmentedRaftLog extends RaftLogBase {
 
   private void loadLogSegments(long lastIndexInSnapshot,
       Consumer<LogEntryProto> logConsumer) throws IOException {
-    try(AutoCloseableLock writeLock = writeLock()) {
+    try(AutoCloseableLock writeLock = writeLock();
+        UncheckedAutoCloseable loadLogTimer = getRaftLogMetrics().startLoadLogTimer()) {
       final List<LogSegmentPath> paths = LogSegmentPath.getLogSegmentPaths(storage);
-      int i = 0;
-      for (LogSegmentPath pi : paths) {
-        // During the initial loading, we can only confirm the committed
-        // index based on the snapshot. This means if a log segment is not kept
-        // in cache after the initial loading, later we have to load its content
-        // again for updating the state machine.
-        // TODO we should let raft peer persist its committed index periodically
-        // so that during the initial loading we can apply part of the log
-        // entries to the state machine
-        boolean keepEntryInCache = (paths.size() - i++) <= cache.getMaxCachedSegments();
-        try(UncheckedAutoCloseable ignored = getRaftLogMetrics().startLoadSegmentTimer()) {
-          cache.loadSegment(pi, keepEntryInCache, logConsumer);
+      final int parallelism = Math.min(segmentLoadParallelism, paths.size());
+      if (parallelism > 1) {
+        loadLogSegmentsInParallel(paths, parallelism, logConsumer);
+      } else {
+        int i = 0;
+        for (LogSegmentPath pi : paths) {
+          // During the initial loading, we can only confirm the committed
+          // index based on the snapshot. This means if a log segment is not kept
+          // in cache after the initial loading, later we have to load its content
+          // again for updating the state machine.
+          // TODO we should let raft peer persist its committed index periodically
+          // so that during the initial loading we can apply part of the log
+          // entries to the state machine
+          boolean keepEntryInCache = (paths.size() - i++) <= cache.getMaxCachedSegments();
+          try(UncheckedAutoCloseable ignored = getRaftLogMetrics().startLoadSegmentTimer()) {
+            cache.loadSegment(pi, keepEntryInCache, logConsumer);
+          }
         }
       }
 
@@ -269,6 +305,67 @@ public final class SegmentedRaftLog extends RaftLogBase {
     }
   }
 
+  /** A segment read by {@link #loadLogSegmentsInParallel}. */
+  private static final class LoadedSegment {
+    private final LogSegment segment;
+    /** The entries to be passed to the log consumer. */
+    private final List<LogEntryProto> entries;
+
+    private LoadedSegment(LogSegment segment, List<LogEntryProto> entries) {
+      this.segment = segment;
+      this.entries = entries;
+    }
+  }
+
+  /**
+   * Read the segment files in parallel and then add the segments to the cache in order.
+   * Since the files are read out of order, the entries are buffered and then passed to the consumer in order,
+   * i.e. the consumer gets the same entries in the same order as loading the segments serially.
+   * In order to bound the buffered entries, at most the given parallelism of segments are read ahead.
+   * <p>
+   * The executor is created for the loading and is shut down afterward.
+   */
+  private void loadLogSegmentsInParallel(List<LogSegmentPath> paths, int parallelism,
+      Consumer<LogEntryProto> logConsumer) throws IOException {
+    final ExecutorService executor = ConcurrentUtils.newThreadPoolWithMax(false, parallelism, getName() + "-load-");
+    try {
+      final Deque<CompletableFuture<LoadedSegment>> futures = new ArrayDeque<>(parallelism);
+      int next = 0;
+      for (; next < parallelism; next++) {
+        futures.add(readSegmentAsync(paths, next, logConsumer != null, executor));
+      }
+      while (!futures.isEmpty()) {
+        final LoadedSegment loaded = IOUtils.getFromFuture(futures.poll(), () -> getName() + "-loadLogSegments");
+        if (next < paths.size()) {
+          futures.add(readSegmentAsync(paths, next++, logConsumer != null, executor));
+        }
+        if (logConsumer != null) {
+          loaded.entries.forEach(logConsumer);
+        }
+        if (loaded.segment != null) {
+          cache.addSegment(loaded.segment);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private CompletableFuture<LoadedSegment> readSegmentAsync(List<LogSegmentPath> paths, int i,
+      boolean bufferEntries, ExecutorService executor) {
+    final LogSegmentPath pi = paths.get(i);
+    final boolean keepEntryInCache = (paths.size() - i) <= cache.getMaxCachedSegments();
+    return CompletableFuture.supplyAsync(() -> {
+      final List<LogEntryProto> entries = new ArrayList<>();
+      try (UncheckedAutoCloseable ignored = getRaftLogMetrics().startLoadSegmentTimer()) {
+        final LogSegment segment = cache.readSegment(pi, keepEntryInCache, bufferEntries ? entries::add : null);
+        return new LoadedSegment(segment, entries);
+      } catch (IOException e) {
+        throw new CompletionException("Failed to load " + pi, e);
+      }
+    }, executor);
+  }
+
   @Override
   public LogEntryProto get(long index) throws RaftLogIOException {
     checkLogState();
@@ -293,6 +390,14 @@ public final class SegmentedRaftLog extends RaftLogBase {
     // the entry is not in the segment's cache. Load the cache without holding the lock.
     getRaftLogMetrics().onRaftLogCacheMiss();
     cacheEviction.signal();
+    if (offHeapCache != null) {
+      final LogEntryProto entry = offHeapCache.get(memberId, record.getTermIndex());
+      if (entry != null) {
+        getRaftLogMetrics().onRaftLogOffHeapCacheHit();
+        return entry;
+      }
+      getRaftLogMetrics().onRaftLogOffHeapCacheMiss();
+    }
     return segment.loadCache(record);
   }
 
@@ -309,10 +414,7 @@ public final class SegmentedRaftLog extends RaftLogBase {
     try {
       CompletableFuture<ByteString> future = null;
       if (stateMachine != null) {
-        future = stateMachine.data().read(entry, server.getTransactionContext(entry, false)).exceptionally(ex -> {
-          stateMachine.event().notifyLogFailed(ex, entry);
-          throw new CompletionException("Failed to read state machine data for log entry " + entry, ex);
-        });
+        future = readStateMachineData(entry);
       }
       return newEntryWithData(entry, future);
     } catch (Exception e) {
@@ -322,14 +424,34 @@ public final class SegmentedRaftLog extends RaftLogBase {
     }
   }
 
+  private CompletableFuture<ByteString> readStateMachineData(LogEntryProto entry) {
+    final Supplier<CompletableFuture<ByteString>> reader = () -> stateMachine.data()
+        .read(entry, server.getTransactionContext(entry, false)).exceptionally(ex -> {
+          stateMachine.event().notifyLogFailed(ex, entry);
+          throw new CompletionException("Failed to read state machine data for log entry " + entry, ex);
+        });
+    // share the read among the log appenders only when this is the leader with followers
+    final long[] followerNextIndices = stateMachineDataReadCache == null ? null : server.getFollowerNextIndices();
+    if (followerNextIndices == null || followerNextIndices.length == 0) {
+      return reader.get();
+    }
+    final long minNextIndex = Arrays.stream(followerNextIndices).min().getAsLong();
+    return stateMachineDataReadCache.read(TermIndex.valueOf(entry), minNextIndex, reader);
+  }
+
   private void checkAndEvictCache() {
-    if (cache.shouldEvict()) {
+    // the cache cannot reject entries; when the budget is exhausted, it shrinks itself
+    final boolean overBudget = cacheQuota != null && !cacheQuota.trySetBytes(cache.getTotalCacheSize());
+    if (overBudget || cache.shouldEvict()) {
       try (AutoCloseableLock ignored = writeLock()){
         // TODO if the cache is hitting the maximum size and we cannot evict any
         // segment's cache, should block the new entry appending or new segment
         // allocation.
         cache.evictCache(server.getFollowerNextIndices(), fileLogWorker.getSafeCacheEvictIndex(),
-            server.getLastAppliedIndex());
+            server.getLastAppliedIndex(), offHeapCache == null ? null : e -> offHeapCache.put(memberId, e));
+      }
+      if (cacheQuota != null) {
+        cacheQuota.trySetBytes(cache.getTotalCacheSize());
       }
     }
   }
@@ -363,6 +485,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
   protected CompletableFuture<Long> truncateImpl(long index) {
     checkLogState();
     try(AutoCloseableLock writeLock = writeLock()) {
+      if (offHeapCache != null) {
+        offHeapCache.invalidate(memberId, index, Long.MAX_VALUE);
+      }
       SegmentedRaftLogCache.TruncationSegments ts = cache.truncate(index);
       if (ts != null) {
         Task task = fileLogWorker.truncate(ts, index);
@@ -376,6 +501,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
   @Override
   protected CompletableFuture<Long> purgeImpl(long index) {
     try (AutoCloseableLock writeLock = writeLock()) {
+      if (offHeapCache != null) {
+        offHeapCache.invalidate(memberId, Long.MIN_VALUE, index);
+      }
       SegmentedRaftLogCache.TruncationSegments ts = cache.purge(index);
       updateSnapshotIndexFromStateMachine();
       if (ts != null) {
@@ -528,6 +656,15 @@ public final class SegmentedRaftLog extends RaftLogBase {
       super.close();
       cacheEviction.close();
       cache.close();
+      if (cacheQuota != null) {
+        cacheQuota.close();
+      }
+      if (stateMachineDataReadCache != null) {
+        stateMachineDataReadCache.clear();
+      }
+      if (offHeapCache != null) {
+        offHeapCache.invalidate(memberId);
+      }
     }
     fileLogWorker.close();
     storage.close();
@@ -558,6 +695,9 @@ public final class SegmentedRaftLog extends RaftLogBase {
     private RaftStorage storage;
     private LongSupplier snapshotIndexSupplier = () -> RaftLog.INVALID_LOG_INDEX;
     private RaftProperties properties;
+    private OffHeapLogEntryCache offHeapCache;
+    private ServerMemoryBudget memoryBudget;
+    private SegmentPurgeService purgeService;
 
     private Builder() {}
 
@@ -608,6 +748,21 @@ public final class SegmentedRaftLog extends RaftLogBase {
       return this;
     }
 
+    public Builder setOffHeapCache(OffHeapLogEntryCache offHeapCache) {
+      this.offHeapCache = offHeapCache;
+      return this;
+    }
+
+    public Builder setMemoryBudget(ServerMemoryBudget memoryBudget) {
+      this.memoryBudget = memoryBudget;
+      return this;
+    }
+
+    public Builder setPurgeService(SegmentPurgeService purgeService) {
+      this.purgeService = purgeService;
+      return this;
+    }
+
     public SegmentedRaftLog build() {
       return new SegmentedRaftLog(this);
     }
@@ -417,6 +417,7 @@ public class SegmentedRaftLogCache {
   private final LogSegmentList closedSegments;
   private final RaftStorage storage;
   private final SizeInBytes maxOpSize;
+  private final boolean serializedCache;
   private final SegmentedRaftLogMetrics raftLogMetrics;
 
   private final int maxCachedSegments;
@@ -435,6 +436,7 @@ public class SegmentedRaftLogCache {
     this.maxCachedSegments = RaftServerConfigKeys.Log.segmentCacheNumMax(properties);
     this.maxSegmentCacheSize = RaftServerConfigKeys.Log.segmentCacheSizeMax(properties).getSize();
     this.maxOpSize = RaftServerConfigKeys.Log.Appender.bufferByteLimit(properties);
+    this.serializedCache = RaftServerConfigKeys.Log.segmentCacheSerialized(properties);
   }
 
   int getMaxCachedSegments() {
@@ -443,13 +445,24 @@ public class SegmentedRaftLogCache {
 
   void loadSegment(LogSegmentPath pi, boolean keepEntryInCache,
       Consumer<LogEntryProto> logConsumer) throws IOException {
-    final LogSegment logSegment = LogSegment.loadSegment(storage, pi.getPath().toFile(), pi.getStartEnd(),
-        maxOpSize, keepEntryInCache, logConsumer, raftLogMetrics);
+    final LogSegment logSegment = readSegment(pi, keepEntryInCache, logConsumer);
     if (logSegment != null) {
       addSegment(logSegment);
     }
   }
 
+  /**
+   * Read the given segment file without adding it to this cache.
+   * This method does not access the state of this cache and it can be called concurrently.
+   *
+   * @return the segment read, or null if the segment does not have any entries.
+   */
+  LogSegment readSegment(LogSegmentPath pi, boolean keepEntryInCache,
+      Consumer<LogEntryProto> logConsumer) throws IOException {
+    return LogSegment.loadSegment(storage, pi.getPath().toFile(), pi.getStartEnd(),
+        maxOpSize, serializedCache, keepEntryInCache, logConsumer, raftLogMetrics);
+  }
+
   long getCachedSegmentNum() {
     return closedSegments.countCached();
   }
@@ -467,17 +480,29 @@ public class SegmentedRaftLogCache {
     if (closedSegmentsCacheInfo.getCount() > maxCachedSegments) {
       return true;
     }
+    return getTotalCacheSize(closedSegmentsCacheInfo) > maxSegmentCacheSize;
+  }
+
+  /** @return the total size of the cached entries in both the closed segments and the open segment. */
+  long getTotalCacheSize() {
+    return getTotalCacheSize(closedSegments.getCacheInfo());
+  }
 
-    final long size = closedSegmentsCacheInfo.getSize()
+  private long getTotalCacheSize(CacheInfo closedSegmentsCacheInfo) {
+    return closedSegmentsCacheInfo.getSize()
         + Optional.ofNullable(openSegment).map(LogSegment::getTotalCacheSize).orElse(0L);
-    return size > maxSegmentCacheSize;
   }
 
-  void evictCache(long[] followerIndices, long safeEvictIndex, long lastAppliedIndex) {
+  void evictCache(long[] followerIndices, long safeEvictIndex, long lastAppliedIndex,
+      Consumer<LogEntryProto> evicted) {
     List<LogSegment> toEvict = evictionPolicy.evict(followerIndices,
         safeEvictIndex, lastAppliedIndex, closedSegments, maxCachedSegments);
     for (LogSegment s : toEvict) {
-      s.evictCache();
+      if (evicted != null) {
+        s.evictCache(evicted);
+      } else {
+        s.evictCache();
+      }
     }
   }
 
@@ -504,7 +529,7 @@ public class SegmentedRaftLogCache {
   }
 
   void addOpenSegment(long startIndex) {
-    setOpenSegment(LogSegment.newOpenSegment(storage, startIndex, maxOpSize, raftLogMetrics));
+    setOpenSegment(LogSegment.newOpenSegment(storage, startIndex, maxOpSize, serializedCache, raftLogMetrics));
   }
 
   private void setOpenSegment(LogSegment openSegment) {
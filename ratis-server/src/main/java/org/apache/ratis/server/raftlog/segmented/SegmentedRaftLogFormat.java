@@ -17,21 +17,30 @@
  */
 package org.apache.ratis.server.raftlog.segmented;
 
+import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.Preconditions;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public interface SegmentedRaftLogFormat {
   class Internal {
-    private static final ByteBuffer HEADER;
+    private static final ByteBuffer HEADER = newHeader("RaftLog1");
+    /**
+     * The header of the block-compressed format,
+     * where the entries are grouped into compressed blocks, see {@link org.apache.ratis.proto.RaftProtos.LogBlockProto}.
+     */
+    private static final ByteBuffer BLOCK_HEADER = newHeader("RaftLog2");
     private static final byte TERMINATOR_BYTE = 0;
 
-    static {
-      final byte[] bytes = "RaftLog1".getBytes(StandardCharsets.UTF_8);
+    private static ByteBuffer newHeader(String s) {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
       final ByteBuffer header = ByteBuffer.allocateDirect(bytes.length);
       header.put(bytes).flip();
-      HEADER = header.asReadOnlyBuffer();
+      return header.asReadOnlyBuffer();
     }
   }
 
@@ -43,16 +52,37 @@ public interface SegmentedRaftLogFormat {
     return Internal.HEADER.duplicate();
   }
 
+  static ByteBuffer getHeaderBytebuffer(boolean blockFormat) {
+    return (blockFormat? Internal.BLOCK_HEADER: Internal.HEADER).duplicate();
+  }
+
   static int matchHeader(byte[] bytes, int offset, int length) {
+    return matchHeader(false, bytes, offset, length);
+  }
+
+  static int matchHeader(boolean blockFormat, byte[] bytes, int offset, int length) {
     Preconditions.assertTrue(length <= getHeaderLength());
+    final ByteBuffer header = blockFormat? Internal.BLOCK_HEADER: Internal.HEADER;
     for(int i = 0; i < length; i++) {
-      if (bytes[offset + i] != Internal.HEADER.get(i)) {
+      if (bytes[offset + i] != header.get(i)) {
         return i;
       }
     }
     return length;
   }
 
+  /** @return true iff the given file has the header of the block-compressed format. */
+  static boolean isBlockFormat(File file) throws IOException {
+    final byte[] bytes = new byte[getHeaderLength()];
+    int n = 0;
+    try (InputStream in = FileUtils.newInputStream(file)) {
+      for(int read; n < bytes.length && (read = in.read(bytes, n, bytes.length - n)) != -1; ) {
+        n += read;
+      }
+    }
+    return n == bytes.length && matchHeader(true, bytes, 0, n) == n;
+  }
+
   static byte getTerminator() {
     return Internal.TERMINATOR_BYTE;
   }
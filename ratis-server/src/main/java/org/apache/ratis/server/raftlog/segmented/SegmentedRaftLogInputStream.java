@@ -153,6 +153,10 @@ public class SegmentedRaftLogInputStream implements Closeable {
     }
   }
 
+  boolean isBlockFormat() {
+    return state.isOpened() && reader.isBlockFormat();
+  }
+
   @Override
   public void close() throws IOException {
     if (state.close()) {
@@ -17,7 +17,11 @@
  */
 package org.apache.ratis.server.raftlog.segmented;
 
+import org.apache.ratis.io.Compressor;
+import org.apache.ratis.io.StandardCompressor;
+import org.apache.ratis.proto.RaftProtos.LogBlockProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
@@ -29,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.CompletableFuture;
@@ -55,18 +60,41 @@ public class SegmentedRaftLogOutputStream implements Closeable {
   private final long segmentMaxSize;
   private final long preallocatedSize;
 
+  /** For the block-compressed format; null for the uncompressed format. */
+  private final Compressor compressor;
+  private final int blockSize;
+  private final LogBlockProto.Builder block = LogBlockProto.newBuilder();
+  private final ByteString.Output blockData;
+
   public SegmentedRaftLogOutputStream(File file, boolean append, long segmentMaxSize,
       long preallocatedSize, ByteBuffer byteBuffer)
       throws IOException {
+    this(file, append, segmentMaxSize, preallocatedSize, byteBuffer, null, 0);
+  }
+
+  /**
+   * @param compressor the compressor for writing a new file in the block-compressed format,
+   *                   or null for the uncompressed format.
+   *                   When appending to an existing file, the format of the file is used.
+   * @param blockSize the uncompressed size of a block.
+   */
+  public SegmentedRaftLogOutputStream(File file, boolean append, long segmentMaxSize,
+      long preallocatedSize, ByteBuffer byteBuffer, Compressor compressor, int blockSize)
+      throws IOException {
     this.name = JavaUtils.getClassSimpleName(getClass()) + "(" + file.getName() + ")";
     this.segmentMaxSize = segmentMaxSize;
     this.preallocatedSize = preallocatedSize;
+    final boolean blockFormat = append? SegmentedRaftLogFormat.isBlockFormat(file): compressor != null;
+    // each block records its own compression, so any compressor can be used for appending.
+    this.compressor = !blockFormat? null: compressor != null? compressor: StandardCompressor.DEFLATE;
+    this.blockSize = blockSize;
+    this.blockData = blockFormat? ByteString.newOutput(blockSize): null;
     this.out = BufferedWriteChannel.open(file, append, byteBuffer);
 
     if (!append) {
       // write header
       preallocateIfNecessary(SegmentedRaftLogFormat.getHeaderLength());
-      out.writeToChannel(SegmentedRaftLogFormat.getHeaderBytebuffer());
+      out.writeToChannel(SegmentedRaftLogFormat.getHeaderBytebuffer(blockFormat));
       out.flush();
     }
   }
@@ -84,6 +112,10 @@ public class SegmentedRaftLogOutputStream implements Closeable {
    *   where n is the entry serialized size and the checksum size is 4.
    */
   public void write(LogEntryProto entry) throws IOException {
+    if (compressor != null) {
+      writeToBlock(entry);
+      return;
+    }
     final int serialized = entry.getSerializedSize();
     final int proto = CodedOutputStream.computeUInt32SizeNoTag(serialized) + serialized;
     final int total = proto + 4; // proto and 4-byte checksum
@@ -109,6 +141,54 @@ public class SegmentedRaftLogOutputStream implements Closeable {
     });
   }
 
+  /**
+   * Add the given entry to the current block.
+   * The block is written when it reaches the block size or when this stream is flushed.
+   * <p>
+   * Format: a block is written in the same way as an entry in the uncompressed format,
+   *   i.e. (1) the serialized size, (2) the {@link LogBlockProto} and (3) 4-byte checksum.
+   */
+  private void writeToBlock(LogEntryProto entry) throws IOException {
+    if (block.getOffsetsCount() > 0 && blockData.size() + entry.getSerializedSize() > blockSize) {
+      writeBlock();
+    }
+    block.addOffsets(blockData.size());
+    entry.writeTo(blockData);
+    if (blockData.size() >= blockSize) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    if (compressor == null || block.getOffsetsCount() == 0) {
+      return;
+    }
+    final ByteString.Output compressed = ByteString.newOutput(blockData.size() / 2);
+    try (OutputStream c = compressor.compress(compressed)) {
+      blockData.writeTo(c);
+    }
+    final LogBlockProto proto = block.setCompression(compressor.getName())
+        .setUncompressedSize(blockData.size())
+        .setData(compressed.toByteString())
+        .build();
+    block.clear();
+    blockData.reset();
+
+    final int serialized = proto.getSerializedSize();
+    final int length = CodedOutputStream.computeUInt32SizeNoTag(serialized) + serialized;
+    final byte[] bytes = new byte[length + 4]; // proto and 4-byte checksum
+    final CodedOutputStream encoder = CodedOutputStream.newInstance(bytes);
+    encoder.writeUInt32NoTag(serialized);
+    proto.writeTo(encoder);
+    checksum.reset();
+    checksum.update(bytes, 0, length);
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    buffer.putInt(length, (int) checksum.getValue());
+
+    preallocateIfNecessary(bytes.length);
+    out.write(buffer);
+  }
+
   @Override
   public void close() throws IOException {
     try {
@@ -124,6 +204,7 @@ public class SegmentedRaftLogOutputStream implements Closeable {
    */
   public void flush() throws IOException {
     try {
+      writeBlock();
       out.flush();
     } catch (IOException ioe) {
       String msg = "Failed to flush " + this;
@@ -134,6 +215,7 @@ public class SegmentedRaftLogOutputStream implements Closeable {
 
   CompletableFuture<Void> asyncFlush(ExecutorService executor) throws IOException {
     try {
+      writeBlock();
       return out.asyncFlush(executor);
     } catch (IOException ioe) {
       String msg = "Failed to asyncFlush " + this;
@@ -17,8 +17,10 @@
  */
 package org.apache.ratis.server.raftlog.segmented;
 
+import org.apache.ratis.io.Compressor;
 import org.apache.ratis.io.CorruptedFileException;
 import org.apache.ratis.metrics.Timekeeper;
+import org.apache.ratis.proto.RaftProtos.LogBlockProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.protocol.exceptions.ChecksumException;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
@@ -43,6 +45,9 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.zip.Checksum;
 
@@ -149,6 +154,10 @@ class SegmentedRaftLogReader implements Closeable {
   private final Checksum checksum;
   private final SegmentedRaftLogMetrics raftLogMetrics;
   private final SizeInBytes maxOpSize;
+  /** Is the file in the block-compressed format? */
+  private boolean blockFormat = false;
+  /** The remaining entries of the current block. */
+  private Iterator<LogEntryProto> blockEntries;
 
   SegmentedRaftLogReader(File file, SizeInBytes maxOpSize, SegmentedRaftLogMetrics raftLogMetrics) throws IOException {
     this.file = file;
@@ -179,7 +188,10 @@ class SegmentedRaftLogReader implements Closeable {
     }
 
     Preconditions.assertTrue(readLength <= headerLength);
-    final int matchLength = SegmentedRaftLogFormat.matchHeader(temp, 0, readLength);
+    final int blockMatchLength = SegmentedRaftLogFormat.matchHeader(true, temp, 0, readLength);
+    blockFormat = blockMatchLength > 0 && blockMatchLength == readLength;
+    final int matchLength = blockFormat? blockMatchLength
+        : SegmentedRaftLogFormat.matchHeader(temp, 0, readLength);
     Preconditions.assertTrue(matchLength <= readLength);
 
     if (readLength == headerLength && matchLength == readLength) {
@@ -281,7 +293,46 @@ class SegmentedRaftLogReader implements Closeable {
    * @return The log entry, or null if we hit EOF.
    */
   private LogEntryProto decodeEntry() throws IOException {
-    final int max = maxOpSize.getSizeInt();
+    if (!blockFormat) {
+      final CodedInputStream frame = decodeFrame(maxOpSize.getSizeInt());
+      return frame == null? null: LogEntryProto.parseFrom(frame);
+    }
+
+    if (blockEntries == null || !blockEntries.hasNext()) {
+      // A block contains at most maxOpSize bytes of entries, plus the offsets and the compression overhead.
+      final CodedInputStream frame = decodeFrame(2 * maxOpSize.getSizeInt());
+      if (frame == null) {
+        return null;
+      }
+      blockEntries = decompress(LogBlockProto.parseFrom(frame)).iterator();
+    }
+    return blockEntries.next();
+  }
+
+  static List<LogEntryProto> decompress(LogBlockProto block) throws IOException {
+    final Compressor compressor = Compressor.valueOf(block.getCompression());
+    final byte[] data = new byte[block.getUncompressedSize()];
+    try (InputStream in = compressor.decompress(block.getData().newInput())) {
+      IOUtils.readFully(in, data, 0, data.length);
+    }
+
+    final int n = block.getOffsetsCount();
+    final List<LogEntryProto> entries = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      final int offset = block.getOffsets(i);
+      final int end = i + 1 < n? block.getOffsets(i + 1): data.length;
+      entries.add(LogEntryProto.parseFrom(CodedInputStream.newInstance(data, offset, end - offset)));
+    }
+    return entries;
+  }
+
+  /**
+   * Decode a "frame", which is a log entry in the uncompressed format or a block in the block-compressed format.
+   * This includes reading the frame and validating the checksum.
+   *
+   * @return the stream of the frame content, or null if we hit EOF.
+   */
+  private CodedInputStream decodeFrame(int max) throws IOException {
     limiter.setLimit(max);
     in.mark(max);
 
@@ -305,7 +356,7 @@ class SegmentedRaftLogReader implements Closeable {
     int entryLength = CodedInputStream.readRawVarint32(nextByte, in);
     if (entryLength > max) {
       throw new IOException("Entry has size " + entryLength
-          + ", but MAX_OP_SIZE = " + maxOpSize);
+          + ", but MAX_OP_SIZE = " + max);
     }
 
     final int varintLength = CodedOutputStream.computeUInt32SizeNoTag(
@@ -327,9 +378,7 @@ class SegmentedRaftLogReader implements Closeable {
       throw new ChecksumException(s, limiter.markPos);
     }
 
-    // parse the buffer
-    return LogEntryProto.parseFrom(
-        CodedInputStream.newInstance(temp, varintLength, entryLength));
+    return CodedInputStream.newInstance(temp, varintLength, entryLength);
   }
 
   private void checkBufferSize(int entryLength, int max) {
@@ -347,7 +396,12 @@ class SegmentedRaftLogReader implements Closeable {
     return limiter.getPos();
   }
 
+  boolean isBlockFormat() {
+    return blockFormat;
+  }
+
   void skipFully(long length) throws IOException {
+    blockEntries = null;
     limiter.clearLimit();
     IOUtils.skipFully(limiter, length);
   }
@@ -17,6 +17,7 @@
  */
 package org.apache.ratis.server.raftlog.segmented;
 
+import org.apache.ratis.io.Compressor;
 import org.apache.ratis.metrics.Timekeeper;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
@@ -31,6 +32,7 @@ import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.server.raftlog.RaftLogIOException;
 import org.apache.ratis.server.raftlog.RaftLogIndex;
 import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.server.util.ServerMemoryBudget;
 import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogCache.SegmentFileInfo;
 import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogCache.TruncationSegments;
 import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLog.Task;
@@ -47,7 +49,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
@@ -175,6 +180,10 @@ class SegmentedRaftLogWorker {
 
   private final long segmentMaxSize;
   private final long preallocatedSize;
+  /** The compressor for the block-compressed format; null if the segments are not compressed. */
+  private final Compressor compressor;
+  private final int compressionBlockSize;
+  private final SizeInBytes maxOpSize;
   private final RaftServer.Division server;
 
   private final boolean asyncFlush;
@@ -182,10 +191,17 @@ class SegmentedRaftLogWorker {
   private final ExecutorService flushExecutor;
 
   private final StateMachineDataPolicy stateMachineDataPolicy;
+  /** The quota of the queue from the server memory budget; null if the budget is disabled. */
+  private final ServerMemoryBudget.Quota queueQuota;
+  /** Delete the purged segments in the background; null if it is disabled. */
+  private final SegmentPurgeService purgeService;
+  /** The storage volume, i.e. the parent of the storage directory, for the background purge. */
+  private final File purgeVolume;
 
   SegmentedRaftLogWorker(RaftGroupMemberId memberId, StateMachine stateMachine, Runnable submitUpdateCommitEvent,
                          RaftServer.Division server, RaftStorage storage, RaftProperties properties,
-                         SegmentedRaftLogMetrics metricRegistry) {
+                         SegmentedRaftLogMetrics metricRegistry, ServerMemoryBudget.Quota queueQuota,
+                         SegmentPurgeService purgeService) {
     this.name = memberId + "-" + JavaUtils.getClassSimpleName(getClass());
     LOG.info("new {} for {}", name, storage);
 
@@ -198,6 +214,9 @@ class SegmentedRaftLogWorker {
     final int queueElementLimit = RaftServerConfigKeys.Log.queueElementLimit(properties);
     this.queue =
         new DataBlockingQueue<>(name, queueByteLimit, queueElementLimit, Task::getSerializedSize);
+    this.queueQuota = queueQuota;
+    this.purgeService = purgeService;
+    this.purgeVolume = purgeService == null ? null : storage.getStorageDir().getRoot().getParentFile();
 
     this.segmentMaxSize = RaftServerConfigKeys.Log.segmentSizeMax(properties).getSize();
     this.preallocatedSize = RaftServerConfigKeys.Log.preallocatedSize(properties).getSize();
@@ -222,6 +241,17 @@ class SegmentedRaftLogWorker {
           + ") is less than " + RaftServerConfigKeys.Log.Appender.BUFFER_BYTE_LIMIT_KEY
           + " + 8 (= " + (logEntryLimit + 8) + ")");
     }
+    this.maxOpSize = SizeInBytes.valueOf(logEntryLimit);
+    this.compressor = Optional.ofNullable(RaftServerConfigKeys.Log.segmentCompression(properties))
+        .map(Compressor::valueOf)
+        .orElse(null);
+    this.compressionBlockSize = RaftServerConfigKeys.Log.segmentCompressionBlockSize(properties).getSizeInt();
+    if (compressor != null && compressionBlockSize > logEntryLimit) {
+      throw new IllegalArgumentException(RaftServerConfigKeys.Log.SEGMENT_COMPRESSION_BLOCK_SIZE_KEY
+          + " (= " + compressionBlockSize
+          + ") is greater than " + RaftServerConfigKeys.Log.Appender.BUFFER_BYTE_LIMIT_KEY
+          + " (= " + logEntryLimit + ")");
+    }
     this.unsafeFlush = RaftServerConfigKeys.Log.unsafeFlushEnabled(properties);
     this.asyncFlush = RaftServerConfigKeys.Log.asyncFlushEnabled(properties);
     if (asyncFlush && unsafeFlush) {
@@ -251,6 +281,7 @@ class SegmentedRaftLogWorker {
         workerThreadExecutor, timeout -> LOG.warn("{}: shutdown timeout in " + timeout, name));
     IOUtils.cleanup(LOG, out);
     PlatformDependent.freeDirectBuffer(writeBuffer);
+    Optional.ofNullable(queueQuota).ifPresent(ServerMemoryBudget.Quota::close);
     LOG.info("{} close()", name);
   }
 
@@ -260,6 +291,7 @@ class SegmentedRaftLogWorker {
    */
   void syncWithSnapshot(long lastSnapshotIndex) {
     queue.clear();
+    updateQueueQuota();
     lastWrittenIndex = lastSnapshotIndex;
     flushIndex.setUnconditionally(lastSnapshotIndex, infoIndexChange);
     safeCacheEvictIndex.setUnconditionally(lastSnapshotIndex, infoIndexChange);
@@ -292,9 +324,20 @@ class SegmentedRaftLogWorker {
       }
     }
     task.startTimerOnEnqueue(raftLogMetrics.getEnqueuedTimer());
+    updateQueueQuota();
     return task;
   }
 
+  /**
+   * The queue cannot reject tasks, so the quota is only reserved on a best-effort basis.
+   * It reduces the budget available to the pending requests and then slows down the clients.
+   */
+  private void updateQueueQuota() {
+    if (queueQuota != null) {
+      queueQuota.trySetBytes(queue.getNumBytes());
+    }
+  }
+
   boolean isAlive() {
     return running && !workerThreadExecutor.isTerminated();
   }
@@ -309,6 +352,7 @@ class SegmentedRaftLogWorker {
         Task task = queue.poll(ONE_SECOND);
         if (task != null) {
           task.stopTimerOnDequeue();
+          updateQueueQuota();
           try {
             if (logIOException != null) {
               throw logIOException;
@@ -480,6 +524,10 @@ class SegmentedRaftLogWorker {
         try(UncheckedAutoCloseable ignored = raftLogMetrics.startPurgeTimer()) {
           SegmentFileInfo[] toDeletes = segments.getToDelete();
           for (int i = toDeletes.length - 1; i >= 0; i--) {
+            if (purgeService != null) {
+              purgeService.submit(name, purgeVolume, toDeletes[i].getFile(storage), raftLogMetrics::onBackgroundPurge);
+              continue;
+            }
             final Path deleted = FileUtils.deleteFile(toDeletes[i].getFile(storage));
             LOG.info("{}: Purged RaftLog segment: info={}, path={}", name, toDeletes[i], deleted);
           }
@@ -692,7 +740,12 @@ class SegmentedRaftLogWorker {
         final File fileToTruncate = segments.getToTruncate().getFile(storage);
         Preconditions.assertTrue(fileToTruncate.exists(),
             "File %s to be truncated does not exist", fileToTruncate);
-        FileUtils.truncateFile(fileToTruncate, segments.getToTruncate().getTargetLength());
+        if (SegmentedRaftLogFormat.isBlockFormat(fileToTruncate)) {
+          // the target length is logical; rewrite the remaining entries instead.
+          rewriteSegment(segments.getToTruncate(), fileToTruncate);
+        } else {
+          FileUtils.truncateFile(fileToTruncate, segments.getToTruncate().getTargetLength());
+        }
 
         // rename the file
         final File dstFile = segments.getToTruncate().getNewFile(storage);
@@ -730,6 +783,28 @@ class SegmentedRaftLogWorker {
     }
   }
 
+  /** Rewrite the entries up to the new end index of the given segment, and then replace the segment file. */
+  private void rewriteSegment(SegmentFileInfo info, File file) throws IOException {
+    final long newEndIndex = info.getNewEndIndex();
+    final List<LogEntryProto> entries = new ArrayList<>();
+    LogSegment.readSegmentFile(file, LogSegmentStartEnd.valueOf(info.getStartIndex()), maxOpSize,
+        RaftServerConfigKeys.Log.CorruptionPolicy.EXCEPTION, null, entry -> {
+          if (entry.getIndex() <= newEndIndex) {
+            entries.add(entry);
+          }
+        });
+    Preconditions.assertSame(newEndIndex - info.getStartIndex() + 1, entries.size(), "entries.size()");
+
+    final File tmp = new File(file.getParentFile(), file.getName() + AtomicFileOutputStream.TMP_EXTENSION);
+    try (SegmentedRaftLogOutputStream rewrite = new SegmentedRaftLogOutputStream(tmp, false, segmentMaxSize,
+        preallocatedSize, writeBuffer, compressor, compressionBlockSize)) {
+      for (LogEntryProto entry : entries) {
+        rewrite.write(entry);
+      }
+    }
+    FileUtils.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
   long getFlushIndex() {
     return flushIndex.get();
   }
@@ -748,6 +823,6 @@ class SegmentedRaftLogWorker {
     Preconditions.assertNull(out, "out");
     Preconditions.assertSame(0, writeBuffer.position(), "writeBuffer.position()");
     out = new SegmentedRaftLogOutputStream(file, append, segmentMaxSize,
-        preallocatedSize, writeBuffer);
+        preallocatedSize, writeBuffer, compressor, compressionBlockSize);
   }
 }
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A leader-side cache sharing the state machine data read among the log appenders.
+ * <p>
+ * When the log appenders of the followers read the same entry,
+ * only the first one reads the data from the state machine;
+ * the others either join the in-flight read or get the completed data.
+ * An entry is released once the next indices of all the followers have passed it,
+ * or it is evicted, lowest index first, when the cache exceeds its max size.
+ * <p>
+ * This class is thread-safe.
+ */
+class StateMachineDataReadCache {
+  private static final class Entry {
+    private final TermIndex termIndex;
+    private final CompletableFuture<ByteString> future = new CompletableFuture<>();
+    /** The size of the data; -1 if the read is still in flight. */
+    private long size = -1;
+
+    private Entry(TermIndex termIndex) {
+      this.termIndex = termIndex;
+    }
+  }
+
+  private final long maxBytes;
+  private final SegmentedRaftLogMetrics metrics;
+  /** Map: index -> entry */
+  private final NavigableMap<Long, Entry> entries = new TreeMap<>();
+  /** The total size of the completed reads. */
+  private long bytes;
+
+  StateMachineDataReadCache(long maxBytes, SegmentedRaftLogMetrics metrics) {
+    this.maxBytes = maxBytes;
+    this.metrics = metrics;
+  }
+
+  synchronized long getBytes() {
+    return bytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Read the data of the given entry, sharing the read with the other callers.
+   *
+   * @param termIndex the entry to read.
+   * @param minNextIndex the min next index of all the followers; the entries below it are released.
+   * @param reader to read the data from the state machine.
+   * @return a future of the data.
+   */
+  CompletableFuture<ByteString> read(TermIndex termIndex, long minNextIndex,
+      Supplier<CompletableFuture<ByteString>> reader) {
+    final Entry entry;
+    synchronized (this) {
+      release(minNextIndex);
+      final Entry cached = entries.get(termIndex.getIndex());
+      if (cached != null && cached.termIndex.equals(termIndex)) {
+        if (cached.size >= 0) {
+          metrics.onStateMachineDataReadCacheHit();
+        } else {
+          metrics.onStateMachineDataReadCoalesced();
+        }
+        return cached.future;
+      }
+      metrics.onStateMachineDataReadCacheMiss();
+      entry = new Entry(termIndex);
+      // replace the entry with a different term, if there is any
+      remove(entries.put(termIndex.getIndex(), entry));
+    }
+
+    // read outside the lock
+    final CompletableFuture<ByteString> read;
+    try {
+      read = reader.get();
+    } catch (RuntimeException e) {
+      removeIfSame(entry);
+      entry.future.completeExceptionally(e);
+      throw e;
+    }
+    read.whenComplete((data, e) -> {
+      if (e != null) {
+        removeIfSame(entry);
+        entry.future.completeExceptionally(e);
+      } else {
+        onReadCompleted(entry, data);
+        entry.future.complete(data);
+      }
+    });
+    return entry.future;
+  }
+
+  private synchronized void onReadCompleted(Entry entry, ByteString data) {
+    if (entries.get(entry.termIndex.getIndex()) != entry) {
+      return; // already released
+    }
+    entry.size = data == null ? 0 : data.size();
+    bytes += entry.size;
+    evict();
+  }
+
+  /** Evict the completed entries, lowest index first, until the size is within the limit. */
+  private void evict() {
+    for (Iterator<Entry> i = entries.values().iterator(); bytes > maxBytes && i.hasNext(); ) {
+      final Entry e = i.next();
+      if (e.size >= 0) {
+        i.remove();
+        bytes -= e.size;
+      }
+    }
+  }
+
+  private void remove(Entry entry) {
+    if (entry != null && entry.size > 0) {
+      bytes -= entry.size;
+    }
+  }
+
+  private synchronized void removeIfSame(Entry entry) {
+    if (entries.remove(entry.termIndex.getIndex(), entry)) {
+      remove(entry);
+    }
+  }
+
+  /** Release all the entries with index less than the given index. */
+  synchronized void release(long index) {
+    final NavigableMap<Long, Entry> head = entries.headMap(index, false);
+    for (Map.Entry<Long, Entry> e : head.entrySet()) {
+      remove(e.getValue());
+    }
+    head.clear();
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+}
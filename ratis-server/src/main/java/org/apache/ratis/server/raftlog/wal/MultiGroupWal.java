@@ -0,0 +1,573 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.wal;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.CorruptionPolicy;
+import org.apache.ratis.server.raftlog.LogEntryHeader;
+import org.apache.ratis.server.raftlog.RaftLogIOException;
+import org.apache.ratis.util.CodeInjectionForTesting;
+import org.apache.ratis.util.DataBlockingQueue;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log shared by the {@link WalRaftLog}s of all the groups in a storage volume.
+ * <p>
+ * The records of all the groups are appended to the same sequence of files by a single writer thread,
+ * which syncs once per batch, so that a server with many groups performs sequential writes to one log.
+ * This log keeps an index from log index to {@link Record} for each group,
+ * so that a group can be closed and reopened while the other groups keep this log open.
+ * <p>
+ * A record is: the payload length (4 bytes), the type (1 byte), the group id (16 bytes),
+ * the payload and a CRC32 checksum (4 bytes) of the type, the group id and the payload.
+ * The payload of an {@link Type#ENTRY} record is a serialized {@link LogEntryProto}.
+ * The payload of a {@link Type#TRUNCATE} or a {@link Type#PURGE} record is a log index (8 bytes).
+ * <p>
+ * The files are only deleted from the oldest one,
+ * when all the groups have purged their entries in it (or the group directories are removed),
+ * so that a truncate or a purge record is never deleted before the entries it refers to.
+ * <p>
+ * The writer queue is bounded by {@link RaftServerConfigKeys.Log#queueElementLimit(RaftProperties)}
+ * and {@link RaftServerConfigKeys.Log#queueByteLimit(RaftProperties)};
+ * when it is full, the appends block until the writer catches up.
+ * <p>
+ * In recovery, a partially written record at the end of the last file is truncated.
+ * Any other invalid record is handled according to the {@link CorruptionPolicy}.
+ * Once a write fails, the log fails all the subsequent writes.
+ */
+final class MultiGroupWal implements Closeable {
+  static final Logger LOG = LoggerFactory.getLogger(MultiGroupWal.class);
+
+  static final String WRITE_BATCH = JavaUtils.getClassSimpleName(MultiGroupWal.class) + ".writeBatch";
+
+  static final String DIR_NAME = "wal";
+  private static final String FILE_PREFIX = "wal_";
+  private static final String CORRUPT_SUFFIX = ".corrupt";
+  private static final Pattern FILE_PATTERN = Pattern.compile(FILE_PREFIX + "(\\d+)");
+
+  private static final TimeDuration POLL_TIMEOUT = TimeDuration.valueOf(100, TimeUnit.MILLISECONDS);
+
+  private static final int HEADER_SIZE = 4 + 1 + 16;
+  private static final int CHECKSUM_SIZE = 4;
+
+  enum Type {
+    ENTRY, TRUNCATE, PURGE;
+
+    private static final Type[] VALUES = values();
+
+    static Type valueOf(int ordinal) throws IOException {
+      if (ordinal < 0 || ordinal >= VALUES.length) {
+        throw new IOException("Unexpected record type " + ordinal);
+      }
+      return VALUES[ordinal];
+    }
+  }
+
+  /** A file of this log. */
+  static final class WalFile {
+    private final long id;
+    private final File file;
+    private final FileChannel channel;
+    /** For each group, the largest index of the entries in this file. */
+    private final Map<RaftGroupId, Long> lastIndices = new ConcurrentHashMap<>();
+    private long size;
+
+    private WalFile(long id, File file, boolean create) throws IOException {
+      this.id = id;
+      this.file = file;
+      this.channel = create
+          ? FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+              StandardOpenOption.READ)
+          : FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+      this.size = channel.size();
+    }
+
+    ByteBuffer read(long offset, int length) throws IOException {
+      final ByteBuffer buffer = ByteBuffer.allocate(length);
+      for (long position = offset; buffer.hasRemaining(); ) {
+        final int n = channel.read(buffer, position);
+        if (n < 0) {
+          throw new EOFException("Failed to read " + length + " bytes at " + offset + " from " + file);
+        }
+        position += n;
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close " + file, e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return file.getName();
+    }
+  }
+
+  /** The location of a log entry in this log. */
+  static final class Record {
+    private final LogEntryHeader header;
+    private final int size;
+    /** The entry before it is written; null afterward. */
+    private volatile LogEntryProto pending;
+    private volatile WalFile file;
+    private volatile long offset;
+
+    private Record(LogEntryProto entry) {
+      this.header = LogEntryHeader.valueOf(entry);
+      this.size = entry.getSerializedSize();
+      this.pending = entry;
+    }
+
+    private Record(LogEntryHeader header, WalFile file, long offset, int size) {
+      this.header = header;
+      this.size = size;
+      this.file = file;
+      this.offset = offset;
+    }
+
+    LogEntryHeader getHeader() {
+      return header;
+    }
+
+    private void setWritten(WalFile writtenFile, long writtenOffset) {
+      this.file = writtenFile;
+      this.offset = writtenOffset;
+      this.pending = null;
+    }
+  }
+
+  private static final class Write {
+    private final RaftGroupId groupId;
+    private final Type type;
+    private final long index;
+    private final ByteBuffer buffer;
+    /** The record of an entry; null for the other types. */
+    private final Record record;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Write(RaftGroupId groupId, Type type, long index, byte[] payload, Record record) {
+      this.groupId = groupId;
+      this.type = type;
+      this.index = index;
+      this.record = record;
+      this.buffer = encode(groupId, type, payload);
+    }
+
+    long getSize() {
+      return buffer.capacity();
+    }
+  }
+
+  private static ByteBuffer encode(RaftGroupId groupId, Type type, byte[] payload) {
+    final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length + CHECKSUM_SIZE);
+    buffer.putInt(payload.length);
+    buffer.put((byte) type.ordinal());
+    buffer.putLong(groupId.getUuid().getMostSignificantBits());
+    buffer.putLong(groupId.getUuid().getLeastSignificantBits());
+    buffer.put(payload);
+    final CRC32 checksum = new CRC32();
+    checksum.update(buffer.array(), 4, buffer.position() - 4);
+    buffer.putInt((int) checksum.getValue());
+    buffer.flip();
+    return buffer;
+  }
+
+  private static byte[] toBytes(long index) {
+    return ByteBuffer.allocate(8).putLong(index).array();
+  }
+
+  private final String name;
+  private final File volume;
+  private final File dir;
+  private final long fileSizeMax;
+  private final CorruptionPolicy corruptionPolicy;
+
+  /** The files in ascending order; the last one is the current file.  Accessed by the writer after recovery. */
+  private final Deque<WalFile> files = new ArrayDeque<>();
+  /** For each group, the largest purged index. */
+  private final Map<RaftGroupId, Long> purgedIndices = new ConcurrentHashMap<>();
+  /**
+   * For each group, the index from log index to record.
+   * It is built in recovery and then updated by the {@link WalRaftLog} of the group under its lock.
+   */
+  private final Map<RaftGroupId, NavigableMap<Long, Record>> indices = new ConcurrentHashMap<>();
+
+  private final DataBlockingQueue<Write> queue;
+  private final Daemon writer;
+  private volatile boolean running = true;
+  /** Non-null if a write has failed; then all the subsequent writes fail. */
+  private volatile RaftLogIOException failure;
+
+  MultiGroupWal(File volume, RaftProperties properties, CorruptionPolicy corruptionPolicy) throws IOException {
+    this.volume = volume;
+    this.dir = new File(volume, DIR_NAME);
+    this.name = JavaUtils.getClassSimpleName(getClass()) + ":" + dir;
+    this.fileSizeMax = RaftServerConfigKeys.Log.segmentSizeMax(properties).getSize();
+    this.corruptionPolicy = corruptionPolicy;
+    this.queue = new DataBlockingQueue<>(name, RaftServerConfigKeys.Log.queueByteLimit(properties),
+        RaftServerConfigKeys.Log.queueElementLimit(properties), Write::getSize);
+
+    FileUtils.createDirectories(dir);
+    try {
+      recover();
+    } catch (IOException e) {
+      files.forEach(WalFile::close);
+      throw e;
+    }
+    files.add(new WalFile(nextFileId(), newFile(nextFileId()), true));
+
+    this.writer = Daemon.newBuilder().setName(name + "-writer").setRunnable(this::runWriter).build();
+    writer.start();
+  }
+
+  private long nextFileId() {
+    return files.isEmpty() ? 0 : files.getLast().id + 1;
+  }
+
+  private File newFile(long id) {
+    return new File(dir, FILE_PREFIX + id);
+  }
+
+  private void recover() throws IOException {
+    final File[] listed = Optional.ofNullable(dir.listFiles()).orElse(new File[0]);
+    final NavigableMap<Long, File> sorted = new TreeMap<>();
+    for (File f : listed) {
+      final Matcher matcher = FILE_PATTERN.matcher(f.getName());
+      if (matcher.matches()) {
+        sorted.put(Long.parseLong(matcher.group(1)), f);
+      }
+    }
+
+    int remaining = sorted.size();
+    for (Map.Entry<Long, File> e : sorted.entrySet()) {
+      final WalFile f = new WalFile(e.getKey(), e.getValue(), false);
+      files.add(f);
+      if (!recover(f, --remaining == 0)) {
+        // ignore the files after the corruption
+        for (File ignored : sorted.tailMap(e.getKey(), false).values()) {
+          final File renamed = FileUtils.move(ignored, CORRUPT_SUFFIX);
+          LOG.warn("{}: Renamed {} to {} since it is after a corrupted record", name, ignored, renamed);
+        }
+        break;
+      }
+    }
+    LOG.info("{}: recovered {} file(s) for {} group(s)", name, files.size(), indices.size());
+  }
+
+  /** @return true if the file is recovered completely; false if a corrupted record is found and ignored. */
+  private boolean recover(WalFile f, boolean isLast) throws IOException {
+    for (long position = 0; position < f.size; ) {
+      final int length = readRecord(f, position);
+      if (length >= 0) {
+        position += length;
+        continue;
+      }
+      if (isLast && isPartialTail(f, position)) {
+        LOG.warn("{}: Truncate {} from {} to {} since its last record is partially written",
+            name, f.file, f.size, position);
+      } else {
+        final String message = name + ": Found a corrupted record at position " + position + " in " + f.file
+            + " (size=" + f.size + ", isLast? " + isLast + ")";
+        if (corruptionPolicy == CorruptionPolicy.EXCEPTION) {
+          throw new IOException(message);
+        }
+        LOG.warn("{}; truncate the file and ignore the data after it since the corruption policy is {}",
+            message, corruptionPolicy);
+      }
+      f.channel.truncate(position);
+      f.size = position;
+      return isLast;
+    }
+    return true;
+  }
+
+  /**
+   * Is the invalid record at the given position a partially written record at the end of the file?
+   * It is if the record extends to the end of the file,
+   * or all the remaining bytes are zeros, e.g. the file was extended but the data was not written.
+   */
+  private static boolean isPartialTail(WalFile f, long position) throws IOException {
+    if (position + 4 > f.size) {
+      return true;
+    }
+    final int payloadLength = f.read(position, 4).getInt();
+    if (payloadLength >= 0 && position + HEADER_SIZE + payloadLength + CHECKSUM_SIZE >= f.size) {
+      return true;
+    }
+    for (long p = position; p < f.size; ) {
+      final ByteBuffer buffer = f.read(p, (int) Math.min(f.size - p, 1 << 16));
+      p += buffer.remaining();
+      while (buffer.hasRemaining()) {
+        if (buffer.get() != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** @return the record length, or -1 if the record is incomplete or corrupted. */
+  private int readRecord(WalFile f, long position) throws IOException {
+    if (position + HEADER_SIZE + CHECKSUM_SIZE > f.size) {
+      return -1;
+    }
+    final ByteBuffer header = f.read(position, HEADER_SIZE);
+    final int payloadLength = header.getInt();
+    if (payloadLength < 0 || position + HEADER_SIZE + payloadLength + CHECKSUM_SIZE > f.size) {
+      return -1;
+    }
+    final ByteBuffer rest = f.read(position + HEADER_SIZE, payloadLength + CHECKSUM_SIZE);
+    final CRC32 checksum = new CRC32();
+    checksum.update(header.array(), 4, HEADER_SIZE - 4);
+    checksum.update(rest.array(), 0, payloadLength);
+    if ((int) checksum.getValue() != rest.getInt(payloadLength)) {
+      return -1;
+    }
+
+    final Type type = Type.valueOf(header.get());
+    final RaftGroupId groupId = RaftGroupId.valueOf(new UUID(header.getLong(), header.getLong()));
+    final NavigableMap<Long, Record> records = getIndex(groupId);
+    switch (type) {
+      case ENTRY:
+        final LogEntryProto entry = LogEntryProto.parseFrom(ByteBuffer.wrap(rest.array(), 0, payloadLength));
+        final long index = entry.getIndex();
+        records.put(index, new Record(LogEntryHeader.valueOf(entry), f, position + HEADER_SIZE, payloadLength));
+        f.lastIndices.merge(groupId, index, Math::max);
+        break;
+      case TRUNCATE:
+        records.tailMap(rest.getLong(0), true).clear();
+        break;
+      case PURGE:
+        final long purged = rest.getLong(0);
+        records.headMap(purged, true).clear();
+        purgedIndices.merge(groupId, purged, Math::max);
+        break;
+      default:
+        throw new IllegalStateException("Unexpected type " + type);
+    }
+    return HEADER_SIZE + payloadLength + CHECKSUM_SIZE;
+  }
+
+  /**
+   * @return the index of the given group, which is owned by this log.
+   *         The caller must not update it concurrently with the other callers for the same group.
+   */
+  NavigableMap<Long, Record> getIndex(RaftGroupId groupId) {
+    return indices.computeIfAbsent(groupId, k -> new TreeMap<>());
+  }
+
+  static Record newRecord(LogEntryProto entry) {
+    return new Record(entry);
+  }
+
+  LogEntryProto read(Record record) throws IOException {
+    final LogEntryProto pending = record.pending;
+    if (pending != null) {
+      return pending;
+    }
+    return LogEntryProto.parseFrom(record.file.read(record.offset, record.size));
+  }
+
+  /** Append the entry of the given record; the returned future is completed after the entry is synced. */
+  CompletableFuture<Void> append(RaftGroupId groupId, Record record) {
+    return submit(new Write(groupId, Type.ENTRY, record.header.getIndex(), record.pending.toByteArray(), record));
+  }
+
+  /** Truncate the entries with indices >= the given index. */
+  CompletableFuture<Void> truncate(RaftGroupId groupId, long index) {
+    return submit(new Write(groupId, Type.TRUNCATE, index, toBytes(index), null));
+  }
+
+  /** Purge the entries with indices <= the given index. */
+  CompletableFuture<Void> purge(RaftGroupId groupId, long index) {
+    return submit(new Write(groupId, Type.PURGE, index, toBytes(index), null));
+  }
+
+  /** Submit the given write; block when the queue is full. */
+  private CompletableFuture<Void> submit(Write w) {
+    try {
+      for (;;) {
+        if (!running) {
+          return JavaUtils.completeExceptionally(new IOException(name + " is already closed"));
+        } else if (failure != null) {
+          return JavaUtils.completeExceptionally(failure);
+        } else if (queue.offer(w, POLL_TIMEOUT)) {
+          return w.future;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return JavaUtils.completeExceptionally(new InterruptedIOException(
+          name + ": Interrupted when submitting a " + w.type + " record"));
+    }
+  }
+
+  private void runWriter() {
+    final List<Write> batch = new ArrayList<>();
+    while (running) {
+      try {
+        final Write first = queue.poll(POLL_TIMEOUT);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        for (Write w; (w = queue.poll()) != null; ) {
+          batch.add(w);
+        }
+        CodeInjectionForTesting.execute(WRITE_BATCH, name, null, batch);
+        if (failure != null) {
+          // do not write after a partially written record
+          batch.forEach(w -> w.future.completeExceptionally(failure));
+          continue;
+        }
+        boolean purged = false;
+        for (Write w : batch) {
+          write(w);
+          purged |= w.type == Type.PURGE;
+        }
+        files.getLast().channel.force(false);
+        if (purged) {
+          deleteObsoleteFiles();
+        }
+        batch.forEach(w -> w.future.complete(null));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Throwable t) {
+        LOG.error(name + ": Failed to write a batch of " + batch.size() + " record(s)", t);
+        failure = new RaftLogIOException(name + " already failed", t);
+        batch.forEach(w -> w.future.completeExceptionally(failure));
+      } finally {
+        batch.clear();
+      }
+    }
+    final IOException closed = new IOException(name + " is closed");
+    for (Write w; (w = queue.poll()) != null; ) {
+      w.future.completeExceptionally(closed);
+    }
+  }
+
+  private void write(Write w) throws IOException {
+    WalFile current = files.getLast();
+    if (current.size > 0 && current.size + w.buffer.remaining() > fileSizeMax) {
+      current.channel.force(false);
+      current = new WalFile(current.id + 1, newFile(current.id + 1), true);
+      files.add(current);
+    }
+
+    final long position = current.size;
+    while (w.buffer.hasRemaining()) {
+      current.size += current.channel.write(w.buffer, current.size);
+    }
+    switch (w.type) {
+      case ENTRY:
+        w.record.setWritten(current, position + HEADER_SIZE);
+        current.lastIndices.merge(w.groupId, w.index, Math::max);
+        break;
+      case PURGE:
+        purgedIndices.merge(w.groupId, w.index, Math::max);
+        break;
+      default:
+    }
+  }
+
+  private void deleteObsoleteFiles() {
+    while (files.size() > 1 && isObsolete(files.getFirst())) {
+      final WalFile f = files.removeFirst();
+      f.close();
+      try {
+        FileUtils.deleteFile(f.file);
+        LOG.info("{}: Deleted {}", name, f.file);
+      } catch (IOException e) {
+        LOG.warn(name + ": Failed to delete " + f.file, e);
+      }
+    }
+  }
+
+  private boolean isObsolete(WalFile f) {
+    for (Map.Entry<RaftGroupId, Long> e : f.lastIndices.entrySet()) {
+      final RaftGroupId groupId = e.getKey();
+      final Long purged = purgedIndices.get(groupId);
+      if ((purged == null || purged < e.getValue()) && new File(volume, groupId.getUuid().toString()).exists()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** For testing. */
+  int getNumFiles() {
+    return Optional.ofNullable(dir.list()).map(names -> names.length).orElse(0);
+  }
+
+  @Override
+  public void close() {
+    // do not interrupt the writer since it would close the file channels
+    running = false;
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    files.forEach(WalFile::close);
+    LOG.info("{}: closed", name);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
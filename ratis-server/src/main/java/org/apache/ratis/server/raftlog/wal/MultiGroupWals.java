@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.wal;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.CorruptionPolicy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link MultiGroupWal}s of a server, one for each storage volume,
+ * shared by the {@link WalRaftLog}s of all the divisions of the server.
+ * A log is opened when the first division in its volume acquires it
+ * and is closed when the last division releases it.
+ */
+public final class MultiGroupWals {
+  private static final class Shared {
+    private final MultiGroupWal wal;
+    private int count;
+
+    private Shared(MultiGroupWal wal) {
+      this.wal = wal;
+    }
+  }
+
+  /** Map: volume -> the shared log. */
+  private final Map<File, Shared> wals = new HashMap<>();
+
+  /** Get the log of the given volume and increment its reference count. */
+  synchronized MultiGroupWal acquire(File volume, RaftProperties properties, CorruptionPolicy corruptionPolicy)
+      throws IOException {
+    Shared shared = wals.get(volume);
+    if (shared == null) {
+      shared = new Shared(new MultiGroupWal(volume, properties, corruptionPolicy));
+      wals.put(volume, shared);
+    }
+    shared.count++;
+    return shared.wal;
+  }
+
+  /** Decrement the reference count of the log of the given volume and close it when the count becomes zero. */
+  synchronized void release(File volume) {
+    final Shared shared = wals.get(volume);
+    if (shared != null && --shared.count == 0) {
+      wals.remove(volume);
+      shared.wal.close();
+    }
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.wal;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.metrics.RaftLogMetricsBase;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.LogEntryHeader;
+import org.apache.ratis.server.raftlog.RaftLogBase;
+import org.apache.ratis.server.raftlog.RaftLogFactory;
+import org.apache.ratis.server.raftlog.RaftLogIOException;
+import org.apache.ratis.server.raftlog.RaftLogIndex;
+import org.apache.ratis.server.raftlog.wal.MultiGroupWal.Record;
+import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.server.storage.RaftStorageMetadata;
+import org.apache.ratis.statemachine.TransactionContext;
+import org.apache.ratis.util.AutoCloseableLock;
+import org.apache.ratis.util.Preconditions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A {@link org.apache.ratis.server.raftlog.RaftLog} storing the entries in a {@link MultiGroupWal}
+ * shared with the other groups in the same storage volume.
+ * <p>
+ * This log keeps an index from log index to the location of the entry in the shared log
+ * and reads the entries from the files on demand.
+ * The state machine data is stored inline in the log entries,
+ * i.e. {@link org.apache.ratis.statemachine.StateMachine.DataApi} is not used.
+ */
+public final class WalRaftLog extends RaftLogBase {
+  private final Consumer<Object> infoIndexChange = s -> LOG.info("{}: {}", getName(), s);
+  private final Consumer<Object> traceIndexChange = s -> LOG.trace("{}: {}", getName(), s);
+
+  private final RaftGroupId groupId;
+  private final RaftStorage storage;
+  private final MultiGroupWal wal;
+  private final Runnable releaseWal;
+  private final AtomicBoolean released = new AtomicBoolean();
+  private final Runnable submitUpdateCommitEvent;
+  private final RaftLogMetricsBase metrics;
+
+  private final RaftLogIndex flushIndex = new RaftLogIndex("flushIndex", INVALID_LOG_INDEX);
+  /** Map: log index -> record, owned by the {@link MultiGroupWal} and guarded by the log lock. */
+  private NavigableMap<Long, Record> records = new TreeMap<>();
+
+  WalRaftLog(RaftLogFactory.Context context, MultiGroupWal wal, Runnable releaseWal) {
+    super(context.getMemberId(), context.getSnapshotIndexSupplier(), context.getProperties());
+    this.groupId = context.getMemberId().getGroupId();
+    this.storage = context.getStorage();
+    this.wal = wal;
+    this.releaseWal = releaseWal;
+    this.submitUpdateCommitEvent = Optional.ofNullable(context.getSubmitUpdateCommitEvent()).orElse(() -> { });
+    this.metrics = new RaftLogMetricsBase(context.getMemberId());
+  }
+
+  @Override
+  public RaftLogMetricsBase getRaftLogMetrics() {
+    return metrics;
+  }
+
+  @Override
+  protected void openImpl(long lastIndexInSnapshot, Consumer<LogEntryProto> consumer) throws IOException {
+    try (AutoCloseableLock writeLock = writeLock()) {
+      records = wal.getIndex(groupId);
+      if (consumer != null) {
+        for (Record r : records.values()) {
+          consumer.accept(wal.read(r));
+        }
+      }
+      final long lastIndex = records.isEmpty() ? INVALID_LOG_INDEX : records.lastKey();
+      flushIndex.setUnconditionally(Math.max(lastIndex, lastIndexInSnapshot), traceIndexChange);
+
+      // do not keep the log if it ends before the snapshot in order to avoid holes.
+      if (!records.isEmpty() && lastIndex < lastIndexInSnapshot) {
+        LOG.warn("{}: End log index {} is smaller than last index in snapshot {}",
+            getName(), lastIndex, lastIndexInSnapshot);
+        purgeImpl(lastIndexInSnapshot).whenComplete((purged, e) -> updatePurgeIndex(purged));
+      }
+    }
+  }
+
+  private Record getRecord(long index) {
+    checkLogState();
+    try (AutoCloseableLock readLock = readLock()) {
+      return records.get(index);
+    }
+  }
+
+  @Override
+  public LogEntryProto get(long index) throws RaftLogIOException {
+    final Record r = getRecord(index);
+    if (r == null) {
+      return null;
+    }
+    try {
+      return wal.read(r);
+    } catch (IOException e) {
+      throw new RaftLogIOException("Failed to read log entry " + r.getHeader().getTermIndex() + " from " + wal, e);
+    }
+  }
+
+  @Override
+  public EntryWithData getEntryWithData(long index) throws RaftLogIOException {
+    return newEntryWithData(get(index), null);
+  }
+
+  @Override
+  public TermIndex getTermIndex(long index) {
+    return Optional.ofNullable(getRecord(index)).map(r -> r.getHeader().getTermIndex()).orElse(null);
+  }
+
+  @Override
+  public LogEntryHeader[] getEntries(long startIndex, long endIndex) {
+    checkLogState();
+    try (AutoCloseableLock readLock = readLock()) {
+      if (records.isEmpty() || startIndex > records.lastKey()) {
+        return null;
+      }
+      return records.subMap(startIndex, true, endIndex, false).values().stream()
+          .map(Record::getHeader)
+          .toArray(LogEntryHeader[]::new);
+    }
+  }
+
+  @Override
+  public long getStartIndex() {
+    try (AutoCloseableLock readLock = readLock()) {
+      return records.isEmpty() ? INVALID_LOG_INDEX : records.firstKey();
+    }
+  }
+
+  @Override
+  public TermIndex getLastEntryTermIndex() {
+    checkLogState();
+    try (AutoCloseableLock readLock = readLock()) {
+      final Map.Entry<Long, Record> last = records.lastEntry();
+      return last == null ? null : last.getValue().getHeader().getTermIndex();
+    }
+  }
+
+  @Override
+  public long getFlushIndex() {
+    return flushIndex.get();
+  }
+
+  private void onFlushed(long index) {
+    if (flushIndex.updateToMax(index, traceIndexChange)) {
+      submitUpdateCommitEvent.run();
+    }
+  }
+
+  private CompletableFuture<Long> appendRecord(LogEntryProto entry) {
+    final Record r = MultiGroupWal.newRecord(entry);
+    records.put(entry.getIndex(), r);
+    final long index = entry.getIndex();
+    return wal.append(groupId, r).thenApply(v -> {
+      onFlushed(index);
+      return index;
+    });
+  }
+
+  @Override
+  protected CompletableFuture<Long> appendEntryImpl(LogEntryProto entry, TransactionContext context) {
+    checkLogState();
+    try (AutoCloseableLock writeLock = writeLock()) {
+      validateLogEntry(entry);
+      return appendRecord(entry);
+    }
+  }
+
+  @Override
+  protected List<CompletableFuture<Long>> appendImpl(List<LogEntryProto> entries) {
+    checkLogState();
+    if (entries == null || entries.isEmpty()) {
+      return Collections.emptyList();
+    }
+    try (AutoCloseableLock writeLock = writeLock()) {
+      // Skip the duplicated entries and truncate from the first entry with a different term;
+      // see also MemoryRaftLog#appendImpl.
+      int i = 0;
+      for (; i < entries.size(); i++) {
+        final LogEntryProto e = entries.get(i);
+        final Record existing = records.get(e.getIndex());
+        if (existing == null) {
+          break;
+        } else if (existing.getHeader().getTermIndex().getTerm() != e.getTerm()) {
+          break;
+        }
+      }
+      final List<CompletableFuture<Long>> futures = new ArrayList<>(entries.size() - i + 1);
+      if (i < entries.size() && records.containsKey(entries.get(i).getIndex())) {
+        futures.add(truncateImpl(entries.get(i).getIndex()));
+      }
+      for (; i < entries.size(); i++) {
+        futures.add(appendRecord(entries.get(i)));
+      }
+      return futures;
+    }
+  }
+
+  @Override
+  protected CompletableFuture<Long> truncateImpl(long index) {
+    checkLogState();
+    try (AutoCloseableLock writeLock = writeLock()) {
+      Preconditions.assertTrue(index >= 0);
+      records.tailMap(index, true).clear();
+      // all the earlier writes are done when the truncate record is written
+      return wal.truncate(groupId, index).thenApply(v -> {
+        flushIndex.updateUnconditionally(old -> Math.min(old, index - 1), infoIndexChange);
+        return index;
+      });
+    }
+  }
+
+  @Override
+  protected CompletableFuture<Long> purgeImpl(long index) {
+    try (AutoCloseableLock writeLock = writeLock()) {
+      Preconditions.assertTrue(index >= 0);
+      records.headMap(index, true).clear();
+      return wal.purge(groupId, index).thenApply(v -> index);
+    }
+  }
+
+  @Override
+  public void persistMetadata(RaftStorageMetadata metadata) throws IOException {
+    storage.getMetadataFile().persist(metadata);
+  }
+
+  @Override
+  public RaftStorageMetadata loadMetadata() throws IOException {
+    return storage.getMetadataFile().getMetadata();
+  }
+
+  @Override
+  public CompletableFuture<Long> onSnapshotInstalled(long lastSnapshotIndex) {
+    updateSnapshotIndex(lastSnapshotIndex);
+    flushIndex.updateToMax(lastSnapshotIndex, infoIndexChange);
+    return purgeImpl(lastSnapshotIndex).whenComplete((purged, e) -> updatePurgeIndex(purged));
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (AutoCloseableLock writeLock = writeLock()) {
+      super.close();
+    } finally {
+      if (released.compareAndSet(false, true)) {
+        metrics.unregister();
+        releaseWal.run();
+      }
+    }
+  }
+}
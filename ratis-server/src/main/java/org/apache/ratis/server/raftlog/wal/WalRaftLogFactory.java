@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.wal;
+
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.server.raftlog.RaftLogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Create {@link WalRaftLog}s.
+ * The logs in the same storage volume, i.e. the parent directory of the division storage directories,
+ * share a {@link MultiGroupWal} from the {@link MultiGroupWals} of the server,
+ * which is closed after all the logs are closed.
+ */
+public final class WalRaftLogFactory implements RaftLogFactory {
+  public static final String NAME = "wal";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public RaftLog newRaftLog(Context context) throws IOException {
+    final MultiGroupWals wals = Objects.requireNonNull(context.getMultiGroupWals(),
+        () -> "MultiGroupWals is null for " + context.getMemberId());
+    final File volume = context.getStorage().getStorageDir().getRoot().getAbsoluteFile().getParentFile();
+    final MultiGroupWal wal = wals.acquire(volume, context.getProperties(),
+        context.getStorage().getLogCorruptionPolicy());
+    return new WalRaftLog(context, wal, () -> wals.release(volume));
+  }
+}
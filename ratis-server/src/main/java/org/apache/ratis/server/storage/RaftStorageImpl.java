@@ -41,14 +41,20 @@ public class RaftStorageImpl implements RaftStorage {
   private final StartupOption startupOption;
   private final CorruptionPolicy logCorruptionPolicy;
   private volatile StorageState state = StorageState.UNINITIALIZED;
-  private final MetaFile metaFile = new MetaFile();
+  private final MetaFile metaFile;
 
   RaftStorageImpl(File dir, SizeInBytes freeSpaceMin, StartupOption option, CorruptionPolicy logCorruptionPolicy) {
-    LOG.debug("newRaftStorage: {}, freeSpaceMin={}, option={}, logCorruptionPolicy={}",
-        dir, freeSpaceMin, option, logCorruptionPolicy);
+    this(dir, freeSpaceMin, option, logCorruptionPolicy, null);
+  }
+
+  RaftStorageImpl(File dir, SizeInBytes freeSpaceMin, StartupOption option, CorruptionPolicy logCorruptionPolicy,
+      RaftStorageMetadataJournals metadataJournals) {
+    LOG.debug("newRaftStorage: {}, freeSpaceMin={}, option={}, logCorruptionPolicy={}, metadataJournal={}",
+        dir, freeSpaceMin, option, logCorruptionPolicy, metadataJournals != null);
     this.storageDir = new RaftStorageDirectoryImpl(dir, freeSpaceMin);
     this.logCorruptionPolicy = Optional.ofNullable(logCorruptionPolicy).orElseGet(CorruptionPolicy::getDefault);
     this.startupOption = option;
+    this.metaFile = new MetaFile(metadataJournals);
   }
 
   @Override
@@ -66,11 +72,13 @@ public class RaftStorageImpl implements RaftStorage {
         state = analyzeAndRecoverStorage(true);
       }
     } catch (Throwable t) {
+      metaFile.close();
       unlockOnFailure(storageDir);
       throw t;
     }
 
     if (state != StorageState.NORMAL) {
+      metaFile.close();
       unlockOnFailure(storageDir);
       throw new IOException("Failed to load " + storageDir + ": " + state);
     }
@@ -94,7 +102,7 @@ public class RaftStorageImpl implements RaftStorage {
 
   private void format() throws IOException {
     storageDir.clearDirectory();
-    metaFile.set(storageDir.getMetaFile()).persist(RaftStorageMetadata.getDefault());
+    metaFile.set(storageDir).persist(RaftStorageMetadata.getDefault());
     LOG.info("Storage directory {} has been successfully formatted.", storageDir.getRoot());
   }
 
@@ -114,8 +122,8 @@ public class RaftStorageImpl implements RaftStorage {
       if (!f.exists()) {
         throw new FileNotFoundException("Metadata file " + f + " does not exists.");
       }
-      final RaftStorageMetadata metadata = metaFile.set(f).getMetadata();
-      LOG.info("Read {} from {}", metadata, f);
+      final RaftStorageMetadata metadata = metaFile.set(storageDir).getMetadata();
+      LOG.info("Read {} from {}", metadata, metaFile.get());
       return StorageState.NORMAL;
     } else if (storageState == StorageState.NOT_FORMATTED &&
         storageDir.isCurrentEmpty()) {
@@ -133,6 +141,7 @@ public class RaftStorageImpl implements RaftStorage {
 
   @Override
   public void close() throws IOException {
+    metaFile.close();
     storageDir.unlock();
   }
 
@@ -171,16 +180,40 @@ public class RaftStorageImpl implements RaftStorage {
   }
 
   static class MetaFile {
-    private final AtomicReference<RaftStorageMetadataFileImpl> ref = new AtomicReference<>();
+    private final AtomicReference<RaftStorageMetadataFile> ref = new AtomicReference<>();
+    /** The journals of the server; null if the journal is disabled. */
+    private final RaftStorageMetadataJournals journals;
+    /** The journal of the volume; null if it is disabled or not yet acquired. */
+    private RaftStorageMetadataJournal journal;
+
+    MetaFile(RaftStorageMetadataJournals journals) {
+      this.journals = journals;
+    }
 
     RaftStorageMetadataFile get() {
       return ref.get();
     }
 
-    RaftStorageMetadataFile set(File file) {
-      final RaftStorageMetadataFileImpl impl = new RaftStorageMetadataFileImpl(file);
-      ref.set(impl);
-      return impl;
+    synchronized RaftStorageMetadataFile set(RaftStorageDirectoryImpl dir) throws IOException {
+      final RaftStorageMetadataFile f;
+      if (journals != null) {
+        final File root = dir.getRoot();
+        if (journal == null) {
+          journal = journals.acquire(root.getAbsoluteFile().getParentFile());
+        }
+        f = journal.newMetadataFile(root.getName(), dir.getMetaFile());
+      } else {
+        f = new RaftStorageMetadataFileImpl(dir.getMetaFile());
+      }
+      ref.set(f);
+      return f;
+    }
+
+    synchronized void close() {
+      if (journal != null) {
+        journals.release(journal);
+        journal = null;
+      }
     }
   }
 }
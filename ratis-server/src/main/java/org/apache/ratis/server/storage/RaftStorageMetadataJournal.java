@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.storage;
+
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.util.AtomicFileOutputStream;
+import org.apache.ratis.util.ConcurrentUtils;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * A journal, one for each volume, persisting the metadata of all the raft storages in the volume.
+ * <p>
+ * An update appends a record, (key, term, votedFor), to the journal file,
+ * where the key is the name of the storage directory.
+ * The concurrent updates are group committed,
+ * i.e. an fsync makes all the records appended before it durable.
+ * An update returns only after its record is durable.
+ * <p>
+ * When the number of records exceeds the compaction threshold,
+ * the journal is rewritten atomically with only the latest record of each existing storage directory.
+ * <p>
+ * The metadata file in the storage directory is kept as the format marker.
+ * It is used only when the journal does not have a record for the storage directory,
+ * e.g. when the journal is enabled for an existing storage.
+ */
+final class RaftStorageMetadataJournal {
+  static final Logger LOG = LoggerFactory.getLogger(RaftStorageMetadataJournal.class);
+
+  static final String JOURNAL_FILE_NAME = "raft-meta.journal";
+
+  /** Close the file; it is called when the last reference is released. */
+  void close() {
+    synchronized (syncLock) {
+      synchronized (this) {
+        if (channel == null) {
+          return;
+        }
+        try {
+          channel.close();
+        } catch (IOException e) {
+          LOG.warn("{}: Failed to close", this, e);
+        }
+      }
+    }
+  }
+
+  private final File volume;
+  private final File file;
+  private final int compactionThreshold;
+  /** Guarded by the {@link RaftStorageMetadataJournals} owning this journal. */
+  private int referenceCount = 0;
+
+  /** Map: key -> the latest metadata; guarded by this. */
+  private final Map<String, RaftStorageMetadata> metadata = new HashMap<>();
+  /** Guarded by this. */
+  private FileChannel channel;
+  /** The number of records in the file; guarded by this. */
+  private int numRecords;
+  /** The sequence number of the last appended record; guarded by this. */
+  private long appended = 0;
+
+  private final Object syncLock = new Object();
+  /** The sequence number of the last durable record; guarded by {@link #syncLock}. */
+  private long synced = 0;
+
+  RaftStorageMetadataJournal(File volume, int compactionThreshold) throws IOException {
+    this.volume = volume;
+    this.file = new File(volume, JOURNAL_FILE_NAME);
+    this.compactionThreshold = compactionThreshold;
+    FileUtils.deleteIfExists(AtomicFileOutputStream.getTemporaryFile(file));
+    try {
+      load();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  File getVolume() {
+    return volume;
+  }
+
+  int incrementReferenceCount() {
+    return ++referenceCount;
+  }
+
+  int decrementReferenceCount() {
+    return --referenceCount;
+  }
+
+  /**
+   * Load the records and truncate the partially written record at the end, if there is any.
+   *
+   * @throws IOException if there is an invalid record followed by other data,
+   *                     since truncating it would lose the durable records after it.
+   */
+  private void load() throws IOException {
+    channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    final long size = channel.size();
+    final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, buffer.position()) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+
+    long valid = 0;
+    for (; buffer.hasRemaining(); numRecords++) {
+      final Record r = Record.read(buffer);
+      if (r == null) {
+        if (!Record.isPartialTail(buffer)) {
+          throw new IOException(this + ": Found an invalid record at position " + valid
+              + " followed by other data, file size " + size);
+        }
+        LOG.warn("{}: Truncating the partially written record at position {}, file size {}", this, valid, size);
+        channel.truncate(valid);
+        channel.force(true);
+        break;
+      }
+      metadata.put(r.key, r.metadata);
+      valid = buffer.position();
+    }
+    channel.position(valid);
+    LOG.info("{}: loaded {} record(s) of {} storage(s)", this, numRecords, metadata.size());
+  }
+
+  synchronized RaftStorageMetadata get(String key) {
+    return metadata.get(key);
+  }
+
+  /** Persist the given metadata; it returns after the metadata is durable. */
+  RaftStorageMetadata persist(String key, RaftStorageMetadata newMetadata) throws IOException {
+    final long sequence;
+    synchronized (this) {
+      final ByteBuffer record = new Record(key, newMetadata).toByteBuffer();
+      final long position = channel.position();
+      try {
+        while (record.hasRemaining()) {
+          channel.write(record);
+        }
+      } catch (IOException e) {
+        // remove the partially written record so that the later records are not lost
+        channel.truncate(position);
+        throw e;
+      }
+      metadata.put(key, newMetadata);
+      numRecords++;
+      sequence = ++appended;
+    }
+    sync(sequence);
+    if (needCompaction()) {
+      compact();
+    }
+    return newMetadata;
+  }
+
+  /** Sync the file if the record with the given sequence number is not yet durable. */
+  private void sync(long sequence) throws IOException {
+    synchronized (syncLock) {
+      if (synced >= sequence) {
+        return; // group committed by another fsync
+      }
+      final long last;
+      final FileChannel c;
+      synchronized (this) {
+        last = appended;
+        c = channel;
+      }
+      // fsync outside the lock of this so that the other records can be appended concurrently.
+      c.force(false);
+      synced = last;
+    }
+  }
+
+  private synchronized boolean needCompaction() {
+    return numRecords > compactionThreshold && numRecords > 2 * metadata.size();
+  }
+
+  /** Rewrite the file atomically with only the latest record of each existing storage directory. */
+  private void compact() throws IOException {
+    synchronized (syncLock) {
+      synchronized (this) {
+        if (!needCompaction()) {
+          return;
+        }
+        final int before = numRecords;
+        metadata.keySet().removeIf(key -> !new File(volume, key).isDirectory());
+        try (OutputStream out = new AtomicFileOutputStream(file)) {
+          for (Map.Entry<String, RaftStorageMetadata> e : metadata.entrySet()) {
+            final ByteBuffer record = new Record(e.getKey(), e.getValue()).toByteBuffer();
+            out.write(record.array(), record.arrayOffset(), record.remaining());
+          }
+        }
+        channel.close();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        numRecords = metadata.size();
+        // all the appended records are durable in the new file
+        synced = appended;
+        LOG.info("{}: compacted {} record(s) to {}", this, before, numRecords);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return JavaUtils.getClassSimpleName(getClass()) + ":" + file;
+  }
+
+  /** @return a {@link RaftStorageMetadataFile} backed by this journal. */
+  RaftStorageMetadataFile newMetadataFile(String key, File metaFile) {
+    return new JournalMetadataFile(key, metaFile);
+  }
+
+  private class JournalMetadataFile implements RaftStorageMetadataFile {
+    private final String key;
+    private final File metaFile;
+    private final AtomicReference<RaftStorageMetadata> current = new AtomicReference<>();
+
+    JournalMetadataFile(String key, File metaFile) {
+      this.key = key;
+      this.metaFile = metaFile;
+    }
+
+    @Override
+    public RaftStorageMetadata getMetadata() throws IOException {
+      return ConcurrentUtils.updateAndGet(current, value -> value != null? value: load());
+    }
+
+    private RaftStorageMetadata load() throws IOException {
+      final RaftStorageMetadata m = get(key);
+      return m != null? m: RaftStorageMetadataFileImpl.load(metaFile);
+    }
+
+    @Override
+    public void persist(RaftStorageMetadata newMetadata) throws IOException {
+      ConcurrentUtils.updateAndGet(current, old -> {
+        if (Objects.equals(old, newMetadata)) {
+          return old;
+        }
+        if (!metaFile.exists()) {
+          // the format marker
+          RaftStorageMetadataFileImpl.atomicWrite(RaftStorageMetadata.getDefault(), metaFile);
+        }
+        return RaftStorageMetadataJournal.this.persist(key, newMetadata);
+      });
+    }
+
+    @Override
+    public String toString() {
+      return JavaUtils.getClassSimpleName(RaftStorageMetadataFile.class) + ":" + key
+          + " in " + RaftStorageMetadataJournal.this;
+    }
+  }
+
+  /**
+   * The record format is
+   * (1) 4-byte length of the data,
+   * (2) the data, which is (key, term, votedFor), and
+   * (3) 8-byte CRC32 checksum of the data.
+   */
+  static final class Record {
+    private static final int LENGTH_SIZE = 4;
+    private static final int CHECKSUM_SIZE = 8;
+
+    private final String key;
+    private final RaftStorageMetadata metadata;
+
+    Record(String key, RaftStorageMetadata metadata) {
+      this.key = key;
+      this.metadata = metadata;
+    }
+
+    static long checksum(byte[] array, int offset, int length) {
+      final CRC32 crc = new CRC32();
+      crc.update(array, offset, length);
+      return crc.getValue();
+    }
+
+    ByteBuffer toByteBuffer() throws IOException {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeInt(0); // the length, to be set
+        out.writeUTF(key);
+        out.writeLong(metadata.getTerm());
+        out.writeUTF(metadata.getVotedFor().toString());
+        out.writeLong(0); // the checksum, to be set
+      }
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      final int length = buffer.capacity() - LENGTH_SIZE - CHECKSUM_SIZE;
+      buffer.putInt(0, length);
+      buffer.putLong(LENGTH_SIZE + length, checksum(buffer.array(), LENGTH_SIZE, length));
+      return buffer;
+    }
+
+    /**
+     * Is the invalid record at the position of the given buffer a partially written record at the end?
+     * It is if the record extends to the end of the buffer,
+     * or all the remaining bytes are zeros, e.g. the file was extended but the data was not written.
+     */
+    static boolean isPartialTail(ByteBuffer buffer) {
+      final int remaining = buffer.remaining();
+      if (remaining < LENGTH_SIZE) {
+        return true;
+      }
+      final int length = buffer.getInt(buffer.position());
+      if (length >= 0 && (long) LENGTH_SIZE + length + CHECKSUM_SIZE >= remaining) {
+        return true;
+      }
+      for (int i = buffer.position(); i < buffer.limit(); i++) {
+        if (buffer.get(i) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** @return the record read from the given buffer, or null if the remaining bytes are not a valid record. */
+    static Record read(ByteBuffer buffer) {
+      if (buffer.remaining() < LENGTH_SIZE) {
+        return null;
+      }
+      final int position = buffer.position();
+      final int length = buffer.getInt(position);
+      if (length < 0 || buffer.remaining() < LENGTH_SIZE + length + CHECKSUM_SIZE) {
+        return null;
+      }
+      final int offset = buffer.arrayOffset() + position + LENGTH_SIZE;
+      if (checksum(buffer.array(), offset, length) != buffer.getLong(position + LENGTH_SIZE + length)) {
+        return null;
+      }
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+          buffer.array(), offset, length))) {
+        final String key = in.readUTF();
+        final long term = in.readLong();
+        final RaftPeerId votedFor = RaftPeerId.valueOf(in.readUTF());
+        buffer.position(position + LENGTH_SIZE + length + CHECKSUM_SIZE);
+        return new Record(key, RaftStorageMetadata.valueOf(term, votedFor));
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.storage;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.server.RaftServerConfigKeys;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link RaftStorageMetadataJournal}s of a server, one for each storage volume,
+ * shared by all the divisions of the server.
+ * A journal is opened when the first storage in its volume acquires it
+ * and is closed when the last storage releases it.
+ */
+public final class RaftStorageMetadataJournals {
+  /** @return a new instance if the metadata journal is enabled; otherwise, return null. */
+  public static RaftStorageMetadataJournals newInstance(RaftProperties properties) {
+    return RaftServerConfigKeys.storageMetadataJournalEnabled(properties)
+        ? new RaftStorageMetadataJournals(RaftServerConfigKeys.storageMetadataJournalCompactionThreshold(properties))
+        : null;
+  }
+
+  private final int compactionThreshold;
+  /** Map: volume -> journal */
+  private final Map<File, RaftStorageMetadataJournal> journals = new HashMap<>();
+
+  RaftStorageMetadataJournals(int compactionThreshold) {
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  /** Get the journal of the given volume and increment its reference count. */
+  synchronized RaftStorageMetadataJournal acquire(File volume) throws IOException {
+    final File key = volume.getCanonicalFile();
+    RaftStorageMetadataJournal journal = journals.get(key);
+    if (journal == null) {
+      journal = new RaftStorageMetadataJournal(key, compactionThreshold);
+      journals.put(key, journal);
+    }
+    journal.incrementReferenceCount();
+    return journal;
+  }
+
+  /** Decrement the reference count of the given journal and close it when the count becomes zero. */
+  synchronized void release(RaftStorageMetadataJournal journal) {
+    if (journal.decrementReferenceCount() > 0) {
+      return;
+    }
+    journals.remove(journal.getVolume());
+    journal.close();
+  }
+}
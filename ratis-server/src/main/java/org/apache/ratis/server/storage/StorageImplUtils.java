@@ -56,6 +56,13 @@ public final class StorageImplUtils {
     return new RaftStorageImpl(dir, freeSpaceMin, option, logCorruptionPolicy);
   }
 
+  @SuppressWarnings("java:S2095") // return Closable
+  static RaftStorageImpl newRaftStorage(File dir, SizeInBytes freeSpaceMin, RaftStorage.StartupOption option,
+      Log.CorruptionPolicy logCorruptionPolicy, RaftStorageMetadataJournals metadataJournals) {
+    return new RaftStorageImpl(dir, freeSpaceMin, option, logCorruptionPolicy,
+        metadataJournals);
+  }
+
   /** @return a list of existing subdirectories matching the given storage directory name from the given volumes. */
   static List<File> getExistingStorageSubs(List<File> volumes, String targetSubDir, Map<File, Integer> dirsPerVol) {
     return volumes.stream().flatMap(volume -> {
@@ -93,11 +100,12 @@ public final class StorageImplUtils {
    * @param storageDirName the storage directory name
    * @param option the startup option
    * @param properties the configuration properties
+   * @param metadataJournals the metadata journals of the server, or null if the journal is disabled.
    * @return the chosen storage, which is initialized successfully.
    */
   public static RaftStorageImpl initRaftStorage(String storageDirName, StartupOption option,
-      RaftProperties properties) throws IOException {
-    return new Op(storageDirName, option, properties).run();
+      RaftProperties properties, RaftStorageMetadataJournals metadataJournals) throws IOException {
+    return new Op(storageDirName, option, properties, metadataJournals).run();
   }
 
   private static class Op {
@@ -106,17 +114,20 @@ public final class StorageImplUtils {
 
     private final SizeInBytes freeSpaceMin;
     private final Log.CorruptionPolicy logCorruptionPolicy;
+    private final RaftStorageMetadataJournals metadataJournals;
     private final List<File> dirsInConf;
 
     private final List<File> existingSubs;
     private final Map<File, Integer> dirsPerVol = new HashMap<>();
 
-    Op(String storageDirName, StartupOption option, RaftProperties properties) {
+    Op(String storageDirName, StartupOption option, RaftProperties properties,
+        RaftStorageMetadataJournals metadataJournals) {
       this.storageDirName = storageDirName;
       this.option = option;
 
       this.freeSpaceMin = RaftServerConfigKeys.storageFreeSpaceMin(properties);
       this.logCorruptionPolicy = RaftServerConfigKeys.Log.corruptionPolicy(properties);
+      this.metadataJournals = metadataJournals;
       this.dirsInConf = RaftServerConfigKeys.storageDir(properties);
 
       this.existingSubs = getExistingStorageSubs(dirsInConf, this.storageDirName, dirsPerVol);
@@ -144,7 +155,8 @@ public final class StorageImplUtils {
         final File vol = chooseMin(dirsPerVol);
         final File dir = new File(vol, storageDirName);
         try {
-          final RaftStorageImpl storage = newRaftStorage(dir, freeSpaceMin, StartupOption.FORMAT, logCorruptionPolicy);
+          final RaftStorageImpl storage = newRaftStorage(dir, freeSpaceMin, StartupOption.FORMAT, logCorruptionPolicy,
+              metadataJournals);
           storage.initialize();
           return storage;
         } catch (Throwable e) {
@@ -172,7 +184,8 @@ public final class StorageImplUtils {
 
       final File dir = existingSubs.get(0);
       try {
-        final RaftStorageImpl storage = newRaftStorage(dir, freeSpaceMin, StartupOption.RECOVER, logCorruptionPolicy);
+        final RaftStorageImpl storage = newRaftStorage(dir, freeSpaceMin, StartupOption.RECOVER, logCorruptionPolicy,
+            metadataJournals);
         storage.initialize();
         return storage;
       } catch (IOException e) {
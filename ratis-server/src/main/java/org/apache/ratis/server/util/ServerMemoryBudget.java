@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.util;
+
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.ResourceSemaphore;
+import org.apache.ratis.util.SizeInBytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory budget shared by all the divisions of a server.
+ * <p>
+ * The budget is a pool of megabytes.
+ * Each consumer, e.g. the pending requests or the log cache of a division,
+ * obtains a {@link Quota} from the pool.
+ * The pending requests use {@link Quota#tryAcquire(long)} and reject the requests when the budget is exhausted,
+ * which becomes backpressure to the clients.
+ * The log caches and the log worker queues cannot reject the entries,
+ * so they use {@link Quota#trySetBytes(long)} to reserve as much as they can
+ * and shrink themselves when the budget is exhausted.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class ServerMemoryBudget {
+  public static final Logger LOG = LoggerFactory.getLogger(ServerMemoryBudget.class);
+
+  private static final long ONE_MB = SizeInBytes.ONE_MB.getSize();
+
+  static int roundUpMb(long bytes) {
+    return bytes <= 0 ? 0 : Math.toIntExact((bytes - 1) / ONE_MB + 1);
+  }
+
+  /** @return a new budget if it is enabled in the given properties; otherwise, return null. */
+  public static ServerMemoryBudget newInstance(RaftProperties properties) {
+    final SizeInBytes budget = RaftServerConfigKeys.Memory.budget(properties);
+    return budget.getSize() > 0 ? new ServerMemoryBudget(budget) : null;
+  }
+
+  /** A portion of the budget held by a consumer. */
+  public final class Quota {
+    private final RaftGroupId groupId;
+    private final AtomicLong groupBytes;
+    /** The number of bytes held by this quota. */
+    private long bytes;
+    private boolean closed;
+
+    private Quota(RaftGroupId groupId) {
+      this.groupId = groupId;
+      this.groupBytes = usedBytes.computeIfAbsent(groupId, k -> new AtomicLong());
+    }
+
+    /** @return the number of bytes held by this quota. */
+    public synchronized long getBytes() {
+      return bytes;
+    }
+
+    /** Try to acquire the given number of bytes from the budget. */
+    public synchronized boolean tryAcquire(long toAcquire) {
+      Preconditions.assertTrue(toAcquire >= 0, () -> "toAcquire = " + toAcquire + " < 0");
+      return !closed && trySetBytesImpl(bytes + toAcquire);
+    }
+
+    /** Release the given number of bytes to the budget. */
+    public synchronized void release(long toRelease) {
+      Preconditions.assertTrue(toRelease >= 0, () -> "toRelease = " + toRelease + " < 0");
+      if (!closed) {
+        trySetBytesImpl(Math.max(0, bytes - toRelease));
+      }
+    }
+
+    /**
+     * Try to change the number of bytes held by this quota to the given target.
+     * Shrinking always succeeds.
+     * When growing fails, the quota is unchanged.
+     *
+     * @return true iff this quota is successfully set to the target.
+     */
+    public synchronized boolean trySetBytes(long target) {
+      return !closed && trySetBytesImpl(target);
+    }
+
+    private boolean trySetBytesImpl(long target) {
+      final int diffMb = roundUpMb(target) - roundUpMb(bytes);
+      if (diffMb > 0) {
+        if (!pool.tryAcquire(diffMb)) {
+          return false;
+        }
+      } else if (diffMb < 0) {
+        pool.release(-diffMb);
+      }
+      groupBytes.addAndGet(target - bytes);
+      bytes = target;
+      return true;
+    }
+
+    /** Release all the bytes held by this quota.  Any further acquisition will fail. */
+    public synchronized void close() {
+      if (!closed) {
+        trySetBytesImpl(0);
+        closed = true;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return groupId + "-quota:" + SizeInBytes.valueOf(getBytes());
+    }
+  }
+
+  private final SizeInBytes limit;
+  private final ResourceSemaphore pool;
+  private final ConcurrentMap<RaftGroupId, AtomicLong> usedBytes = new ConcurrentHashMap<>();
+
+  ServerMemoryBudget(SizeInBytes limit) {
+    this.limit = limit;
+    this.pool = new ResourceSemaphore(roundUpMb(limit.getSize()));
+    LOG.info("{}: limit = {}", getClass().getSimpleName(), limit);
+  }
+
+  /** @return a new quota for a consumer in the given group. */
+  public Quota newQuota(RaftGroupId groupId) {
+    return new Quota(groupId);
+  }
+
+  /** @return the number of megabytes used in the entire budget. */
+  public int getUsedMegaByteSize() {
+    return pool.used();
+  }
+
+  /** @return the number of bytes used by the given group. */
+  public long getUsedBytes(RaftGroupId groupId) {
+    final AtomicLong used = usedBytes.get(groupId);
+    return used == null ? 0 : used.get();
+  }
+
+  /** @return true iff the entire budget has been used up. */
+  public boolean isExhausted() {
+    return pool.availablePermits() <= 0;
+  }
+
+  /** Remove the usage tracking of the given group after all its quotas are closed. */
+  public void removeGroup(RaftGroupId groupId) {
+    usedBytes.computeIfPresent(groupId, (k, v) -> v.get() == 0 ? null : v);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + ":" + pool.used() + "MB/" + limit;
+  }
+}
@@ -56,8 +56,9 @@ public final class ServerStringUtils {
         + ",previous=" + TermIndex.valueOf(request.getPreviousLog())
         + ",leaderCommit=" + request.getLeaderCommit()
         + ",initializing? " + request.getInitializing()
-        + "," + (entries.isEmpty()? "HEARTBEAT" : "entries: " +
-        LogProtoUtils.toLogEntriesShortString(entries, stateMachineToString));
+        + "," + (!entries.isEmpty()? "entries: " + LogProtoUtils.toLogEntriesShortString(entries, stateMachineToString)
+        : request.hasCompressedEntries()? "compressed entries"
+        : "HEARTBEAT");
   }
 
   public static String toAppendEntriesReplyString(AppendEntriesReplyProto reply) {
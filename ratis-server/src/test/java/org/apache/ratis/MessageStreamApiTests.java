@@ -25,6 +25,7 @@ import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.impl.MiniRaftCluster;
 import org.apache.ratis.statemachine.impl.SimpleStateMachine4Testing;
 import org.apache.ratis.statemachine.StateMachine;
@@ -35,7 +36,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.event.Level;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public abstract class MessageStreamApiTests<CLUSTER extends MiniRaftCluster> extends BaseTest
     implements MiniRaftCluster.Factory.Get<CLUSTER> {
@@ -96,6 +99,27 @@ public abstract class MessageStreamApiTests<CLUSTER extends MiniRaftCluster> ext
     RaftClientConfigKeys.MessageStream.setSubmessageSize(p);
   }
 
+  @Test
+  public void testStreamAsyncWithSpill() throws Exception {
+    final RaftProperties p = getProperties();
+    RaftClientConfigKeys.MessageStream.setSubmessageSize(p, SUBMESSAGE_SIZE);
+    RaftServerConfigKeys.Write.MessageStream.setSpillThreshold(p, SizeInBytes.valueOf("2kb"));
+    p.setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY,
+        SimpleStateMachine4Testing.class, StateMachine.class);
+
+    runWithNewCluster(NUM_SERVERS, cluster -> {
+      runTestStreamAsync(cluster);
+
+      // the spill files are deleted
+      final File tmpDir = RaftTestUtil.waitForLeader(cluster).getRaftStorage().getStorageDir().getTmpDir();
+      final String[] files = tmpDir.list((dir, name) -> name.startsWith("message-stream-"));
+      Assertions.assertTrue(files == null || files.length == 0, () -> Arrays.toString(files));
+    });
+    RaftClientConfigKeys.MessageStream.setSubmessageSize(p);
+    RaftServerConfigKeys.Write.MessageStream.setSpillThreshold(p,
+        RaftServerConfigKeys.Write.MessageStream.SPILL_THRESHOLD_DEFAULT);
+  }
+
   void runTestStreamAsync(CLUSTER cluster) throws Exception {
     RaftTestUtil.waitForLeader(cluster);
 
@@ -18,6 +18,7 @@
 package org.apache.ratis;
 
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.RaftClientConfigKeys;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientReply;
@@ -41,6 +42,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.event.Level;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -147,6 +149,18 @@ public abstract class ReadOnlyRequestTests<CLUSTER extends MiniRaftCluster>
     runWithNewCluster(NUM_SERVERS, this::testFollowerReadOnlyImpl);
   }
 
+  @Test
+  public void testFollowerLinearizableReadWithLeaderLease() throws Exception {
+    // linearizable reads in the followers do not use the follower lease
+    getProperties().setEnum(RaftServerConfigKeys.Read.OPTION_KEY, RaftServerConfigKeys.Read.Option.LINEARIZABLE);
+    RaftServerConfigKeys.Read.setLeaderLeaseEnabled(getProperties(), true);
+    try {
+      runWithNewCluster(NUM_SERVERS, this::testFollowerReadOnlyImpl);
+    } finally {
+      RaftServerConfigKeys.Read.setLeaderLeaseEnabled(getProperties(), false);
+    }
+  }
+
   private void testFollowerReadOnlyImpl(CLUSTER cluster) throws Exception {
     try {
       RaftTestUtil.waitForLeader(cluster);
@@ -206,6 +220,80 @@ public abstract class ReadOnlyRequestTests<CLUSTER extends MiniRaftCluster>
     }
   }
 
+  @Test
+  public void testFollowerLinearizableReadBatched() throws Exception {
+    getProperties().setEnum(RaftServerConfigKeys.Read.OPTION_KEY, RaftServerConfigKeys.Read.Option.LINEARIZABLE);
+    RaftServerConfigKeys.Read.ReadIndex.setBatchEnabled(getProperties(), true);
+    RaftClientConfigKeys.Read.setFollowerRoutingEnabled(getProperties(), true);
+    try {
+      runWithNewCluster(NUM_SERVERS, this::testFollowerReadOnlyBatchedImpl);
+    } finally {
+      RaftServerConfigKeys.Read.ReadIndex.setBatchEnabled(getProperties(), false);
+      RaftClientConfigKeys.Read.setFollowerRoutingEnabled(getProperties(), false);
+    }
+  }
+
+  private void testFollowerReadOnlyBatchedImpl(CLUSTER cluster) throws Exception {
+    try {
+      RaftTestUtil.waitForLeader(cluster);
+
+      try (RaftClient client = cluster.createClient(cluster.getLeader().getId())) {
+        for (int i = 1; i <= 10; i++) {
+          final RaftClientReply reply = client.io().send(incrementMessage);
+          Assertions.assertTrue(reply.isSuccess());
+
+          final List<CompletableFuture<RaftClientReply>> reads = new ArrayList<>();
+          for (int j = 0; j < 10; j++) {
+            reads.add(client.async().sendReadOnlyUnordered(queryMessage));
+          }
+          for (CompletableFuture<RaftClientReply> read : reads) {
+            final RaftClientReply readReply = read.get(5, TimeUnit.SECONDS);
+            Assertions.assertNotEquals(cluster.getLeader().getId(), readReply.getServerId());
+            Assertions.assertEquals(i, retrieve(readReply));
+          }
+        }
+      }
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
+  @Test
+  public void testFollowerLeaseLocalRead() throws Exception {
+    getProperties().setEnum(RaftServerConfigKeys.Read.OPTION_KEY, RaftServerConfigKeys.Read.Option.BOUNDED_STALENESS);
+    RaftServerConfigKeys.Read.setLeaderLeaseEnabled(getProperties(), true);
+    try {
+      runWithNewCluster(NUM_SERVERS, this::testFollowerLeaseLocalReadImpl);
+    } finally {
+      RaftServerConfigKeys.Read.setLeaderLeaseEnabled(getProperties(), false);
+    }
+  }
+
+  private void testFollowerLeaseLocalReadImpl(CLUSTER cluster) throws Exception {
+    try {
+      RaftTestUtil.waitForLeader(cluster);
+
+      final RaftPeerId followerId = cluster.getFollowers().get(0).getId();
+      try (RaftClient client = cluster.createClient(cluster.getLeader().getId())) {
+        long previous = 0;
+        for (int i = 1; i <= 10; i++) {
+          final RaftClientReply reply = client.io().send(incrementMessage);
+          Assertions.assertTrue(reply.isSuccess());
+          // a lease read is bounded-staleness, it may not include the latest write
+          final long value = retrieve(client.io().sendReadOnly(queryMessage, followerId));
+          Assertions.assertTrue(value >= previous && value <= i, () -> "value=" + value);
+          previous = value;
+        }
+
+        final TimeDuration maxStaleness = RaftServerConfigKeys.Read.FollowerLease.maxStaleness(getProperties());
+        maxStaleness.multiply(2).sleep();
+        Assertions.assertEquals(10, retrieve(client.io().sendReadOnly(queryMessage, followerId)));
+      }
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testFollowerLinearizableReadFailWhenLeaderDown() throws Exception {
     getProperties().setEnum(RaftServerConfigKeys.Read.OPTION_KEY, RaftServerConfigKeys.Read.Option.LINEARIZABLE);
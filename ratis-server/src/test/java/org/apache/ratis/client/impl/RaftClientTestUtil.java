@@ -41,7 +41,7 @@ public interface RaftClientTestUtil {
     return ((RaftClientImpl)client).newRaftClientRequest(server, callId, message, type, slidingWindowEntry);
   }
 
-  static void handleReply(RaftClientRequest request, RaftClientReply reply, RaftClient client) {
-    ((RaftClientImpl)client).handleReply(request, reply);
+  static RaftClientReply handleReply(RaftClientRequest request, RaftClientReply reply, RaftClient client) {
+    return ((RaftClientImpl)client).handleReply(request, reply);
   }
 }
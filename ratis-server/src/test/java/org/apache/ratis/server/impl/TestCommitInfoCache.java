@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.util.ProtoUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestCommitInfoCache extends BaseTest {
+  static final RaftPeer S0 = RaftPeer.newBuilder().setId("s0").build();
+  static final RaftPeer S1 = RaftPeer.newBuilder().setId("s1").build();
+
+  @Test
+  public void testVersion() {
+    final CommitInfoCache cache = new CommitInfoCache();
+    final List<CommitInfoProto> infos = Arrays.asList(
+        ProtoUtils.toCommitInfoProto(S0, 10), ProtoUtils.toCommitInfoProto(S1, 5));
+    final long v1 = cache.getVersion(infos);
+    Assertions.assertTrue(v1 > 0);
+    Assertions.assertEquals(v1, cache.getVersion(infos));
+
+    final List<CommitInfoProto> changed = Arrays.asList(
+        ProtoUtils.toCommitInfoProto(S0, 10), ProtoUtils.toCommitInfoProto(S1, 6));
+    final long v2 = cache.getVersion(changed);
+    Assertions.assertEquals(v1 + 1, v2);
+    Assertions.assertEquals(v2, cache.getVersion(changed));
+  }
+
+  @Test
+  public void testUpdateAndGetChanged() {
+    final CommitInfoCache sent = new CommitInfoCache();
+    final CommitInfoProto s0 = ProtoUtils.toCommitInfoProto(S0, 10);
+    final CommitInfoProto s1 = ProtoUtils.toCommitInfoProto(S1, 5);
+    Assertions.assertEquals(Arrays.asList(s0, s1), sent.updateAndGetChanged(Arrays.asList(s0, s1)));
+    Assertions.assertEquals(Collections.emptyList(), sent.updateAndGetChanged(Arrays.asList(s0, s1)));
+
+    final CommitInfoProto s1Next = ProtoUtils.toCommitInfoProto(S1, 8);
+    Assertions.assertEquals(Collections.singletonList(s1Next), sent.updateAndGetChanged(Arrays.asList(s0, s1Next)));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.ClientInvocationId;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+public class TestCompactRetryCache extends BaseTest {
+  static final int WINDOW_SIZE = 16;
+
+  @Test
+  public void testWindow() {
+    final CompactRetryCache cache = new CompactRetryCache(WINDOW_SIZE, TimeDuration.valueOf(1, TimeUnit.MINUTES));
+    final ClientId clientId = ClientId.randomId();
+
+    // apply out of order
+    final int n = 3 * WINDOW_SIZE;
+    for (int i = n - 1; i >= 0; i -= 2) {
+      cache.onApplied(ClientInvocationId.valueOf(clientId, i), 100 + i);
+    }
+    for (int i = 0; i < n; i += 2) {
+      cache.onApplied(ClientInvocationId.valueOf(clientId, i), 100 + i);
+    }
+
+    // only the largest call ids are retained
+    for (int i = 0; i < n; i++) {
+      final long expected = i < n - WINDOW_SIZE ? -1 : 100 + i;
+      Assertions.assertEquals(expected, cache.getAppliedIndex(ClientInvocationId.valueOf(clientId, i)), "i=" + i);
+    }
+    Assertions.assertEquals(-1, cache.getAppliedIndex(ClientInvocationId.valueOf(ClientId.randomId(), n - 1)));
+  }
+
+  @Test
+  public void testPersistAndLoad() throws Exception {
+    final File dir = getTestDir();
+    final File file = new File(dir, CompactRetryCache.FILE_NAME);
+    try {
+      FileUtils.createDirectories(dir);
+      final TimeDuration expiryTime = TimeDuration.valueOf(1, TimeUnit.MINUTES);
+      final CompactRetryCache cache = new CompactRetryCache(WINDOW_SIZE, expiryTime);
+      final ClientId[] clientIds = {ClientId.randomId(), ClientId.randomId(), ClientId.randomId()};
+      for (int c = 0; c < clientIds.length; c++) {
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+          cache.onApplied(ClientInvocationId.valueOf(clientIds[c], i), 1000L * c + i);
+        }
+      }
+      cache.persist(file);
+
+      final CompactRetryCache loaded = new CompactRetryCache(WINDOW_SIZE, expiryTime);
+      loaded.load(file);
+      Assertions.assertEquals(clientIds.length, loaded.getNumClients());
+      for (int c = 0; c < clientIds.length; c++) {
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+          Assertions.assertEquals(1000L * c + i, loaded.getAppliedIndex(ClientInvocationId.valueOf(clientIds[c], i)));
+        }
+      }
+
+      // expired clients are not persisted
+      final TimeDuration shortExpiryTime = TimeDuration.valueOf(10, TimeUnit.MILLISECONDS);
+      final CompactRetryCache expiring = new CompactRetryCache(WINDOW_SIZE, shortExpiryTime);
+      expiring.load(file);
+      Thread.sleep(50);
+      expiring.persist(file);
+      Assertions.assertEquals(0, expiring.getNumClients());
+    } finally {
+      FileUtils.deleteFully(dir);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.datastream;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.impl.ClientProtoUtils;
+import org.apache.ratis.client.impl.DataStreamClientImpl.DataStreamOutputImpl;
+import org.apache.ratis.datastream.impl.DataStreamErasureCoder;
+import org.apache.ratis.datastream.impl.DataStreamReplyByteBuffer;
+import org.apache.ratis.io.StandardWriteOption;
+import org.apache.ratis.proto.RaftProtos.DataStreamPacketHeaderProto.Type;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.ClientInvocationId;
+import org.apache.ratis.protocol.DataStreamReply;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.RoutingTable;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.statemachine.StateMachine.DataChannel;
+import org.apache.ratis.statemachine.StateMachine.DataStream;
+import org.apache.ratis.statemachine.impl.BaseStateMachine;
+import org.apache.ratis.util.JavaUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+public class TestNettyDataStreamErasureCodingWithGrpcCluster extends BaseTest
+    implements MiniRaftClusterWithRpcTypeGrpcAndDataStreamTypeNetty.FactoryGet {
+  {
+    setStateMachine(ShardStateMachine.class);
+    DataStreamTestUtils.enableResourceLeakDetector();
+  }
+
+  /** Store the shard stream of each stream in memory. */
+  public static class ShardStateMachine extends BaseStateMachine {
+    private final ConcurrentMap<ClientInvocationId, ShardDataStream> streams = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<DataStream> stream(RaftClientRequest request) {
+      final ShardDataStream s = new ShardDataStream();
+      streams.put(ClientInvocationId.valueOf(request), s);
+      return CompletableFuture.completedFuture(s);
+    }
+
+    @Override
+    public CompletableFuture<?> link(DataStream stream, LogEntryProto entry) {
+      if (stream == null) {
+        return JavaUtils.completeExceptionally(new IllegalStateException("Null stream: entry=" + entry));
+      }
+      return CompletableFuture.completedFuture(null);
+    }
+
+    ByteBuffer getShardStream(ClientInvocationId invocationId) {
+      return ByteBuffer.wrap(streams.get(invocationId).getDataChannel().toByteArray());
+    }
+  }
+
+  static class ShardDataStream implements DataStream {
+    private final ShardDataChannel channel = new ShardDataChannel();
+
+    @Override
+    public ShardDataChannel getDataChannel() {
+      return channel;
+    }
+
+    @Override
+    public CompletableFuture<?> cleanUp() {
+      channel.close();
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  static class ShardDataChannel implements DataChannel {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private volatile boolean open = true;
+
+    synchronized byte[] toByteArray() {
+      return out.toByteArray();
+    }
+
+    @Override
+    public void force(boolean metadata) {
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) {
+      final int remaining = src.remaining();
+      final byte[] bytes = new byte[remaining];
+      src.get(bytes);
+      out.write(bytes, 0, remaining);
+      return remaining;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+
+  static RoutingTable getRoutingTable(List<RaftPeer> peers, RaftPeer primary, int parityShards) {
+    final List<RaftPeerId> others = peers.stream()
+        .map(RaftPeer::getId).filter(id -> !id.equals(primary.getId()))
+        .collect(Collectors.toList());
+    return RoutingTable.newBuilder()
+        .addSuccessors(primary.getId(), others)
+        .setParityShards(parityShards)
+        .build();
+  }
+
+  @Test
+  public void testErasureCoding() throws Exception {
+    runWithNewCluster(3, cluster -> runTestErasureCoding(cluster, 1));
+  }
+
+  @Test
+  public void testErasureCodingTwoParityShards() throws Exception {
+    runWithNewCluster(5, cluster -> runTestErasureCoding(cluster, 2));
+  }
+
+  void runTestErasureCoding(MiniRaftClusterWithRpcTypeGrpcAndDataStreamTypeNetty cluster, int parityShards)
+      throws Exception {
+    RaftTestUtil.waitForLeader(cluster);
+    final List<RaftPeer> peers = new ArrayList<>(cluster.getGroup().getPeers());
+    final RaftPeer primary = peers.get(ThreadLocalRandom.current().nextInt(peers.size()));
+    final RoutingTable routingTable = getRoutingTable(peers, primary, parityShards);
+
+    // include odd sized packets, which are padded in the shards
+    final int[] sizes = {1_000, 1, 4_097, 100_000, 33};
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    final ClientInvocationId invocationId;
+    try (RaftClient client = cluster.createClient(primary)) {
+      final DataStreamOutputImpl out = (DataStreamOutputImpl) client.getDataStreamApi().stream(null, routingTable);
+      invocationId = ClientInvocationId.valueOf(out.getHeader());
+
+      final List<CompletableFuture<DataStreamReply>> futures = new ArrayList<>();
+      for (int i = 0; i < sizes.length; i++) {
+        final byte[] packet = new byte[sizes[i]];
+        ThreadLocalRandom.current().nextBytes(packet);
+        expected.write(packet, 0, packet.length);
+        final ByteBuffer buffer = ByteBuffer.wrap(packet);
+        futures.add(i == sizes.length - 1 ? out.writeAsync(buffer, StandardWriteOption.FLUSH)
+            : out.writeAsync(buffer));
+      }
+      // the replies have the packet lengths but not the shard lengths
+      for (int i = 0; i < sizes.length; i++) {
+        DataStreamTestUtils.assertSuccessReply(Type.STREAM_DATA, sizes[i], futures.get(i).join());
+      }
+
+      final DataStreamReply closeReply = out.closeAsync().join();
+      final RaftClientReply reply = ClientProtoUtils.toRaftClientReply(
+          ((DataStreamReplyByteBuffer) closeReply).slice());
+      Assertions.assertTrue(reply.isSuccess());
+    }
+
+    // collect the shard streams in the order of the shard indices
+    final List<RaftPeerId> shardPeers = routingTable.getShardPeers();
+    Assertions.assertEquals(peers.size(), shardPeers.size());
+    Assertions.assertEquals(primary.getId(), shardPeers.get(0));
+    final ByteBuffer[] streams = new ByteBuffer[shardPeers.size()];
+    for (int i = 0; i < streams.length; i++) {
+      final RaftServer.Division division = cluster.getDivision(shardPeers.get(i));
+      streams[i] = ((ShardStateMachine) division.getStateMachine()).getShardStream(invocationId);
+      LOG.info("shard {} at {}: {} bytes", i, shardPeers.get(i), streams[i].remaining());
+    }
+    // all the shard streams have the same size, which is much smaller than the data
+    for (ByteBuffer s : streams) {
+      Assertions.assertEquals(streams[0].remaining(), s.remaining());
+    }
+    Assertions.assertTrue(streams[0].remaining() < expected.size());
+
+    final DataStreamErasureCoder coder = DataStreamErasureCoder.valueOf(routingTable);
+    Assertions.assertNotNull(coder);
+    Assertions.assertArrayEquals(expected.toByteArray(), toByteArray(coder.decode(streams)));
+    // rebuild the data after losing any peer
+    for (int i = 0; i < streams.length; i++) {
+      final ByteBuffer[] remaining = streams.clone();
+      remaining[i] = null;
+      final RaftPeerId lost = shardPeers.get(i);
+      Assertions.assertArrayEquals(expected.toByteArray(), toByteArray(coder.decode(remaining)),
+          () -> "Failed to decode without the shard stream of " + lost);
+    }
+  }
+
+  static byte[] toByteArray(ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestImmediateCommitWithGrpc extends BaseTest {
+  private RaftProperties properties;
+
+  @BeforeEach
+  public void setup() {
+    final RaftProperties p = new RaftProperties();
+    RaftServerConfigKeys.Log.Appender.setImmediateCommitEnabled(p, true);
+    // use a long heartbeat interval so that the commit index cannot be propagated by the regular heartbeats
+    RaftServerConfigKeys.Rpc.setTimeoutMin(p, TimeDuration.valueOf(3, TimeUnit.SECONDS));
+    RaftServerConfigKeys.Rpc.setTimeoutMax(p, TimeDuration.valueOf(4, TimeUnit.SECONDS));
+    properties = p;
+  }
+
+  @Test
+  public void testFollowerApplyLag() throws Exception {
+    try (MiniRaftClusterWithGrpc cluster = MiniRaftClusterWithGrpc.FACTORY.newCluster(3, properties)) {
+      cluster.start();
+      runTestFollowerApplyLag(cluster);
+    }
+  }
+
+  void runTestFollowerApplyLag(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    try (RaftClient client = cluster.createClient(leader.getId())) {
+      for (int i = 0; i < 5; i++) {
+        final RaftClientReply reply = client.io().send(new RaftTestUtil.SimpleMessage("m" + i));
+        Assertions.assertTrue(reply.isSuccess());
+
+        // the followers apply the entry well before the next heartbeat (about 1.5s)
+        final long applied = leader.getInfo().getLastAppliedIndex();
+        for (RaftServer.Division follower : cluster.getFollowers()) {
+          JavaUtils.attempt(() -> Assertions.assertTrue(follower.getInfo().getLastAppliedIndex() >= applied),
+              50, TimeDuration.valueOf(10, TimeUnit.MILLISECONDS), "follower applied " + applied, LOG);
+        }
+      }
+    }
+  }
+}
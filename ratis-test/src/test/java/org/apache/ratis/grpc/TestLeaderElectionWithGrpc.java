@@ -17,8 +17,15 @@
  */
 package org.apache.ratis.grpc;
 
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.metrics.impl.DefaultTimekeeperImpl;
+import org.apache.ratis.metrics.impl.RatisMetricRegistryImpl;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.impl.BlockRequestHandlingInjection;
 import org.apache.ratis.server.impl.LeaderElectionTests;
+import org.apache.ratis.server.metrics.LeaderElectionMetrics;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class TestLeaderElectionWithGrpc
@@ -38,4 +45,37 @@ public class TestLeaderElectionWithGrpc
   public void testDisconnectLeader() throws Exception {
     super.testDisconnectLeader();
   }
+
+  @Test
+  public void testAsyncLeaderElection() throws Exception {
+    Assertions.assertTrue(RaftServerConfigKeys.LeaderElection.asyncEnabled(getProperties()));
+    runWithNewCluster(5, cluster -> {
+      for (RaftServer server : cluster.getServers()) {
+        Assertions.assertTrue(server.getServerRpc().async().supportsRequestVoteAsync());
+      }
+      RaftTestUtil.waitAndKillLeader(cluster);
+      RaftTestUtil.waitAndKillLeader(cluster);
+      final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+
+      final RatisMetricRegistryImpl registry = (RatisMetricRegistryImpl)
+          LeaderElectionMetrics.createRegistry(leader.getMemberId());
+      final DefaultTimekeeperImpl timeToLeader =
+          (DefaultTimekeeperImpl) registry.timer(LeaderElectionMetrics.TIME_TO_LEADER);
+      Assertions.assertTrue(timeToLeader.getTimer().getCount() > 0);
+    });
+  }
+
+  @Test
+  public void testBlockingLeaderElection() throws Exception {
+    RaftServerConfigKeys.LeaderElection.setAsyncEnabled(getProperties(), false);
+    try {
+      runWithNewCluster(3, cluster -> {
+        RaftTestUtil.waitAndKillLeader(cluster);
+        RaftTestUtil.waitForLeader(cluster);
+      });
+    } finally {
+      RaftServerConfigKeys.LeaderElection.setAsyncEnabled(getProperties(),
+          RaftServerConfigKeys.LeaderElection.ASYNC_ENABLED_DEFAULT);
+    }
+  }
 }
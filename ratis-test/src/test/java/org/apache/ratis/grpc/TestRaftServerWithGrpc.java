@@ -44,11 +44,13 @@ import org.apache.ratis.grpc.client.GrpcClientProtocolClient;
 import org.apache.ratis.proto.RaftProtos;
 import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
+import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.protocol.exceptions.TimeoutIOException;
 import org.apache.ratis.retry.RetryPolicies;
+import org.apache.ratis.rpc.CallId;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.RaftServerRpc;
@@ -63,6 +65,7 @@ import org.apache.ratis.util.SizeInBytes;
 import org.apache.ratis.util.TimeDuration;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.slf4j.event.Level;
@@ -366,6 +369,49 @@ public class TestRaftServerWithGrpc extends BaseTest implements MiniRaftClusterW
     }
   }
 
+  @Test
+  public void testCommitInfoDelta() throws Exception {
+    RaftServerConfigKeys.Rpc.setCommitInfoDeltaEnabled(getProperties(), true);
+    try {
+      runWithNewCluster(3, this::runTestCommitInfoDelta);
+    } finally {
+      RaftServerConfigKeys.Rpc.setCommitInfoDeltaEnabled(getProperties(), false);
+    }
+  }
+
+  void runTestCommitInfoDelta(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    try (final RaftClient client = cluster.createClient(leader.getId())) {
+      final RaftClientRpc rpc = client.getClientRpc();
+      final RaftClientRequest write = newRaftClientRequest(client, 1);
+      Assertions.assertEquals(0, write.getCommitInfoVersion());
+      final RaftClientReply writeReply = rpc.sendRequestAsync(write).get();
+      Assertions.assertTrue(writeReply.isSuccess());
+      Assertions.assertNotEquals(0, writeReply.getCommitInfoVersion());
+      Assertions.assertEquals(3, writeReply.getCommitInfos().size());
+      RaftClientTestUtil.handleReply(write, writeReply, client);
+
+      // once the commit infos are stable, the server omits them and the client fills them in
+      final Message query = new SimpleMessage("m1");
+      JavaUtils.attempt(() -> {
+        final RaftClientRequest first = RaftClientTestUtil.newRaftClientRequest(
+            client, null, CallId.getAndIncrement(), query, RaftClientRequest.readRequestType(), null);
+        final RaftClientReply firstReply = RaftClientTestUtil.handleReply(first,
+            rpc.sendRequestAsyncUnordered(first).get(), client);
+        Assertions.assertEquals(3, firstReply.getCommitInfos().size());
+
+        final RaftClientRequest second = RaftClientTestUtil.newRaftClientRequest(
+            client, null, CallId.getAndIncrement(), query, RaftClientRequest.readRequestType(), null);
+        Assertions.assertEquals(firstReply.getCommitInfoVersion(), second.getCommitInfoVersion());
+        final RaftClientReply secondReply = rpc.sendRequestAsyncUnordered(second).get();
+        Assertions.assertEquals(firstReply.getCommitInfoVersion(), secondReply.getCommitInfoVersion());
+        Assertions.assertTrue(secondReply.getCommitInfos().isEmpty());
+        final RaftClientReply handled = RaftClientTestUtil.handleReply(second, secondReply, client);
+        Assertions.assertEquals(firstReply.getCommitInfos(), handled.getCommitInfos());
+      }, 10, HUNDRED_MILLIS, "commit info delta", LOG);
+    }
+  }
+
   static RaftClientRequest newRaftClientRequest(RaftClient client, long seqNum) {
     final SimpleMessage m = new SimpleMessage("m" + seqNum);
     return RaftClientTestUtil.newRaftClientRequest(client, null, seqNum, m,
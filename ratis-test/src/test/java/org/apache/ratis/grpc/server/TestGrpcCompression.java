@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.server;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.grpc.metrics.GrpcServerMetrics;
+import org.apache.ratis.io.StandardCompressor;
+import org.apache.ratis.proto.RaftProtos.AppendEntriesReplyProto;
+import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
+import org.apache.ratis.proto.RaftProtos.FileChunkProto;
+import org.apache.ratis.proto.RaftProtos.InstallSnapshotRequestProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestGrpcCompression extends BaseTest implements MiniRaftClusterWithGrpc.FactoryGet {
+  static final String TEXT = "The quick brown fox jumps over the lazy dog. ";
+
+  static RaftProperties newProperties(StandardCompressor compressor) {
+    final RaftProperties properties = new RaftProperties();
+    GrpcConfigKeys.Server.setCompression(properties, compressor.getName());
+    GrpcConfigKeys.Server.setCompressionSizeMin(properties, SizeInBytes.ZERO);
+    return properties;
+  }
+
+  static AppendEntriesRequestProto newAppendEntriesRequest(int numEntries) {
+    final AppendEntriesRequestProto.Builder b = AppendEntriesRequestProto.newBuilder().setLeaderTerm(1);
+    for (int i = 0; i < numEntries; i++) {
+      final StateMachineLogEntryProto smLog = StateMachineLogEntryProto.newBuilder()
+          .setLogData(ByteString.copyFromUtf8(i + ": " + TEXT + TEXT))
+          .build();
+      b.addEntries(LogProtoUtils.toLogEntryProto(smLog, 1, i));
+    }
+    return b.build();
+  }
+
+  @Test
+  public void testAppendEntries() throws Exception {
+    for (StandardCompressor compressor : StandardCompressor.values()) {
+      final GrpcCompression compression = new GrpcCompression(newProperties(compressor));
+      final GrpcServerMetrics metrics = new GrpcServerMetrics(getClass().getSimpleName() + "-" + compressor);
+
+      final AppendEntriesReplyProto reply = compression.announce(AppendEntriesReplyProto.getDefaultInstance());
+      Assertions.assertSame(compressor, compression.getCompressor(reply));
+      Assertions.assertNull(compression.getCompressor(AppendEntriesReplyProto.getDefaultInstance()));
+
+      final RaftGroupId groupId = RaftGroupId.randomId();
+      final AppendEntriesRequestProto request = newAppendEntriesRequest(20);
+      final AppendEntriesRequestProto compressed = compression.compress(groupId, request, metrics);
+      Assertions.assertEquals(0, compressed.getEntriesCount());
+      Assertions.assertTrue(compressed.getSerializedSize() < request.getSerializedSize() / 2,
+          () -> compressed.getSerializedSize() + " >= " + request.getSerializedSize() + " / 2");
+      Assertions.assertEquals(request, GrpcCompression.decompress(compressed));
+
+      // the same batch, say for another follower, is compressed only once
+      Assertions.assertSame(compressed.getCompressedEntries(),
+          compression.compress(groupId, request, metrics).getCompressedEntries());
+      Assertions.assertEquals(1L, metrics.getRegistry()
+          .counter(GrpcServerMetrics.RATIS_GRPC_COMPRESSION_CACHE_HIT_COUNT).getCount());
+
+      // heartbeats are not compressed
+      final AppendEntriesRequestProto heartbeat = newAppendEntriesRequest(0);
+      Assertions.assertSame(heartbeat, compression.compress(groupId, heartbeat, metrics));
+    }
+  }
+
+  @Test
+  public void testInstallSnapshot() throws Exception {
+    final GrpcCompression compression = new GrpcCompression(newProperties(StandardCompressor.DEFLATE));
+    final GrpcServerMetrics metrics = new GrpcServerMetrics(getClass().getSimpleName());
+
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      text.append(i).append(": ").append(TEXT);
+    }
+    final InstallSnapshotRequestProto.Builder b = InstallSnapshotRequestProto.newBuilder();
+    for (int i = 0; i < 3; i++) {
+      b.getSnapshotChunkBuilder().addFileChunks(FileChunkProto.newBuilder()
+          .setFilename("file" + i)
+          .setData(ByteString.copyFromUtf8(i + text.toString())));
+    }
+    final InstallSnapshotRequestProto request = b.build();
+
+    final InstallSnapshotRequestProto compressed = compression.compress(request, metrics);
+    for (FileChunkProto chunk : compressed.getSnapshotChunk().getFileChunksList()) {
+      Assertions.assertEquals(StandardCompressor.DEFLATE.getName(), chunk.getCompression());
+    }
+    Assertions.assertTrue(compressed.getSerializedSize() < request.getSerializedSize() / 2);
+    Assertions.assertEquals(request, GrpcCompression.decompress(compressed));
+  }
+
+  @Test
+  public void testCompressionInCluster() throws Exception {
+    final RaftProperties p = getProperties();
+    GrpcConfigKeys.Server.setCompression(p, StandardCompressor.DEFLATE.getName());
+    GrpcConfigKeys.Server.setCompressionSizeMin(p, SizeInBytes.ZERO);
+    try {
+      runWithNewCluster(3, this::runTestCompressionInCluster);
+    } finally {
+      p.unset(GrpcConfigKeys.Server.COMPRESSION_KEY);
+      GrpcConfigKeys.Server.setCompressionSizeMin(p, GrpcConfigKeys.Server.COMPRESSION_SIZE_MIN_DEFAULT);
+    }
+  }
+
+  void runTestCompressionInCluster(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+    try (RaftClient client = cluster.createClient(leader.getId())) {
+      for (int i = 0; i < 50; i++) {
+        final RaftClientReply reply = client.io().send(new RaftTestUtil.SimpleMessage(i + ": " + TEXT));
+        Assertions.assertTrue(reply.isSuccess());
+      }
+    }
+
+    final long applied = leader.getInfo().getLastAppliedIndex();
+    for (RaftServer.Division follower : cluster.getFollowers()) {
+      JavaUtils.attempt(() -> Assertions.assertTrue(follower.getInfo().getLastAppliedIndex() >= applied),
+          10, TimeDuration.valueOf(500, TimeUnit.MILLISECONDS), "follower applied", LOG);
+    }
+
+    final GrpcServerMetrics metrics = new GrpcServerMetrics(leader.getMemberId().toString());
+    final long input = metrics.getRegistry().counter(GrpcServerMetrics.RATIS_GRPC_COMPRESSION_INPUT_BYTES).getCount();
+    Assertions.assertTrue(input > 0, () -> "input = " + input);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.netty.server;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.datastream.impl.DataStreamReplyByteBuffer;
+import org.apache.ratis.datastream.impl.DataStreamRequestByteBuf;
+import org.apache.ratis.proto.RaftProtos.DataStreamPacketHeaderProto.Type;
+import org.apache.ratis.proto.RaftProtos.DataStreamReadRequestProto;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.DataStreamReply;
+import org.apache.ratis.statemachine.StateMachine.ReadStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+public class TestDataStreamRead extends BaseTest {
+  /** A {@link ReadStream} without a file so that the data is copied to a buffer. */
+  static class BytesReadStream implements ReadStream {
+    private final byte[] bytes;
+
+    BytesReadStream(int size) {
+      this.bytes = new byte[size];
+      for (int i = 0; i < size; i++) {
+        bytes[i] = (byte) i;
+      }
+    }
+
+    @Override
+    public long size() {
+      return bytes.length;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) {
+      final int n = Math.min(dst.remaining(), bytes.length - Math.toIntExact(position));
+      dst.put(bytes, Math.toIntExact(position), n);
+      return n;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  static ByteBuffer read(ReadStream stream, long position, long length, int chunkSizeMax) {
+    final DataStreamRequestByteBuf request = new DataStreamRequestByteBuf(
+        ClientId.randomId(), Type.STREAM_READ, 1, 0, Collections.emptyList(), null);
+    final DataStreamReadRequestProto proto = DataStreamReadRequestProto.newBuilder()
+        .setPosition(position)
+        .setLength(length)
+        .build();
+    final DataStreamReply reply = DataStreamManagement.readFrom(stream, request, proto, chunkSizeMax);
+    Assertions.assertTrue(reply.isSuccess());
+    Assertions.assertInstanceOf(DataStreamReplyByteBuffer.class, reply);
+    final ByteBuffer buffer = ((DataStreamReplyByteBuffer) reply).slice();
+    Assertions.assertEquals(buffer.remaining(), reply.getBytesWritten());
+    return buffer;
+  }
+
+  @Test
+  public void testReadChunkSizeMax() {
+    final int size = 10_000;
+    final int chunkSizeMax = 1024;
+    final BytesReadStream stream = new BytesReadStream(size);
+
+    // a large request is replied with at most chunkSizeMax bytes
+    Assertions.assertEquals(chunkSizeMax, read(stream, 0, Integer.MAX_VALUE, chunkSizeMax).remaining());
+    // a small request is replied in full
+    Assertions.assertEquals(100, read(stream, 0, 100, chunkSizeMax).remaining());
+    // a request beyond the end is replied with the remaining bytes
+    Assertions.assertEquals(size - 9_500, read(stream, 9_500, chunkSizeMax, chunkSizeMax).remaining());
+    Assertions.assertEquals(0, read(stream, size, chunkSizeMax, chunkSizeMax).remaining());
+
+    // read all the data in chunks
+    final ByteBuffer all = ByteBuffer.allocate(size);
+    while (all.hasRemaining()) {
+      final ByteBuffer chunk = read(stream, all.position(), size, chunkSizeMax);
+      Assertions.assertTrue(chunk.remaining() <= chunkSizeMax);
+      all.put(chunk);
+    }
+    Assertions.assertArrayEquals(stream.bytes, all.array());
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.netty.server;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.io.StandardWriteOption;
+import org.apache.ratis.io.WriteOption;
+import org.apache.ratis.netty.server.DataStreamManagement.PendingWrite;
+import org.apache.ratis.statemachine.StateMachine.DataChannel;
+import org.apache.ratis.statemachine.StateMachine.DataStream;
+import org.apache.ratis.thirdparty.io.netty.buffer.ByteBuf;
+import org.apache.ratis.thirdparty.io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestDataStreamWriteBatch extends BaseTest {
+  static class FileDataChannel implements DataChannel, GatheringByteChannel {
+    private final FileChannel channel;
+    private final AtomicInteger numGatheringWrites = new AtomicInteger();
+    private final AtomicInteger numForces = new AtomicInteger();
+
+    FileDataChannel(File file) throws IOException {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return channel.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      numGatheringWrites.incrementAndGet();
+      return channel.write(srcs, offset, length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public void force(boolean metadata) throws IOException {
+      numForces.incrementAndGet();
+      channel.force(metadata);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  static DataStream newDataStream(DataChannel channel) {
+    return new DataStream() {
+      @Override
+      public DataChannel getDataChannel() {
+        return channel;
+      }
+
+      @Override
+      public CompletableFuture<?> cleanUp() {
+        return CompletableFuture.completedFuture(null);
+      }
+    };
+  }
+
+  static ByteBuf newPacket(int offset, int size) {
+    final byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) (offset + i);
+    }
+    // use a composite buffer to have multiple nio buffers in a packet
+    final int half = size / 2;
+    return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(bytes, 0, half),
+        Unpooled.wrappedBuffer(bytes, half, size - half));
+  }
+
+  @Test
+  public void testGatheringWriteBatch() throws Exception {
+    final File file = new File(getTestDir(), "batch.dat");
+    Files.createDirectories(file.getParentFile().toPath());
+    final FileDataChannel channel = new FileDataChannel(file);
+    final DataStream stream = newDataStream(channel);
+
+    final Queue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+    final List<Iterable<WriteOption>> options = Arrays.asList(Collections.emptyList(),
+        Collections.singletonList(StandardWriteOption.SYNC), Collections.emptyList(),
+        Collections.singletonList(StandardWriteOption.CLOSE));
+    final int size = 100;
+    final PendingWrite[] writes = new PendingWrite[options.size()];
+    for (int i = 0; i < writes.length; i++) {
+      writes[i] = new PendingWrite(newPacket(i * size, size), options.get(i));
+      pending.add(writes[i]);
+    }
+
+    // the first batch ends at the SYNC packet
+    Assertions.assertEquals(2 * size, DataStreamManagement.writeBatch(pending, 10, stream));
+    Assertions.assertEquals(1, channel.numGatheringWrites.get());
+    Assertions.assertEquals(1, channel.numForces.get());
+    Assertions.assertEquals(size, writes[1].getFuture().get());
+    Assertions.assertFalse(writes[2].getFuture().isDone());
+
+    // the second batch ends at the CLOSE packet
+    Assertions.assertEquals(2 * size, DataStreamManagement.writeBatch(pending, 10, stream));
+    Assertions.assertEquals(2, channel.numGatheringWrites.get());
+    Assertions.assertFalse(channel.isOpen());
+    // the queue is empty
+    Assertions.assertEquals(0, DataStreamManagement.writeBatch(pending, 10, stream));
+
+    final byte[] written = Files.readAllBytes(file.toPath());
+    Assertions.assertEquals(writes.length * size, written.length);
+    for (int i = 0; i < written.length; i++) {
+      Assertions.assertEquals((byte) i, written[i]);
+    }
+    Arrays.stream(writes).forEach(w -> w.getBuf().release());
+  }
+}
@@ -22,6 +22,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.Arrays;
+
 @Timeout(value = 1)
 public class TestRoutingTable extends BaseTest {
 
@@ -58,6 +60,30 @@ public class TestRoutingTable extends BaseTest {
     testFailureCase("self-loop", 0, 1, 2, 3, 3, 3);
   }
 
+  @Test
+  public void testErasureCoding() {
+    { // 0 -> 3, 0 -> 1, 0 -> 2
+      final RoutingTable table = newErasureCodedRoutingTable(1, 0, 3, 0, 1, 0, 2);
+      Assertions.assertTrue(table.isErasureCoded());
+      Assertions.assertEquals(Arrays.asList(peers[0], peers[1], peers[2], peers[3]), table.getShardPeers());
+      Assertions.assertEquals(2, table.getShardIndex(peers[2]));
+      Assertions.assertEquals(-1, table.getShardIndex(peers[4]));
+    }
+
+    testFailureCase("not a star", () -> newErasureCodedRoutingTable(1, 0, 1, 1, 2),
+        IllegalStateException.class, LOG);
+    testFailureCase("no data shards", () -> newErasureCodedRoutingTable(3, 0, 1, 0, 2),
+        IllegalStateException.class, LOG);
+  }
+
+  RoutingTable newErasureCodedRoutingTable(int parityShards, int... peerIndices) {
+    final RoutingTable.Builder b = RoutingTable.newBuilder().setParityShards(parityShards);
+    for (int i = 0; i < peerIndices.length; i += 2) {
+      b.addSuccessor(peers[peerIndices[i]], peers[peerIndices[i + 1]]);
+    }
+    return b.build();
+  }
+
   RoutingTable newRoutingTable(int... peerIndices) {
     final RoutingTable.Builder b = RoutingTable.newBuilder();
     for (int i = 0; i < peerIndices.length; i += 2) {
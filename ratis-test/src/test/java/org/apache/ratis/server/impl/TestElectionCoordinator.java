@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestElectionCoordinator extends BaseTest {
+  static final long INTERVAL_MS = 1000;
+
+  static void assertDelay(long expectedMs, TimeDuration delay) {
+    final long ms = delay.toLong(TimeUnit.MILLISECONDS);
+    // allow some slack for the time elapsed between the calls
+    Assertions.assertTrue(ms <= expectedMs && ms > expectedMs - INTERVAL_MS / 2,
+        () -> "expected " + expectedMs + "ms but delay = " + delay);
+  }
+
+  @Test
+  public void testDisabled() {
+    final ElectionCoordinator coordinator = new ElectionCoordinator(TimeDuration.ZERO, TimeDuration.ZERO, () -> 10);
+    Assertions.assertFalse(coordinator.isEnabled());
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertEquals(TimeDuration.ZERO, coordinator.reserve());
+    }
+  }
+
+  @Test
+  public void testStaggerAndLoad() {
+    final AtomicInteger numLeaders = new AtomicInteger();
+    final ElectionCoordinator coordinator = new ElectionCoordinator(
+        TimeDuration.valueOf(INTERVAL_MS, TimeUnit.MILLISECONDS), TimeDuration.ONE_MINUTE, numLeaders::get);
+
+    // the elections start one interval apart
+    assertDelay(0, coordinator.reserve());
+    assertDelay(INTERVAL_MS, coordinator.reserve());
+    assertDelay(2 * INTERVAL_MS, coordinator.reserve());
+
+    // an election is further delayed for each division currently leading
+    numLeaders.set(2);
+    assertDelay(5 * INTERVAL_MS, coordinator.reserve());
+  }
+
+  @Test
+  public void testMaxDelay() {
+    final AtomicInteger numLeaders = new AtomicInteger();
+    final long maxDelayMs = 3 * INTERVAL_MS;
+    final ElectionCoordinator coordinator = new ElectionCoordinator(
+        TimeDuration.valueOf(INTERVAL_MS, TimeUnit.MILLISECONDS),
+        TimeDuration.valueOf(maxDelayMs, TimeUnit.MILLISECONDS), numLeaders::get);
+
+    // the stagger delay stops growing at the max delay
+    for (int i = 0; i < 3; i++) {
+      assertDelay(i * INTERVAL_MS, coordinator.reserve());
+    }
+    for (int i = 0; i < 5; i++) {
+      assertDelay(maxDelayMs, coordinator.reserve());
+    }
+
+    // the load delay is also bounded
+    numLeaders.set(100);
+    assertDelay(maxDelayMs, coordinator.reserve());
+  }
+
+  void assertNumLeaders(MiniRaftClusterWithGrpc cluster, RaftPeerId leaderId) throws Exception {
+    JavaUtils.attempt(() -> {
+      for (RaftServer server : cluster.getServers()) {
+        final int expected = server.getId().equals(leaderId) ? 1 : 0;
+        Assertions.assertEquals(expected, cluster.getServer(server.getId()).getNumLeaders(), server.getId()::toString);
+      }
+    }, 50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "assertNumLeaders", LOG);
+  }
+
+  @Test
+  public void testNumLeaders() throws Exception {
+    try (MiniRaftClusterWithGrpc cluster = MiniRaftClusterWithGrpc.FACTORY.newCluster(3, new RaftProperties())) {
+      cluster.start();
+      final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+      assertNumLeaders(cluster, leaderId);
+
+      final RaftPeerId newLeaderId = RaftTestUtil.changeLeader(cluster, leaderId);
+      assertNumLeaders(cluster, newLeaderId);
+
+      // a closed division is not counted
+      cluster.getDivision(newLeaderId).close();
+      Assertions.assertEquals(0, cluster.getServer(newLeaderId).getNumLeaders());
+    }
+  }
+}
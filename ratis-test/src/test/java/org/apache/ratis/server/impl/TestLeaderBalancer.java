@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.impl.LeaderBalancer.GroupInfo;
+import org.apache.ratis.server.impl.LeaderBalancer.Transfer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestLeaderBalancer extends BaseTest {
+  private static final RaftPeerId S0 = RaftPeerId.valueOf("s0");
+  private static final RaftPeerId S1 = RaftPeerId.valueOf("s1");
+  private static final RaftPeerId S2 = RaftPeerId.valueOf("s2");
+  private static final List<RaftPeerId> PEERS = Arrays.asList(S0, S1, S2);
+
+  @Test
+  public void testPlan() {
+    final List<GroupInfo> groups = new ArrayList<>();
+    final RaftGroupId busiest = RaftGroupId.randomId();
+    groups.add(new GroupInfo(RaftGroupId.randomId(), S0, PEERS, 10));
+    groups.add(new GroupInfo(busiest, S0, PEERS, 100));
+    groups.add(new GroupInfo(RaftGroupId.randomId(), S0, PEERS, 1));
+
+    // rate limited: only the busiest group is transferred
+    final List<Transfer> one = LeaderBalancer.plan(S0, groups, 1, 1);
+    Assertions.assertEquals(1, one.size());
+    Assertions.assertEquals(busiest, one.get(0).getGroupId());
+    Assertions.assertNotEquals(S0, one.get(0).getNewLeader());
+
+    // the leaders become 1, 1, 1 after two transfers
+    final List<Transfer> all = LeaderBalancer.plan(S0, groups, 1, 10);
+    Assertions.assertEquals(2, all.size());
+    Assertions.assertNotEquals(all.get(0).getNewLeader(), all.get(1).getNewLeader());
+
+    // not leading any group
+    Assertions.assertTrue(LeaderBalancer.plan(S1, groups, 1, 10).isEmpty());
+  }
+
+  @Test
+  public void testBalanced() {
+    final List<GroupInfo> groups = new ArrayList<>();
+    groups.add(new GroupInfo(RaftGroupId.randomId(), S0, PEERS, 10));
+    groups.add(new GroupInfo(RaftGroupId.randomId(), S0, PEERS, 10));
+    groups.add(new GroupInfo(RaftGroupId.randomId(), S1, PEERS, 10));
+    groups.add(new GroupInfo(RaftGroupId.randomId(), S2, PEERS, 10));
+    Assertions.assertTrue(LeaderBalancer.plan(S0, groups, 1, 10).isEmpty());
+
+    // the only peer with the highest priority is the leader itself
+    final List<GroupInfo> priorities = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      priorities.add(new GroupInfo(RaftGroupId.randomId(), S0, Arrays.asList(S0), 10));
+    }
+    Assertions.assertTrue(LeaderBalancer.plan(S0, priorities, 1, 10).isEmpty());
+  }
+}
@@ -33,11 +33,14 @@ import org.junit.jupiter.api.Test;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -54,6 +57,15 @@ public class TestLeaderElectionServerInterface extends BaseTest {
 
   LeaderElection.ServerInterface newServerInterface(boolean expectToPass,
       Map<RaftPeerId, TermIndex> lastEntries) {
+    return newServerInterface(expectToPass, lastEntries, null, new AtomicInteger());
+  }
+
+  /**
+   * @param asyncCalls count the {@link LeaderElection.ServerInterface#requestVoteAsync} calls;
+   *                   async is disabled if it is null.
+   */
+  LeaderElection.ServerInterface newServerInterface(boolean expectToPass,
+      Map<RaftPeerId, TermIndex> lastEntries, AtomicInteger asyncCalls, AtomicInteger blockingCalls) {
     return new LeaderElection.ServerInterface() {
       private volatile boolean isAlive = true;
 
@@ -99,8 +111,24 @@ public class TestLeaderElectionServerInterface extends BaseTest {
         return new LeaderElection.ConfAndTerm(conf, getCurrentTerm());
       }
 
+      @Override
+      public boolean isAsyncEnabled() {
+        return asyncCalls != null;
+      }
+
+      @Override
+      public CompletableFuture<RequestVoteReplyProto> requestVoteAsync(RequestVoteRequestProto r) {
+        asyncCalls.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> newReply(r));
+      }
+
       @Override
       public RequestVoteReplyProto requestVote(RequestVoteRequestProto r) {
+        blockingCalls.incrementAndGet();
+        return newReply(r);
+      }
+
+      private RequestVoteReplyProto newReply(RequestVoteRequestProto r) {
         final RaftPeerId voterPeerId = RaftPeerId.valueOf(r.getServerRequest().getReplyId());
         final RaftGroupMemberId voter = RaftGroupMemberId.valueOf(voterPeerId, group.getGroupId());
         final TermIndex lastEntry = lastEntries.get(voterPeerId);
@@ -190,4 +218,17 @@ public class TestLeaderElectionServerInterface extends BaseTest {
     election.startInForeground();
   }
 
+  @Test
+  public void testAsyncRequestVote() {
+    final AtomicInteger asyncCalls = new AtomicInteger();
+    final AtomicInteger blockingCalls = new AtomicInteger();
+    final LeaderElection election = new LeaderElection(
+        newServerInterface(true, new HashMap<>(), asyncCalls, blockingCalls), false);
+    election.startInForeground();
+
+    // the votes are requested from the two other peers by the async calls only
+    assertEquals(peers.size() - 1, asyncCalls.get());
+    assertEquals(0, blockingCalls.get());
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.exceptions.StreamException;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class TestMessageStreamRequests extends BaseTest {
+  private static final ClientId CLIENT_ID = ClientId.randomId();
+  private static final long STREAM_ID = 1;
+
+  static RaftClientRequest newRequest(long messageId, boolean endOfRequest, String content) {
+    return newRequest(STREAM_ID, messageId, endOfRequest, content);
+  }
+
+  static RaftClientRequest newRequest(long streamId, long messageId, boolean endOfRequest, String content) {
+    return RaftClientRequest.newBuilder()
+        .setClientId(CLIENT_ID)
+        .setServerId(RaftPeerId.valueOf("s0"))
+        .setGroupId(RaftGroupId.emptyGroupId())
+        .setCallId(messageId)
+        .setMessage(Message.valueOf(content))
+        .setType(RaftClientRequest.messageStreamRequestType(streamId, messageId, endOfRequest))
+        .build();
+  }
+
+  static void assertStreamException(CompletableFuture<?> future) {
+    final ExecutionException e = Assertions.assertThrows(ExecutionException.class, future::get);
+    Assertions.assertInstanceOf(StreamException.class, e.getCause());
+  }
+
+  @Test
+  public void testSpill() throws Exception {
+    final File dir = new File(getTestDir(), "spill");
+    final MessageStreamRequests.Memory memory = new MessageStreamRequests.Memory(10, 0);
+    final MessageStreamRequests requests = new MessageStreamRequests("s0", memory, () -> dir);
+    try {
+      final StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < 5; i++) {
+        final String s = "message-" + i;
+        expected.append(s);
+        requests.streamAsync(newRequest(i, false, s)).get();
+      }
+      Assertions.assertEquals(0, memory.getBytes());
+      Assertions.assertEquals(1, dir.list().length);
+
+      final ByteString bytes = requests.streamEndOfRequestAsync(newRequest(5, true, "end")).get();
+      Assertions.assertEquals(expected.append("end").toString(), bytes.toString(StandardCharsets.UTF_8));
+      // the spill file is deleted at the end of the stream
+      Assertions.assertEquals(0, dir.list().length);
+      // the bytes read back are acquired until they are released by the caller
+      Assertions.assertEquals(bytes.size(), memory.getBytes());
+      memory.release(bytes.size());
+    } finally {
+      FileUtils.deleteFully(dir);
+    }
+  }
+
+  @Test
+  public void testSpillFailure() throws Exception {
+    // the spill dir cannot be created since it is a regular file
+    final File file = new File(getTestDir(), "file");
+    FileUtils.createDirectories(file.getParentFile());
+    Files.createFile(file.toPath());
+    final MessageStreamRequests.Memory memory = new MessageStreamRequests.Memory(10, 0);
+    final MessageStreamRequests requests = new MessageStreamRequests("s0", memory, () -> file);
+    try {
+      requests.streamAsync(newRequest(0, false, "0123")).get();
+      assertStreamException(requests.streamAsync(newRequest(1, false, "0123456789")));
+      Assertions.assertEquals(0, memory.getBytes());
+
+      // the subsequent messages fit in memory but the stream has failed
+      assertStreamException(requests.streamAsync(newRequest(2, false, "0")));
+      assertStreamException(requests.streamEndOfRequestAsync(newRequest(3, true, "1")));
+      Assertions.assertEquals(0, memory.getBytes());
+    } finally {
+      FileUtils.deleteFully(file);
+    }
+  }
+
+  @Test
+  public void testMemoryMaxWithoutSpill() throws Exception {
+    final File dir = new File(getTestDir(), "spill");
+    final MessageStreamRequests.Memory memory = new MessageStreamRequests.Memory(0, 20);
+    final MessageStreamRequests requests = new MessageStreamRequests("s0", memory, () -> dir);
+    requests.streamAsync(newRequest(0, false, "0123456789")).get();
+    requests.streamAsync(newRequest(1, false, "0123456789")).get();
+    Assertions.assertEquals(20, memory.getBytes());
+
+    // the stream fails instead of spilling
+    assertStreamException(requests.streamAsync(newRequest(2, false, "0")));
+    Assertions.assertEquals(0, memory.getBytes());
+    Assertions.assertFalse(dir.exists());
+    assertStreamException(requests.streamEndOfRequestAsync(newRequest(3, true, "")));
+
+    // the bytes of an ended stream are counted until they are released
+    final long streamId = STREAM_ID + 1;
+    requests.streamAsync(newRequest(streamId, 0, false, "0123456789")).get();
+    final ByteString bytes = requests.streamEndOfRequestAsync(newRequest(streamId, 1, true, "0123456789")).get();
+    Assertions.assertEquals(20, memory.getBytes());
+    assertStreamException(requests.streamAsync(newRequest(streamId + 1, 0, false, "0")));
+    memory.release(bytes.size());
+    Assertions.assertEquals(0, memory.getBytes());
+  }
+
+  @Test
+  public void testReadBackExceedingMemoryMax() throws Exception {
+    final File dir = new File(getTestDir(), "spill");
+    final MessageStreamRequests.Memory memory = new MessageStreamRequests.Memory(10, 30);
+    final MessageStreamRequests requests = new MessageStreamRequests("s0", memory, () -> dir);
+    try {
+      for (int i = 0; i < 4; i++) {
+        requests.streamAsync(newRequest(i, false, "0123456789")).get();
+      }
+      Assertions.assertEquals(0, memory.getBytes());
+      Assertions.assertEquals(1, dir.list().length);
+
+      // the spilled bytes cannot be read back since they exceed the max
+      assertStreamException(requests.streamEndOfRequestAsync(newRequest(4, true, "end")));
+      Assertions.assertEquals(0, memory.getBytes());
+      Assertions.assertEquals(0, dir.list().length);
+    } finally {
+      FileUtils.deleteFully(dir);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.ReplicationLevel;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.exceptions.NotReplicatedException;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.metrics.RaftServerMetricsImpl;
+import org.apache.ratis.util.CodeInjectionForTesting;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.ratis.server.impl.WatchRequests.BUCKET_SIZE;
+
+public class TestWatchRequests extends BaseTest {
+  private static final ClientId CLIENT_ID = ClientId.randomId();
+  private static final ReplicationLevel REPLICATION = ReplicationLevel.MAJORITY;
+
+  private final AtomicLong callIds = new AtomicLong();
+  private RaftServerMetricsImpl metrics;
+
+  @BeforeEach
+  public void setup() {
+    final RaftGroupMemberId memberId = RaftGroupMemberId.valueOf(RaftPeerId.valueOf("s0"), RaftGroupId.randomId());
+    metrics = new RaftServerMetricsImpl(memberId, id -> 0L, () -> null);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    CodeInjectionForTesting.remove(WatchRequests.ADD_WATCH);
+    metrics.unregister();
+  }
+
+  WatchRequests newWatchRequests(RaftProperties properties) {
+    return new WatchRequests("s0", properties, metrics);
+  }
+
+  RaftClientRequest newWatch(long index) {
+    return RaftClientRequest.newBuilder()
+        .setClientId(CLIENT_ID)
+        .setServerId(RaftPeerId.valueOf("s0"))
+        .setGroupId(RaftGroupId.emptyGroupId())
+        .setCallId(callIds.incrementAndGet())
+        .setType(RaftClientRequest.watchRequestType(index, REPLICATION))
+        .build();
+  }
+
+  static void assertPending(CompletableFuture<Long> future) {
+    Assertions.assertFalse(future.isDone(), () -> "Unexpected completed " + future);
+  }
+
+  static void assertCompleted(long expected, CompletableFuture<Long> future) {
+    Assertions.assertTrue(future.isDone(), () -> "Unexpected pending " + future);
+    Assertions.assertEquals(expected, future.join());
+  }
+
+  @Test
+  public void testBucketBoundary() {
+    final WatchRequests watches = newWatchRequests(new RaftProperties());
+    final CompletableFuture<Long> last0 = watches.add(newWatch(BUCKET_SIZE - 1));
+    final CompletableFuture<Long> first1 = watches.add(newWatch(BUCKET_SIZE));
+    final CompletableFuture<Long> last1 = watches.add(newWatch(2 * BUCKET_SIZE - 1));
+    final CompletableFuture<Long> first2 = watches.add(newWatch(2 * BUCKET_SIZE));
+
+    // complete only the last watch of bucket 0
+    watches.update(REPLICATION, BUCKET_SIZE - 1);
+    assertCompleted(BUCKET_SIZE - 1, last0);
+    assertPending(first1);
+    assertPending(last1);
+    assertPending(first2);
+
+    // complete the entire bucket 1 but not the first watch of bucket 2
+    watches.update(REPLICATION, 2 * BUCKET_SIZE - 1);
+    assertCompleted(2 * BUCKET_SIZE - 1, first1);
+    assertCompleted(2 * BUCKET_SIZE - 1, last1);
+    assertPending(first2);
+
+    // a new watch in a completed bucket is satisfied immediately
+    assertCompleted(2 * BUCKET_SIZE - 1, watches.add(newWatch(BUCKET_SIZE)));
+
+    // jump over multiple buckets
+    final CompletableFuture<Long> far = watches.add(newWatch(10 * BUCKET_SIZE));
+    watches.update(REPLICATION, 5 * BUCKET_SIZE);
+    assertCompleted(5 * BUCKET_SIZE, first2);
+    assertPending(far);
+    watches.update(REPLICATION, 10 * BUCKET_SIZE);
+    assertCompleted(10 * BUCKET_SIZE, far);
+  }
+
+  @Test
+  public void testPartiallySatisfiedBucket() {
+    final WatchRequests watches = newWatchRequests(new RaftProperties());
+    final List<CompletableFuture<Long>> futures = new ArrayList<>();
+    for (int i = 1; i <= 4; i++) {
+      futures.add(watches.add(newWatch(10 * i)));
+    }
+
+    watches.update(REPLICATION, 25);
+    assertCompleted(25, futures.get(0));
+    assertCompleted(25, futures.get(1));
+    assertPending(futures.get(2));
+    assertPending(futures.get(3));
+
+    // the remaining watches stay in the same bucket, which still accepts new watches
+    assertCompleted(25, watches.add(newWatch(22)));
+    final CompletableFuture<Long> added = watches.add(newWatch(35));
+    assertPending(added);
+
+    watches.update(REPLICATION, 35);
+    assertCompleted(35, futures.get(2));
+    assertCompleted(35, added);
+    assertPending(futures.get(3));
+
+    watches.update(REPLICATION, 40);
+    assertCompleted(40, futures.get(3));
+  }
+
+  @Test
+  public void testAddRacingBucketClose() {
+    final WatchRequests watches = newWatchRequests(new RaftProperties());
+    final CompletableFuture<Long> first = watches.add(newWatch(10));
+
+    // after the add gets the bucket but before it adds the watch,
+    // complete the only watch in the bucket so that the bucket is closed
+    final AtomicInteger numAttempts = new AtomicInteger();
+    CodeInjectionForTesting.put(WatchRequests.ADD_WATCH, (localId, remoteId, args) -> {
+      if (numAttempts.incrementAndGet() == 1) {
+        watches.update(REPLICATION, 15);
+      }
+      return true;
+    });
+    final CompletableFuture<Long> second = watches.add(newWatch(20));
+    Assertions.assertEquals(2, numAttempts.get());
+    assertCompleted(15, first);
+    // the watch is added to a new bucket
+    assertPending(second);
+
+    watches.update(REPLICATION, 20);
+    assertCompleted(20, second);
+  }
+
+  @Test
+  public void testSweepTimeout() throws Exception {
+    final int numWatches = 5;
+    final RaftProperties properties = new RaftProperties();
+    // the watches are created in the same denomination and expire together
+    final TimeDuration timeout = TimeDuration.valueOf(500, TimeUnit.MILLISECONDS);
+    RaftServerConfigKeys.Watch.setTimeout(properties, timeout);
+    RaftServerConfigKeys.Watch.setTimeoutDenomination(properties, timeout);
+    RaftServerConfigKeys.Watch.setElementLimit(properties, numWatches);
+    final WatchRequests watches = newWatchRequests(properties);
+
+    final List<CompletableFuture<Long>> futures = new ArrayList<>();
+    for (int i = 1; i <= numWatches; i++) {
+      futures.add(watches.add(newWatch(i)));
+    }
+    // the queue is full
+    final CompletableFuture<Long> full = watches.add(newWatch(BUCKET_SIZE));
+    Assertions.assertTrue(full.isCompletedExceptionally());
+
+    // when the first watch times out, the sweep has already removed all the other watches,
+    // so that all the permits are available
+    final CompletableFuture<List<CompletableFuture<Long>>> afterFirstTimeout = futures.get(0)
+        .handle((reply, e) -> {
+          final List<CompletableFuture<Long>> added = new ArrayList<>();
+          for (int i = 0; i < numWatches; i++) {
+            added.add(watches.add(newWatch(BUCKET_SIZE + i)));
+          }
+          return added;
+        });
+    for (CompletableFuture<Long> f : futures) {
+      final CompletionException e = Assertions.assertThrows(CompletionException.class, f::join);
+      Assertions.assertInstanceOf(NotReplicatedException.class, e.getCause());
+    }
+    // the counter is incremented after completing the future
+    JavaUtils.attempt(() -> Assertions.assertEquals(numWatches,
+        metrics.getNumWatchRequestsTimeout(REPLICATION).getCount()),
+        10, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "timeout counter", LOG);
+
+    final List<CompletableFuture<Long>> added = afterFirstTimeout.get();
+    for (CompletableFuture<Long> f : added) {
+      assertPending(f);
+    }
+    watches.update(REPLICATION, 2 * BUCKET_SIZE);
+    for (CompletableFuture<Long> f : added) {
+      assertCompleted(2 * BUCKET_SIZE, f);
+    }
+  }
+}
@@ -45,9 +45,13 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.apache.ratis.server.raftlog.RaftLog.INVALID_LOG_INDEX;
@@ -213,6 +217,98 @@ public class TestLogSegment extends BaseTest {
     checkLogSegment(segment, start, i - 1 + start, true, size, term);
   }
 
+  @Test
+  public void testSerializedCache() throws Exception {
+    final long start = 1000;
+    final LogSegment objects = LogSegment.newOpenSegment(null, start, MAX_OP_SIZE, null);
+    final LogSegment serialized = LogSegment.newOpenSegment(null, start, MAX_OP_SIZE, true, null);
+    final List<LogEntryProto> entries = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final LogEntryProto entry = LogProtoUtils.toLogEntryProto(
+          new SimpleOperation("m" + i).getLogEntryContent(), 1, i + start);
+      entries.add(entry);
+      objects.appendToOpenSegment(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+      serialized.appendToOpenSegment(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+    }
+    Assertions.assertEquals(objects.getTotalCacheSize(), serialized.getTotalCacheSize());
+    for (LogEntryProto entry : entries) {
+      Assertions.assertEquals(entry, serialized.getEntryFromCache(TermIndex.valueOf(entry)));
+    }
+
+    objects.truncate(start + 50);
+    serialized.truncate(start + 50);
+    Assertions.assertEquals(objects.getTotalCacheSize(), serialized.getTotalCacheSize());
+    Assertions.assertNull(serialized.getEntryFromCache(TermIndex.valueOf(entries.get(50))));
+
+    final List<LogEntryProto> evicted = new ArrayList<>();
+    serialized.evictCache(evicted::add);
+    Assertions.assertEquals(50, evicted.size());
+    Assertions.assertEquals(0, serialized.getTotalCacheSize());
+  }
+
+  /**
+   * The serialized cache trades parsing for heap:
+   * the tail reads of the appended entries do not parse at all,
+   * a catch-up read parses each evicted entry once for all the readers,
+   * and only the last {@link LogSegment#SERIALIZED_CACHE_MEMO_SIZE} entries are kept parsed.
+   */
+  @Test
+  public void testSerializedCacheMemo() throws Exception {
+    final long start = 1000;
+    final int numReaders = 4; // e.g. three log appenders and the state machine updater
+    final int batchSize = 16;
+    final int numBatches = 10;
+    final LogSegment segment = LogSegment.newOpenSegment(null, start, MAX_OP_SIZE, true, null);
+    final Map<Long, LogEntryProto> lastRead = new HashMap<>();
+
+    // tail: the readers read each batch right after it is appended
+    int parsed = 0;
+    for (int b = 0; b < numBatches; b++) {
+      final List<LogEntryProto> batch = new ArrayList<>();
+      for (int i = 0; i < batchSize; i++) {
+        final long index = start + lastRead.size();
+        final LogEntryProto entry = LogProtoUtils.toLogEntryProto(
+            new SimpleOperation("m" + index).getLogEntryContent(), 1, index);
+        segment.appendToOpenSegment(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+        lastRead.put(index, entry);
+        batch.add(entry);
+      }
+      parsed += readBatches(segment, batch, batchSize, numReaders, lastRead);
+    }
+    LOG.info("tail reads: parsed {} entries", parsed);
+    Assertions.assertEquals(0, parsed);
+
+    // catch-up: the readers read all the entries from the start, batch by batch
+    final List<LogEntryProto> all = new ArrayList<>(lastRead.values());
+    all.sort(Comparator.comparingLong(LogEntryProto::getIndex));
+    parsed = readBatches(segment, all, batchSize, numReaders, lastRead);
+    LOG.info("catch-up reads: parsed {} entries", parsed);
+    Assertions.assertEquals(all.size(), parsed); // parsed once, instead of numReaders times
+
+    // the parsed entries of the first batch have been dropped from the memo
+    parsed = readBatches(segment, all.subList(0, batchSize), batchSize, numReaders, lastRead);
+    Assertions.assertEquals(batchSize, parsed);
+  }
+
+  /** @return the number of entries parsed, i.e. the reads returning a different instance from the last read. */
+  private static int readBatches(LogSegment segment, List<LogEntryProto> entries, int batchSize, int numReaders,
+      Map<Long, LogEntryProto> lastRead) {
+    int parsed = 0;
+    for (int from = 0; from < entries.size(); from += batchSize) {
+      final List<LogEntryProto> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+      for (int r = 0; r < numReaders; r++) {
+        for (LogEntryProto entry : batch) {
+          final LogEntryProto read = segment.getEntryFromCache(TermIndex.valueOf(entry));
+          Assertions.assertEquals(entry, read);
+          if (lastRead.put(entry.getIndex(), read) != read) {
+            parsed++;
+          }
+        }
+      }
+    }
+    return parsed;
+  }
+
   @Test
   public void testAppendEntryMetric() throws Exception {
     final SegmentedRaftLogMetrics raftLogMetrics = new SegmentedRaftLogMetrics(RaftServerTestUtil.TEST_MEMBER_ID);
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil.SimpleOperation;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestOffHeapLogEntryCache extends BaseTest {
+  private static final RaftPeerId PEER = RaftPeerId.valueOf("s0");
+
+  static LogEntryProto newEntry(long term, long index) {
+    return LogProtoUtils.toLogEntryProto(new SimpleOperation("m" + index).getLogEntryContent(), term, index);
+  }
+
+  @Test
+  public void testPutGetAndEvict() {
+    final RaftGroupMemberId member = RaftGroupMemberId.valueOf(PEER, RaftGroupId.randomId());
+    final int entrySize = newEntry(1, 10).getSerializedSize();
+    // allow a few bytes of slack since the entry sizes may differ slightly
+    final long maxBytes = entrySize * 5L + 5;
+    final OffHeapLogEntryCache cache = new OffHeapLogEntryCache(maxBytes);
+
+    final LogEntryProto first = newEntry(1, 10);
+    cache.put(member, first);
+    for (long i = 11; i < 15; i++) {
+      cache.put(member, newEntry(1, i));
+    }
+    Assertions.assertEquals(5, cache.size());
+    Assertions.assertEquals(first, cache.get(member, TermIndex.valueOf(1, 10)));
+    Assertions.assertNull(cache.get(member, TermIndex.valueOf(2, 10)));
+
+    // index 11 is the least recently used since index 10 was just accessed
+    cache.put(member, newEntry(1, 15));
+    Assertions.assertEquals(5, cache.size());
+    Assertions.assertNull(cache.get(member, TermIndex.valueOf(1, 11)));
+    Assertions.assertNotNull(cache.get(member, TermIndex.valueOf(1, 10)));
+    Assertions.assertTrue(cache.getBytes() <= maxBytes);
+  }
+
+  @Test
+  public void testReplace() {
+    final RaftGroupMemberId member = RaftGroupMemberId.valueOf(PEER, RaftGroupId.randomId());
+    final OffHeapLogEntryCache cache = new OffHeapLogEntryCache(1 << 20);
+    final LogEntryProto entry1 = newEntry(1, 10);
+    cache.put(member, entry1);
+    Assertions.assertEquals(entry1.getSerializedSize(), cache.getBytes());
+
+    // the entry with the same index but a different term replaces the previous entry
+    final LogEntryProto entry2 = newEntry(2, 10);
+    cache.put(member, entry2);
+    Assertions.assertEquals(1, cache.size());
+    Assertions.assertEquals(entry2.getSerializedSize(), cache.getBytes());
+    Assertions.assertNull(cache.get(member, TermIndex.valueOf(1, 10)));
+    Assertions.assertEquals(entry2, cache.get(member, TermIndex.valueOf(2, 10)));
+
+    cache.invalidate(member);
+    Assertions.assertEquals(0, cache.size());
+    Assertions.assertEquals(0, cache.getBytes());
+  }
+
+  @Test
+  public void testInvalidate() {
+    final RaftGroupMemberId member1 = RaftGroupMemberId.valueOf(PEER, RaftGroupId.randomId());
+    final RaftGroupMemberId member2 = RaftGroupMemberId.valueOf(PEER, RaftGroupId.randomId());
+    final OffHeapLogEntryCache cache = new OffHeapLogEntryCache(1 << 20);
+
+    for (long i = 0; i < 10; i++) {
+      cache.put(member1, newEntry(1, i));
+      cache.put(member2, newEntry(1, i));
+    }
+    Assertions.assertEquals(20, cache.size());
+
+    // purge member1 up to 4 and truncate it from 8
+    cache.invalidate(member1, Long.MIN_VALUE, 4);
+    cache.invalidate(member1, 8, Long.MAX_VALUE);
+    Assertions.assertEquals(13, cache.size());
+    Assertions.assertNull(cache.get(member1, TermIndex.valueOf(1, 4)));
+    Assertions.assertNotNull(cache.get(member1, TermIndex.valueOf(1, 5)));
+    Assertions.assertNull(cache.get(member1, TermIndex.valueOf(1, 8)));
+    Assertions.assertNotNull(cache.get(member2, TermIndex.valueOf(1, 4)));
+
+    cache.invalidate(member2);
+    Assertions.assertEquals(3, cache.size());
+    cache.clear();
+    Assertions.assertEquals(0, cache.size());
+    Assertions.assertEquals(0, cache.getBytes());
+  }
+}
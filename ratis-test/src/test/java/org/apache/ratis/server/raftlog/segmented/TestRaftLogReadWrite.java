@@ -20,6 +20,7 @@ package org.apache.ratis.server.raftlog.segmented;
 import org.apache.ratis.BaseTest;
 import org.apache.ratis.RaftTestUtil.SimpleOperation;
 import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.io.StandardCompressor;
 import org.apache.ratis.protocol.exceptions.ChecksumException;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.raftlog.LogProtoUtils;
@@ -124,6 +125,37 @@ public class TestRaftLogReadWrite extends BaseTest {
     Assertions.assertArrayEquals(entries, readEntries);
   }
 
+  @Test
+  public void testReadWriteCompressedLog() throws IOException {
+    final RaftStorage storage = RaftStorageTestUtils.newRaftStorage(storageDir);
+    final File openSegment = ZERO_START_NULL_END.getFile(storage);
+    final LogEntryProto[] entries = new LogEntryProto[1000];
+    final long size;
+    try (SegmentedRaftLogOutputStream out = new SegmentedRaftLogOutputStream(openSegment, false,
+        segmentMaxSize, preallocatedSize, ByteBuffer.allocateDirect(bufferSize), StandardCompressor.DEFLATE, 1024)) {
+      size = writeMessages(entries, out);
+    } finally {
+      storage.close();
+    }
+    Assertions.assertTrue(SegmentedRaftLogFormat.isBlockFormat(openSegment));
+    Assertions.assertTrue(openSegment.length() < size, () -> openSegment.length() + " >= " + size);
+    Assertions.assertArrayEquals(entries, readLog(openSegment, 0, RaftLog.INVALID_LOG_INDEX, true));
+
+    // append in the format of the existing file, with partial blocks written by flush
+    final LogEntryProto[] appended = new LogEntryProto[entries.length + 10];
+    System.arraycopy(entries, 0, appended, 0, entries.length);
+    try (SegmentedRaftLogOutputStream out = new SegmentedRaftLogOutputStream(openSegment, true,
+        segmentMaxSize, preallocatedSize, ByteBuffer.allocateDirect(bufferSize), null, 1024)) {
+      for (int i = entries.length; i < appended.length; i++) {
+        SimpleOperation m = new SimpleOperation("m" + i);
+        appended[i] = LogProtoUtils.toLogEntryProto(m.getLogEntryContent(), 0, i);
+        out.write(appended[i]);
+        out.flush();
+      }
+    }
+    Assertions.assertArrayEquals(appended, readLog(openSegment, 0, RaftLog.INVALID_LOG_INDEX, true));
+  }
+
   @Test
   public void testAppendLog() throws IOException {
     final RaftStorage storage = RaftStorageTestUtils.newRaftStorage(storageDir);
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.Timestamp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestSegmentPurgeService extends BaseTest {
+  private static final int FILE_SIZE = 64 << 10;
+
+  private File volume;
+
+  @BeforeEach
+  public void setup() {
+    volume = getTestDir();
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    FileUtils.deleteFully(volume);
+  }
+
+  private List<File> createFiles(String group, int n) throws IOException {
+    final File dir = new File(volume, group);
+    FileUtils.createDirectories(dir);
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final File f = new File(dir, "log_" + i);
+      try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+        raf.setLength(FILE_SIZE);
+      }
+      files.add(f);
+    }
+    return files;
+  }
+
+  @Test
+  public void testDeleteInBackground() throws Exception {
+    final SegmentPurgeService service = new SegmentPurgeService(SizeInBytes.valueOf(0));
+    try {
+      final List<File> files = createFiles("g1", 3);
+      files.addAll(createFiles("g2", 3));
+      final AtomicLong deletedBytes = new AtomicLong();
+      for (File f : files) {
+        service.submit(f.getParentFile().getName(), volume, f, deletedBytes::addAndGet);
+      }
+
+      JavaUtils.attemptUntilTrue(() -> files.stream().noneMatch(File::exists),
+          50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "all deleted", LOG);
+      JavaUtils.attemptUntilTrue(() -> deletedBytes.get() == 6L * FILE_SIZE,
+          50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "all counted", LOG);
+      Assertions.assertEquals(0, service.getPendingBytes());
+      Assertions.assertEquals(0, service.getLagMs());
+    } finally {
+      service.close();
+    }
+  }
+
+  @Test
+  public void testRateLimit() throws Exception {
+    // 4 files at 2 files per second take at least 1.5 seconds since the first deletion does not wait
+    final SegmentPurgeService service = new SegmentPurgeService(SizeInBytes.valueOf(2 * FILE_SIZE));
+    try {
+      final List<File> files = createFiles("g1", 4);
+      final Timestamp start = Timestamp.currentTime();
+      for (File f : files) {
+        service.submit("g1", volume, f, b -> {});
+      }
+      Assertions.assertTrue(service.getPendingBytes() > 0);
+
+      JavaUtils.attemptUntilTrue(() -> files.stream().noneMatch(File::exists),
+          50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "all deleted", LOG);
+      Assertions.assertTrue(start.elapsedTimeMs() >= 1400, () -> "elapsed " + start.elapsedTime());
+      Assertions.assertEquals(0, service.getPendingBytes());
+    } finally {
+      service.close();
+    }
+  }
+}
@@ -254,6 +254,35 @@ public class TestSegmentedRaftLog extends BaseTest {
     }
   }
 
+  @Test
+  public void testLoadLogSegmentsInParallel() throws Exception {
+    List<SegmentRange> ranges = prepareRanges(0, 10, 100, 0);
+    LogEntryProto[] entries = prepareLog(ranges);
+
+    final List<LogEntryProto> serial = loadLogSegments(1, entries);
+    final List<LogEntryProto> parallel = loadLogSegments(4, entries);
+    // the consumer gets the same entries in the same order
+    Assertions.assertEquals(Arrays.asList(entries), serial);
+    Assertions.assertEquals(serial, parallel);
+  }
+
+  private List<LogEntryProto> loadLogSegments(int parallelism, LogEntryProto[] entries) throws Exception {
+    RaftServerConfigKeys.Log.setSegmentLoadParallelism(properties, parallelism);
+    final List<LogEntryProto> consumed = new ArrayList<>();
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, consumed::add);
+      for (LogEntryProto e : entries) {
+        Assertions.assertEquals(e, raftLog.get(e.getIndex()));
+      }
+      Assertions.assertEquals(entries[entries.length - 1], getLastEntry(raftLog));
+
+      final RatisMetricRegistry metricRegistryForLogWorker = RaftLogMetricsBase.createRegistry(MEMBER_ID);
+      final DefaultTimekeeperImpl load = (DefaultTimekeeperImpl) metricRegistryForLogWorker.timer("logLoadLatency");
+      assertTrue(load.getTimer().getCount() > 0);
+    }
+    return consumed;
+  }
+
   static List<LogEntryProto> prepareLogEntries(List<SegmentRange> slist,
       Supplier<String> stringSupplier) {
     List<LogEntryProto> eList = new ArrayList<>();
@@ -497,6 +526,25 @@ public class TestSegmentedRaftLog extends BaseTest {
     }
   }
 
+  @Test
+  public void testTruncateCompressedLog() throws Exception {
+    RaftServerConfigKeys.Log.setSegmentCompression(properties, "DEFLATE");
+    RaftServerConfigKeys.Log.setSegmentCompressionBlockSize(properties, SizeInBytes.ONE_KB);
+    List<SegmentRange> ranges = prepareRanges(0, 5, 200, 0);
+    List<LogEntryProto> entries = prepareLogEntries(ranges, null);
+
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+    }
+    final File segment = LogSegmentStartEnd.valueOf(0L, 199L).getFile(storage);
+    Assertions.assertTrue(SegmentedRaftLogFormat.isBlockFormat(segment));
+
+    for (long fromIndex = 900; fromIndex >= 0; fromIndex -= 150) {
+      testTruncate(entries, fromIndex);
+    }
+  }
+
   private void testTruncate(List<LogEntryProto> entries, long fromIndex)
       throws Exception {
     try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
@@ -615,6 +663,92 @@ public class TestSegmentedRaftLog extends BaseTest {
     purgeAndVerify(startTerm, endTerm, segmentSize, 1, endIndex, startIndex, startIndex, purgePreservation);
   }
 
+  private SegmentedRaftLog newSegmentedRaftLog(RaftProperties p, SegmentPurgeService purgeService) {
+    return SegmentedRaftLog.newBuilder()
+        .setMemberId(MEMBER_ID)
+        .setStorage(storage)
+        .setProperties(p)
+        .setPurgeService(purgeService)
+        .build();
+  }
+
+  private static RaftProperties newBackgroundPurgeProperties(SizeInBytes bandwidth) {
+    final RaftProperties p = new RaftProperties();
+    RaftServerConfigKeys.Log.setPurgeGap(p, 1);
+    RaftServerConfigKeys.Log.setPurgeBackgroundEnabled(p, true);
+    RaftServerConfigKeys.Log.setPurgeBackgroundBandwidth(p, bandwidth);
+    return p;
+  }
+
+  @Test
+  public void testBackgroundPurge() throws Exception {
+    final List<SegmentRange> ranges = prepareRanges(0, 5, 200, 0);
+    final List<LogEntryProto> entries = prepareLogEntries(ranges, null);
+    final long endIndexOfClosedSegment = ranges.get(ranges.size() - 2).end;
+
+    final RaftProperties p = newBackgroundPurgeProperties(SizeInBytes.valueOf(0));
+    final SegmentPurgeService purgeService = SegmentPurgeService.newInstance(p);
+    Assertions.assertNotNull(purgeService);
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog(p, purgeService)) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+      raftLog.purge(endIndexOfClosedSegment).get();
+      Assertions.assertEquals(endIndexOfClosedSegment + 1, raftLog.getStartIndex());
+
+      // the closed segment files are deleted in the background
+      for (SegmentRange r : ranges.subList(0, ranges.size() - 1)) {
+        final File file = LogSegmentStartEnd.valueOf(r.start, r.end, false).getFile(storage);
+        JavaUtils.attempt(() -> Assertions.assertFalse(file.exists(), () -> file + " still exists"),
+            50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "delete " + file.getName(), LOG);
+      }
+      Assertions.assertEquals(0, purgeService.getPendingBytes());
+    } finally {
+      purgeService.close();
+    }
+  }
+
+  @Test
+  public void testBackgroundPurgeRestart() throws Exception {
+    final List<SegmentRange> ranges = prepareRanges(0, 5, 200, 0);
+    final List<LogEntryProto> entries = prepareLogEntries(ranges, null);
+    final long endIndexOfClosedSegment = ranges.get(ranges.size() - 2).end;
+
+    // a tiny bandwidth so that the deletions are still pending when the log is closed
+    final RaftProperties p = newBackgroundPurgeProperties(SizeInBytes.ONE_KB);
+    final SegmentPurgeService purgeService = SegmentPurgeService.newInstance(p);
+    Assertions.assertNotNull(purgeService);
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog(p, purgeService)) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+      raftLog.purge(endIndexOfClosedSegment).get();
+      Assertions.assertTrue(purgeService.getPendingBytes() > 0);
+    } finally {
+      // drop the pending deletions
+      purgeService.close();
+    }
+    final List<LogSegmentPath> leftovers = LogSegmentPath.getLogSegmentPaths(storage);
+    LOG.info("leftovers: {}", leftovers);
+    Assertions.assertTrue(leftovers.size() > 1, () -> "No leftovers: " + leftovers);
+
+    // restart: the leftover segments are loaded and then purged again
+    final SegmentPurgeService restarted = SegmentPurgeService.newInstance(
+        newBackgroundPurgeProperties(SizeInBytes.valueOf(0)));
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog(p, restarted)) {
+      raftLog.open(endIndexOfClosedSegment, null);
+      final LogEntryProto last = entries.get(entries.size() - 1);
+      Assertions.assertEquals(last, raftLog.get(last.getIndex()));
+      final long leftoverStart = leftovers.get(0).getStartEnd().getStartIndex();
+      Assertions.assertEquals(entries.get((int) leftoverStart), raftLog.get(leftoverStart));
+
+      raftLog.purge(endIndexOfClosedSegment).get();
+      Assertions.assertEquals(endIndexOfClosedSegment + 1, raftLog.getStartIndex());
+      JavaUtils.attempt(() -> Assertions.assertEquals(1, LogSegmentPath.getLogSegmentPaths(storage).size()),
+          50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "purge the leftovers", LOG);
+    } finally {
+      restarted.close();
+    }
+  }
+
   private void purgeAndVerify(int startTerm, int endTerm, int segmentSize, int purgeGap, long purgeIndex,
                               long expectedIndex) throws Exception {
     purgeAndVerify(startTerm, endTerm, segmentSize, purgeGap, purgeIndex, expectedIndex, 0, 0);
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.server.impl.RaftServerTestUtil;
+import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.ratis.server.metrics.SegmentedRaftLogMetrics.RAFT_LOG_STATEMACHINE_DATA_READ_CACHE_HIT_COUNT;
+import static org.apache.ratis.server.metrics.SegmentedRaftLogMetrics.RAFT_LOG_STATEMACHINE_DATA_READ_COALESCED_COUNT;
+
+public class TestStateMachineDataReadCache extends BaseTest {
+  private SegmentedRaftLogMetrics metrics;
+
+  @BeforeEach
+  public void setup() {
+    metrics = new SegmentedRaftLogMetrics(RaftServerTestUtil.TEST_MEMBER_ID);
+  }
+
+  @AfterEach
+  public void clear() {
+    metrics.unregister();
+  }
+
+  private long getCount(String name) {
+    return metrics.getRegistry().counter(name).getCount();
+  }
+
+  @Test
+  public void testCoalesceAndRelease() throws Exception {
+    final StateMachineDataReadCache cache = new StateMachineDataReadCache(1 << 20, metrics);
+    final AtomicInteger numReads = new AtomicInteger();
+    final CompletableFuture<ByteString> pending = new CompletableFuture<>();
+    final TermIndex ti = TermIndex.valueOf(1, 10);
+
+    // two appenders read the same entry while the read is in flight
+    final CompletableFuture<ByteString> f1 = cache.read(ti, 5, () -> {
+      numReads.incrementAndGet();
+      return pending;
+    });
+    final CompletableFuture<ByteString> f2 = cache.read(ti, 5, () -> {
+      numReads.incrementAndGet();
+      return pending;
+    });
+    Assertions.assertEquals(1, getCount(RAFT_LOG_STATEMACHINE_DATA_READ_COALESCED_COUNT));
+
+    final ByteString data = ByteString.copyFromUtf8("data");
+    pending.complete(data);
+    Assertions.assertEquals(data, f1.get());
+    Assertions.assertEquals(data, f2.get());
+    Assertions.assertEquals(data.size(), cache.getBytes());
+
+    // a later read gets the completed data
+    Assertions.assertEquals(data, cache.read(ti, 5, () -> {
+      numReads.incrementAndGet();
+      return CompletableFuture.completedFuture(data);
+    }).get());
+    Assertions.assertEquals(1, getCount(RAFT_LOG_STATEMACHINE_DATA_READ_CACHE_HIT_COUNT));
+    Assertions.assertEquals(1, numReads.get());
+
+    // the entry is released once all the followers have passed it
+    cache.release(11);
+    Assertions.assertEquals(0, cache.size());
+    Assertions.assertEquals(0, cache.getBytes());
+  }
+
+  @Test
+  public void testEvictionAndFailure() throws Exception {
+    final ByteString data = ByteString.copyFrom(new byte[100]);
+    final StateMachineDataReadCache cache = new StateMachineDataReadCache(250, metrics);
+    for (long i = 0; i < 3; i++) {
+      cache.read(TermIndex.valueOf(1, i), 0, () -> CompletableFuture.completedFuture(data)).get();
+    }
+    // the lowest index is evicted
+    Assertions.assertEquals(2, cache.size());
+    Assertions.assertEquals(200, cache.getBytes());
+
+    // a failed read is not cached
+    final CompletableFuture<ByteString> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("test"));
+    Assertions.assertTrue(cache.read(TermIndex.valueOf(1, 3), 0, () -> failed).isCompletedExceptionally());
+    Assertions.assertEquals(2, cache.size());
+
+    // an entry with a different term replaces the cached entry
+    cache.read(TermIndex.valueOf(2, 2), 0, () -> CompletableFuture.completedFuture(ByteString.EMPTY)).get();
+    Assertions.assertEquals(2, cache.size());
+    Assertions.assertEquals(100, cache.getBytes());
+  }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.wal;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.RaftTestUtil.SimpleMessage;
+import org.apache.ratis.RaftTestUtil.SimpleOperation;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.server.raftlog.RaftLogFactory;
+import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.server.storage.RaftStorageTestUtils;
+import org.apache.ratis.util.CodeInjectionForTesting;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.TimeDuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+public class TestWalRaftLog extends BaseTest {
+  private static final RaftPeerId PEER = RaftPeerId.valueOf("s0");
+
+  static LogEntryProto newEntry(long term, long index) {
+    return LogProtoUtils.toLogEntryProto(new SimpleOperation("m" + index).getLogEntryContent(), term, index);
+  }
+
+  private File volume;
+  private RaftProperties properties;
+  private final MultiGroupWals wals = new MultiGroupWals();
+  private final Map<RaftGroupId, RaftStorage> storages = new HashMap<>();
+
+  @BeforeEach
+  public void setup() {
+    volume = getTestDir();
+    properties = new RaftProperties();
+    RaftServerConfigKeys.Log.setPurgeGap(properties, 1);
+    RaftServerConfigKeys.Log.setSegmentSizeMax(properties, SizeInBytes.valueOf("4KB"));
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    CodeInjectionForTesting.remove(MultiGroupWal.WRITE_BATCH);
+    for (RaftStorage s : storages.values()) {
+      s.close();
+    }
+    FileUtils.deleteFully(volume);
+  }
+
+  private RaftLog newLog(RaftLogFactory factory, RaftGroupId groupId) throws IOException {
+    return newLog(factory, groupId, e -> {});
+  }
+
+  private RaftLog newLog(RaftLogFactory factory, RaftGroupId groupId, Consumer<LogEntryProto> consumer)
+      throws IOException {
+    RaftStorage storage = storages.get(groupId);
+    if (storage == null) {
+      storage = RaftStorageTestUtils.newRaftStorage(new File(volume, groupId.getUuid().toString()));
+      storages.put(groupId, storage);
+    }
+    final RaftStorage groupStorage = storage;
+    final RaftLog log = factory.newRaftLog(new RaftLogFactory.Context() {
+      @Override
+      public RaftGroupMemberId getMemberId() {
+        return RaftGroupMemberId.valueOf(PEER, groupId);
+      }
+
+      @Override
+      public RaftServer.Division getDivision() {
+        return null;
+      }
+
+      @Override
+      public RaftStorage getStorage() {
+        return groupStorage;
+      }
+
+      @Override
+      public LongSupplier getSnapshotIndexSupplier() {
+        return () -> RaftLog.INVALID_LOG_INDEX;
+      }
+
+      @Override
+      public RaftProperties getProperties() {
+        return properties;
+      }
+
+      @Override
+      public Runnable getSubmitUpdateCommitEvent() {
+        return null;
+      }
+
+      @Override
+      public MultiGroupWals getMultiGroupWals() {
+        return wals;
+      }
+    });
+    log.open(RaftLog.INVALID_LOG_INDEX, consumer);
+    return log;
+  }
+
+  private int getNumWalFiles() {
+    return new File(volume, MultiGroupWal.DIR_NAME).list().length;
+  }
+
+  @Test
+  public void testMultipleGroups() throws Exception {
+    final RaftLogFactory factory = RaftLogFactory.valueOf(WalRaftLogFactory.NAME);
+    final RaftGroupId g1 = RaftGroupId.randomId();
+    final RaftGroupId g2 = RaftGroupId.randomId();
+
+    final int n = 200;
+    final LogEntryProto[] entries1 = new LogEntryProto[n];
+    final LogEntryProto[] entries2 = new LogEntryProto[n];
+    for (int i = 0; i < n; i++) {
+      entries1[i] = newEntry(1, i);
+      entries2[i] = newEntry(2, i);
+    }
+    try (RaftLog log1 = newLog(factory, g1); RaftLog log2 = newLog(factory, g2)) {
+      final List<CompletableFuture<Long>> futures = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        futures.add(log1.appendEntry(entries1[i]));
+        futures.add(log2.appendEntry(entries2[i]));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+      Assertions.assertEquals(n - 1, log1.getFlushIndex());
+      Assertions.assertEquals(entries1[7], log1.get(7));
+      Assertions.assertEquals(entries2[7], log2.get(7));
+
+      // replace the tail of log1
+      final List<LogEntryProto> replaced = new ArrayList<>();
+      for (int i = n - 10; i < n; i++) {
+        entries1[i] = newEntry(3, i);
+        replaced.add(entries1[i]);
+      }
+      for (CompletableFuture<Long> f : log1.append(replaced)) {
+        f.get();
+      }
+      Assertions.assertEquals(3, log1.getLastEntryTermIndex().getTerm());
+      Assertions.assertEquals(n - 1, log1.getLastEntryTermIndex().getIndex());
+    }
+    Assertions.assertTrue(getNumWalFiles() > 1);
+
+    // the logs are recovered from the shared files
+    try (RaftLog log1 = newLog(factory, g1); RaftLog log2 = newLog(factory, g2)) {
+      for (int i = 0; i < n; i++) {
+        Assertions.assertEquals(entries1[i], log1.get(i));
+        Assertions.assertEquals(entries2[i], log2.get(i));
+      }
+      Assertions.assertEquals(0, log2.getStartIndex());
+
+      // the files are deleted only after both groups have purged them
+      final int numFiles = getNumWalFiles();
+      log1.purge(n - 1).get();
+      Assertions.assertEquals(numFiles, getNumWalFiles());
+      log2.purge(n - 1).get();
+      Assertions.assertEquals(1, getNumWalFiles());
+      Assertions.assertNull(log1.get(n - 1));
+      Assertions.assertEquals(RaftLog.INVALID_LOG_INDEX, log2.getStartIndex());
+    }
+  }
+
+  @Test
+  public void testReopenGroup() throws Exception {
+    final RaftLogFactory factory = RaftLogFactory.valueOf(WalRaftLogFactory.NAME);
+    final RaftGroupId g1 = RaftGroupId.randomId();
+    final RaftGroupId g2 = RaftGroupId.randomId();
+
+    final int n = 20;
+    final List<LogEntryProto> entries1 = new ArrayList<>();
+    try (RaftLog log2 = newLog(factory, g2)) {
+      try (RaftLog log1 = newLog(factory, g1)) {
+        for (int i = 0; i < n; i++) {
+          entries1.add(newEntry(1, i));
+          log1.appendEntry(entries1.get(i)).get();
+          log2.appendEntry(newEntry(1, i)).get();
+        }
+      }
+
+      // reopen g1 while g2 keeps the shared log open
+      final List<LogEntryProto> consumed = new ArrayList<>();
+      try (RaftLog log1 = newLog(factory, g1, consumed::add)) {
+        Assertions.assertEquals(entries1, consumed);
+        Assertions.assertEquals(n - 1, log1.getLastEntryTermIndex().getIndex());
+        for (int i = 0; i < n; i++) {
+          Assertions.assertEquals(entries1.get(i), log1.get(i));
+        }
+
+        entries1.add(newEntry(2, n));
+        log1.appendEntry(entries1.get(n)).get();
+        Assertions.assertEquals(entries1.get(n), log1.get(n));
+      }
+      Assertions.assertEquals(n - 1, log2.getLastEntryTermIndex().getIndex());
+    }
+
+    // recover from the files
+    final List<LogEntryProto> consumed = new ArrayList<>();
+    try (RaftLog log1 = newLog(factory, g1, consumed::add)) {
+      Assertions.assertEquals(entries1, consumed);
+    }
+  }
+
+  @Test
+  public void testCorruption() throws Exception {
+    final RaftLogFactory factory = RaftLogFactory.valueOf(WalRaftLogFactory.NAME);
+    final RaftGroupId groupId = RaftGroupId.randomId();
+    final int n = 10;
+    try (RaftLog log = newLog(factory, groupId)) {
+      for (int i = 0; i < n; i++) {
+        log.appendEntry(newEntry(1, i)).get();
+      }
+    }
+    final File file = new File(new File(volume, MultiGroupWal.DIR_NAME), "wal_0");
+
+    // a partially written record at the end is truncated
+    final long size = file.length();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(size);
+      raf.writeInt(100);
+      raf.write(new byte[10]);
+    }
+    try (RaftLog log = newLog(factory, groupId)) {
+      Assertions.assertEquals(n - 1, log.getLastEntryTermIndex().getIndex());
+    }
+    Assertions.assertEquals(size, file.length());
+
+    // a corrupted record followed by other records fails the recovery
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(30);
+      final int b = raf.read();
+      raf.seek(30);
+      raf.write(b ^ 0xFF);
+    }
+    Assertions.assertThrows(IOException.class, () -> newLog(factory, groupId));
+    Assertions.assertEquals(size, file.length());
+  }
+
+  @Test
+  public void testQueueLimit() throws Exception {
+    final int limit = 2;
+    RaftServerConfigKeys.Log.setQueueElementLimit(properties, limit);
+    final RaftLogFactory factory = RaftLogFactory.valueOf(WalRaftLogFactory.NAME);
+    final RaftGroupId groupId = RaftGroupId.randomId();
+
+    // block the writer at the first batch
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final AtomicInteger firstBatchSize = new AtomicInteger();
+    CodeInjectionForTesting.put(MultiGroupWal.WRITE_BATCH, (localId, remoteId, args) -> {
+      if (firstBatchSize.compareAndSet(0, ((List<?>) args[0]).size())) {
+        blocked.countDown();
+        try {
+          unblock.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return true;
+    });
+
+    final int n = 10;
+    try (RaftLog log = newLog(factory, groupId)) {
+      final AtomicInteger submitted = new AtomicInteger();
+      final List<CompletableFuture<Long>> futures = new ArrayList<>();
+      final CompletableFuture<Void> appender = CompletableFuture.runAsync(() -> {
+        for (int i = 0; i < n; i++) {
+          futures.add(log.appendEntry(newEntry(1, i)));
+          submitted.incrementAndGet();
+        }
+      });
+      Assertions.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+      // the appends block once the queue is full
+      JavaUtils.attempt(() -> Assertions.assertEquals(firstBatchSize.get() + limit, submitted.get()),
+          50, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "submitted", LOG);
+      TimeDuration.valueOf(200, TimeUnit.MILLISECONDS).sleep();
+      Assertions.assertEquals(firstBatchSize.get() + limit, submitted.get());
+      Assertions.assertTrue(submitted.get() < n);
+
+      unblock.countDown();
+      appender.get(5, TimeUnit.SECONDS);
+      JavaUtils.allOf(futures).get(5, TimeUnit.SECONDS);
+      Assertions.assertEquals(n - 1, log.getFlushIndex());
+    }
+  }
+
+  @Test
+  public void testCluster() throws Exception {
+    RaftServerConfigKeys.Log.setType(properties, WalRaftLogFactory.NAME);
+    try (MiniRaftClusterWithGrpc cluster = MiniRaftClusterWithGrpc.FACTORY.newCluster(3, properties)) {
+      cluster.start();
+      RaftTestUtil.waitForLeader(cluster);
+      final SimpleMessage[] messages = SimpleMessage.create(10);
+      try (RaftClient client = cluster.createClient()) {
+        for (SimpleMessage m : messages) {
+          Assertions.assertTrue(client.io().send(m).isSuccess());
+        }
+      }
+
+      cluster.restart(false);
+      RaftTestUtil.waitForLeader(cluster);
+      RaftTestUtil.assertLogEntries(cluster, messages);
+      try (RaftClient client = cluster.createClient()) {
+        Assertions.assertTrue(client.io().send(new SimpleMessage("after restart")).isSuccess());
+      }
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.storage;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.storage.RaftStorage.StartupOption;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.SizeInBytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TestRaftStorageMetadataJournal extends BaseTest {
+  private File volume;
+
+  @BeforeEach
+  public void setup() {
+    volume = getTestDir();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    FileUtils.deleteFully(volume);
+  }
+
+  private RaftStorageImpl newRaftStorage(String name, RaftStorageMetadataJournals journals) throws IOException {
+    final RaftStorageImpl storage = StorageImplUtils.newRaftStorage(new File(volume, name), SizeInBytes.ZERO,
+        StartupOption.RECOVER, null, journals);
+    storage.initialize();
+    return storage;
+  }
+
+  static RaftStorageMetadata newMetadata(int i, long term) {
+    return RaftStorageMetadata.valueOf(term, RaftPeerId.valueOf("s" + i));
+  }
+
+  @Test
+  public void testGroupCommitAndCompaction() throws Exception {
+    final int numStorages = 10;
+    final int numTerms = 20;
+    final RaftStorageMetadataJournals journals = new RaftStorageMetadataJournals(50);
+    final List<RaftStorageImpl> storages = new ArrayList<>();
+    for (int i = 0; i < numStorages; i++) {
+      storages.add(newRaftStorage("group" + i, journals));
+    }
+
+    // persist concurrently from all the storages
+    final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < numStorages; i++) {
+      final int id = i;
+      final RaftStorageMetadataFile metaFile = storages.get(i).getMetadataFile();
+      futures.add(CompletableFuture.runAsync(() -> {
+        for (long term = 1; term <= numTerms; term++) {
+          try {
+            metaFile.persist(newMetadata(id, term));
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      }));
+    }
+    futures.forEach(CompletableFuture::join);
+    for (RaftStorageImpl s : storages) {
+      s.close();
+    }
+
+    // the journal is compacted and the metadata files are not updated
+    final File journal = new File(volume, RaftStorageMetadataJournal.JOURNAL_FILE_NAME);
+    Assertions.assertTrue(journal.length() < numStorages * numTerms * 20, () -> "length = " + journal.length());
+    Assertions.assertEquals(RaftStorageMetadata.getDefault(),
+        RaftStorageMetadataFileImpl.load(storages.get(0).getStorageDir().getMetaFile()));
+
+    // append a partially written record
+    try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+      raf.seek(raf.length());
+      raf.write(new byte[]{0, 0, 0, 100, 1, 2});
+    }
+
+    for (int i = 0; i < numStorages; i++) {
+      try (RaftStorageImpl s = newRaftStorage("group" + i, journals)) {
+        Assertions.assertEquals(newMetadata(i, numTerms), s.getMetadataFile().getMetadata());
+      }
+    }
+  }
+
+  @Test
+  public void testEnableForExistingStorage() throws Exception {
+    final File dir = new File(volume, "group");
+    final RaftStorageMetadata metadata = newMetadata(1, 5);
+    try (RaftStorageImpl s = StorageImplUtils.newRaftStorage(dir, SizeInBytes.ZERO, StartupOption.RECOVER, null)) {
+      s.initialize();
+      s.getMetadataFile().persist(metadata);
+    }
+
+    final RaftStorageMetadata newMetadata = newMetadata(2, 6);
+    final RaftStorageMetadataJournals journals = new RaftStorageMetadataJournals(
+        RaftServerConfigKeys.STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_DEFAULT);
+    try (RaftStorageImpl s = newRaftStorage(dir.getName(), journals)) {
+      // read from the metadata file
+      Assertions.assertEquals(metadata, s.getMetadataFile().getMetadata());
+      s.getMetadataFile().persist(newMetadata);
+    }
+    try (RaftStorageImpl s = newRaftStorage(dir.getName(), journals)) {
+      Assertions.assertEquals(newMetadata, s.getMetadataFile().getMetadata());
+    }
+  }
+
+  @Test
+  public void testCorruptedRecordInTheMiddle() throws Exception {
+    final RaftStorageMetadataJournals journals = new RaftStorageMetadataJournals(
+        RaftServerConfigKeys.STORAGE_METADATA_JOURNAL_COMPACTION_THRESHOLD_DEFAULT);
+    try (RaftStorageImpl s1 = newRaftStorage("group1", journals);
+         RaftStorageImpl s2 = newRaftStorage("group2", journals)) {
+      s1.getMetadataFile().persist(newMetadata(1, 1));
+      s2.getMetadataFile().persist(newMetadata(2, 1));
+      s2.getMetadataFile().persist(newMetadata(2, 2));
+    }
+
+    // corrupt the first record, which is followed by the valid records of the other storage
+    final File journal = new File(volume, RaftStorageMetadataJournal.JOURNAL_FILE_NAME);
+    try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+      raf.seek(6);
+      raf.write(~raf.read());
+    }
+    final long length = journal.length();
+    final IOException e = Assertions.assertThrows(IOException.class, () -> newRaftStorage("group2", journals));
+    Assertions.assertTrue(e.getMessage().contains("followed by other data"), e::getMessage);
+    // the journal is not truncated
+    Assertions.assertEquals(length, journal.length());
+  }
+
+  @Test
+  public void testCluster() throws Exception {
+    final RaftProperties properties = new RaftProperties();
+    RaftServerConfigKeys.setStorageMetadataJournalEnabled(properties, true);
+    try (MiniRaftClusterWithGrpc cluster = MiniRaftClusterWithGrpc.FACTORY.newCluster(3, properties)) {
+      cluster.start();
+      final long term = RaftTestUtil.waitForLeader(cluster).getInfo().getCurrentTerm();
+      cluster.restart(false);
+      final RaftServer.Division leader = RaftTestUtil.waitForLeader(cluster);
+      Assertions.assertTrue(leader.getInfo().getCurrentTerm() > term);
+      for (RaftServer.Division d : cluster.iterateDivisions()) {
+        final File journal = new File(d.getRaftStorage().getStorageDir().getRoot().getParentFile(),
+            RaftStorageMetadataJournal.JOURNAL_FILE_NAME);
+        Assertions.assertTrue(journal.length() > 0, () -> journal + " is empty");
+      }
+    }
+  }
+}
@@ -143,7 +143,7 @@ public class TestStorageImplUtils extends BaseTest {
     RaftServerConfigKeys.setStorageDir(properties, Collections.singletonList(testDir));
 
     final RaftStorageImpl storage = StorageImplUtils.initRaftStorage(
-        "group-1", RaftStorage.StartupOption.RECOVER, properties);
+        "group-1", RaftStorage.StartupOption.RECOVER, properties, null);
     Assertions.assertNotNull(storage);
     storage.close();
   }
@@ -170,7 +170,7 @@ public class TestStorageImplUtils extends BaseTest {
 
     final Throwable ioe = testFailureCase("Do not auto format multi directories",
         () -> StorageImplUtils.initRaftStorage(
-            "group-1", RaftStorage.StartupOption.RECOVER, properties),
+            "group-1", RaftStorage.StartupOption.RECOVER, properties, null),
         IOException.class);
     Assertions.assertTrue(ioe.getMessage().contains("Failed to RECOVER: Storage directory not found"));
   }
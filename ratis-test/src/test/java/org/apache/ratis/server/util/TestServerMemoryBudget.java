@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.util;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.util.SizeInBytes;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestServerMemoryBudget extends BaseTest {
+  private static final long ONE_MB = SizeInBytes.ONE_MB.getSize();
+
+  @Test
+  public void testNewInstance() {
+    final RaftProperties properties = new RaftProperties();
+    Assertions.assertNull(ServerMemoryBudget.newInstance(properties));
+    RaftServerConfigKeys.Memory.setBudget(properties, SizeInBytes.valueOf("4MB"));
+    Assertions.assertNotNull(ServerMemoryBudget.newInstance(properties));
+  }
+
+  @Test
+  public void testSharedAcrossGroups() {
+    final ServerMemoryBudget budget = new ServerMemoryBudget(SizeInBytes.valueOf("4MB"));
+    final RaftGroupId group1 = RaftGroupId.randomId();
+    final RaftGroupId group2 = RaftGroupId.randomId();
+    final ServerMemoryBudget.Quota pending = budget.newQuota(group1);
+    final ServerMemoryBudget.Quota cache = budget.newQuota(group2);
+
+    // many small acquisitions are rounded up together, not individually
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertTrue(pending.tryAcquire(ONE_MB / 10));
+    }
+    Assertions.assertEquals(1, budget.getUsedMegaByteSize());
+    Assertions.assertEquals(10 * (ONE_MB / 10), budget.getUsedBytes(group1));
+
+    Assertions.assertTrue(cache.trySetBytes(3 * ONE_MB));
+    Assertions.assertTrue(budget.isExhausted());
+    Assertions.assertFalse(pending.tryAcquire(ONE_MB));
+    // a failed growth leaves the quota unchanged
+    Assertions.assertFalse(cache.trySetBytes(4 * ONE_MB));
+    Assertions.assertEquals(3 * ONE_MB, cache.getBytes());
+
+    // shrinking always succeeds and returns the budget to the other groups
+    Assertions.assertTrue(cache.trySetBytes(ONE_MB));
+    Assertions.assertTrue(pending.tryAcquire(ONE_MB));
+    Assertions.assertEquals(ONE_MB, budget.getUsedBytes(group2));
+
+    pending.close();
+    Assertions.assertEquals(1, budget.getUsedMegaByteSize());
+    Assertions.assertFalse(pending.tryAcquire(1));
+    Assertions.assertEquals(0, budget.getUsedBytes(group1));
+    budget.removeGroup(group1);
+
+    cache.close();
+    Assertions.assertEquals(0, budget.getUsedMegaByteSize());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.datastream.impl.DataStreamErasureCoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Timeout(value = 10)
+public class TestReedSolomon extends BaseTest {
+  @Test
+  public void testDecodeAllErasures() {
+    final int dataShards = 4;
+    final int parityShards = 2;
+    final ReedSolomon codec = new ReedSolomon(dataShards, parityShards);
+    final int length = 100;
+    final byte[][] expected = new byte[codec.getNumShards()][length];
+    for (int i = 0; i < dataShards; i++) {
+      ThreadLocalRandom.current().nextBytes(expected[i]);
+    }
+    codec.encode(expected, 0, length);
+
+    // erase every combination of at most parityShards shards
+    for (int mask = 0; mask < 1 << codec.getNumShards(); mask++) {
+      if (Integer.bitCount(mask) > parityShards) {
+        continue;
+      }
+      final byte[][] shards = new byte[codec.getNumShards()][];
+      final boolean[] present = new boolean[codec.getNumShards()];
+      for (int i = 0; i < shards.length; i++) {
+        present[i] = (mask & (1 << i)) == 0;
+        shards[i] = present[i] ? expected[i].clone() : new byte[length];
+      }
+      codec.decode(shards, present, 0, length);
+      for (int i = 0; i < shards.length; i++) {
+        Assertions.assertArrayEquals(expected[i], shards[i], "mask=" + Integer.toBinaryString(mask) + ", i=" + i);
+      }
+    }
+
+    // not enough shards
+    final boolean[] present = {true, true, true, false, false, false};
+    testFailureCase("not enough shards", () -> codec.decode(expected, present, 0, length),
+        IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testDataStreamErasureCoder() {
+    final DataStreamErasureCoder coder = new DataStreamErasureCoder(3, 2);
+    final List<ByteBuffer>[] streams = newLists(coder.getNumShards());
+    final ByteBuffer expected = ByteBuffer.allocate(1 << 16);
+    for (int size : new int[]{0, 1, 2, 3, 100, 1000, 4097}) {
+      final byte[] packet = new byte[size];
+      ThreadLocalRandom.current().nextBytes(packet);
+      expected.put(packet);
+
+      final ByteBuffer[] records = coder.encode(ByteBuffer.wrap(packet));
+      for (int i = 0; i < records.length; i++) {
+        Assertions.assertEquals(records[0].remaining(), records[i].remaining());
+        streams[i].add(records[i]);
+      }
+    }
+    expected.flip();
+
+    // lose a data shard and a parity shard
+    final ByteBuffer[] shardStreams = new ByteBuffer[coder.getNumShards()];
+    for (int i = 0; i < shardStreams.length; i++) {
+      shardStreams[i] = i == 1 || i == 4 ? null : concat(streams[i]);
+    }
+    Assertions.assertEquals(expected, coder.decode(shardStreams));
+  }
+
+  @SuppressWarnings("unchecked")
+  static List<ByteBuffer>[] newLists(int n) {
+    final List<ByteBuffer>[] lists = new List[n];
+    for (int i = 0; i < n; i++) {
+      lists[i] = new ArrayList<>();
+    }
+    return lists;
+  }
+
+  static ByteBuffer concat(List<ByteBuffer> buffers) {
+    final ByteBuffer concat = ByteBuffer.allocate(buffers.stream().mapToInt(ByteBuffer::remaining).sum());
+    buffers.forEach(b -> concat.put(b.duplicate()));
+    concat.flip();
+    return concat;
+  }
+}
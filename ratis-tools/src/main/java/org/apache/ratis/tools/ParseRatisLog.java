@@ -24,6 +24,7 @@ import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.raftlog.LogProtoUtils;
 import org.apache.ratis.server.raftlog.segmented.LogSegmentPath;
 import org.apache.ratis.server.raftlog.segmented.LogSegment;
+import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLogFormat;
 import org.apache.ratis.util.SizeInBytes;
 
 import java.io.File;
@@ -58,7 +59,8 @@ public final class ParseRatisLog {
       return;
     }
 
-    System.out.println("Processing Raft Log file: " + file.getAbsolutePath() + " size:" + file.length());
+    System.out.println("Processing Raft Log file: " + file.getAbsolutePath() + " size:" + file.length()
+        + (SegmentedRaftLogFormat.isBlockFormat(file)? " (block-compressed)": ""));
     final int entryCount = LogSegment.readSegmentFile(file, pi.getStartEnd(), maxOpSize,
         RaftServerConfigKeys.Log.CorruptionPolicy.EXCEPTION, null, this::processLogEntry);
     System.out.println("Num Total Entries: " + entryCount);
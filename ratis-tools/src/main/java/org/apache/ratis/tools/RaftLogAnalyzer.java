@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.tools;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.apache.ratis.server.raftlog.segmented.LogSegment;
+import org.apache.ratis.server.raftlog.segmented.LogSegmentPath;
+import org.apache.ratis.server.raftlog.segmented.LogSegmentStartEnd;
+import org.apache.ratis.util.ConcurrentUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.SizeInBytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Analyze the log segments of a storage directory in parallel.
+ * <p>
+ * The segments are read by multiple threads, with at most one segment in flight per thread,
+ * but the per-segment summaries are printed in index order as soon as they are available,
+ * followed by the overall summary:
+ * the entries per term, the entry size histogram, the per-client entry counts,
+ * and the index gaps and corruptions found.
+ * <p>
+ * When an index range is specified, only the segments overlapping the range,
+ * as determined by the segment file names, are read.
+ */
+public final class RaftLogAnalyzer {
+  /** A summary of log entries. */
+  static final class Summary {
+    private long numEntries;
+    private long numBytes;
+    private long numConfEntries;
+    private long numMetadataEntries;
+    private long numStateMachineEntries;
+    private long numInvalidEntries;
+    private final SortedMap<Long, Long> entriesPerTerm = new TreeMap<>();
+    /** Bucket i counts the entries with size in [2^(i-1), 2^i). */
+    private final long[] sizeHistogram = new long[Integer.SIZE];
+    private final Map<ClientId, Long> entriesPerClient = new HashMap<>();
+
+    void add(LogEntryProto entry) {
+      final int size = entry.getSerializedSize();
+      numEntries++;
+      numBytes += size;
+      entriesPerTerm.merge(entry.getTerm(), 1L, Long::sum);
+      sizeHistogram[Integer.SIZE - Integer.numberOfLeadingZeros(size)]++;
+
+      if (entry.hasConfigurationEntry()) {
+        numConfEntries++;
+      } else if (entry.hasMetadataEntry()) {
+        numMetadataEntries++;
+      } else if (entry.hasStateMachineLogEntry()) {
+        numStateMachineEntries++;
+        final StateMachineLogEntryProto smLog = entry.getStateMachineLogEntry();
+        if (!smLog.getClientId().isEmpty()) {
+          entriesPerClient.merge(ClientId.valueOf(smLog.getClientId()), 1L, Long::sum);
+        }
+      } else {
+        numInvalidEntries++;
+      }
+    }
+
+    void add(Summary that) {
+      numEntries += that.numEntries;
+      numBytes += that.numBytes;
+      numConfEntries += that.numConfEntries;
+      numMetadataEntries += that.numMetadataEntries;
+      numStateMachineEntries += that.numStateMachineEntries;
+      numInvalidEntries += that.numInvalidEntries;
+      that.entriesPerTerm.forEach((term, n) -> entriesPerTerm.merge(term, n, Long::sum));
+      for (int i = 0; i < sizeHistogram.length; i++) {
+        sizeHistogram[i] += that.sizeHistogram[i];
+      }
+      that.entriesPerClient.forEach((client, n) -> entriesPerClient.merge(client, n, Long::sum));
+    }
+
+    @Override
+    public String toString() {
+      return "entries=" + numEntries + ", bytes=" + numBytes + ", terms=" + entriesPerTerm;
+    }
+
+    void print(PrintStream out, int maxClients) {
+      out.println("Num Total Entries: " + numEntries + " (" + numBytes + " bytes)");
+      out.println("Num Conf Entries: " + numConfEntries);
+      out.println("Num Metadata Entries: " + numMetadataEntries);
+      out.println("Num StateMachine Entries: " + numStateMachineEntries);
+      out.println("Num Invalid Entries: " + numInvalidEntries);
+
+      out.println("Entries per term:");
+      entriesPerTerm.forEach((term, n) -> out.println("  term " + term + ": " + n));
+
+      out.println("Entry size histogram:");
+      for (int i = 0; i < sizeHistogram.length; i++) {
+        if (sizeHistogram[i] > 0) {
+          final long lower = i == 0 ? 0 : 1L << (i - 1);
+          out.println("  [" + SizeInBytes.valueOf(lower) + ", " + SizeInBytes.valueOf(1L << i) + "): "
+              + sizeHistogram[i]);
+        }
+      }
+
+      out.println("Entries per client (" + entriesPerClient.size() + " clients, top " + maxClients + "):");
+      entriesPerClient.entrySet().stream()
+          .sorted(Map.Entry.<ClientId, Long>comparingByValue(Comparator.reverseOrder()))
+          .limit(maxClients)
+          .forEach(e -> out.println("  " + e.getKey() + ": " + e.getValue()));
+    }
+  }
+
+  /** The result of reading a segment file. */
+  private final class SegmentResult {
+    private final LogSegmentPath path;
+    private final Summary summary = new Summary();
+    private final List<String> problems = new ArrayList<>();
+    private final List<String> entries = new ArrayList<>();
+    private long firstIndex = -1;
+    private long lastIndex = -1;
+
+    private SegmentResult(LogSegmentPath path) {
+      this.path = path;
+    }
+
+    private void accept(LogEntryProto entry) {
+      final long index = entry.getIndex();
+      if (lastIndex >= 0 && index != lastIndex + 1) {
+        problems.add("gap: expected index " + (lastIndex + 1) + " but found " + index);
+      }
+      if (firstIndex < 0) {
+        firstIndex = index;
+      }
+      lastIndex = index;
+
+      if (index >= fromIndex && index <= toIndex) {
+        summary.add(entry);
+        if (printEntries) {
+          entries.add(LogProtoUtils.toLogEntryString(entry, smLogToString));
+        }
+      }
+    }
+
+    private SegmentResult read() {
+      final File file = path.getPath().toFile();
+      final LogSegmentStartEnd startEnd = path.getStartEnd();
+      try {
+        LogSegment.readSegmentFile(file, startEnd, maxOpSize,
+            RaftServerConfigKeys.Log.CorruptionPolicy.EXCEPTION, null, this::accept);
+      } catch (Exception e) {
+        problems.add("corrupted after index " + lastIndex + ": " + e);
+      }
+      if (firstIndex >= 0 && firstIndex != startEnd.getStartIndex()) {
+        problems.add("first index " + firstIndex + " mismatches the file name");
+      }
+      if (!startEnd.isOpen() && lastIndex != startEnd.getEndIndex()) {
+        problems.add("last index " + lastIndex + " mismatches the file name");
+      }
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return path.getPath().getFileName() + ": indices=[" + firstIndex + ", " + lastIndex + "], " + summary;
+    }
+  }
+
+  private final File dir;
+  private final int numThreads;
+  private final long fromIndex;
+  private final long toIndex;
+  private final boolean printEntries;
+  private final int maxClients;
+  private final Function<StateMachineLogEntryProto, String> smLogToString;
+  private final SizeInBytes maxOpSize;
+  private final PrintStream out;
+
+  @SuppressWarnings("parameternumber")
+  private RaftLogAnalyzer(File dir, int numThreads, long fromIndex, long toIndex, boolean printEntries,
+      int maxClients, Function<StateMachineLogEntryProto, String> smLogToString, SizeInBytes maxOpSize,
+      PrintStream out) {
+    this.dir = dir;
+    this.numThreads = numThreads;
+    this.fromIndex = fromIndex;
+    this.toIndex = toIndex;
+    this.printEntries = printEntries;
+    this.maxClients = maxClients;
+    this.smLogToString = smLogToString;
+    this.maxOpSize = maxOpSize;
+    this.out = out;
+  }
+
+  private boolean isInRange(LogSegmentStartEnd startEnd) {
+    return startEnd.getStartIndex() <= toIndex && (startEnd.isOpen() || startEnd.getEndIndex() >= fromIndex);
+  }
+
+  /** @return the directory containing the segment files. */
+  private File getLogDir() {
+    final File current = new File(dir, "current");
+    return current.isDirectory() ? current : dir;
+  }
+
+  /**
+   * Analyze the log segments.
+   *
+   * @return the number of problems found, i.e. gaps and corruptions.
+   */
+  public int analyze() throws IOException, InterruptedException {
+    final File logDir = getLogDir();
+    final List<LogSegmentPath> paths = new ArrayList<>();
+    for (LogSegmentPath p : LogSegmentPath.getLogSegmentPaths(logDir.toPath())) {
+      if (isInRange(p.getStartEnd())) {
+        paths.add(p);
+      }
+    }
+    out.println("Analyzing " + paths.size() + " segment(s) in " + logDir.getAbsolutePath()
+        + " for indices [" + fromIndex + ", " + toIndex + "] using " + numThreads + " thread(s)");
+
+    final ExecutorService executor = ConcurrentUtils.newThreadPoolWithMax(
+        false, numThreads, JavaUtils.getClassSimpleName(getClass()) + "-");
+    // at most numThreads segments are in flight so that the results waiting to be printed are bounded
+    final Queue<Future<SegmentResult>> window = new ArrayDeque<>(numThreads);
+    int next = 0;
+    try {
+      for (; next < paths.size() && window.size() < numThreads; next++) {
+        window.add(submit(executor, paths.get(next)));
+      }
+
+      // print the results in index order
+      final Summary total = new Summary();
+      int numProblems = 0;
+      SegmentResult previous = null;
+      while (!window.isEmpty()) {
+        final SegmentResult r = get(window.remove());
+        if (next < paths.size()) {
+          window.add(submit(executor, paths.get(next++)));
+        }
+        out.println(r);
+        r.entries.forEach(out::println);
+        if (previous != null && previous.lastIndex >= 0 && r.firstIndex >= 0
+            && r.firstIndex != previous.lastIndex + 1) {
+          r.problems.add(0, (r.firstIndex <= previous.lastIndex ? "overlap" : "gap")
+              + " with the previous segment ending at index " + previous.lastIndex);
+        }
+        for (String problem : r.problems) {
+          out.println("  " + problem);
+        }
+        numProblems += r.problems.size();
+        total.add(r.summary);
+        previous = r;
+      }
+
+      out.println("----------------------------------------");
+      out.println("Num Segments: " + paths.size());
+      out.println("Num Problems: " + numProblems);
+      total.print(out, maxClients);
+      return numProblems;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Future<SegmentResult> submit(ExecutorService executor, LogSegmentPath path) {
+    return executor.submit(() -> new SegmentResult(path).read());
+  }
+
+  private static SegmentResult get(Future<SegmentResult> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to read segment", e.getCause());
+    }
+  }
+
+  public static class Builder {
+    private File dir = null;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private long fromIndex = 0;
+    private long toIndex = Long.MAX_VALUE;
+    private boolean printEntries = false;
+    private int maxClients = 10;
+    private Function<StateMachineLogEntryProto, String> smLogToString = null;
+    private SizeInBytes maxOpSize = SizeInBytes.valueOf("32MB");
+    private PrintStream out = System.out;
+
+    /** Set the storage directory, its "current" subdirectory or any directory containing segment files. */
+    public Builder setStorageDir(File storageDir) {
+      this.dir = storageDir;
+      return this;
+    }
+
+    public Builder setNumThreads(int numThreads) {
+      this.numThreads = numThreads;
+      return this;
+    }
+
+    /** Set the inclusive index range to analyze. */
+    public Builder setIndexRange(long from, long to) {
+      this.fromIndex = from;
+      this.toIndex = to;
+      return this;
+    }
+
+    /** Should the entries within the index range be printed? */
+    public Builder setPrintEntries(boolean printEntries) {
+      this.printEntries = printEntries;
+      return this;
+    }
+
+    /** Set the max number of clients to print. */
+    public Builder setMaxClients(int maxClients) {
+      this.maxClients = maxClients;
+      return this;
+    }
+
+    public Builder setSMLogToString(Function<StateMachineLogEntryProto, String> smLogToStr) {
+      this.smLogToString = smLogToStr;
+      return this;
+    }
+
+    public Builder setMaxOpSize(SizeInBytes maxOpSize) {
+      this.maxOpSize = maxOpSize;
+      return this;
+    }
+
+    public Builder setOutput(PrintStream output) {
+      this.out = output;
+      return this;
+    }
+
+    public RaftLogAnalyzer build() {
+      if (dir == null) {
+        throw new IllegalArgumentException("The storage directory is not set");
+      }
+      if (numThreads <= 0) {
+        throw new IllegalArgumentException("numThreads = " + numThreads + " <= 0");
+      }
+      if (fromIndex > toIndex) {
+        throw new IllegalArgumentException("fromIndex = " + fromIndex + " > toIndex = " + toIndex);
+      }
+      return new RaftLogAnalyzer(dir, numThreads, fromIndex, toIndex, printEntries, maxClients,
+          smLogToString, maxOpSize, out);
+    }
+  }
+
+  /**
+   * Usage: RaftLogAnalyzer STORAGE_DIR [-threads N] [-from INDEX] [-to INDEX] [-entries]
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println("Usage: " + RaftLogAnalyzer.class.getSimpleName()
+          + " STORAGE_DIR [-threads N] [-from INDEX] [-to INDEX] [-entries]");
+      System.exit(1);
+    }
+    final Builder builder = new Builder().setStorageDir(new File(args[0]));
+    long from = 0;
+    long to = Long.MAX_VALUE;
+    for (int i = 1; i < args.length; i++) {
+      switch (args[i]) {
+        case "-threads":
+          builder.setNumThreads(Integer.parseInt(args[++i]));
+          break;
+        case "-from":
+          from = Long.parseLong(args[++i]);
+          break;
+        case "-to":
+          to = Long.parseLong(args[++i]);
+          break;
+        case "-entries":
+          builder.setPrintEntries(true);
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+      }
+    }
+    final int numProblems = builder.setIndexRange(from, to).build().analyze();
+    System.exit(numProblems == 0 ? 0 : 2);
+  }
+}